@@ -10,14 +10,62 @@ public class AppConstants {
 
     public static final String PRODUCT_URL = "/api/products";
 
+    public static final String SEARCH_URL = "/api/search";
+
+    public static final String IMAGE_JOB_URL = "/api/images/jobs/";
+
     public static final String EMPTY_IMAGE_MSG = "Image file should not be empty!";
 
     public static final String IMAGE_MSG = " image is uploaded successfully!";
 
+    public static final String UPLOAD_QUEUED_MSG = " image upload is queued";
+
+    public static final String UPLOAD_BUSY_MSG = "Too many image uploads in progress, retry later";
+
+    public static final String CHUNK_CHECKSUM_HEADER = "X-Chunk-SHA256";
+
+    public static final String CHUNK_CHECKSUM_MSG = "Chunk content does not match its " + CHUNK_CHECKSUM_HEADER + " checksum";
+
+    public static final String CHUNK_SIZE_MSG = "Chunk size does not match the chunk number, every chunk but the last has chunkSize bytes";
+
+    public static final String CHUNKS_MISSING_MSG = "Upload is missing chunks ";
+
+    public static final String UPLOAD_TOO_LARGE_MSG = "totalSize exceeds the maximum upload size of ";
+
     public static final String EXTENSION_MSG = "File extensions other than .jpeg, .jpg, .png are not allowed";
 
+    public static final String IMAGE_CONTENT_MSG = "File content is not a PNG or JPEG image";
+
+    public static final String LOGIN_BUSY_MSG = "Too many logins in progress, retry later";
+
+    public static final String LOGIN_LOCKED_MSG = "Too many failed logins, retry later";
+
+    public static final String IMPORT_BUSY_MSG = "Too many imports in progress, retry later";
+
+    public static final String EMAIL_EXISTS_MSG = "A user with this email is already registered";
+
+    public static final String IMPORT_HEADER_MSG = "CSV import needs a header line naming the columns, email among them";
+
+    public static final String IMPORT_CSV_MSG = "Malformed CSV row, ";
+
+    public static final String IMPORT_JSON_MSG = "Malformed JSON row, ";
+
+    public static final String IMPORT_LINE_LENGTH_MSG = "Row is longer than the maximum line length of ";
+
+    public static final String IMPORT_DUPLICATE_MSG = "Email appears more than once in this import";
+
+    public static final String IMPORT_SAVE_MSG = "User could not be saved, e.g. the email was registered concurrently";
+
+    public static final String CSV_CONTENT_TYPE = "text/csv";
+
     public static final String PAGE_ERROR_MSG = "Page Size, Page Number should not be less than 1 and sortBy, sortDir properly inserted";
 
+    public static final String CURSOR_ERROR_MSG = "Page Size should not be less than 1, sortBy, sortDir properly inserted and cursor taken from a previous response with the same sortBy";
+
+    public static final String COUNT_ERROR_MSG = "count should be one of estimate, exact or none";
+
+    public static final String SUGGEST_LIMIT_MSG = "limit should be between 1 and ";
+
     /**
      * @implNote default constants for pagination
      */
@@ -28,6 +76,17 @@ public class AppConstants {
     public static final String SORT_USER_BY = "name";
     public static final String SORT_CATEGORY_BY = "title";
     public static final String SORT_PRODUCT_BY = "title";
+    public static final String SORT_RELEVANCE = "relevance";
+    public static final String COUNT_MODE = "estimate";
+    public static final String SUGGEST_LIMIT = "10";
+
+
+    /**
+     * @implNote names of the by-id dto caches, sized through spring.cache.caffeine.spec
+     */
+
+    public static final String PRODUCT_CACHE = "products";
+    public static final String CATEGORY_CACHE = "categories";
 
 
     /**
@@ -1,7 +1,13 @@
 package com.mobicoolsoft.electronic.store.config;
 
-import org.modelmapper.ModelMapper;
+import com.mobicoolsoft.electronic.store.helper.IdGenerator;
+import com.mobicoolsoft.electronic.store.helper.RandomIdGenerator;
+import com.mobicoolsoft.electronic.store.helper.TimeOrderedIdGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 /**
  * @author Sandip Kolhekar
@@ -9,16 +15,96 @@ import org.springframework.context.annotation.Bean;
  */
 
 @org.springframework.context.annotation.Configuration
+@EnableCaching
+@EnableScheduling
 public class Configuration {
 
     /**
-     * @return ModelMapper class bean
-     * @implNote ModelMapper bean configuration
+     * @implNote bounded pool rendering image variants after upload, one thread per core by default.
+     * A full queue rejects new work instead of running it on the uploading request thread
      */
     @Bean
-    public ModelMapper modelMapper() {
-        return new ModelMapper();
+    public ThreadPoolTaskExecutor imageVariantExecutor(
+            @Value("${image.variant.threads:0}") int threads,
+            @Value("${image.variant.queue-capacity:64}") int queueCapacity) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("image-variant-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    /**
+     * @implNote pool storing uploaded images and committing the image column off the request thread.
+     * Its queue is the upload backlog, ImageUploadServiceImpl answers 429 once it is full
+     */
+    @Bean
+    public ThreadPoolTaskExecutor imageUploadExecutor(
+            @Value("${image.upload.threads:2}") int threads,
+            @Value("${image.upload.queue-capacity:32}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("image-upload-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
 
+    /**
+     * @implNote pool running password hashing and verification, half the cores by default so a login storm
+     * leaves CPU to catalog traffic. A full queue is answered with 429 by CredentialServiceImpl
+     */
+    @Bean
+    public ThreadPoolTaskExecutor credentialExecutor(
+            @Value("${user.credential.threads:0}") int threads,
+            @Value("${user.credential.queue-capacity:100}") int queueCapacity) {
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("credential-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    /**
+     * @implNote pool hashing the passwords of bulk imports, a quarter of the cores by default. Kept apart from
+     * credentialExecutor so an import never holds the threads or queue slots logins wait for
+     */
+    @Bean
+    public ThreadPoolTaskExecutor importHashExecutor(
+            @Value("${user.import.hash-threads:0}") int threads,
+            @Value("${user.import.hash-queue-capacity:16}") int queueCapacity) {
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 4);
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("import-hash-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    /**
+     * @implNote id scheme of new users, categories and products. time-ordered (default) hands out version 7 UUIDs
+     * that append to the primary key index, random the version 4 UUIDs of before
+     */
+    @Bean
+    public IdGenerator idGenerator(@Value("${entity.id.strategy:time-ordered}") String strategy) {
+        return switch (strategy) {
+            case "time-ordered" -> new TimeOrderedIdGenerator();
+            case "random" -> new RandomIdGenerator();
+            default -> throw new IllegalStateException("entity.id.strategy should be time-ordered or random, not " + strategy);
+        };
     }
 
 //    @Bean
@@ -3,9 +3,13 @@ package com.mobicoolsoft.electronic.store.controller;
 import com.mobicoolsoft.electronic.store.config.AppConstants;
 import com.mobicoolsoft.electronic.store.dto.*;
 import com.mobicoolsoft.electronic.store.exception.FileNotAvailableException;
+import com.mobicoolsoft.electronic.store.helper.CountMode;
+import com.mobicoolsoft.electronic.store.helper.ETagHelper;
 import com.mobicoolsoft.electronic.store.service.CategoryServiceI;
 import com.mobicoolsoft.electronic.store.service.FileServiceI;
+import com.mobicoolsoft.electronic.store.service.ImageUploadServiceI;
 import com.mobicoolsoft.electronic.store.service.ProductServiceI;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
@@ -16,13 +20,13 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.util.StreamUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
+import java.net.URI;
 import java.util.List;
 
 /**
@@ -42,6 +46,9 @@ public class CategoryController {
     @Autowired
     private FileServiceI fileServiceI;
 
+    @Autowired
+    private ImageUploadServiceI imageUploadServiceI;
+
     @Autowired
     private ProductServiceI productServiceI;
 
@@ -94,6 +101,7 @@ public class CategoryController {
      * @param pageSize
      * @param sortBy
      * @param sortDir
+     * @param count estimate (cached total, default), exact or none (no total, only lastPage)
      * @return pageResponse
      */
     @GetMapping("/{categoryId}/products")
@@ -101,10 +109,70 @@ public class CategoryController {
             @RequestParam(name = "pageNumber", defaultValue = AppConstants.PAGE_NUMBER, required = false) Integer pageNumber,
             @RequestParam(name = "pageSize", defaultValue = AppConstants.PAGE_SIZE, required = false) Integer pageSize,
             @RequestParam(name = "sortBy", defaultValue = AppConstants.SORT_PRODUCT_BY, required = false) String sortBy,
-            @RequestParam(name = "sortDir", defaultValue = AppConstants.SORT_DIR, required = false) String sortDir
+            @RequestParam(name = "sortDir", defaultValue = AppConstants.SORT_DIR, required = false) String sortDir,
+            @RequestParam(name = "count", defaultValue = AppConstants.COUNT_MODE, required = false) String count,
+            WebRequest webRequest
     ){
-        PageResponse<ProductDto> pageResponse = this.productServiceI.getProductsByCategory(categoryId, pageNumber, pageSize, sortBy, sortDir);
-        return  new ResponseEntity<>(pageResponse, HttpStatus.OK);
+        ETagHelper.Version version = this.productServiceI.getProductsVersion();
+        if (ETagHelper.notModified(webRequest, version)) {
+            return null;
+        }
+        PageResponse<ProductDto> pageResponse = this.productServiceI.getProductsByCategory(categoryId, pageNumber, pageSize, sortBy, sortDir, CountMode.of(count));
+        return  new ResponseEntity<>(pageResponse, ETagHelper.validators(version), HttpStatus.OK);
+    }
+
+    /**
+     * @implNote get products of a category as summary view (id, title, price, discount, image, live, stock)
+     * @param categoryId
+     * @param pageNumber
+     * @param pageSize
+     * @param sortBy
+     * @param sortDir
+     * @param count estimate (cached total, default), exact or none (no total, only lastPage)
+     * @return PageResponse instance containing ProductSummaryDto
+     */
+    @GetMapping(value = "/{categoryId}/products", params = {"view=summary", "!cursor"})
+    public ResponseEntity<PageResponse<ProductSummaryDto>> getProductSummariesWithCategory(@PathVariable String categoryId,
+            @RequestParam(name = "pageNumber", defaultValue = AppConstants.PAGE_NUMBER, required = false) Integer pageNumber,
+            @RequestParam(name = "pageSize", defaultValue = AppConstants.PAGE_SIZE, required = false) Integer pageSize,
+            @RequestParam(name = "sortBy", defaultValue = AppConstants.SORT_PRODUCT_BY, required = false) String sortBy,
+            @RequestParam(name = "sortDir", defaultValue = AppConstants.SORT_DIR, required = false) String sortDir,
+            @RequestParam(name = "count", defaultValue = AppConstants.COUNT_MODE, required = false) String count,
+            WebRequest webRequest)
+    {
+        logger.info("Api getProductSummariesWithCategory request started");
+        ETagHelper.Version version = this.productServiceI.getProductsVersion();
+        if (ETagHelper.notModified(webRequest, version)) {
+            return null;
+        }
+        PageResponse<ProductSummaryDto> pageResponse = this.productServiceI.getProductSummariesByCategory(categoryId, pageNumber, pageSize, sortBy, sortDir, CountMode.of(count));
+        logger.info("Api getProductSummariesWithCategory request ended with response : {}", HttpStatus.OK);
+        return new ResponseEntity<>(pageResponse, ETagHelper.validators(version), HttpStatus.OK);
+    }
+
+    /**
+     * @implNote get products of a category through keyset cursor, selected when the cursor parameter is present
+     * @param categoryId
+     * @param cursor nextCursor or prevCursor of a previous response, empty for the first page
+     * @param pageSize
+     * @param sortBy
+     * @param sortDir
+     * @return pageResponse with neighbour cursors
+     */
+    @GetMapping(value = "/{categoryId}/products", params = "cursor")
+    public ResponseEntity<PageResponse<ProductDto>> getProductsWithCategoryByCursor(@PathVariable String categoryId,
+            @RequestParam(name = "cursor") String cursor,
+            @RequestParam(name = "pageSize", defaultValue = AppConstants.PAGE_SIZE, required = false) Integer pageSize,
+            @RequestParam(name = "sortBy", defaultValue = AppConstants.SORT_PRODUCT_BY, required = false) String sortBy,
+            @RequestParam(name = "sortDir", defaultValue = AppConstants.SORT_DIR, required = false) String sortDir,
+            WebRequest webRequest
+    ){
+        ETagHelper.Version version = this.productServiceI.getProductsVersion();
+        if (ETagHelper.notModified(webRequest, version)) {
+            return null;
+        }
+        PageResponse<ProductDto> pageResponse = this.productServiceI.getProductsByCategoryByCursor(categoryId, cursor, pageSize, sortBy, sortDir);
+        return  new ResponseEntity<>(pageResponse, ETagHelper.validators(version), HttpStatus.OK);
     }
 
     /**
@@ -151,25 +219,60 @@ public class CategoryController {
             @RequestParam(name = "pageNumber", defaultValue = AppConstants.PAGE_NUMBER, required = false) Integer pageNumber,
             @RequestParam(name = "pageSize", defaultValue = AppConstants.PAGE_SIZE, required = false) Integer pageSize,
             @RequestParam(name = "sortBy", defaultValue = AppConstants.SORT_CATEGORY_BY, required = false) String sortBy,
-            @RequestParam(name = "sortDir", defaultValue = AppConstants.SORT_DIR, required = false) String sortDir)
+            @RequestParam(name = "sortDir", defaultValue = AppConstants.SORT_DIR, required = false) String sortDir,
+            WebRequest webRequest)
     {
         logger.info("Api getAllUsers request started");
+        ETagHelper.Version version = this.categoryServiceI.getCategoriesVersion();
+        if (ETagHelper.notModified(webRequest, version)) {
+            return null;
+        }
         PageResponse<CategoryDto> pageResponse = this.categoryServiceI.getAllCategories(pageNumber, pageSize, sortBy, sortDir);
         logger.info("Api getAllUsers request ended with response : {}", HttpStatus.OK);
-        return new ResponseEntity<>(pageResponse, HttpStatus.OK);
+        return new ResponseEntity<>(pageResponse, ETagHelper.validators(version), HttpStatus.OK);
+    }
+
+    /**
+     * @implNote get all category records through keyset cursor, selected when the cursor parameter is present
+     * @param cursor nextCursor or prevCursor of a previous response, empty for the first page
+     * @param pageSize
+     * @param sortBy
+     * @param sortDir
+     * @return PageResponse containing list of CategoryDto and neighbour cursors
+     */
+    @GetMapping(value = "/", params = "cursor")
+    public ResponseEntity<PageResponse<CategoryDto>> getAllCategoriesByCursor(
+            @RequestParam(name = "cursor") String cursor,
+            @RequestParam(name = "pageSize", defaultValue = AppConstants.PAGE_SIZE, required = false) Integer pageSize,
+            @RequestParam(name = "sortBy", defaultValue = AppConstants.SORT_CATEGORY_BY, required = false) String sortBy,
+            @RequestParam(name = "sortDir", defaultValue = AppConstants.SORT_DIR, required = false) String sortDir,
+            WebRequest webRequest)
+    {
+        logger.info("Api getAllCategoriesByCursor request started");
+        ETagHelper.Version version = this.categoryServiceI.getCategoriesVersion();
+        if (ETagHelper.notModified(webRequest, version)) {
+            return null;
+        }
+        PageResponse<CategoryDto> pageResponse = this.categoryServiceI.getAllCategoriesByCursor(cursor, pageSize, sortBy, sortDir);
+        logger.info("Api getAllCategoriesByCursor request ended with response : {}", HttpStatus.OK);
+        return new ResponseEntity<>(pageResponse, ETagHelper.validators(version), HttpStatus.OK);
     }
 
     /**
      * @implNote get category for categoryId
      * @param categoryId
-     * @return a category
+     * @return a category with ETag / Last-Modified, 304 without body when the client copy is still current
      */
     @GetMapping("/{categoryId}")
-    public ResponseEntity<CategoryDto> getCategoryById(@PathVariable String categoryId) {
+    public ResponseEntity<CategoryDto> getCategoryById(@PathVariable String categoryId, WebRequest webRequest) {
         logger.info("Api getUserById request for User with userId  : {}", categoryId);
+        ETagHelper.Version version = this.categoryServiceI.getCategoryVersion(categoryId);
+        if (ETagHelper.notModified(webRequest, version)) {
+            return null;
+        }
         CategoryDto categoryDto = this.categoryServiceI.getCategoryById(categoryId);
         logger.info("Api getUserById request ended with response : {}", HttpStatus.OK);
-        return new ResponseEntity<>(categoryDto, HttpStatus.OK);
+        return new ResponseEntity<>(categoryDto, ETagHelper.validators(version), HttpStatus.OK);
     }
 
     /**
@@ -186,60 +289,112 @@ public class CategoryController {
             @RequestParam(name = "pageNumber", defaultValue = AppConstants.PAGE_NUMBER, required = false) Integer pageNumber,
             @RequestParam(name = "pageSize", defaultValue = AppConstants.PAGE_SIZE, required = false) Integer pageSize,
             @RequestParam(name = "sortBy", defaultValue = AppConstants.SORT_CATEGORY_BY, required = false) String sortBy,
-            @RequestParam(name = "sortDir", defaultValue = AppConstants.SORT_DIR, required = false) String sortDir)
+            @RequestParam(name = "sortDir", defaultValue = AppConstants.SORT_DIR, required = false) String sortDir,
+            WebRequest webRequest)
     {
         logger.info("Api getUserByNameContaining request for User with keyword : {}", keyword);
+        ETagHelper.Version version = this.categoryServiceI.getCategoriesVersion();
+        if (ETagHelper.notModified(webRequest, version)) {
+            return null;
+        }
         PageResponse<CategoryDto> pageResponse = this.categoryServiceI.searchCategoryByTitleKeyword(keyword, pageNumber, pageSize, sortBy, sortDir);
         logger.info("Api getUserByNameContaining request ended with response : {}", HttpStatus.OK);
-        return new ResponseEntity<>(pageResponse, HttpStatus.OK);
+        return new ResponseEntity<>(pageResponse, ETagHelper.validators(version), HttpStatus.OK);
     }
 
     /**
-     * @implNote upload category image by categoryId
+     * @implNote search category by title prefix, selected with match=prefix. Served from the in-memory name index,
+     * every word of the keyword must start a word of the title
+     * @param keyword
+     * @param pageNumber
+     * @param pageSize
+     * @param sortBy
+     * @param sortDir
+     * @return PageResponse containing list of matched CategoryDto
+     */
+    @GetMapping(value = "/search/{keyword}", params = "match=prefix")
+    public ResponseEntity<PageResponse<CategoryDto>> searchCategoryByPrefix(@PathVariable String keyword,
+            @RequestParam(name = "pageNumber", defaultValue = AppConstants.PAGE_NUMBER, required = false) Integer pageNumber,
+            @RequestParam(name = "pageSize", defaultValue = AppConstants.PAGE_SIZE, required = false) Integer pageSize,
+            @RequestParam(name = "sortBy", defaultValue = AppConstants.SORT_CATEGORY_BY, required = false) String sortBy,
+            @RequestParam(name = "sortDir", defaultValue = AppConstants.SORT_DIR, required = false) String sortDir,
+            WebRequest webRequest)
+    {
+        logger.info("Api searchCategoryByPrefix request for Category with keyword : {}", keyword);
+        ETagHelper.Version version = this.categoryServiceI.getCategoriesVersion();
+        if (ETagHelper.notModified(webRequest, version)) {
+            return null;
+        }
+        PageResponse<CategoryDto> pageResponse = this.categoryServiceI.searchCategoryByTitlePrefix(keyword, pageNumber, pageSize, sortBy, sortDir);
+        logger.info("Api searchCategoryByPrefix request ended with response : {}", HttpStatus.OK);
+        return new ResponseEntity<>(pageResponse, ETagHelper.validators(version), HttpStatus.OK);
+    }
+
+    /**
+     * @implNote queue an upload of the category image, the image is stored and saved on the category by the upload pool
      * @param categoryImage
      * @param categoryId
-     * @return ImageResponse
-     * @throws IOException
+     * @return 202 Accepted with the queued job, its state is served under Location
+     * @throws IOException when the upload can not be spooled
      */
     @PostMapping("/upload/images/{categoryId}")
-    public ResponseEntity<ImageResponse> uploadCategoryImage(
+    public ResponseEntity<ImageUploadJob> uploadCategoryImage(
             @RequestParam("categoryImage") MultipartFile categoryImage,
             @PathVariable String categoryId) throws IOException
     {
-        logger.info("Api uploadUserImage request with image : {}", categoryImage);
-        CategoryDto categoryDto = this.categoryServiceI.getCategoryById(categoryId);
-        logger.info("user found with userId : {}", categoryId);
-        String uploadCategoryImage = this.fileServiceI.uploadImage(imagePath, categoryImage);
-        logger.info("user image successfully upload on server!");
-        categoryDto.setCoverImage(uploadCategoryImage);
-        this.categoryServiceI.updateCategory(categoryDto, categoryId);
-        logger.info("user image successfully saved in the database!");
-        ImageResponse imageResponse = ImageResponse.builder()
-                .imageName(uploadCategoryImage).message("Category" + AppConstants.IMAGE_MSG)
-                .success(true).status(HttpStatus.CREATED).build();
-        logger.info("Api uploadUserImage request ended with response : {}", HttpStatus.CREATED);
-        return new ResponseEntity<>(imageResponse, HttpStatus.CREATED);
+        logger.info("Api uploadCategoryImage request with image : {}", categoryImage);
+        // 404 before the upload is staged and queued, the image name lookup is one cached column read. The multipart
+        // body itself is already parsed, it is resolved before the handler runs
+        this.categoryServiceI.getCategoryImageName(categoryId);
+        ImageUploadJob job = this.imageUploadServiceI.submit("Category", categoryId, imagePath, categoryImage,
+                image -> this.categoryServiceI.updateCategoryImage(categoryId, image));
+        logger.info("Api uploadCategoryImage request ended with response : {}", HttpStatus.ACCEPTED);
+        return ResponseEntity.accepted().location(URI.create(AppConstants.IMAGE_JOB_URL + job.getJobId())).body(job);
     }
 
     /**
      * @implNote serve category image by userId
      * @param categoryId
+     * @param width optional display width in pixels, served from the closest pre-rendered variant
+     * @param request Range, If-Range and HEAD are honoured
      * @param response
      * @throws FileNotAvailableException
+     * @throws IOException when the response can not be written
      */
     @GetMapping("/images/{categoryId}")
-    public void serveCategoryImage(@PathVariable String categoryId, HttpServletResponse response) throws FileNotAvailableException {
+    public void serveCategoryImage(@PathVariable String categoryId, @RequestParam(value = "w", required = false) Integer width, HttpServletRequest request, HttpServletResponse response) throws IOException {
         logger.info("Api serveUserImage request started with input response : {}", response);
-        CategoryDto categoryDto = this.categoryServiceI.getCategoryById(categoryId);
-        logger.info("get user image {}", categoryDto.getCoverImage());
+        String coverImage = this.categoryServiceI.getCategoryImageName(categoryId);
+        logger.info("get user image {}", coverImage);
         try {
-            InputStream serveImage = this.fileServiceI.serveImage(imagePath, categoryDto.getCoverImage());
-            response.setContentType(MediaType.IMAGE_JPEG_VALUE);
-            StreamUtils.copy(serveImage, response.getOutputStream());
-        } catch (IOException ex) {
+            this.fileServiceI.serveImage(imagePath, coverImage, width, request, response);
+        } catch (FileNotFoundException ex) {
             logger.info("FileNotFoundException encounter");
             throw new FileNotAvailableException(categoryId);
         }
         logger.info("Api serveUserImage request ended with input response : {}", response);
     }
+
+    /**
+     * @implNote serve category image under its versioned URL, the last segment is the stored image name (the image field
+     * of the category). The bytes behind a name never change, so the response is cacheable for a year as immutable.
+     * A name the category no longer uses is redirected to the current one
+     * @param categoryId
+     * @param imageName stored image name
+     * @param width optional display width in pixels, served from the closest pre-rendered variant
+     * @throws FileNotAvailableException
+     * @throws IOException when the response can not be written
+     */
+    @GetMapping("/images/{categoryId}/{imageName}")
+    public void serveCategoryImageVersion(@PathVariable String categoryId, @PathVariable String imageName, @RequestParam(value = "w", required = false) Integer width, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        logger.info("Api serveCategoryImageVersion request started for categoryId : {} and image : {}", categoryId, imageName);
+        String image = this.categoryServiceI.getCategoryImageName(categoryId);
+        try {
+            this.fileServiceI.serveVersionedImage(imagePath, image, imageName, width, request, response);
+        } catch (FileNotFoundException ex) {
+            logger.info("FileNotFoundException encounter");
+            throw new FileNotAvailableException(categoryId);
+        }
+        logger.info("Api serveCategoryImageVersion request ended with status : {}", response.getStatus());
+    }
 }
@@ -0,0 +1,41 @@
+package com.mobicoolsoft.electronic.store.controller;
+
+import com.mobicoolsoft.electronic.store.config.AppConstants;
+import com.mobicoolsoft.electronic.store.dto.ImageUploadJob;
+import com.mobicoolsoft.electronic.store.service.ImageUploadServiceI;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * @author Sandip Kolhekar
+ * @apiNote state of queued product, category and user image uploads
+ */
+@RestController
+@RequestMapping(AppConstants.IMAGE_JOB_URL)
+public class ImageUploadController {
+
+    private final Logger logger = LoggerFactory.getLogger(ImageUploadController.class);
+
+    @Autowired
+    private ImageUploadServiceI imageUploadServiceI;
+
+    /**
+     * @implNote get the state of an image upload job
+     * @param jobId returned by an upload request
+     * @return job with status QUEUED, PROCESSING, DONE (imageName set) or FAILED (message set)
+     */
+    @GetMapping("{jobId}")
+    public ResponseEntity<ImageUploadJob> getImageUploadJob(@PathVariable String jobId) {
+        logger.info("Api getImageUploadJob request started for jobId : {}", jobId);
+        ImageUploadJob job = this.imageUploadServiceI.getJob(jobId);
+        logger.info("Api getImageUploadJob request ended with status : {}", job.getStatus());
+        return new ResponseEntity<>(job, HttpStatus.OK);
+    }
+}
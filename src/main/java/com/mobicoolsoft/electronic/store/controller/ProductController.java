@@ -2,14 +2,22 @@ package com.mobicoolsoft.electronic.store.controller;
 
 import com.mobicoolsoft.electronic.store.config.AppConstants;
 import com.mobicoolsoft.electronic.store.dto.ApiResponseMessage;
-import com.mobicoolsoft.electronic.store.dto.ImageResponse;
+import com.mobicoolsoft.electronic.store.dto.ChunkedUploadDto;
+import com.mobicoolsoft.electronic.store.dto.ImageUploadJob;
 import com.mobicoolsoft.electronic.store.dto.PageResponse;
 import com.mobicoolsoft.electronic.store.dto.ProductDto;
+import com.mobicoolsoft.electronic.store.dto.ProductSummaryDto;
 import com.mobicoolsoft.electronic.store.exception.FileNotAvailableException;
+import com.mobicoolsoft.electronic.store.helper.CountMode;
+import com.mobicoolsoft.electronic.store.helper.ETagHelper;
+import com.mobicoolsoft.electronic.store.service.ChunkedUploadServiceI;
 import com.mobicoolsoft.electronic.store.service.FileServiceI;
+import com.mobicoolsoft.electronic.store.service.ImageUploadServiceI;
 import com.mobicoolsoft.electronic.store.service.ProductServiceI;
 import com.mobicoolsoft.electronic.store.service.impl.UserServiceImpl;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -17,12 +25,13 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.util.StreamUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
+import java.net.URI;
 import java.util.List;
 
 /**
@@ -42,6 +51,12 @@ public class ProductController {
     @Autowired
     private FileServiceI fileServiceI;
 
+    @Autowired
+    private ImageUploadServiceI imageUploadServiceI;
+
+    @Autowired
+    private ChunkedUploadServiceI chunkedUploadServiceI;
+
     @Value("${product.profile.image.path}")
     private String imagePath;
 
@@ -105,6 +120,7 @@ public class ProductController {
      * @param pageSize
      * @param sortBy
      * @param sortDir
+     * @param count estimate (cached total, default), exact or none (no total, only lastPage)
      * @return PageResponse instance containing ProductDto
      */
     @GetMapping("/")
@@ -112,25 +128,89 @@ public class ProductController {
             @RequestParam(value = "pageNumber", defaultValue = AppConstants.PAGE_NUMBER, required = false) Integer pageNumber,
             @RequestParam(value = "pageSize", defaultValue = AppConstants.PAGE_SIZE, required = false) Integer pageSize,
             @RequestParam(value = "sortBy", defaultValue = AppConstants.SORT_PRODUCT_BY, required = false) String sortBy,
-            @RequestParam(value = "sortDir", defaultValue = AppConstants.SORT_DIR, required = false) String sortDir)
+            @RequestParam(value = "sortDir", defaultValue = AppConstants.SORT_DIR, required = false) String sortDir,
+            @RequestParam(value = "count", defaultValue = AppConstants.COUNT_MODE, required = false) String count,
+            WebRequest webRequest)
     {
         logger.info("Api getAllProducts request started");
-        PageResponse<ProductDto> pageResponse = this.productServiceI.getAllProducts(pageNumber, pageSize, sortBy, sortDir);
+        ETagHelper.Version version = this.productServiceI.getProductsVersion();
+        if (ETagHelper.notModified(webRequest, version)) {
+            return null;
+        }
+        PageResponse<ProductDto> pageResponse = this.productServiceI.getAllProducts(pageNumber, pageSize, sortBy, sortDir, CountMode.of(count));
         logger.info("Api getAllProducts request ended with response : {}", HttpStatus.OK);
-        return new ResponseEntity<>(pageResponse, HttpStatus.OK);
+        return new ResponseEntity<>(pageResponse, ETagHelper.validators(version), HttpStatus.OK);
+    }
+
+    /**
+     * @implNote get all existing products as summary view (id, title, price, discount, image, live, stock)
+     * @param pageNumber
+     * @param pageSize
+     * @param sortBy
+     * @param sortDir
+     * @param count estimate (cached total, default), exact or none (no total, only lastPage)
+     * @return PageResponse instance containing ProductSummaryDto
+     */
+    @GetMapping(value = "/", params = {"view=summary", "!cursor"})
+    public ResponseEntity<PageResponse<ProductSummaryDto>> getAllProductSummaries(
+            @RequestParam(value = "pageNumber", defaultValue = AppConstants.PAGE_NUMBER, required = false) Integer pageNumber,
+            @RequestParam(value = "pageSize", defaultValue = AppConstants.PAGE_SIZE, required = false) Integer pageSize,
+            @RequestParam(value = "sortBy", defaultValue = AppConstants.SORT_PRODUCT_BY, required = false) String sortBy,
+            @RequestParam(value = "sortDir", defaultValue = AppConstants.SORT_DIR, required = false) String sortDir,
+            @RequestParam(value = "count", defaultValue = AppConstants.COUNT_MODE, required = false) String count,
+            WebRequest webRequest)
+    {
+        logger.info("Api getAllProductSummaries request started");
+        ETagHelper.Version version = this.productServiceI.getProductsVersion();
+        if (ETagHelper.notModified(webRequest, version)) {
+            return null;
+        }
+        PageResponse<ProductSummaryDto> pageResponse = this.productServiceI.getAllProductSummaries(pageNumber, pageSize, sortBy, sortDir, CountMode.of(count));
+        logger.info("Api getAllProductSummaries request ended with response : {}", HttpStatus.OK);
+        return new ResponseEntity<>(pageResponse, ETagHelper.validators(version), HttpStatus.OK);
+    }
+
+    /**
+     * @implNote get all existing products through keyset cursor, selected when the cursor parameter is present (empty for the first page)
+     * @param cursor nextCursor or prevCursor of a previous response
+     * @param pageSize
+     * @param sortBy
+     * @param sortDir
+     * @return PageResponse instance containing ProductDto and neighbour cursors
+     */
+    @GetMapping(value = "/", params = "cursor")
+    public ResponseEntity<PageResponse<ProductDto>> getAllProductsByCursor(
+            @RequestParam(value = "cursor") String cursor,
+            @RequestParam(value = "pageSize", defaultValue = AppConstants.PAGE_SIZE, required = false) Integer pageSize,
+            @RequestParam(value = "sortBy", defaultValue = AppConstants.SORT_PRODUCT_BY, required = false) String sortBy,
+            @RequestParam(value = "sortDir", defaultValue = AppConstants.SORT_DIR, required = false) String sortDir,
+            WebRequest webRequest)
+    {
+        logger.info("Api getAllProductsByCursor request started");
+        ETagHelper.Version version = this.productServiceI.getProductsVersion();
+        if (ETagHelper.notModified(webRequest, version)) {
+            return null;
+        }
+        PageResponse<ProductDto> pageResponse = this.productServiceI.getAllProductsByCursor(cursor, pageSize, sortBy, sortDir);
+        logger.info("Api getAllProductsByCursor request ended with response : {}", HttpStatus.OK);
+        return new ResponseEntity<>(pageResponse, ETagHelper.validators(version), HttpStatus.OK);
     }
 
     /**
      * @apiNote fetch product by productId
      * @param productId
-     * @return a product record
+     * @return a product record with ETag / Last-Modified, 304 without body when the client copy is still current
      */
     @GetMapping("/{productId}")
-    public ResponseEntity<ProductDto> getProductById(@PathVariable String productId) {
+    public ResponseEntity<ProductDto> getProductById(@PathVariable String productId, WebRequest webRequest) {
         logger.info("Api getProductById request for User with productId  : {}", productId);
+        ETagHelper.Version version = this.productServiceI.getProductVersion(productId);
+        if (ETagHelper.notModified(webRequest, version)) {
+            return null;
+        }
         ProductDto productDto = this.productServiceI.getProductById(productId);
         logger.info("Api getProductById request ended with response : {}", HttpStatus.OK);
-        return new ResponseEntity<>(productDto, HttpStatus.OK);
+        return new ResponseEntity<>(productDto, ETagHelper.validators(version), HttpStatus.OK);
     }
 
     /**
@@ -138,21 +218,84 @@ public class ProductController {
      * @param query
      * @param pageNumber
      * @param pageSize
-     * @param sortBy
+     * @param sortBy relevance (BM25 rank of ProductSearchIndex, default) or a product property
      * @param sortDir
+     * @param count estimate (cached total, default), exact or none (no total, only lastPage)
      * @return PageResponse instance containing ProductDto
      */
     @GetMapping("/search/{query}")
     public ResponseEntity<PageResponse<ProductDto>> searchProduct(@PathVariable String query,
             @RequestParam(value = "pageNumber", defaultValue = AppConstants.PAGE_NUMBER, required = false) Integer pageNumber,
             @RequestParam(value = "pageSize", defaultValue = AppConstants.PAGE_SIZE, required = false) Integer pageSize,
-            @RequestParam(value = "sortBy", defaultValue = AppConstants.SORT_PRODUCT_BY, required = false) String sortBy,
-            @RequestParam(value = "sortDir", defaultValue = AppConstants.SORT_DIR, required = false) String sortDir)
+            @RequestParam(value = "sortBy", defaultValue = AppConstants.SORT_RELEVANCE, required = false) String sortBy,
+            @RequestParam(value = "sortDir", defaultValue = AppConstants.SORT_DIR, required = false) String sortDir,
+            @RequestParam(value = "count", defaultValue = AppConstants.COUNT_MODE, required = false) String count,
+            WebRequest webRequest)
     {
         logger.info("Api searchProduct request for Product with keyword : {}", query);
-        PageResponse<ProductDto> pageResponse = this.productServiceI.getByTitleContaining(query, pageNumber, pageSize, sortBy, sortDir);
+        ETagHelper.Version version = this.productServiceI.getProductsVersion();
+        if (ETagHelper.notModified(webRequest, version)) {
+            return null;
+        }
+        PageResponse<ProductDto> pageResponse = this.productServiceI.getByTitleContaining(query, pageNumber, pageSize, sortBy, sortDir, CountMode.of(count));
         logger.info("Api searchProduct request ended with response {}", HttpStatus.OK);
-        return new ResponseEntity<>(pageResponse, HttpStatus.OK);
+        return new ResponseEntity<>(pageResponse, ETagHelper.validators(version), HttpStatus.OK);
+    }
+
+    /**
+     * @implNote search a product with specified query as summary view (id, title, price, discount, image, live, stock)
+     * @param query
+     * @param pageNumber
+     * @param pageSize
+     * @param sortBy relevance (BM25 rank of ProductSearchIndex, default) or a product property
+     * @param sortDir
+     * @param count estimate (cached total, default), exact or none (no total, only lastPage)
+     * @return PageResponse instance containing ProductSummaryDto
+     */
+    @GetMapping(value = "/search/{query}", params = {"view=summary", "!cursor"})
+    public ResponseEntity<PageResponse<ProductSummaryDto>> searchProductSummaries(@PathVariable String query,
+            @RequestParam(value = "pageNumber", defaultValue = AppConstants.PAGE_NUMBER, required = false) Integer pageNumber,
+            @RequestParam(value = "pageSize", defaultValue = AppConstants.PAGE_SIZE, required = false) Integer pageSize,
+            @RequestParam(value = "sortBy", defaultValue = AppConstants.SORT_RELEVANCE, required = false) String sortBy,
+            @RequestParam(value = "sortDir", defaultValue = AppConstants.SORT_DIR, required = false) String sortDir,
+            @RequestParam(value = "count", defaultValue = AppConstants.COUNT_MODE, required = false) String count,
+            WebRequest webRequest)
+    {
+        logger.info("Api searchProductSummaries request started");
+        ETagHelper.Version version = this.productServiceI.getProductsVersion();
+        if (ETagHelper.notModified(webRequest, version)) {
+            return null;
+        }
+        PageResponse<ProductSummaryDto> pageResponse = this.productServiceI.getSummariesByTitleContaining(query, pageNumber, pageSize, sortBy, sortDir, CountMode.of(count));
+        logger.info("Api searchProductSummaries request ended with response : {}", HttpStatus.OK);
+        return new ResponseEntity<>(pageResponse, ETagHelper.validators(version), HttpStatus.OK);
+    }
+
+    /**
+     * @implNote search a product with specified query through keyset cursor, selected when the cursor parameter is present (empty for the first page)
+     * @param cursor nextCursor or prevCursor of a previous response
+     * @param query
+     * @param pageSize
+     * @param sortBy
+     * @param sortDir
+     * @return PageResponse instance containing ProductDto and neighbour cursors
+     */
+    @GetMapping(value = "/search/{query}", params = "cursor")
+    public ResponseEntity<PageResponse<ProductDto>> searchProductByCursor(@PathVariable String query,
+            @RequestParam(value = "cursor") String cursor,
+            @RequestParam(value = "pageSize", defaultValue = AppConstants.PAGE_SIZE, required = false) Integer pageSize,
+            @RequestParam(value = "sortBy", defaultValue = AppConstants.SORT_PRODUCT_BY, required = false) String sortBy,
+            @RequestParam(value = "sortDir", defaultValue = AppConstants.SORT_DIR, required = false) String sortDir,
+            WebRequest webRequest)
+    {
+        logger.info("Api searchProductByCursor request started");
+        ETagHelper.Version version = this.productServiceI.getProductsVersion();
+        if (ETagHelper.notModified(webRequest, version)) {
+            return null;
+        }
+        PageResponse<ProductDto> pageResponse = this.productServiceI.getByTitleContainingByCursor(query, cursor, pageSize, sortBy, sortDir);
+        logger.info("Api searchProductByCursor request ended with response : {}", HttpStatus.OK);
+        return new ResponseEntity<>(pageResponse, ETagHelper.validators(version), HttpStatus.OK);
     }
 
     /**
@@ -161,6 +304,7 @@ public class ProductController {
      * @param pageSize
      * @param sortBy
      * @param sortDir
+     * @param count estimate (cached total, default), exact or none (no total, only lastPage)
      * @return PageResponse instance containing ProductDto
      */
     @GetMapping("/live")
@@ -168,57 +312,201 @@ public class ProductController {
             @RequestParam(value = "pageNumber", defaultValue = AppConstants.PAGE_NUMBER, required = false) Integer pageNumber,
             @RequestParam(value = "pageSize", defaultValue = AppConstants.PAGE_SIZE, required = false) Integer pageSize,
             @RequestParam(value = "sortBy", defaultValue = AppConstants.SORT_PRODUCT_BY, required = false) String sortBy,
-            @RequestParam(value = "sortDir", defaultValue = AppConstants.SORT_DIR, required = false) String sortDir) {
-        PageResponse<ProductDto> pageResponse = this.productServiceI.getByLiveTrue(pageNumber, pageSize, sortBy, sortDir);
-        return new ResponseEntity<>(pageResponse, HttpStatus.OK);
+            @RequestParam(value = "sortDir", defaultValue = AppConstants.SORT_DIR, required = false) String sortDir,
+            @RequestParam(value = "count", defaultValue = AppConstants.COUNT_MODE, required = false) String count,
+            WebRequest webRequest) {
+        ETagHelper.Version version = this.productServiceI.getProductsVersion();
+        if (ETagHelper.notModified(webRequest, version)) {
+            return null;
+        }
+        PageResponse<ProductDto> pageResponse = this.productServiceI.getByLiveTrue(pageNumber, pageSize, sortBy, sortDir, CountMode.of(count));
+        return new ResponseEntity<>(pageResponse, ETagHelper.validators(version), HttpStatus.OK);
     }
 
     /**
-     * @implNote upload product image file by productId
+     * @implNote fetch all products whose status is live as summary view (id, title, price, discount, image, live, stock)
+     * @param pageNumber
+     * @param pageSize
+     * @param sortBy
+     * @param sortDir
+     * @param count estimate (cached total, default), exact or none (no total, only lastPage)
+     * @return PageResponse instance containing ProductSummaryDto
+     */
+    @GetMapping(value = "/live", params = {"view=summary", "!cursor"})
+    public ResponseEntity<PageResponse<ProductSummaryDto>> getAllLiveSummaries(
+            @RequestParam(value = "pageNumber", defaultValue = AppConstants.PAGE_NUMBER, required = false) Integer pageNumber,
+            @RequestParam(value = "pageSize", defaultValue = AppConstants.PAGE_SIZE, required = false) Integer pageSize,
+            @RequestParam(value = "sortBy", defaultValue = AppConstants.SORT_PRODUCT_BY, required = false) String sortBy,
+            @RequestParam(value = "sortDir", defaultValue = AppConstants.SORT_DIR, required = false) String sortDir,
+            @RequestParam(value = "count", defaultValue = AppConstants.COUNT_MODE, required = false) String count,
+            WebRequest webRequest)
+    {
+        logger.info("Api getAllLiveSummaries request started");
+        ETagHelper.Version version = this.productServiceI.getProductsVersion();
+        if (ETagHelper.notModified(webRequest, version)) {
+            return null;
+        }
+        PageResponse<ProductSummaryDto> pageResponse = this.productServiceI.getSummariesByLiveTrue(pageNumber, pageSize, sortBy, sortDir, CountMode.of(count));
+        logger.info("Api getAllLiveSummaries request ended with response : {}", HttpStatus.OK);
+        return new ResponseEntity<>(pageResponse, ETagHelper.validators(version), HttpStatus.OK);
+    }
+
+    /**
+     * @implNote fetch all products whose status is live through keyset cursor, selected when the cursor parameter is present (empty for the first page)
+     * @param cursor nextCursor or prevCursor of a previous response
+     * @param pageSize
+     * @param sortBy
+     * @param sortDir
+     * @return PageResponse instance containing ProductDto and neighbour cursors
+     */
+    @GetMapping(value = "/live", params = "cursor")
+    public ResponseEntity<PageResponse<ProductDto>> getAllLiveByCursor(
+            @RequestParam(value = "cursor") String cursor,
+            @RequestParam(value = "pageSize", defaultValue = AppConstants.PAGE_SIZE, required = false) Integer pageSize,
+            @RequestParam(value = "sortBy", defaultValue = AppConstants.SORT_PRODUCT_BY, required = false) String sortBy,
+            @RequestParam(value = "sortDir", defaultValue = AppConstants.SORT_DIR, required = false) String sortDir,
+            WebRequest webRequest)
+    {
+        logger.info("Api getAllLiveByCursor request started");
+        ETagHelper.Version version = this.productServiceI.getProductsVersion();
+        if (ETagHelper.notModified(webRequest, version)) {
+            return null;
+        }
+        PageResponse<ProductDto> pageResponse = this.productServiceI.getByLiveTrueByCursor(cursor, pageSize, sortBy, sortDir);
+        logger.info("Api getAllLiveByCursor request ended with response : {}", HttpStatus.OK);
+        return new ResponseEntity<>(pageResponse, ETagHelper.validators(version), HttpStatus.OK);
+    }
+
+    /**
+     * @implNote queue an upload of the product image, the image is stored and saved on the product by the upload pool
      * @param productImage
      * @param productId
-     * @return ImageResponse instance
-     * @throws IOException
+     * @return 202 Accepted with the queued job, its state is served under Location
+     * @throws IOException when the upload can not be spooled
      */
     @PostMapping(value = "/upload/images/{productId}")
-    public ResponseEntity<ImageResponse> uploadProductImage(
+    public ResponseEntity<ImageUploadJob> uploadProductImage(
             @RequestParam("productImage") MultipartFile productImage,
             @PathVariable String productId) throws IOException
     {
-        logger.info("Api uploadUserImage request with image : {}", productImage);
-        ProductDto productDto = this.productServiceI.getProductById(productId);
-        logger.info("user found with userId : {}", productId);
-        String uploadProductImage = this.fileServiceI.uploadImage(imagePath, productImage);
-        logger.info("user image successfully upload on server!");
-        productDto.setImage(uploadProductImage);
-        this.productServiceI.updateProduct(productDto, productId);
-        logger.info("user image successfully saved in the database!");
-        ImageResponse imageResponse = ImageResponse.builder()
-                .imageName(uploadProductImage).message("Product" + AppConstants.IMAGE_MSG)
-                .success(true).status(HttpStatus.CREATED).build();
-        logger.info("Api uploadUserImage request ended with response : {}", HttpStatus.CREATED);
-        return new ResponseEntity<>(imageResponse, HttpStatus.CREATED);
+        logger.info("Api uploadProductImage request with image : {}", productImage);
+        // 404 before the upload is staged and queued, the image name lookup is one cached column read. The multipart
+        // body itself is already parsed, it is resolved before the handler runs
+        this.productServiceI.getProductImageName(productId);
+        ImageUploadJob job = this.imageUploadServiceI.submit("Product", productId, imagePath, productImage,
+                image -> this.productServiceI.updateProductImage(productId, image));
+        logger.info("Api uploadProductImage request ended with response : {}", HttpStatus.ACCEPTED);
+        return ResponseEntity.accepted().location(URI.create(AppConstants.IMAGE_JOB_URL + job.getJobId())).body(job);
+    }
+
+    /**
+     * @implNote open a resumable chunked upload of a product image, for files above the multipart limit
+     * @param productId
+     * @param chunkedUploadDto fileName and totalSize
+     * @return 201 Created with uploadId, chunkSize and chunkCount
+     * @throws IOException
+     */
+    @PostMapping("/{productId}/uploads")
+    public ResponseEntity<ChunkedUploadDto> createProductUpload(@PathVariable String productId,
+                                                               @Valid @RequestBody ChunkedUploadDto chunkedUploadDto) throws IOException {
+        logger.info("Api createProductUpload request started for productId : {}", productId);
+        // existence check only, the image name lookup is one cached column read
+        this.productServiceI.getProductImageName(productId);
+        ChunkedUploadDto upload = this.chunkedUploadServiceI.createUpload("Product", productId, chunkedUploadDto);
+        logger.info("Api createProductUpload request ended with response : {}", HttpStatus.CREATED);
+        return new ResponseEntity<>(upload, HttpStatus.CREATED);
+    }
+
+    /**
+     * @implNote state of a chunked upload, receivedChunks tells a client which chunks to send after a disconnect
+     * @param uploadId
+     */
+    @GetMapping("/uploads/{uploadId}")
+    public ResponseEntity<ChunkedUploadDto> getProductUpload(@PathVariable String uploadId) {
+        logger.info("Api getProductUpload request started for uploadId : {}", uploadId);
+        return new ResponseEntity<>(this.chunkedUploadServiceI.getUpload(uploadId), HttpStatus.OK);
+    }
+
+    /**
+     * @implNote write one chunk, the raw request body is streamed to the upload file
+     * @param uploadId
+     * @param chunkNumber 0 based
+     * @param checksum SHA-256 hex of the chunk
+     * @param request body of exactly chunkSize bytes, less for the last chunk
+     * @throws IOException
+     */
+    @PutMapping("/uploads/{uploadId}/chunks/{chunkNumber}")
+    public ResponseEntity<ChunkedUploadDto> uploadProductChunk(@PathVariable String uploadId, @PathVariable int chunkNumber,
+                                                               @RequestHeader(AppConstants.CHUNK_CHECKSUM_HEADER) String checksum,
+                                                               HttpServletRequest request) throws IOException {
+        logger.info("Api uploadProductChunk request started for uploadId : {} chunk : {}", uploadId, chunkNumber);
+        ChunkedUploadDto upload = this.chunkedUploadServiceI.writeChunk(uploadId, chunkNumber, checksum, request.getInputStream());
+        logger.info("Api uploadProductChunk request ended with response : {}", HttpStatus.OK);
+        return new ResponseEntity<>(upload, HttpStatus.OK);
+    }
+
+    /**
+     * @implNote complete a chunked upload once every chunk is received, the image is stored and saved on the product
+     * by the upload pool
+     * @param uploadId
+     * @return 202 Accepted with the queued job, its state is served under Location
+     * @throws IOException
+     */
+    @PostMapping("/uploads/{uploadId}/complete")
+    public ResponseEntity<ImageUploadJob> completeProductUpload(@PathVariable String uploadId) throws IOException {
+        logger.info("Api completeProductUpload request started for uploadId : {}", uploadId);
+        String productId = this.chunkedUploadServiceI.getUpload(uploadId).getResourceId();
+        ImageUploadJob job = this.chunkedUploadServiceI.completeUpload(uploadId,
+                image -> this.productServiceI.updateProductImage(productId, image));
+        logger.info("Api completeProductUpload request ended with response : {}", HttpStatus.ACCEPTED);
+        return ResponseEntity.accepted().location(URI.create(AppConstants.IMAGE_JOB_URL + job.getJobId())).body(job);
     }
 
     /**
      * @implNote serve product image for specified id
+     * @param request Range, If-Range and HEAD are honoured
      * @param response as HttpServletResponse
      * @param productId
+     * @param width optional display width in pixels, served from the closest pre-rendered variant
      * @throws FileNotAvailableException
+     * @throws IOException when the response can not be written
      */
     @GetMapping("/images/{productId}")
-    public void serveProductImage(HttpServletResponse response, @PathVariable String productId) throws FileNotAvailableException {
+    public void serveProductImage(HttpServletRequest request, HttpServletResponse response, @PathVariable String productId,
+                                  @RequestParam(value = "w", required = false) Integer width) throws IOException {
         logger.info("Api serveUserImage request started with input response : {}", response);
-        ProductDto productDto = this.productServiceI.getProductById(productId);
-        logger.info("get user image {}", productDto.getImage());
+        String image = this.productServiceI.getProductImageName(productId);
+        logger.info("get user image {}", image);
         try {
-            InputStream serveImage = this.fileServiceI.serveImage(imagePath, productDto.getImage());
-            response.setContentType(MediaType.IMAGE_JPEG_VALUE);
-            StreamUtils.copy(serveImage, response.getOutputStream());
-        } catch (IOException ex) {
+            this.fileServiceI.serveImage(imagePath, image, width, request, response);
+        } catch (FileNotFoundException ex) {
             logger.info("FileNotFoundException encounter");
             throw new FileNotAvailableException(productId);
         }
         logger.info("Api serveUserImage request ended with input response : {}", response);
     }
+
+    /**
+     * @implNote serve product image under its versioned URL, the last segment is the stored image name (the image field
+     * of the product). The bytes behind a name never change, so the response is cacheable for a year as immutable.
+     * A name the product no longer uses is redirected to the current one
+     * @param productId
+     * @param imageName stored image name
+     * @param width optional display width in pixels, served from the closest pre-rendered variant
+     * @throws FileNotAvailableException
+     * @throws IOException when the response can not be written
+     */
+    @GetMapping("/images/{productId}/{imageName}")
+    public void serveProductImageVersion(HttpServletRequest request, HttpServletResponse response, @PathVariable String productId,
+                                         @PathVariable String imageName, @RequestParam(value = "w", required = false) Integer width) throws IOException {
+        logger.info("Api serveProductImageVersion request started for productId : {} and image : {}", productId, imageName);
+        String image = this.productServiceI.getProductImageName(productId);
+        try {
+            this.fileServiceI.serveVersionedImage(imagePath, image, imageName, width, request, response);
+        } catch (FileNotFoundException ex) {
+            logger.info("FileNotFoundException encounter");
+            throw new FileNotAvailableException(productId);
+        }
+        logger.info("Api serveProductImageVersion request ended with status : {}", response.getStatus());
+    }
 }
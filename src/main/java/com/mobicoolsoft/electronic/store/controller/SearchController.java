@@ -0,0 +1,45 @@
+package com.mobicoolsoft.electronic.store.controller;
+
+import com.mobicoolsoft.electronic.store.config.AppConstants;
+import com.mobicoolsoft.electronic.store.dto.SuggestionDto;
+import com.mobicoolsoft.electronic.store.service.SearchServiceI;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * @author Sandip Kolhekar
+ * @apiNote search as you type across users and categories
+ */
+@RestController
+@RequestMapping(AppConstants.SEARCH_URL)
+public class SearchController {
+
+    private final Logger logger = LoggerFactory.getLogger(SearchController.class);
+
+    @Autowired
+    private SearchServiceI searchServiceI;
+
+    /**
+     * @implNote suggest user names and category titles for the typed prefix
+     * @param prefix typed text, every word must start a word of the name
+     * @param limit maximum number of users and of categories
+     * @return matching users followed by matching categories, empty for a blank prefix
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<List<SuggestionDto>> suggest(@RequestParam(name = "prefix") String prefix,
+            @RequestParam(name = "limit", defaultValue = AppConstants.SUGGEST_LIMIT, required = false) Integer limit) {
+        logger.debug("Api suggest request started for prefix : {}", prefix);
+        List<SuggestionDto> suggestions = this.searchServiceI.suggest(prefix, limit);
+        logger.debug("Api suggest request ended with {} suggestions", suggestions.size());
+        return new ResponseEntity<>(suggestions, HttpStatus.OK);
+    }
+}
@@ -1,14 +1,21 @@
 package com.mobicoolsoft.electronic.store.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mobicoolsoft.electronic.store.config.AppConstants;
 import com.mobicoolsoft.electronic.store.dto.ApiResponseMessage;
-import com.mobicoolsoft.electronic.store.dto.ImageResponse;
+import com.mobicoolsoft.electronic.store.dto.ImageUploadJob;
 import com.mobicoolsoft.electronic.store.dto.UserDto;
+import com.mobicoolsoft.electronic.store.dto.UserImportResult;
+import com.mobicoolsoft.electronic.store.dto.UserImportSummary;
 import com.mobicoolsoft.electronic.store.dto.PageResponse;
 import com.mobicoolsoft.electronic.store.exception.FileNotAvailableException;
+import com.mobicoolsoft.electronic.store.helper.ETagHelper;
 import com.mobicoolsoft.electronic.store.service.FileServiceI;
+import com.mobicoolsoft.electronic.store.service.ImageUploadServiceI;
+import com.mobicoolsoft.electronic.store.service.UserImportServiceI;
 import com.mobicoolsoft.electronic.store.service.UserServiceI;
 import com.mobicoolsoft.electronic.store.service.impl.UserServiceImpl;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
@@ -18,14 +25,17 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.util.StreamUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @author Sandip Kolhekar
@@ -42,6 +52,15 @@ public class UserController {
     @Autowired
     private FileServiceI fileServiceI;
 
+    @Autowired
+    private ImageUploadServiceI imageUploadServiceI;
+
+    @Autowired
+    private UserImportServiceI userImportServiceI;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @Value("${user.profile.image.path}")
     private String imagePath;
 
@@ -51,11 +70,49 @@ public class UserController {
      * @implNote method input user object and return user record
      */
     @PostMapping("/")
-    public ResponseEntity<UserDto> createNewUser(@Valid @RequestBody UserDto userDto) {
+    public CompletableFuture<ResponseEntity<UserDto>> createNewUser(@Valid @RequestBody UserDto userDto) {
         logger.info("Api createNewUser request started");
-        UserDto newUserDto = this.userServiceI.createUser(userDto);
-        logger.info("Api createNewUser request ended with response : {}", HttpStatus.CREATED);
-        return new ResponseEntity<>(newUserDto, HttpStatus.CREATED);
+        return this.userServiceI.createUser(userDto).thenApply(newUserDto -> {
+            logger.info("Api createNewUser request ended with response : {}", HttpStatus.CREATED);
+            return new ResponseEntity<>(newUserDto, HttpStatus.CREATED);
+        });
+    }
+
+    /**
+     * @apiNote bulk create users from an NDJSON (one UserDto per line) or CSV (header line first) body
+     * @implNote the body is streamed, every committed chunk is answered right away with one NDJSON result line per
+     * row, followed by a UserImportSummary line
+     * @param request body as application/x-ndjson or text/csv
+     * @param response NDJSON report
+     * @throws IOException
+     */
+    @PostMapping(value = "/import", consumes = {MediaType.APPLICATION_NDJSON_VALUE, AppConstants.CSV_CONTENT_TYPE},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void importUsers(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        logger.info("Api importUsers request started");
+        UserImportServiceI.Format format = MediaType.parseMediaType(request.getContentType()).isCompatibleWith(MediaType.APPLICATION_NDJSON)
+                ? UserImportServiceI.Format.NDJSON : UserImportServiceI.Format.CSV;
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        OutputStream report = response.getOutputStream();
+        UserImportSummary summary = this.userImportServiceI.importUsers(request.getInputStream(), format, results -> {
+            try {
+                for (UserImportResult result : results) {
+                    this.writeLine(report, result);
+                }
+                report.flush();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+        this.writeLine(report, summary);
+        report.flush();
+        logger.info("Api importUsers request ended, {} of {} rows created", summary.getCreated(), summary.getRows());
+    }
+
+    private void writeLine(OutputStream outputStream, Object value) throws IOException {
+        outputStream.write(this.objectMapper.writeValueAsBytes(value));
+        outputStream.write('\n');
     }
 
     /**
@@ -64,11 +121,12 @@ public class UserController {
      * @implNote method input user object, user id and return updated user record
      */
     @PutMapping("/{userId}")
-    public ResponseEntity<UserDto> updateUser(@Valid @RequestBody UserDto userDto, @PathVariable String userId) {
+    public CompletableFuture<ResponseEntity<UserDto>> updateUser(@Valid @RequestBody UserDto userDto, @PathVariable String userId) {
         logger.info("Api updateUser request started for user with userId : {}", userId);
-        UserDto updatedUserDto = this.userServiceI.updateUser(userDto, userId);
-        logger.info("Api updateUser request ended with response : {}", HttpStatus.OK);
-        return new ResponseEntity<>(updatedUserDto, HttpStatus.OK);
+        return this.userServiceI.updateUser(userDto, userId).thenApply(updatedUserDto -> {
+            logger.info("Api updateUser request ended with response : {}", HttpStatus.OK);
+            return new ResponseEntity<>(updatedUserDto, HttpStatus.OK);
+        });
     }
 
     /**
@@ -102,24 +160,58 @@ public class UserController {
             @RequestParam(name = "pageNumber", defaultValue = AppConstants.PAGE_NUMBER, required = false) Integer pageNumber,
             @RequestParam(name = "pageSize", defaultValue = AppConstants.PAGE_SIZE, required = false) Integer pageSize,
             @RequestParam(name = "sortBy", defaultValue = AppConstants.SORT_USER_BY, required = false) String sortBy,
-            @RequestParam(name = "sortDir", defaultValue = AppConstants.SORT_DIR, required = false) String sortDir) {
+            @RequestParam(name = "sortDir", defaultValue = AppConstants.SORT_DIR, required = false) String sortDir,
+            WebRequest webRequest) {
         logger.info("Api getAllUsers request started");
+        ETagHelper.Version version = this.userServiceI.getUsersVersion();
+        if (ETagHelper.notModified(webRequest, version)) {
+            return null;
+        }
         PageResponse<UserDto> pageResponse = this.userServiceI.getAllUsers(pageNumber, pageSize, sortBy, sortDir);
         logger.info("Api getAllUsers request ended with response : {}", HttpStatus.OK);
-        return new ResponseEntity<>(pageResponse, HttpStatus.OK);
+        return new ResponseEntity<>(pageResponse, ETagHelper.validators(version), HttpStatus.OK);
+    }
+
+    /**
+     * @apiNote get all users through keyset cursor, selected when the cursor parameter is present
+     * @param cursor nextCursor or prevCursor of a previous response, empty for the first page
+     * @param pageSize
+     * @param sortBy
+     * @param sortDir
+     * @return PageResponse instance with neighbour cursors
+     */
+    @GetMapping(value = "/", params = "cursor")
+    public ResponseEntity<PageResponse<UserDto>> getAllUsersByCursor(
+            @RequestParam(name = "cursor") String cursor,
+            @RequestParam(name = "pageSize", defaultValue = AppConstants.PAGE_SIZE, required = false) Integer pageSize,
+            @RequestParam(name = "sortBy", defaultValue = AppConstants.SORT_USER_BY, required = false) String sortBy,
+            @RequestParam(name = "sortDir", defaultValue = AppConstants.SORT_DIR, required = false) String sortDir,
+            WebRequest webRequest) {
+        logger.info("Api getAllUsersByCursor request started");
+        ETagHelper.Version version = this.userServiceI.getUsersVersion();
+        if (ETagHelper.notModified(webRequest, version)) {
+            return null;
+        }
+        PageResponse<UserDto> pageResponse = this.userServiceI.getAllUsersByCursor(cursor, pageSize, sortBy, sortDir);
+        logger.info("Api getAllUsersByCursor request ended with response : {}", HttpStatus.OK);
+        return new ResponseEntity<>(pageResponse, ETagHelper.validators(version), HttpStatus.OK);
     }
 
     /**
      * @apiNote get user record for specified id
      * @implNote method input user id and return single record
-     * @return single user
+     * @return single user with ETag / Last-Modified, 304 without body when the client copy is still current
      */
     @GetMapping("/{userId}")
-    public ResponseEntity<UserDto> getUserById(@PathVariable String userId) {
+    public ResponseEntity<UserDto> getUserById(@PathVariable String userId, WebRequest webRequest) {
         logger.info("Api getUserById request for User with userId  : {}", userId);
+        ETagHelper.Version version = this.userServiceI.getUserVersion(userId);
+        if (ETagHelper.notModified(webRequest, version)) {
+            return null;
+        }
         UserDto userDto = this.userServiceI.getUserById(userId);
         logger.info("Api getUserById request ended with response : {}", HttpStatus.OK);
-        return new ResponseEntity<>(userDto, HttpStatus.OK);
+        return new ResponseEntity<>(userDto, ETagHelper.validators(version), HttpStatus.OK);
     }
 
     /**
@@ -132,7 +224,8 @@ public class UserController {
         logger.info("Api getUserByEmail request started for email : {}", HttpStatus.OK);
         UserDto userDto = this.userServiceI.getUserByEmail(email);
         logger.info("Api getUserByEmail request ended with response : {}", HttpStatus.OK);
-        return new ResponseEntity<>(userDto, HttpStatus.OK);
+        // looked up by email, versioned from the loaded user; ResponseEntity validators still answer 304
+        return new ResponseEntity<>(userDto, ETagHelper.validators(ETagHelper.version(userDto.getUserId(), userDto.getUpdatedAt(), userDto.getCreatedAt())), HttpStatus.OK);
     }
 
     /**
@@ -141,13 +234,15 @@ public class UserController {
      * @implNote method input user email, password and return user record
      */
     @GetMapping("/user")
-    public ResponseEntity<UserDto> getUserByEmailAndPassword(
+    public CompletableFuture<ResponseEntity<UserDto>> getUserByEmailAndPassword(
             @RequestParam("email") String email,
-            @RequestParam("password") String password) {
+            @RequestParam("password") String password,
+            HttpServletRequest request) {
         logger.info("Api getUserByEmailAndPassword request for User with email : {}", email);
-        UserDto userDto = this.userServiceI.getUserByEmailAndPassword(email, password);
-        logger.info("Api getUserByEmailAndPassword with response : {}", HttpStatus.OK);
-        return new ResponseEntity<>(userDto, HttpStatus.OK);
+        return this.userServiceI.getUserByEmailAndPassword(email, password, request.getRemoteAddr()).thenApply(userDto -> {
+            logger.info("Api getUserByEmailAndPassword with response : {}", HttpStatus.OK);
+            return new ResponseEntity<>(userDto, HttpStatus.OK);
+        });
     }
 
     /**
@@ -165,60 +260,112 @@ public class UserController {
               @RequestParam(name = "pageNumber", defaultValue = AppConstants.PAGE_NUMBER, required = false) Integer pageNumber,
               @RequestParam(name = "pageSize", defaultValue = AppConstants.PAGE_SIZE, required = false) Integer pageSize,
               @RequestParam(name = "sortBy", defaultValue = AppConstants.SORT_USER_BY, required = false) String sortBy,
-              @RequestParam(name = "sortDir", defaultValue = AppConstants.SORT_DIR, required = false) String sortDir)
+              @RequestParam(name = "sortDir", defaultValue = AppConstants.SORT_DIR, required = false) String sortDir,
+            WebRequest webRequest)
     {
         logger.info("Api getUserByNameContaining request for User with keyword : {}", keyword);
+        ETagHelper.Version version = this.userServiceI.getUsersVersion();
+        if (ETagHelper.notModified(webRequest, version)) {
+            return null;
+        }
         PageResponse<UserDto> pageResponse = this.userServiceI.byNameContaining(keyword, pageNumber, pageSize, sortBy, sortDir);
         logger.info("Api getUserByNameContaining request ended with response : {}", HttpStatus.OK);
-        return new ResponseEntity<>(pageResponse, HttpStatus.OK);
+        return new ResponseEntity<>(pageResponse, ETagHelper.validators(version), HttpStatus.OK);
     }
 
     /**
-     * @implNote upload user image by userId
+     * @apiNote search user by name prefix, selected with match=prefix. Served from the in-memory name index,
+     * every word of the keyword must start a word of the username
+     * @param keyword
+     * @param pageNumber
+     * @param pageSize
+     * @param sortBy
+     * @param sortDir
+     * @return PageResponse
+     */
+    @GetMapping(value = "/search/{keyword}", params = "match=prefix")
+    public ResponseEntity<PageResponse<UserDto>> byNamePrefix(@PathVariable String keyword,
+              @RequestParam(name = "pageNumber", defaultValue = AppConstants.PAGE_NUMBER, required = false) Integer pageNumber,
+              @RequestParam(name = "pageSize", defaultValue = AppConstants.PAGE_SIZE, required = false) Integer pageSize,
+              @RequestParam(name = "sortBy", defaultValue = AppConstants.SORT_USER_BY, required = false) String sortBy,
+              @RequestParam(name = "sortDir", defaultValue = AppConstants.SORT_DIR, required = false) String sortDir,
+            WebRequest webRequest)
+    {
+        logger.info("Api byNamePrefix request for User with keyword : {}", keyword);
+        ETagHelper.Version version = this.userServiceI.getUsersVersion();
+        if (ETagHelper.notModified(webRequest, version)) {
+            return null;
+        }
+        PageResponse<UserDto> pageResponse = this.userServiceI.byNamePrefix(keyword, pageNumber, pageSize, sortBy, sortDir);
+        logger.info("Api byNamePrefix request ended with response : {}", HttpStatus.OK);
+        return new ResponseEntity<>(pageResponse, ETagHelper.validators(version), HttpStatus.OK);
+    }
+
+    /**
+     * @implNote queue an upload of the user image, the image is stored and saved on the user by the upload pool
      * @param userImage
      * @param userId
-     * @return ImageResponse
-     * @throws IOException
+     * @return 202 Accepted with the queued job, its state is served under Location
+     * @throws IOException when the upload can not be spooled
      */
     @PostMapping("/images/upload/{userId}")
-    public ResponseEntity<ImageResponse> uploadUserImage(
+    public ResponseEntity<ImageUploadJob> uploadUserImage(
             @RequestParam("userImage") MultipartFile userImage,
             @PathVariable String userId) throws IOException
     {
         logger.info("Api uploadUserImage request with image : {}", userImage);
-        UserDto userDto = this.userServiceI.getUserById(userId);
-        logger.info("user found with userId : {}", userId);
-        String uploadedUserImage = this.fileServiceI.uploadImage(imagePath, userImage);
-        logger.info("user image successfully upload on server!");
-        userDto.setImage(uploadedUserImage);
-        this.userServiceI.updateUser(userDto, userId);
-        logger.info("user image successfully saved in the database!");
-        ImageResponse imageResponse = ImageResponse.builder()
-                .imageName(uploadedUserImage).message("User"+AppConstants.IMAGE_MSG)
-                .success(true).status(HttpStatus.CREATED).build();
-        logger.info("Api uploadUserImage request ended with response : {}", HttpStatus.CREATED);
-        return new ResponseEntity<>(imageResponse, HttpStatus.CREATED);
+        // 404 before the upload is staged and queued, the image name lookup is one cached column read. The multipart
+        // body itself is already parsed, it is resolved before the handler runs
+        this.userServiceI.getUserImageName(userId);
+        ImageUploadJob job = this.imageUploadServiceI.submit("User", userId, imagePath, userImage,
+                image -> this.userServiceI.updateUserImage(userId, image));
+        logger.info("Api uploadUserImage request ended with response : {}", HttpStatus.ACCEPTED);
+        return ResponseEntity.accepted().location(URI.create(AppConstants.IMAGE_JOB_URL + job.getJobId())).body(job);
     }
 
     /**
      * @implNote serve user image by userId
      * @param userId
+     * @param width optional display width in pixels, served from the closest pre-rendered variant
+     * @param request Range, If-Range and HEAD are honoured
      * @param response
      * @throws FileNotAvailableException
+     * @throws IOException when the response can not be written
      */
     @GetMapping(value = "/image/{userId}", produces = {MediaType.IMAGE_PNG_VALUE, MediaType.IMAGE_JPEG_VALUE})
-    public void serveUserImage(@PathVariable String userId, HttpServletResponse response) throws FileNotAvailableException {
+    public void serveUserImage(@PathVariable String userId, @RequestParam(value = "w", required = false) Integer width, HttpServletRequest request, HttpServletResponse response) throws IOException {
         logger.info("Api serveUserImage request started with input response : {}", response);
-        UserDto user = this.userServiceI.getUserById(userId);
-        logger.info("get user image {}", user.getImage());
+        String image = this.userServiceI.getUserImageName(userId);
+        logger.info("get user image {}", image);
         try {
-            InputStream serveImage = this.fileServiceI.serveImage(imagePath, user.getImage());
-            response.setContentType(MediaType.IMAGE_JPEG_VALUE);
-            StreamUtils.copy(serveImage, response.getOutputStream());
-        } catch (IOException ex) {
+            this.fileServiceI.serveImage(imagePath, image, width, request, response);
+        } catch (FileNotFoundException ex) {
             logger.info("FileNotFoundException encounter");
             throw new FileNotAvailableException(userId);
         }
         logger.info("Api serveUserImage request ended with input response : {}", response);
     }
+
+    /**
+     * @implNote serve user image under its versioned URL, the last segment is the stored image name (the image field
+     * of the user). The bytes behind a name never change, so the response is cacheable for a year as immutable.
+     * A name the user no longer uses is redirected to the current one
+     * @param userId
+     * @param imageName stored image name
+     * @param width optional display width in pixels, served from the closest pre-rendered variant
+     * @throws FileNotAvailableException
+     * @throws IOException when the response can not be written
+     */
+    @GetMapping(value = "/image/{userId}/{imageName}", produces = {MediaType.IMAGE_PNG_VALUE, MediaType.IMAGE_JPEG_VALUE})
+    public void serveUserImageVersion(@PathVariable String userId, @PathVariable String imageName, @RequestParam(value = "w", required = false) Integer width, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        logger.info("Api serveUserImageVersion request started for userId : {} and image : {}", userId, imageName);
+        String image = this.userServiceI.getUserImageName(userId);
+        try {
+            this.fileServiceI.serveVersionedImage(imagePath, image, imageName, width, request, response);
+        } catch (FileNotFoundException ex) {
+            logger.info("FileNotFoundException encounter");
+            throw new FileNotAvailableException(userId);
+        }
+        logger.info("Api serveUserImageVersion request ended with status : {}", response.getStatus());
+    }
 }
@@ -0,0 +1,38 @@
+package com.mobicoolsoft.electronic.store.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Positive;
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * @implNote chunked upload session. A client posts fileName and totalSize, then PUTs chunks 0..chunkCount-1
+ * of chunkSize bytes (the last one may be shorter) in any order. After a disconnect receivedChunks tells
+ * which chunks still have to be sent
+ */
+@Setter
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ChunkedUploadDto {
+
+    private String uploadId;
+
+    private String resource;
+
+    private String resourceId;
+
+    @NotBlank(message = "fileName must not be empty or null!")
+    private String fileName;
+
+    @Positive(message = "totalSize must be greater than 0!")
+    private Long totalSize;
+
+    private Integer chunkSize;
+
+    private Integer chunkCount;
+
+    private List<Integer> receivedChunks;
+}
@@ -0,0 +1,40 @@
+package com.mobicoolsoft.electronic.store.dto;
+
+import lombok.*;
+
+import java.util.Date;
+
+/**
+ * @author Sandip Kolhekar
+ * @implNote state of one queued image upload, replaced as a whole on every transition so readers on other threads
+ * never see a half updated job
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Builder(toBuilder = true)
+public class ImageUploadJob {
+
+    public enum Status {
+        QUEUED, PROCESSING, DONE, FAILED
+    }
+
+    private String jobId;
+
+    private String resource;
+
+    private String resourceId;
+
+    private Status status;
+
+    /**
+     * @implNote stored image name, set once the job is DONE
+     */
+    private String imageName;
+
+    private String message;
+
+    private Date submittedAt;
+
+    private Date finishedAt;
+}
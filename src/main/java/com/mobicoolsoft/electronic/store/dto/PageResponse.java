@@ -1,6 +1,6 @@
 package com.mobicoolsoft.electronic.store.dto;
 
-import com.mobicoolsoft.electronic.store.dto.UserDto;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.*;
 
 import java.util.List;
@@ -23,4 +23,22 @@ public class PageResponse<T> {
     private Integer totalPages;
 
     private Boolean lastPage;
+
+    /**
+     * @implNote opaque keyset cursors, only present for cursor based listings
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String nextCursor;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String prevCursor;
+
+    public PageResponse(List<T> content, Integer pageNumber, Integer pageSize, Long totalElements, Integer totalPages, Boolean lastPage) {
+        this.content = content;
+        this.pageNumber = pageNumber;
+        this.pageSize = pageSize;
+        this.totalElements = totalElements;
+        this.totalPages = totalPages;
+        this.lastPage = lastPage;
+    }
 }
@@ -0,0 +1,30 @@
+package com.mobicoolsoft.electronic.store.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * @implNote list view of a product, returned for view=summary listings
+ */
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductSummaryDto {
+
+    private String id;
+
+    private String title;
+
+    private Double price;
+
+    private Integer discount;
+
+    private String image;
+
+    private  Boolean live;
+
+    private Boolean stock;
+}
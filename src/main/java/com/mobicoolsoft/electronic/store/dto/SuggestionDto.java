@@ -0,0 +1,20 @@
+package com.mobicoolsoft.electronic.store.dto;
+
+import lombok.*;
+
+/**
+ * @author Sandip Kolhekar
+ * @implNote one search as you type match, type is "user" or "category" and name the user name or category title
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Builder
+public class SuggestionDto {
+
+    private String type;
+
+    private String id;
+
+    private String name;
+}
@@ -0,0 +1,36 @@
+package com.mobicoolsoft.electronic.store.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+
+/**
+ * @author Sandip Kolhekar
+ * @implNote outcome of one row of a bulk user import, streamed back as one NDJSON line once the row's chunk committed
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UserImportResult {
+
+    public enum Status {
+        CREATED, FAILED
+    }
+
+    /**
+     * @implNote 1 based data row, a CSV header is not counted
+     */
+    private long row;
+
+    private Status status;
+
+    private String userId;
+
+    private String email;
+
+    /**
+     * @implNote why the row failed, null for created rows
+     */
+    private String message;
+}
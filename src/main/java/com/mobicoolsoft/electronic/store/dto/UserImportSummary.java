@@ -0,0 +1,22 @@
+package com.mobicoolsoft.electronic.store.dto;
+
+import lombok.*;
+
+/**
+ * @author Sandip Kolhekar
+ * @implNote last line of a bulk user import report
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Builder
+public class UserImportSummary {
+
+    private long rows;
+
+    private long created;
+
+    private long failed;
+
+    private long elapsedMillis;
+}
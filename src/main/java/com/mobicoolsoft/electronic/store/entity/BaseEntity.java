@@ -3,9 +3,13 @@ package com.mobicoolsoft.electronic.store.entity;
 import jakarta.persistence.Column;
 import jakarta.persistence.Id;
 import jakarta.persistence.MappedSuperclass;
+import jakarta.persistence.PrePersist;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.JavaType;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 import java.io.Serializable;
 
 @Setter
@@ -21,6 +25,19 @@ public abstract class BaseEntity implements Serializable {
      * instance of this class. Only extending classes can instantiate an instance
      */
     @Id
-    @Column(updatable = false)
+    @JavaType(BinaryIdJavaType.class)
+    @JdbcTypeCode(SqlTypes.BINARY)
+    @Column(updatable = false, length = BinaryIdJavaType.ID_BYTES)
     private String id;
+
+    /**
+     * @implNote the id column binds a malformed id as an empty key so lookups by it find nothing, an entity must
+     * never be written with one. Runs before every insert, the id itself is not updatable
+     */
+    @PrePersist
+    void checkId() {
+        if (this.id == null || BinaryIdJavaType.toBytes(this.id) == null) {
+            throw new IllegalArgumentException("entity id " + this.id + " is not a canonical UUID");
+        }
+    }
 }
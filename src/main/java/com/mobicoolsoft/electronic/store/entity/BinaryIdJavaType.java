@@ -0,0 +1,113 @@
+package com.mobicoolsoft.electronic.store.entity;
+
+import org.hibernate.type.descriptor.WrapperOptions;
+import org.hibernate.type.descriptor.java.AbstractClassJavaType;
+
+/**
+ * @author Sandip Kolhekar
+ * @implNote entity ids are canonical UUID strings in Java and in the API, stored as their 16 bytes (BINARY(16)).
+ * Byte order equals the order of the lower case string form, so keyset cursors and (column, id) indexes sort the
+ * same on both sides. A string that is not a canonical UUID (e.g. a mistyped path id) binds as an empty key which
+ * no row holds, lookups by it find nothing instead of failing. Writes never bind one, BaseEntity rejects an entity
+ * with a malformed id before it is inserted and ids are not updatable. A Hibernate JavaType rather than an
+ * AttributeConverter, converters are not applied to identifiers and the foreign keys referencing them
+ */
+public class BinaryIdJavaType extends AbstractClassJavaType<String> {
+
+    public static final int ID_BYTES = 16;
+
+    private static final byte[] NO_ID = new byte[0];
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    public BinaryIdJavaType() {
+        super(String.class);
+    }
+
+    @Override
+    public String toString(String id) {
+        return id;
+    }
+
+    @Override
+    public String fromString(CharSequence string) {
+        return string == null ? null : string.toString();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <X> X unwrap(String id, Class<X> type, WrapperOptions options) {
+        if (id == null) {
+            return null;
+        }
+        if (type.isAssignableFrom(String.class)) {
+            return (X) id;
+        }
+        if (type == byte[].class) {
+            byte[] bytes = toBytes(id);
+            return (X) (bytes == null ? NO_ID : bytes);
+        }
+        throw unknownUnwrap(type);
+    }
+
+    @Override
+    public <X> String wrap(X value, WrapperOptions options) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof byte[] bytes) {
+            return toId(bytes);
+        }
+        if (value instanceof String id) {
+            return id;
+        }
+        throw unknownWrap(value.getClass());
+    }
+
+    /**
+     * @return the 16 bytes of a canonical UUID string (8-4-4-4-12 hex digits, any case), null for any other value
+     */
+    public static byte[] toBytes(String id) {
+        if (id.length() != 36) {
+            return null;
+        }
+        byte[] bytes = new byte[ID_BYTES];
+        int position = 0;
+        for (int i = 0; i < ID_BYTES; i++) {
+            if (position == 8 || position == 13 || position == 18 || position == 23) {
+                if (id.charAt(position) != '-') {
+                    return null;
+                }
+                position++;
+            }
+            int high = Character.digit(id.charAt(position), 16);
+            int low = Character.digit(id.charAt(position + 1), 16);
+            if (high < 0 || low < 0) {
+                return null;
+            }
+            bytes[i] = (byte) (high << 4 | low);
+            position += 2;
+        }
+        return bytes;
+    }
+
+    /**
+     * @return lower case canonical UUID string of 16 bytes
+     * @throws IllegalArgumentException for any other length
+     */
+    public static String toId(byte[] bytes) {
+        if (bytes.length != ID_BYTES) {
+            throw new IllegalArgumentException("id column holds " + bytes.length + " bytes instead of " + ID_BYTES);
+        }
+        char[] chars = new char[36];
+        int position = 0;
+        for (int i = 0; i < ID_BYTES; i++) {
+            if (i == 4 || i == 6 || i == 8 || i == 10) {
+                chars[position++] = '-';
+            }
+            chars[position++] = HEX[(bytes[i] >> 4) & 0xf];
+            chars[position++] = HEX[bytes[i] & 0xf];
+        }
+        return new String(chars);
+    }
+}
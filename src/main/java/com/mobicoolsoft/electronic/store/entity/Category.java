@@ -13,7 +13,10 @@ import java.util.Set;
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
-@Table(name = "categories")
+@Table(name = "categories", indexes = {
+        @Index(name = "idx_categories_title_id", columnList = "cat_title, id"),
+        @Index(name = "idx_categories_created_id", columnList = "created_at, id")
+})
 public class Category extends BaseEntityAudit{
 
     @Column(name = "cat_title")
@@ -0,0 +1,48 @@
+package com.mobicoolsoft.electronic.store.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * @author Sandip Kolhekar
+ * @implNote one row per file of the content addressed ImageStore, id is the stored name (sha256 + extension).
+ * refCount counts the products, categories and users whose image column holds the name,
+ * a blob at zero is left on disk for the orphaned image collector. No content type is kept, the extension of the
+ * name is chosen from the sniffed magic bytes on upload and is what images are served as.
+ * Keyed by its own string id, not by the binary ids of BaseEntity
+ */
+@Entity
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Table(name = "image_blobs")
+public class ImageBlob implements Serializable {
+
+    @Id
+    @Column(updatable = false)
+    private String id;
+
+    @Column(name = "blob_size")
+    private Long size;
+
+    @Column(name = "ref_count")
+    private Integer refCount;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private Date createdAt;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private Date updatedAt;
+}
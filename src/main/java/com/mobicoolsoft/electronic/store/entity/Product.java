@@ -6,14 +6,31 @@ import lombok.*;
 import java.util.Date;
 
 @Entity
+@NamedEntityGraph(name = Product.WITH_CATEGORY, attributeNodes = @NamedAttributeNode("category"))
 @Getter
 @Setter
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "products")
+@Table(name = "products", indexes = {
+        @Index(name = "idx_products_title_id", columnList = "product_title, id"),
+        @Index(name = "idx_products_price_id", columnList = "product_price, id"),
+        @Index(name = "idx_products_created_id", columnList = "created_at, id"),
+        @Index(name = "idx_products_live_title_id", columnList = "live, product_title, id"),
+        @Index(name = "idx_products_live_price_id", columnList = "live, product_price, id"),
+        @Index(name = "idx_products_live_created_id", columnList = "live, created_at, id"),
+        @Index(name = "idx_products_category_title_id", columnList = "fk_category_id, product_title, id"),
+        @Index(name = "idx_products_category_price_id", columnList = "fk_category_id, product_price, id"),
+        @Index(name = "idx_products_category_created_id", columnList = "fk_category_id, created_at, id")
+})
 public class Product extends BaseEntityAudit{
 
+    /**
+     * @implNote fetch plan loading the category in the same select, used by every ProductRepository
+     * query whose rows are mapped to ProductDto
+     */
+    public static final String WITH_CATEGORY = "Product.withCategory";
+
     @Column(name = "product_title")
     private String title;
 
@@ -36,7 +53,7 @@ public class Product extends BaseEntityAudit{
 
     private Boolean stock;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "fk_category_id")
     private Category category;
 
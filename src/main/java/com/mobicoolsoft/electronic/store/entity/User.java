@@ -1,8 +1,10 @@
 package com.mobicoolsoft.electronic.store.entity;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
 
 import java.util.HashSet;
+import java.util.Locale;
 import java.util.Set;
 
 /**
@@ -16,7 +18,11 @@ import java.util.Set;
 @Setter
 @Getter
 @Builder
-@Table(name = "users")
+@Table(name = "users", indexes = {
+        @Index(name = "idx_users_name_id", columnList = "user_name, id"),
+        @Index(name = "idx_users_created_id", columnList = "created_at, id"),
+        @Index(name = "uk_users_email_normalized", columnList = "email_normalized", unique = true)
+})
 public class User extends BaseEntityAudit{
 
     @Column(name = "user_name")
@@ -25,6 +31,13 @@ public class User extends BaseEntityAudit{
     @Column(name = "user_email")
     private String email;
 
+    /**
+     * @implNote trimmed, lower case email, unique and indexed. Derived from email on every insert and update,
+     * all lookups by email go through it
+     */
+    @Column(name = "email_normalized", length = 320)
+    private String normalizedEmail;
+
     @Column(name = "user_password")
     private String password;
 
@@ -37,11 +50,28 @@ public class User extends BaseEntityAudit{
     @Column(name = "user_image")
     private String image;
 
-    @ManyToMany(cascade = CascadeType.ALL, fetch = FetchType.EAGER)
-    @JoinTable(name="user_roles",
-    joinColumns=@JoinColumn (name ="user", referencedColumnName = "id" ),
-    inverseJoinColumns = @JoinColumn(name = "role", referencedColumnName = "roleId"))
-    private Set<Role> roles = new HashSet<>();
+    /**
+     * @implNote role ids only, same user_roles table as the former Role association. Loaded lazily without a join
+     * on the roles table, RoleRegistry maps the ids to roles. The first access in a page of users loads the ids of up
+     * to 100 users of the persistence context with one IN query, instead of one query per user.
+     * The user column is quoted, unquoted it reads as the USER function in some databases (H2)
+     */
+    @ElementCollection
+    @BatchSize(size = 100)
+    @CollectionTable(name = "user_roles", joinColumns = @JoinColumn(name = "`user`", referencedColumnName = "id"))
+    @Column(name = "role")
+    @Builder.Default
+    private Set<Integer> roleIds = new HashSet<>();
+
+    @PrePersist
+    @PreUpdate
+    void normalizeEmail() {
+        this.normalizedEmail = normalizeEmail(this.email);
+    }
+
+    public static String normalizeEmail(String email) {
+        return email == null ? null : email.trim().toLowerCase(Locale.ROOT);
+    }
 
 
 
@@ -5,6 +5,7 @@ import com.mobicoolsoft.electronic.store.dto.ApiResponseMessage;
 import com.mobicoolsoft.electronic.store.service.impl.UserServiceImpl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -107,4 +108,24 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(responseMessage, HttpStatus.NOT_FOUND);
     }
 
+    /**
+     * @author Sandip Kolhekar
+     * @param ex instance of TooManyRequestsException
+     * @return apiResponseMessage instance of ApiResponseMessage with a Retry-After header
+     * @implNote TooManyRequestsException handle globally through @ExceptionHandler
+     */
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<ApiResponseMessage> handlerTooManyRequestsException(TooManyRequestsException ex) {
+        logger.info("TooManyRequestsException handler called");
+        ApiResponseMessage responseMessage = ApiResponseMessage.builder()
+                .message(ex.getMessage())
+                .success(false)
+                .status(HttpStatus.TOO_MANY_REQUESTS)
+                .build();
+        logger.info("TooManyRequestsException handled with response {}", HttpStatus.TOO_MANY_REQUESTS);
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(responseMessage);
+    }
+
 }
@@ -0,0 +1,69 @@
+package com.mobicoolsoft.electronic.store.helper;
+
+/**
+ * @author Sandip Kolhekar
+ * @implNote single byte range of a Range: bytes=... request header, resolved against the file length
+ * @param start first byte, inclusive
+ * @param end last byte, inclusive
+ */
+public record ByteRange(long start, long end) {
+
+    private static final String BYTES_UNIT = "bytes=";
+
+    /**
+     * @implNote a range starting at or after the end of the file, or a zero length suffix, can not be satisfied
+     */
+    public static final ByteRange UNSATISFIABLE = new ByteRange(-1, -1);
+
+    /**
+     * @param header value of the Range header, may be null
+     * @param length file length in bytes
+     * @return the requested range clamped to the file, null when the whole file has to be sent
+     * (no header, other unit, several ranges or a malformed header are all answered with the full file)
+     * or UNSATISFIABLE for a well formed range outside the file
+     */
+    public static ByteRange parse(String header, long length) {
+        if (header == null || !header.startsWith(BYTES_UNIT) || header.indexOf(',') >= 0) {
+            return null;
+        }
+        String spec = header.substring(BYTES_UNIT.length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                // suffix range: the last n bytes
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0 || length == 0) {
+                    return UNSATISFIABLE;
+                }
+                return new ByteRange(Math.max(0, length - suffix), length - 1);
+            }
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last);
+            if (start < 0 || end < start) {
+                return null;
+            }
+            if (start >= length) {
+                return UNSATISFIABLE;
+            }
+            return new ByteRange(start, Math.min(end, length - 1));
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    public long length() {
+        return this.end - this.start + 1;
+    }
+
+    /**
+     * @return Content-Range header value of this range
+     */
+    public String contentRange(long length) {
+        return "bytes " + this.start + "-" + this.end + "/" + length;
+    }
+}
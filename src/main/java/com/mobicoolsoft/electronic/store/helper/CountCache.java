@@ -0,0 +1,84 @@
+package com.mobicoolsoft.electronic.store.helper;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * @author Sandip Kolhekar
+ * @implNote caches total counts per query shape (e.g. "product:live", "product:category:{id}")
+ * so paged listings do not fire a COUNT query on every request.
+ * Entries expire after the ttl and are dropped by prefix whenever a service writes to the table.
+ */
+@Component
+public class CountCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(CountCache.class);
+
+    private static final int MAX_ENTRIES = 10_000;
+
+    @Value("${count.cache.ttl-seconds:30}")
+    private long ttlSeconds = 30;
+
+    private final Map<String, CountEntry> counts = new ConcurrentHashMap<>();
+
+    /**
+     * @implNote bumped on every invalidation, a count computed before a write is never stored after it
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * @param key query shape
+     * @param counter runs the COUNT query on a miss
+     * @return cached or freshly counted total
+     */
+    public long get(String key, LongSupplier counter) {
+        CountEntry entry = this.counts.get(key);
+        if (entry != null && entry.expiresAt() > System.nanoTime()) {
+            return entry.count();
+        }
+        long startGeneration = this.generation.get();
+        long count = counter.getAsLong();
+        this.put(key, count, startGeneration);
+        return count;
+    }
+
+    /**
+     * @implNote store a total that was counted anyway, e.g. by an exact Page query
+     */
+    public void put(String key, long count) {
+        this.put(key, count, this.generation.get());
+    }
+
+    /**
+     * @param prefix drop all query shapes starting with prefix, e.g. "product:"
+     */
+    public void invalidate(String prefix) {
+        this.generation.incrementAndGet();
+        this.counts.keySet().removeIf(key -> key.startsWith(prefix));
+        logger.debug("count cache invalidated for prefix {}", prefix);
+    }
+
+    private void put(String key, long count, long startGeneration) {
+        if (this.counts.size() >= MAX_ENTRIES) {
+            long now = System.nanoTime();
+            this.counts.values().removeIf(entry -> entry.expiresAt() <= now);
+            if (this.counts.size() >= MAX_ENTRIES) {
+                this.counts.clear();
+            }
+        }
+        this.counts.put(key, new CountEntry(count, System.nanoTime() + this.ttlSeconds * 1_000_000_000L));
+        if (this.generation.get() != startGeneration) {
+            this.counts.remove(key);
+        }
+    }
+
+    private record CountEntry(long count, long expiresAt) {
+    }
+}
@@ -0,0 +1,29 @@
+package com.mobicoolsoft.electronic.store.helper;
+
+import com.mobicoolsoft.electronic.store.config.AppConstants;
+import com.mobicoolsoft.electronic.store.exception.BadApiRequestException;
+
+/**
+ * @author Sandip Kolhekar
+ * @implNote how totalElements/totalPages of a listing are filled
+ * ESTIMATE : total served from CountCache, may lag behind recent writes by the cache ttl
+ * EXACT : fresh COUNT query, also refreshes CountCache
+ * NONE : no count at all, only lastPage is set
+ */
+public enum CountMode {
+
+    ESTIMATE, EXACT, NONE;
+
+    /**
+     * @param count value of the count request parameter
+     * @return matching CountMode, case insensitive
+     */
+    public static CountMode of(String count) {
+        for (CountMode countMode : values()) {
+            if (countMode.name().equalsIgnoreCase(count)) {
+                return countMode;
+            }
+        }
+        throw new BadApiRequestException(AppConstants.COUNT_ERROR_MSG);
+    }
+}
@@ -0,0 +1,57 @@
+package com.mobicoolsoft.electronic.store.helper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author Sandip Kolhekar
+ * @implNote splits one CSV record (RFC 4180) into its fields. A field may be quoted, "" inside quotes is a quote.
+ * A record is one line, quoted line breaks are not supported
+ */
+public class CsvHelper {
+
+    private static final char SEPARATOR = ',';
+
+    private static final char QUOTE = '"';
+
+    /**
+     * @throws IllegalArgumentException for an unterminated quote or text after a closing quote
+     */
+    public static List<String> parseLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        int i = 0;
+        while (true) {
+            field.setLength(0);
+            if (i < line.length() && line.charAt(i) == QUOTE) {
+                i++;
+                while (true) {
+                    if (i >= line.length()) {
+                        throw new IllegalArgumentException("unterminated quoted field");
+                    }
+                    char c = line.charAt(i++);
+                    if (c != QUOTE) {
+                        field.append(c);
+                    } else if (i < line.length() && line.charAt(i) == QUOTE) {
+                        field.append(QUOTE);
+                        i++;
+                    } else {
+                        break;
+                    }
+                }
+                if (i < line.length() && line.charAt(i) != SEPARATOR) {
+                    throw new IllegalArgumentException("unexpected text after quoted field");
+                }
+            } else {
+                while (i < line.length() && line.charAt(i) != SEPARATOR) {
+                    field.append(line.charAt(i++));
+                }
+            }
+            fields.add(field.toString());
+            if (i >= line.length()) {
+                return fields;
+            }
+            i++;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.mobicoolsoft.electronic.store.helper;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.mobicoolsoft.electronic.store.config.AppConstants;
+import com.mobicoolsoft.electronic.store.exception.BadApiRequestException;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+
+import java.beans.PropertyDescriptor;
+import java.io.IOException;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @author Sandip Kolhekar
+ * @implNote converts keyset scroll positions to the opaque cursor strings handed out in PageResponse and back.
+ * A cursor is the url safe base64 form of {"d":"f|b","k":{sortKey: value, id: value}}
+ */
+public class CursorHelper {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String FORWARD = "f";
+
+    private static final String BACKWARD = "b";
+
+    /**
+     * @param cursor cursor taken from a previous response, null or empty for the first page
+     * @param domainType entity class the keys belong to, used to restore the key value types
+     * @return keyset scroll position to continue from
+     */
+    public static KeysetScrollPosition toScrollPosition(String cursor, Class<?> domainType) {
+        if (cursor == null || cursor.isBlank()) {
+            return ScrollPosition.keyset();
+        }
+        try {
+            JsonNode node = MAPPER.readTree(Base64.getUrlDecoder().decode(cursor));
+            Map<String, Object> keys = new LinkedHashMap<>();
+            Iterator<Map.Entry<String, JsonNode>> fields = node.path("k").fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                PropertyDescriptor descriptor = BeanUtils.getPropertyDescriptor(domainType, field.getKey());
+                if (descriptor == null) {
+                    throw new BadApiRequestException(AppConstants.CURSOR_ERROR_MSG);
+                }
+                JsonNode value = field.getValue();
+                keys.put(field.getKey(), value.isNull() ? null : MAPPER.convertValue(value, descriptor.getPropertyType()));
+            }
+            if (keys.isEmpty()) {
+                throw new BadApiRequestException(AppConstants.CURSOR_ERROR_MSG);
+            }
+            return BACKWARD.equals(node.path("d").asText()) ? ScrollPosition.backward(keys) : ScrollPosition.forward(keys);
+        } catch (IOException | IllegalArgumentException ex) {
+            throw new BadApiRequestException(AppConstants.CURSOR_ERROR_MSG);
+        }
+    }
+
+    /**
+     * @implNote keyset position of a row loaded outside a scroll query, keys in sort order like Spring Data builds them
+     * @param entity boundary row
+     * @param sort sort of the listing, ends with id
+     */
+    public static KeysetScrollPosition positionOf(Object entity, Sort sort) {
+        BeanWrapper wrapper = new BeanWrapperImpl(entity);
+        Map<String, Object> keys = new LinkedHashMap<>();
+        sort.forEach(order -> keys.put(order.getProperty(), wrapper.getPropertyValue(order.getProperty())));
+        return ScrollPosition.forward(keys);
+    }
+
+    /**
+     * @param position keyset position of a boundary row
+     * @return opaque cursor string
+     */
+    public static String toCursor(KeysetScrollPosition position) {
+        ObjectNode node = MAPPER.createObjectNode();
+        node.put("d", position.scrollsBackward() ? BACKWARD : FORWARD);
+        node.set("k", MAPPER.valueToTree(position.getKeys()));
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(MAPPER.writeValueAsBytes(node));
+        } catch (IOException ex) {
+            throw new IllegalStateException("Unable to encode cursor", ex);
+        }
+    }
+}
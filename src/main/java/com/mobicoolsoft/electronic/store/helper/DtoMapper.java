@@ -0,0 +1,227 @@
+package com.mobicoolsoft.electronic.store.helper;
+
+import com.mobicoolsoft.electronic.store.dto.CategoryDto;
+import com.mobicoolsoft.electronic.store.dto.ProductDto;
+import com.mobicoolsoft.electronic.store.dto.ProductSummaryDto;
+import com.mobicoolsoft.electronic.store.dto.UserDto;
+import com.mobicoolsoft.electronic.store.entity.Category;
+import com.mobicoolsoft.electronic.store.entity.Product;
+import com.mobicoolsoft.electronic.store.entity.User;
+import com.mobicoolsoft.electronic.store.repository.ProductSummary;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+
+/**
+ * @author Sandip Kolhekar
+ * @implNote entity <-> dto mapping shared by PageHelper and all service implementations.
+ * Every type pair is mapped through plain getter/setter calls compiled once by javac,
+ * so a page of rows costs no mapper construction, type-map introspection or reflection.
+ */
+@Component
+public class DtoMapper {
+
+    @Autowired
+    private RoleRegistry roleRegistry;
+
+    /**
+     * @implNote map Product entity to ProductDto along with its category
+     */
+    public ProductDto toProductDto(Product product) {
+        if (product == null) {
+            return null;
+        }
+        ProductDto productDto = new ProductDto();
+        productDto.setId(product.getId());
+        productDto.setTitle(product.getTitle());
+        productDto.setDescription(product.getDescription());
+        productDto.setImage(product.getImage());
+        productDto.setPrice(product.getPrice());
+        productDto.setDiscount(product.getDiscount());
+        productDto.setQuantity(product.getQuantity());
+        productDto.setLive(product.getLive());
+        productDto.setStock(product.getStock());
+        productDto.setCategory(toCategoryDto(product.getCategory()));
+        productDto.setCreatedBy(product.getCreatedBy());
+        productDto.setUpdatedBy(product.getUpdatedBy());
+        productDto.setCreatedAt(product.getCreatedAt());
+        productDto.setUpdatedAt(product.getUpdatedAt());
+        return productDto;
+    }
+
+    /**
+     * @implNote map ProductSummary projection to ProductSummaryDto
+     */
+    public ProductSummaryDto toProductSummaryDto(ProductSummary productSummary) {
+        if (productSummary == null) {
+            return null;
+        }
+        ProductSummaryDto productSummaryDto = new ProductSummaryDto();
+        productSummaryDto.setId(productSummary.getId());
+        productSummaryDto.setTitle(productSummary.getTitle());
+        productSummaryDto.setPrice(productSummary.getPrice());
+        productSummaryDto.setDiscount(productSummary.getDiscount());
+        productSummaryDto.setImage(productSummary.getImage());
+        productSummaryDto.setLive(productSummary.getLive());
+        productSummaryDto.setStock(productSummary.getStock());
+        return productSummaryDto;
+    }
+
+    /**
+     * @implNote map ProductDto to Product entity along with its category
+     */
+    public Product toProduct(ProductDto productDto) {
+        if (productDto == null) {
+            return null;
+        }
+        Product product = new Product();
+        product.setId(productDto.getId());
+        product.setTitle(productDto.getTitle());
+        product.setDescription(productDto.getDescription());
+        product.setImage(productDto.getImage());
+        product.setPrice(productDto.getPrice());
+        product.setDiscount(productDto.getDiscount());
+        product.setQuantity(productDto.getQuantity());
+        product.setLive(productDto.getLive());
+        product.setStock(productDto.getStock());
+        product.setCategory(toCategory(productDto.getCategory()));
+        product.setCreatedBy(productDto.getCreatedBy());
+        product.setUpdatedBy(productDto.getUpdatedBy());
+        product.setCreatedAt(productDto.getCreatedAt());
+        product.setUpdatedAt(productDto.getUpdatedAt());
+        return product;
+    }
+
+    /**
+     * @implNote map Category entity to CategoryDto, products are not part of the dto
+     */
+    public CategoryDto toCategoryDto(Category category) {
+        if (category == null) {
+            return null;
+        }
+        CategoryDto categoryDto = new CategoryDto();
+        categoryDto.setId(category.getId());
+        categoryDto.setTitle(category.getTitle());
+        categoryDto.setDescription(category.getDescription());
+        categoryDto.setCoverImage(category.getCoverImage());
+        categoryDto.setCreatedBy(category.getCreatedBy());
+        categoryDto.setUpdatedBy(category.getUpdatedBy());
+        categoryDto.setCreatedAt(category.getCreatedAt());
+        categoryDto.setUpdatedAt(category.getUpdatedAt());
+        return categoryDto;
+    }
+
+    /**
+     * @implNote defensive copy of a cached ProductDto, callers are free to modify what they get back
+     */
+    public ProductDto copyOf(ProductDto productDto) {
+        if (productDto == null) {
+            return null;
+        }
+        ProductDto copy = new ProductDto();
+        copy.setId(productDto.getId());
+        copy.setTitle(productDto.getTitle());
+        copy.setDescription(productDto.getDescription());
+        copy.setImage(productDto.getImage());
+        copy.setPrice(productDto.getPrice());
+        copy.setDiscount(productDto.getDiscount());
+        copy.setQuantity(productDto.getQuantity());
+        copy.setLive(productDto.getLive());
+        copy.setStock(productDto.getStock());
+        copy.setCategory(copyOf(productDto.getCategory()));
+        copy.setCreatedBy(productDto.getCreatedBy());
+        copy.setUpdatedBy(productDto.getUpdatedBy());
+        copy.setCreatedAt(copyOf(productDto.getCreatedAt()));
+        copy.setUpdatedAt(copyOf(productDto.getUpdatedAt()));
+        return copy;
+    }
+
+    /**
+     * @implNote defensive copy of a cached CategoryDto
+     */
+    public CategoryDto copyOf(CategoryDto categoryDto) {
+        if (categoryDto == null) {
+            return null;
+        }
+        CategoryDto copy = new CategoryDto();
+        copy.setId(categoryDto.getId());
+        copy.setTitle(categoryDto.getTitle());
+        copy.setDescription(categoryDto.getDescription());
+        copy.setCoverImage(categoryDto.getCoverImage());
+        copy.setCreatedBy(categoryDto.getCreatedBy());
+        copy.setUpdatedBy(categoryDto.getUpdatedBy());
+        copy.setCreatedAt(copyOf(categoryDto.getCreatedAt()));
+        copy.setUpdatedAt(copyOf(categoryDto.getUpdatedAt()));
+        return copy;
+    }
+
+    /**
+     * @implNote map CategoryDto to Category entity
+     */
+    public Category toCategory(CategoryDto categoryDto) {
+        if (categoryDto == null) {
+            return null;
+        }
+        Category category = new Category();
+        category.setId(categoryDto.getId());
+        category.setTitle(categoryDto.getTitle());
+        category.setDescription(categoryDto.getDescription());
+        category.setCoverImage(categoryDto.getCoverImage());
+        category.setCreatedBy(categoryDto.getCreatedBy());
+        category.setUpdatedBy(categoryDto.getUpdatedBy());
+        category.setCreatedAt(categoryDto.getCreatedAt());
+        category.setUpdatedAt(categoryDto.getUpdatedAt());
+        return category;
+    }
+
+    /**
+     * @implNote map User entity to UserDto, entity id is exposed as userId
+     */
+    public UserDto toUserDto(User user) {
+        if (user == null) {
+            return null;
+        }
+        UserDto userDto = new UserDto();
+        userDto.setUserId(user.getId());
+        userDto.setName(user.getName());
+        userDto.setEmail(user.getEmail());
+        userDto.setPassword(user.getPassword());
+        userDto.setGender(user.getGender());
+        userDto.setAbout(user.getAbout());
+        userDto.setImage(user.getImage());
+        userDto.setRoles(this.roleRegistry.roles(user.getRoleIds()));
+        userDto.setCreatedBy(user.getCreatedBy());
+        userDto.setUpdatedBy(user.getUpdatedBy());
+        userDto.setCreatedAt(user.getCreatedAt());
+        userDto.setUpdatedAt(user.getUpdatedAt());
+        return userDto;
+    }
+
+    /**
+     * @implNote map UserDto to User entity, userId is stored as entity id
+     */
+    public User toUser(UserDto userDto) {
+        if (userDto == null) {
+            return null;
+        }
+        User user = new User();
+        user.setId(userDto.getUserId());
+        user.setName(userDto.getName());
+        user.setEmail(userDto.getEmail());
+        user.setPassword(userDto.getPassword());
+        user.setGender(userDto.getGender());
+        user.setAbout(userDto.getAbout());
+        user.setImage(userDto.getImage());
+        user.setRoleIds(this.roleRegistry.roleIds(userDto.getRoles()));
+        user.setCreatedBy(userDto.getCreatedBy());
+        user.setUpdatedBy(userDto.getUpdatedBy());
+        user.setCreatedAt(userDto.getCreatedAt());
+        user.setUpdatedAt(userDto.getUpdatedAt());
+        return user;
+    }
+
+    private Date copyOf(Date date) {
+        return date == null ? null : new Date(date.getTime());
+    }
+}
@@ -0,0 +1,78 @@
+package com.mobicoolsoft.electronic.store.helper;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.context.request.WebRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+/**
+ * @author Sandip Kolhekar
+ * @implNote validators (ETag, Last-Modified) for GET responses, derived before any row is loaded. A single resource
+ * is versioned by id + updatedAt (falling back to createdAt) read on their own, a listing by the write counters
+ * (TableVersions) of every table it shows. When If-None-Match /
+ * If-Modified-Since still match the request is answered with 304 Not Modified and the rows are never fetched,
+ * mapped or serialized. The same version is sent on the 200 response. Without a timestamp no validators are sent
+ */
+public class ETagHelper {
+
+    /**
+     * @param tag plain version the ETag is digested from
+     * @param lastModified epoch millis, -1 when there is no Last-Modified to send
+     */
+    public record Version(String tag, long lastModified) {
+
+        public String etag() {
+            return "\"" + DigestUtils.md5DigestAsHex(this.tag.getBytes(StandardCharsets.UTF_8)) + "\"";
+        }
+    }
+
+    /**
+     * @return version of one row, null without any timestamp
+     */
+    public static Version version(String id, Date updatedAt, Date createdAt) {
+        Date modified = updatedAt != null ? updatedAt : createdAt;
+        return modified == null ? null : new Version(id + ":" + modified.getTime(), modified.getTime());
+    }
+
+    /**
+     * @return version of a resource embedding others, e.g. a product with its category, null when one is null
+     */
+    public static Version combine(Version... versions) {
+        StringBuilder tag = new StringBuilder();
+        long lastModified = -1;
+        for (Version version : versions) {
+            if (version == null) {
+                return null;
+            }
+            tag.append(tag.isEmpty() ? "" : "/").append(version.tag());
+            lastModified = Math.max(lastModified, version.lastModified());
+        }
+        return new Version(tag.toString(), lastModified);
+    }
+
+    /**
+     * @return true when the client copy is still current, the response is then already a 304 and the handler
+     * returns null
+     */
+    public static boolean notModified(WebRequest webRequest, Version version) {
+        if (version == null) {
+            return false;
+        }
+        return version.lastModified() < 0 ? webRequest.checkNotModified(version.etag())
+                : webRequest.checkNotModified(version.etag(), version.lastModified());
+    }
+
+    public static HttpHeaders validators(Version version) {
+        HttpHeaders headers = new HttpHeaders();
+        if (version == null) {
+            return headers;
+        }
+        headers.setETag(version.etag());
+        if (version.lastModified() >= 0) {
+            headers.setLastModified(version.lastModified());
+        }
+        return headers;
+    }
+}
@@ -0,0 +1,209 @@
+package com.mobicoolsoft.electronic.store.helper;
+
+import com.mobicoolsoft.electronic.store.repository.UserRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * @author Sandip Kolhekar
+ * @implNote in-memory Bloom filter over the normalized emails of all users. A negative answer is definite, so signup
+ * duplicate checks and lookups of unknown emails skip the database; a positive one still asks the unique index.
+ * Emails are added before the insert or update that writes them, a lookup never misses a saved user. Deleted and
+ * replaced emails cannot be removed and only cost false positives until the next rebuild, which runs at startup and
+ * every user.email-filter.rebuild-interval-ms. Until the first build finished every email might be contained, and so
+ * it is while users without a normalized email are left (db/users-email-normalized-mysql.sql backfills them): their
+ * emails are not in the filter and lookups fall back to the legacy email column
+ */
+@Component
+public class EmailFilter implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailFilter.class);
+
+    private static final int PAGE_SIZE = 10_000;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${user.email-filter.expected-users:1000000}")
+    private long expectedUsers = 1_000_000;
+
+    @Value("${user.email-filter.false-positive-rate:0.01}")
+    private double falsePositiveRate = 0.01;
+
+    private volatile Bits current;
+
+    /**
+     * @implNote filter being loaded, receives every add as well so nothing saved during the load is lost
+     */
+    private volatile Bits building;
+
+    private volatile boolean legacyEmails;
+
+    private final AtomicLong skippedLookups = new AtomicLong();
+
+    private final AtomicLong staleEntries = new AtomicLong();
+
+    /**
+     * @param normalizedEmail see User.normalizeEmail
+     * @return false only when no user has the email
+     */
+    public boolean mightContain(String normalizedEmail) {
+        Bits bits = this.current;
+        if (bits == null || this.legacyEmails || normalizedEmail == null || bits.mightContain(normalizedEmail)) {
+            return true;
+        }
+        this.skippedLookups.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * @return true while some users have no normalized email, their emails are only found through the email column
+     */
+    public boolean hasLegacyEmails() {
+        return this.legacyEmails;
+    }
+
+    /**
+     * @implNote call before the user carrying the email is saved
+     */
+    public void put(String normalizedEmail) {
+        if (normalizedEmail == null) {
+            return;
+        }
+        Bits bits = this.current;
+        if (bits != null) {
+            bits.put(normalizedEmail);
+        }
+        Bits next = this.building;
+        if (next != null) {
+            next.put(normalizedEmail);
+        }
+    }
+
+    /**
+     * @implNote an email was deleted or replaced, it stays in the filter until the next rebuild
+     */
+    public void markStale() {
+        this.staleEntries.incrementAndGet();
+    }
+
+    /**
+     * @implNote loads all normalized emails page by page into a filter sized for twice the current user count and
+     * swaps it in. Rows without one are only counted, backfilling them is left to the migration script: duplicates
+     * among them would fail a bulk update as a whole
+     */
+    @Scheduled(initialDelayString = "${user.email-filter.initial-delay-ms:0}", fixedDelayString = "${user.email-filter.rebuild-interval-ms:3600000}")
+    public synchronized void rebuild() {
+        try {
+            long legacy = this.userRepository.countByNormalizedEmailIsNullAndEmailIsNotNull();
+            if (legacy > 0) {
+                logger.warn("{} users have no normalized email, run db/users-email-normalized-mysql.sql", legacy);
+            }
+            this.legacyEmails = legacy > 0;
+            long users = this.userRepository.count();
+            Bits next = new Bits(Math.max(this.expectedUsers, 2 * users), this.falsePositiveRate);
+            this.building = next;
+            long stale = this.staleEntries.get();
+            String after = "";
+            List<String> emails;
+            do {
+                emails = this.userRepository.findNormalizedEmailsAfter(after, PageRequest.of(0, PAGE_SIZE));
+                emails.forEach(next::put);
+                if (!emails.isEmpty()) {
+                    after = emails.get(emails.size() - 1);
+                }
+            } while (emails.size() == PAGE_SIZE);
+            this.current = next;
+            this.staleEntries.addAndGet(-stale);
+            logger.info("email filter rebuilt for {} users with {} bits", users, next.bitCount());
+        } catch (DataAccessException ex) {
+            logger.error("email filter could not be rebuilt, the previous one stays in use", ex);
+        } finally {
+            this.building = null;
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("user.email.filter.skipped", this.skippedLookups, AtomicLong::get)
+                .description("email lookups and duplicate checks answered without a database query").register(registry);
+        Gauge.builder("user.email.filter.stale", this.staleEntries, AtomicLong::get)
+                .description("deleted or replaced emails still set in the filter").register(registry);
+    }
+
+    /**
+     * @implNote bit array with k probes derived from two halves of a 64 bit FNV-1a hash (Kirsch-Mitzenmacher)
+     */
+    private static final class Bits {
+
+        private final AtomicLongArray words;
+
+        private final long size;
+
+        private final int hashes;
+
+        private Bits(long expected, double falsePositiveRate) {
+            long bits = (long) Math.ceil(-expected * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            this.words = new AtomicLongArray((int) Math.min(Integer.MAX_VALUE - 8, (bits + 63) / 64));
+            this.size = this.words.length() * 64L;
+            this.hashes = Math.max(1, (int) Math.round((double) this.size / expected * Math.log(2)));
+        }
+
+        private void put(String value) {
+            long hash = hash(value);
+            for (int i = 0; i < this.hashes; i++) {
+                long bit = this.index(hash, i);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long old;
+                do {
+                    old = this.words.get(word);
+                } while ((old & mask) == 0 && !this.words.compareAndSet(word, old, old | mask));
+            }
+        }
+
+        private boolean mightContain(String value) {
+            long hash = hash(value);
+            for (int i = 0; i < this.hashes; i++) {
+                long bit = this.index(hash, i);
+                if ((this.words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private long index(long hash, int i) {
+            long combined = (int) hash + (long) i * (int) (hash >>> 32);
+            return Math.floorMod(combined, this.size);
+        }
+
+        private long bitCount() {
+            return this.size;
+        }
+
+        private static long hash(String value) {
+            long hash = 0xcbf29ce484222325L;
+            for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+                hash ^= b & 0xff;
+                hash *= 0x100000001b3L;
+            }
+            return hash;
+        }
+    }
+}
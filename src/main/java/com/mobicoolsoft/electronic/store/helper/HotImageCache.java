@@ -0,0 +1,134 @@
+package com.mobicoolsoft.electronic.store.helper;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * @author Sandip Kolhekar
+ * @implNote bytes of frequently served images held in direct (off-heap) ByteBuffers, keyed by stored file name
+ * (original or variant). A hit is served without a filesystem call and without copying the image into the heap.
+ * Caffeine bounds the cache by total bytes and evicts by W-TinyLFU, so one-off requests of cold images do not
+ * push out the hot set. Buffers are never written after loading, evicted ones are freed once the last response
+ * still sending them is done. Hit rate, evictions and size are published as cache.* metrics with cache=hotImages
+ */
+@Component
+public class HotImageCache implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(HotImageCache.class);
+
+    private static final String CACHE_NAME = "hotImages";
+
+    private final long maxEntryBytes;
+
+    private final Cache<String, CachedImage> images;
+
+    public HotImageCache(@Value("${image.cache.max-bytes:67108864}") long maxBytes,
+                         @Value("${image.cache.max-entry-bytes:1048576}") long maxEntryBytes) {
+        this.maxEntryBytes = Math.min(maxEntryBytes, Integer.MAX_VALUE);
+        this.images = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String name, CachedImage image) -> image.length())
+                // maintenance on the calling thread, the size gauge and evictions never lag behind a load
+                .executor(Runnable::run)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * @param content read-only direct buffer holding the whole file
+     * @param lastModified of the file when it was loaded
+     */
+    public record CachedImage(ByteBuffer content, long lastModified) {
+
+        public int length() {
+            return this.content.capacity();
+        }
+
+        /**
+         * @implNote writes bytes start..end (inclusive) through a private view, concurrent responses never share a position
+         */
+        public void writeTo(WritableByteChannel target, long start, long end) throws IOException {
+            ByteBuffer view = this.content.duplicate();
+            view.limit((int) end + 1).position((int) start);
+            while (view.hasRemaining()) {
+                target.write(view);
+            }
+        }
+    }
+
+    /**
+     * @return cached image or null, counted as a hit or a miss
+     */
+    public CachedImage get(String name) {
+        return this.images.getIfPresent(name);
+    }
+
+    /**
+     * @implNote probe that is not counted as a hit or a miss
+     */
+    public boolean contains(String name) {
+        return this.images.asMap().containsKey(name);
+    }
+
+    /**
+     * @implNote reads the file into a new direct buffer and caches it, a concurrent load of the same name keeps
+     * the first buffer
+     * @return cached image, null when the file is larger than image.cache.max-entry-bytes
+     */
+    public CachedImage load(String name, Path file, long length, long lastModified) throws IOException {
+        if (length > this.maxEntryBytes) {
+            return null;
+        }
+        ByteBuffer content = ByteBuffer.allocateDirect((int) length);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (content.hasRemaining()) {
+                if (channel.read(content) < 0) {
+                    throw new EOFException(file + " shrank while it was cached");
+                }
+            }
+        }
+        content.flip();
+        CachedImage image = new CachedImage(content.asReadOnlyBuffer(), lastModified);
+        CachedImage existing = this.images.asMap().putIfAbsent(name, image);
+        return existing != null ? existing : image;
+    }
+
+    /**
+     * @implNote drops an image and all of its variants, called when an entity stops referring to it
+     */
+    public void invalidate(String name) {
+        if (name == null) {
+            return;
+        }
+        int dot = name.lastIndexOf('.');
+        String baseName = dot < 0 ? name : name.substring(0, dot);
+        this.images.asMap().keySet().removeIf(key -> key.equals(name) || key.startsWith(baseName + "_w"));
+        logger.info("image {} and its variants evicted from the hot image cache", name);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, this.images, CACHE_NAME);
+        Gauge.builder("cache.size.bytes", this.images, images -> images.policy().eviction()
+                        .map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L))
+                .tag("cache", CACHE_NAME)
+                .description("off-heap bytes held by the hot image cache")
+                .register(registry);
+    }
+}
@@ -0,0 +1,14 @@
+package com.mobicoolsoft.electronic.store.helper;
+
+/**
+ * @author Sandip Kolhekar
+ * @implNote source of new entity ids, selected with entity.id.strategy (see Configuration). Every strategy returns
+ * canonical UUID strings, so ids of different strategies live side by side in the same BINARY(16) column
+ */
+public interface IdGenerator {
+
+    /**
+     * @return a new unique id in canonical UUID form
+     */
+    String newId();
+}
@@ -0,0 +1,87 @@
+package com.mobicoolsoft.electronic.store.helper;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.function.Supplier;
+
+/**
+ * @author Sandip Kolhekar
+ * @implNote image file name per entity id (e.g. "product:{id}"), so the image endpoints answer from one
+ * single column query at most and never load or map an entity. Services put the new name after every save
+ * that changes it and evict on delete. A load runs inside the cache's compute, a put of the same key waits
+ * for it and wins, so a name read before an update is never stored after it
+ */
+@Component
+public class ImageNames implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageNames.class);
+
+    private static final String CACHE_NAME = "imageNames";
+
+    public static final String PRODUCT = "product";
+
+    public static final String CATEGORY = "category";
+
+    public static final String USER = "user";
+
+    /**
+     * @implNote Caffeine holds no nulls, an entity without image is cached as the empty name
+     */
+    private static final String NO_IMAGE = "";
+
+    private final Cache<String, String> names;
+
+    public ImageNames(@Value("${image.names.max-entries:50000}") long maxEntries) {
+        this.names = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * @param resource entity type, e.g. "product"
+     * @param loader single column query, throws when the entity does not exist
+     * @return image file name, null when the entity has none
+     */
+    public String get(String resource, String id, Supplier<String> loader) {
+        String name = this.names.get(key(resource, id), key -> {
+            String loaded = loader.get();
+            return loaded == null ? NO_IMAGE : loaded;
+        });
+        return NO_IMAGE.equals(name) ? null : name;
+    }
+
+    /**
+     * @implNote called after an upload or update was saved
+     */
+    public void put(String resource, String id, String image) {
+        this.names.put(key(resource, id), image == null ? NO_IMAGE : image);
+    }
+
+    public void evict(String resource, String id) {
+        this.names.invalidate(key(resource, id));
+    }
+
+    public void evictAll(String resource, Collection<String> ids) {
+        this.names.invalidateAll(ids.stream().map(id -> key(resource, id)).toList());
+        logger.debug("{} {} image names evicted", ids.size(), resource);
+    }
+
+    private static String key(String resource, String id) {
+        return resource + ":" + id;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, this.names, CACHE_NAME);
+    }
+}
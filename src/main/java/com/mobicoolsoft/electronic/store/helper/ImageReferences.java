@@ -0,0 +1,79 @@
+package com.mobicoolsoft.electronic.store.helper;
+
+import com.mobicoolsoft.electronic.store.entity.ImageBlob;
+import com.mobicoolsoft.electronic.store.repository.ImageBlobRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * @author Sandip Kolhekar
+ * @implNote reference counts of ImageStore blobs, kept by the create, update and delete paths of products,
+ * categories and users whenever an image column changes. Callers adjust the counts after the entity write and
+ * inside its transaction, a failed write leaves them untouched. An image that is no longer referred to is also
+ * dropped from the HotImageCache
+ */
+@Component
+public class ImageReferences {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageReferences.class);
+
+    @Autowired
+    private ImageBlobRepository imageBlobRepository;
+
+    @Autowired
+    private HotImageCache hotImageCache;
+
+    /**
+     * @implNote makes sure a freshly stored name has its blob row, starting without references.
+     * A concurrent upload of the same content may insert it first
+     */
+    public void register(String name, long size) {
+        if (this.imageBlobRepository.existsById(name)) {
+            return;
+        }
+        ImageBlob blob = ImageBlob.builder().size(size).refCount(0).build();
+        blob.setId(name);
+        try {
+            this.imageBlobRepository.saveAndFlush(blob);
+        } catch (DataIntegrityViolationException ex) {
+            logger.info("image blob {} registered concurrently", name);
+        }
+    }
+
+    /**
+     * @implNote an image column changes from oldImage to newImage, either may be null
+     */
+    public void replace(String oldImage, String newImage) {
+        if (Objects.equals(oldImage, newImage)) {
+            return;
+        }
+        this.adjust(newImage, 1);
+        this.adjust(oldImage, -1);
+        this.hotImageCache.invalidate(oldImage);
+    }
+
+    /**
+     * @implNote rows holding these images were deleted in bulk, e.g. the products cascaded with their category
+     */
+    public void release(Collection<String> images) {
+        Map<String, Long> counts = images.stream().filter(ImageStore::isContentAddressed)
+                .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+        counts.forEach((image, count) -> this.adjust(image, -count.intValue()));
+        images.forEach(this.hotImageCache::invalidate);
+    }
+
+    private void adjust(String image, int delta) {
+        if (ImageStore.isContentAddressed(image)) {
+            this.imageBlobRepository.adjustRefCount(image, delta);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.mobicoolsoft.electronic.store.helper;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+
+/**
+ * @author Sandip Kolhekar
+ * @implNote content addressed image store. A file is named after the SHA-256 of its bytes plus its extension
+ * and lives under two levels of hash prefix directories, {@code <root>/ab/cd/abcd...ef.png}, so no directory
+ * holds more than a few hundred entries and identical uploads end up as one file.
+ * Names created before the store (UUID + extension) are still found in the flat per entity directories
+ */
+@Component
+public class ImageStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageStore.class);
+
+    private static final Pattern CONTENT_ADDRESSED = Pattern.compile("[0-9a-f]{64}\\.[a-z]+");
+
+    private static final String PART_SUFFIX = ".part";
+
+    private static final String UPLOAD_DIRECTORY = "uploads";
+
+    private static final int HASH_BUFFER_SIZE = 64 * 1024;
+
+    @Value("${image.store.root:images/store/}")
+    private String root;
+
+    /**
+     * @implNote stored file, created is false when the same content was already in the store
+     */
+    public record StoredImage(String name, Path file, long size, boolean created) {
+    }
+
+    /**
+     * @implNote hashes the stream while it is copied to a temporary file in the store root, then moves it
+     * atomically under its hash
+     * @param extension lower case extension including the dot
+     */
+    public StoredImage store(InputStream inputStream, String extension) throws IOException {
+        Path rootDir = Paths.get(this.root);
+        Files.createDirectories(rootDir);
+        Path partial = Files.createTempFile(rootDir, "upload-", PART_SUFFIX);
+        try {
+            MessageDigest digest = sha256();
+            long size;
+            try (DigestInputStream digestStream = new DigestInputStream(inputStream, digest)) {
+                size = Files.copy(digestStream, partial, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return this.place(partial, HexFormat.of().formatHex(digest.digest()) + extension, size);
+        } finally {
+            Files.deleteIfExists(partial);
+        }
+    }
+
+    /**
+     * @implNote moves a file that was written inside the store root, e.g. an assembled chunked upload, under its hash.
+     * The file is read once through a direct buffer to hash it, its bytes are never copied
+     * @param file file on the store volume, gone after the call
+     */
+    public StoredImage adopt(Path file, String extension) throws IOException {
+        try {
+            MessageDigest digest = sha256();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(HASH_BUFFER_SIZE);
+            long size = 0;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                int read;
+                while ((read = channel.read(buffer)) >= 0) {
+                    buffer.flip();
+                    digest.update(buffer);
+                    buffer.clear();
+                    size += read;
+                }
+            }
+            return this.place(file, HexFormat.of().formatHex(digest.digest()) + extension, size);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * @return directory on the store volume for files that are still being received
+     */
+    public Path uploadDirectory() throws IOException {
+        return Files.createDirectories(Paths.get(this.root, UPLOAD_DIRECTORY));
+    }
+
+    /**
+     * @implNote a concurrent upload of the same bytes either finds the file in place or loses the move,
+     * both leave exactly one complete copy. The partial file is left to the caller
+     */
+    private StoredImage place(Path partial, String name, long size) throws IOException {
+        Path target = this.locate(name);
+        if (Files.isRegularFile(target) && touch(target)) {
+            logger.info("image {} already stored, upload deduplicated", name);
+            return new StoredImage(name, target, size, false);
+        }
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(partial, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException ex) {
+            return new StoredImage(name, target, size, false);
+        }
+        logger.info("image {} of {} bytes stored", name, size);
+        return new StoredImage(name, target, size, true);
+    }
+
+    /**
+     * @implNote a fresh modification time keeps the orphan collector's grace period away from a file about to be
+     * referenced again
+     * @return false when the file was collected in the meantime and has to be stored again
+     */
+    private static boolean touch(Path file) throws IOException {
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return true;
+        } catch (NoSuchFileException ex) {
+            return false;
+        }
+    }
+
+    public Path root() {
+        return Paths.get(this.root);
+    }
+
+    /**
+     * @return directory name under the root holding unfinished uploads, never part of the sharded layout
+     */
+    public static String uploadDirectoryName() {
+        return UPLOAD_DIRECTORY;
+    }
+
+    /**
+     * @return sharded location of a content addressed name
+     */
+    public Path locate(String name) {
+        return Paths.get(this.root, name.substring(0, 2), name.substring(2, 4), name);
+    }
+
+    /**
+     * @param legacyPath flat directory of names stored before the content addressed store
+     * @return location of the image, whether or not it exists
+     */
+    public Path locate(String legacyPath, String name) {
+        return isContentAddressed(name) ? this.locate(name) : Paths.get(legacyPath, name);
+    }
+
+    public static boolean isContentAddressed(String name) {
+        return name != null && CONTENT_ADDRESSED.matcher(name).matches();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            // every Java platform is required to provide SHA-256
+            throw new IllegalStateException(ex);
+        }
+    }
+}
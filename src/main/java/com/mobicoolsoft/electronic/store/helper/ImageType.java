@@ -0,0 +1,81 @@
+package com.mobicoolsoft.electronic.store.helper;
+
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * @author Sandip Kolhekar
+ * @implNote image formats accepted for upload, told apart by their leading magic bytes. The stored name of an
+ * upload gets the extension of its sniffed type, so the extension of a content addressed name is reliable and
+ * serving never has to look at the bytes again
+ */
+public enum ImageType {
+
+    PNG(".png", MediaType.IMAGE_PNG_VALUE, new byte[]{(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'}),
+
+    JPEG(".jpg", MediaType.IMAGE_JPEG_VALUE, new byte[]{(byte) 0xFF, (byte) 0xD8, (byte) 0xFF});
+
+    /**
+     * @implNote bytes needed to recognise every type
+     */
+    public static final int SIGNATURE_LENGTH = 8;
+
+    private final String extension;
+
+    private final String mediaType;
+
+    private final byte[] signature;
+
+    ImageType(String extension, String mediaType, byte[] signature) {
+        this.extension = extension;
+        this.mediaType = mediaType;
+        this.signature = signature;
+    }
+
+    public String extension() {
+        return this.extension;
+    }
+
+    public String mediaType() {
+        return this.mediaType;
+    }
+
+    /**
+     * @param header leading bytes of the content, may be shorter than SIGNATURE_LENGTH
+     */
+    public static Optional<ImageType> sniff(byte[] header) {
+        return Arrays.stream(values())
+                .filter(type -> header.length >= type.signature.length
+                        && Arrays.equals(header, 0, type.signature.length, type.signature, 0, type.signature.length))
+                .findFirst();
+    }
+
+    /**
+     * @implNote peeks at the stream, it has to support mark and is reset to where it was
+     */
+    public static Optional<ImageType> sniff(InputStream inputStream) throws IOException {
+        inputStream.mark(SIGNATURE_LENGTH);
+        byte[] header = inputStream.readNBytes(SIGNATURE_LENGTH);
+        inputStream.reset();
+        return sniff(header);
+    }
+
+    /**
+     * @return type named by the extension of a stored name (.jpeg of names stored before sniffing included)
+     */
+    public static Optional<ImageType> of(String fileName) {
+        String name = fileName.toLowerCase(Locale.ROOT);
+        if (name.endsWith(".png")) {
+            return Optional.of(PNG);
+        }
+        if (name.endsWith(".jpg") || name.endsWith(".jpeg")) {
+            return Optional.of(JPEG);
+        }
+        return Optional.empty();
+    }
+}
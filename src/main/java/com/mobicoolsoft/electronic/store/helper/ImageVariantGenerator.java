@@ -0,0 +1,224 @@
+package com.mobicoolsoft.electronic.store.helper;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOException;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * @author Sandip Kolhekar
+ * @implNote renders fixed width JPEG variants next to an uploaded image, named {@code <name>_w<width>.jpg}.
+ * Variants are only ever smaller than the original, carry no metadata besides the JFIF header
+ * and are generated on the bounded imageVariantExecutor pool, never on the request thread.
+ * Width and height are read from the header before anything is decoded, an image above image.variant.max-pixels
+ * (a few KB of PNG may declare 50000x50000) is served from the original only
+ */
+@Component
+public class ImageVariantGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageVariantGenerator.class);
+
+    private static final String VARIANT_MARK = "_w";
+
+    private static final String VARIANT_EXTENSION = ".jpg";
+
+    @Value("${image.variant.widths:64,256,768}")
+    private int[] widths;
+
+    @Value("${image.variant.quality:0.8}")
+    private float quality;
+
+    @Value("${image.variant.max-pixels:25000000}")
+    private long maxPixels = 25_000_000;
+
+    @Autowired
+    @Qualifier("imageVariantExecutor")
+    private TaskExecutor imageVariantExecutor;
+
+    /**
+     * @implNote queue variant generation, when the pool is saturated the upload still succeeds
+     * and the image is served from the original until it is uploaded again
+     */
+    public void generateAsync(Path original) {
+        try {
+            this.imageVariantExecutor.execute(() -> {
+                try {
+                    this.generate(original);
+                } catch (IOException | RuntimeException ex) {
+                    logger.error("image variants of {} could not be generated", original, ex);
+                }
+            });
+        } catch (TaskRejectedException ex) {
+            logger.warn("image variant queue is full, {} is served without variants", original);
+        }
+    }
+
+    /**
+     * @return variant files written for the original, empty when it is not a readable image
+     */
+    public List<Path> generate(Path original) throws IOException {
+        BufferedImage source = this.read(original);
+        if (source == null) {
+            return List.of();
+        }
+        List<Path> variants = new ArrayList<>();
+        for (int width : this.sortedWidths()) {
+            if (width >= source.getWidth()) {
+                break;
+            }
+            Path variant = original.resolveSibling(variantName(original.getFileName().toString(), width));
+            Path partial = original.resolveSibling(variant.getFileName() + ".part");
+            this.writeJpeg(scale(source, width), partial);
+            Files.move(partial, variant, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            variants.add(variant);
+        }
+        logger.info("generated {} variants of {}", variants.size(), original);
+        return variants;
+    }
+
+    /**
+     * @implNote decodes with the first reader of the format once the header passed the pixel cap
+     * @return null when the file is no decodable image or has too many pixels
+     */
+    private BufferedImage read(Path original) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(original.toFile())) {
+            Iterator<ImageReader> readers = input == null ? Collections.emptyIterator() : ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                logger.info("{} is not a decodable image, no variants generated", original);
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > this.maxPixels) {
+                    logger.warn("{} has {}x{} pixels, above the limit of {}, no variants generated", original,
+                            reader.getWidth(0), reader.getHeight(0), this.maxPixels);
+                    return null;
+                }
+                return reader.read(0);
+            } catch (IIOException ex) {
+                logger.info("{} is not a decodable image, no variants generated: {}", original, ex.getMessage());
+                return null;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * @param width requested display width, null for the original
+     * @return file name of the narrowest variant at least as wide as requested that exists,
+     * the original when none does
+     */
+    public String resolve(String path, String fileName, Integer width) {
+        for (String candidate : this.candidates(fileName, width)) {
+            if (candidate.equals(fileName) || Files.isRegularFile(Path.of(path, candidate))) {
+                return candidate;
+            }
+        }
+        return fileName;
+    }
+
+    /**
+     * @return names that may answer a request for width, narrowest variant first and the original last
+     */
+    public List<String> candidates(String fileName, Integer width) {
+        if (width == null || fileName == null) {
+            return Collections.singletonList(fileName);
+        }
+        List<String> candidates = new ArrayList<>();
+        for (int variantWidth : this.sortedWidths()) {
+            if (variantWidth >= width) {
+                candidates.add(variantName(fileName, variantWidth));
+            }
+        }
+        candidates.add(fileName);
+        return candidates;
+    }
+
+    public static String variantName(String fileName, int width) {
+        int dot = fileName.lastIndexOf('.');
+        String baseName = dot < 0 ? fileName : fileName.substring(0, dot);
+        return baseName + VARIANT_MARK + width + VARIANT_EXTENSION;
+    }
+
+    private int[] sortedWidths() {
+        int[] sorted = this.widths.clone();
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    /**
+     * @implNote halves the image until the next step reaches the target width, a single bilinear step
+     * from a large original would skip pixels and alias. Transparent pixels end up white
+     */
+    private static BufferedImage scale(BufferedImage source, int width) {
+        BufferedImage current = source;
+        int currentWidth = source.getWidth();
+        int currentHeight = source.getHeight();
+        int height = Math.max(1, Math.round(source.getHeight() * (float) width / source.getWidth()));
+        do {
+            boolean halve = currentWidth / 2 >= width;
+            int stepWidth = halve ? currentWidth / 2 : width;
+            int stepHeight = halve ? Math.max(1, currentHeight / 2) : height;
+            BufferedImage step = new BufferedImage(stepWidth, stepHeight, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = step.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.setColor(Color.WHITE);
+                graphics.fillRect(0, 0, stepWidth, stepHeight);
+                graphics.drawImage(current, 0, 0, stepWidth, stepHeight, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = step;
+            currentWidth = stepWidth;
+            currentHeight = stepHeight;
+        } while (currentWidth > width);
+        return current;
+    }
+
+    private void writeJpeg(BufferedImage image, Path target) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (OutputStream file = Files.newOutputStream(target);
+             ImageOutputStream output = ImageIO.createImageOutputStream(file)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(this.quality);
+            writer.setOutput(output);
+            // no stream or image metadata: EXIF, ICC profiles and comments of the original are dropped
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+}
@@ -0,0 +1,364 @@
+package com.mobicoolsoft.electronic.store.helper;
+
+import com.mobicoolsoft.electronic.store.repository.CategoryRepository;
+import com.mobicoolsoft.electronic.store.repository.NameText;
+import com.mobicoolsoft.electronic.store.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * @author Sandip Kolhekar
+ * @implNote in-process word prefix index over user names and category titles, so search as you type never
+ * runs a '%keyword%' scan. Every word of a name is kept in a sorted set as "word \0 name \0 id": a prefix is one
+ * range of that set and a suggestion walks only as many entries as it returns. Every query word must start a
+ * word of the name, matching is case insensitive. Searches are paged here, by name or creation time, so only the
+ * ids of one page go to the database. Updated by the services after each write and fully rebuilt from the
+ * database on startup
+ */
+@Component
+public class NameIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(NameIndex.class);
+
+    public static final String USER = "user";
+
+    public static final String CATEGORY = "category";
+
+    private static final char SEPARATOR = '\u0000';
+
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    private static final String CREATED_AT = "createdAt";
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    private final Map<String, Names> indexes = Map.of(USER, new Names(USER), CATEGORY, new Names(CATEGORY));
+
+    public record Suggestion(String id, String name) {
+    }
+
+    /**
+     * @param ids ids of the requested page in the requested order
+     * @param total number of entities matching the prefix
+     */
+    public record SearchPage(List<String> ids, long total) {
+    }
+
+    /**
+     * @implNote add or replace the name of an entity
+     * @param resource USER or CATEGORY
+     * @param createdAt creation time for createdAt sorted searches, null keeps the indexed one (now for a new entity)
+     */
+    public void index(String resource, String id, String name, Date createdAt) {
+        this.names(resource).index(id, name, createdAt == null ? null : createdAt.getTime());
+    }
+
+    /**
+     * @implNote remove an entity, unknown ids are ignored
+     */
+    public void remove(String resource, String id) {
+        this.names(resource).remove(id);
+    }
+
+    /**
+     * @param prefix typed text, every word must start a word of the name
+     * @return at most limit matches, ordered by the matched word and the name
+     */
+    public List<Suggestion> suggest(String resource, String prefix, int limit) {
+        return this.names(resource).suggest(prefix, limit);
+    }
+
+    /**
+     * @implNote keeps only the best offset + pageSize matches while walking, the order is name or createdAt of the
+     * first sort order with id as tie-breaker, the order SortRegistry gives the database
+     * @param pageable page and SortRegistry sort of the listing
+     * @return ids of the requested page and the number of all matches
+     */
+    public SearchPage search(String resource, String prefix, Pageable pageable) {
+        Sort.Order order = pageable.getSort().stream().findFirst().orElse(Sort.Order.asc("name"));
+        Comparator<Entry> comparator = CREATED_AT.equals(order.getProperty())
+                ? Comparator.comparingLong(Entry::createdAt).thenComparing(Entry::id)
+                : Comparator.comparing(Entry::sortName).thenComparing(Entry::id);
+        return this.names(resource).search(prefix, order.isAscending() ? comparator : comparator.reversed(),
+                pageable.getOffset(), pageable.getPageSize());
+    }
+
+    /**
+     * @return number of indexed entities
+     */
+    public int size(String resource) {
+        return this.names(resource).size();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        this.rebuild();
+    }
+
+    public void rebuild() {
+        this.names(USER).rebuild(this.userRepository::findNameSliceBy);
+        this.names(CATEGORY).rebuild(this.categoryRepository::findNameSliceBy);
+    }
+
+    private Names names(String resource) {
+        Names names = this.indexes.get(resource);
+        if (names == null) {
+            throw new IllegalArgumentException("no name index for " + resource);
+        }
+        return names;
+    }
+
+    private static List<String> words(String name) {
+        return ProductSearchIndex.tokenize(name).stream().distinct().toList();
+    }
+
+    private record Change(String id, String name, Long createdAt) {
+    }
+
+    private record Entry(String id, String name, String sortName, long createdAt) {
+    }
+
+    /**
+     * @implNote index of one resource, writes arriving while a rebuild reads the table are replayed on the rebuilt state
+     */
+    private static final class Names {
+
+        private final String resource;
+
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+        private IndexState state = new IndexState();
+
+        private boolean rebuilding;
+
+        private final Queue<Change> pendingChanges = new ConcurrentLinkedQueue<>();
+
+        private Names(String resource) {
+            this.resource = resource;
+        }
+
+        void index(String id, String name, Long createdAt) {
+            this.lock.writeLock().lock();
+            try {
+                this.state.put(id, name, createdAt);
+                if (this.rebuilding) {
+                    this.pendingChanges.add(new Change(id, name, createdAt));
+                }
+            } finally {
+                this.lock.writeLock().unlock();
+            }
+        }
+
+        void remove(String id) {
+            this.lock.writeLock().lock();
+            try {
+                this.state.remove(id);
+                if (this.rebuilding) {
+                    this.pendingChanges.add(new Change(id, null, null));
+                }
+            } finally {
+                this.lock.writeLock().unlock();
+            }
+        }
+
+        List<Suggestion> suggest(String prefix, int limit) {
+            List<String> words = words(prefix);
+            if (words.isEmpty() || limit < 1) {
+                return List.of();
+            }
+            List<Suggestion> matches = new ArrayList<>();
+            this.lock.readLock().lock();
+            try {
+                this.state.match(words, entry -> {
+                    matches.add(new Suggestion(entry.id(), entry.name()));
+                    return matches.size() < limit;
+                });
+            } finally {
+                this.lock.readLock().unlock();
+            }
+            return matches;
+        }
+
+        /**
+         * @implNote bounded heap whose head is the worst of the best offset + pageSize matches
+         */
+        SearchPage search(String prefix, Comparator<Entry> order, long offset, int pageSize) {
+            List<String> words = words(prefix);
+            if (words.isEmpty() || pageSize < 1) {
+                return new SearchPage(List.of(), 0);
+            }
+            int keep = (int) Math.min(offset + pageSize, Integer.MAX_VALUE);
+            PriorityQueue<Entry> best = new PriorityQueue<>(order.reversed());
+            long[] total = {0};
+            this.lock.readLock().lock();
+            try {
+                this.state.match(words, entry -> {
+                    total[0]++;
+                    if (best.size() < keep) {
+                        best.add(entry);
+                    } else if (order.compare(entry, best.peek()) < 0) {
+                        best.poll();
+                        best.add(entry);
+                    }
+                    return true;
+                });
+            } finally {
+                this.lock.readLock().unlock();
+            }
+            List<Entry> sorted = new ArrayList<>(best);
+            sorted.sort(order);
+            List<String> ids = offset >= sorted.size() ? List.of()
+                    : sorted.subList((int) offset, sorted.size()).stream().map(Entry::id).toList();
+            return new SearchPage(ids, total[0]);
+        }
+
+        int size() {
+            this.lock.readLock().lock();
+            try {
+                return this.state.entries.size();
+            } finally {
+                this.lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * @implNote reads id and name in batches into a fresh state, suggestions keep using the current state until the swap
+         */
+        void rebuild(Function<Pageable, Slice<NameText>> batches) {
+            long start = System.currentTimeMillis();
+            this.lock.writeLock().lock();
+            try {
+                this.rebuilding = true;
+                this.pendingChanges.clear();
+            } finally {
+                this.lock.writeLock().unlock();
+            }
+            IndexState rebuilt = new IndexState();
+            try {
+                Pageable pageable = PageRequest.of(0, REBUILD_BATCH_SIZE, Sort.by("id"));
+                Slice<NameText> batch;
+                do {
+                    batch = batches.apply(pageable);
+                    batch.forEach(text -> rebuilt.put(text.getId(), text.getName(),
+                            text.getCreatedAt() == null ? null : text.getCreatedAt().getTime()));
+                    pageable = batch.nextPageable();
+                } while (batch.hasNext());
+            } catch (RuntimeException ex) {
+                logger.error("{} name index rebuild failed, keeping the incremental index", this.resource, ex);
+                this.lock.writeLock().lock();
+                try {
+                    this.rebuilding = false;
+                    this.pendingChanges.clear();
+                } finally {
+                    this.lock.writeLock().unlock();
+                }
+                return;
+            }
+            this.lock.writeLock().lock();
+            try {
+                Change change;
+                while ((change = this.pendingChanges.poll()) != null) {
+                    if (change.name() == null) {
+                        rebuilt.remove(change.id());
+                    } else {
+                        rebuilt.put(change.id(), change.name(), change.createdAt());
+                    }
+                }
+                this.state = rebuilt;
+                this.rebuilding = false;
+            } finally {
+                this.lock.writeLock().unlock();
+            }
+            logger.info("{} name index rebuilt with {} entries in {} ms", this.resource, rebuilt.entries.size(), System.currentTimeMillis() - start);
+        }
+    }
+
+    /**
+     * @implNote not thread safe, guarded by the read/write lock of the owning Names
+     */
+    private static final class IndexState {
+
+        private final NavigableSet<String> words = new TreeSet<>();
+
+        private final Map<String, Entry> entries = new HashMap<>();
+
+        /**
+         * @param createdAt epoch millis, null keeps the indexed value
+         */
+        void put(String id, String name, Long createdAt) {
+            Entry previous = this.remove(id);
+            if (name == null) {
+                return;
+            }
+            long created = createdAt != null ? createdAt : previous != null ? previous.createdAt() : System.currentTimeMillis();
+            this.entries.put(id, new Entry(id, name, name.toLowerCase(Locale.ROOT), created));
+            words(name).forEach(word -> this.words.add(key(word, name, id)));
+        }
+
+        Entry remove(String id) {
+            Entry entry = this.entries.remove(id);
+            if (entry != null) {
+                words(entry.name()).forEach(word -> this.words.remove(key(word, entry.name(), id)));
+            }
+            return entry;
+        }
+
+        /**
+         * @implNote walks the range of the longest query word, the other words are checked on the name itself
+         * @param consumer gets every match once, ordered by the matched word and the name, returns false to stop
+         */
+        void match(List<String> query, Predicate<Entry> consumer) {
+            String longest = query.stream().reduce((a, b) -> b.length() > a.length() ? b : a).orElseThrow();
+            Set<String> seen = new HashSet<>();
+            for (String key : this.words.subSet(longest, true, longest + Character.MAX_VALUE, false)) {
+                String id = key.substring(key.lastIndexOf(SEPARATOR) + 1);
+                if (!seen.add(id)) {
+                    continue;
+                }
+                Entry entry = this.entries.get(id);
+                if ((query.size() == 1 || startsWords(words(entry.name()), query)) && !consumer.test(entry)) {
+                    return;
+                }
+            }
+        }
+
+        private static boolean startsWords(List<String> words, List<String> query) {
+            return query.stream().allMatch(prefix -> words.stream().anyMatch(word -> word.startsWith(prefix)));
+        }
+
+        private static String key(String word, String name, String id) {
+            return word + SEPARATOR + name.toLowerCase(Locale.ROOT) + SEPARATOR + id;
+        }
+    }
+}
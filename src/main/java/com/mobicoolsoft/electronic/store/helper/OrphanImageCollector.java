@@ -0,0 +1,276 @@
+package com.mobicoolsoft.electronic.store.helper;
+
+import com.mobicoolsoft.electronic.store.repository.CategoryRepository;
+import com.mobicoolsoft.electronic.store.repository.ImageBlobRepository;
+import com.mobicoolsoft.electronic.store.repository.ProductRepository;
+import com.mobicoolsoft.electronic.store.repository.UserRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * @author Sandip Kolhekar
+ * @implNote deletes image files no product, category or user refers to any more. The image store and the flat
+ * per entity directories are walked incrementally: every run takes the next batch of files from a walk kept open
+ * between runs, so at most image.gc.batch-size files are looked at per image.gc.interval-ms. A batch is checked
+ * with one IN query per image column, a variant counts as referenced when its original is. Files younger than
+ * image.gc.grace-minutes are kept, an upload is stored before the entity update that refers to it commits.
+ * Progress and reclaimed bytes are published as image.gc.* metrics
+ */
+@Component
+public class OrphanImageCollector implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrphanImageCollector.class);
+
+    private static final Pattern VARIANT = Pattern.compile("(.+)_w\\d+\\.jpg");
+
+    private static final String[] ORIGINAL_EXTENSIONS = {".png", ".jpg", ".jpeg"};
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ImageBlobRepository imageBlobRepository;
+
+    @Autowired
+    private ImageStore imageStore;
+
+    @Autowired
+    private HotImageCache hotImageCache;
+
+    @Value("${product.profile.image.path:images/products/}")
+    private String productImagePath = "images/products/";
+
+    @Value("${category.profile.image.path:images/categories/}")
+    private String categoryImagePath = "images/categories/";
+
+    @Value("${user.profile.image.path:images/users/}")
+    private String userImagePath = "images/users/";
+
+    @Value("${image.gc.batch-size:200}")
+    private int batchSize = 200;
+
+    @Value("${image.gc.grace-minutes:60}")
+    private long graceMinutes = 60;
+
+    private final AtomicLong scannedFiles = new AtomicLong();
+
+    private final AtomicLong deletedFiles = new AtomicLong();
+
+    private final AtomicLong reclaimedBytes = new AtomicLong();
+
+    private final AtomicLong completedPasses = new AtomicLong();
+
+    private final AtomicLong passScannedFiles = new AtomicLong();
+
+    private Deque<Path> pendingDirectories;
+
+    private Stream<Path> walk;
+
+    private Iterator<Path> cursor;
+
+    @Scheduled(fixedDelayString = "${image.gc.interval-ms:10000}", initialDelayString = "${image.gc.initial-delay-ms:60000}")
+    public void collect() {
+        try {
+            this.collectBatch();
+        } catch (RuntimeException ex) {
+            logger.error("orphan image collection failed, the walk starts over", ex);
+            synchronized (this) {
+                this.closeWalk();
+                this.pendingDirectories = null;
+            }
+        }
+    }
+
+    /**
+     * @return number of files deleted from the next batch
+     */
+    public synchronized int collectBatch() {
+        List<Path> batch = this.nextBatch();
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        Map<Path, List<String>> candidates = new LinkedHashMap<>();
+        Set<String> names = new HashSet<>();
+        for (Path file : batch) {
+            List<String> owners = owners(file.getFileName().toString());
+            candidates.put(file, owners);
+            names.addAll(owners);
+        }
+        Set<String> referenced = new HashSet<>(this.productRepository.findReferencedImages(names));
+        referenced.addAll(this.categoryRepository.findReferencedImages(names));
+        referenced.addAll(this.userRepository.findReferencedImages(names));
+
+        long graceStart = System.currentTimeMillis() - Duration.ofMinutes(this.graceMinutes).toMillis();
+        int deleted = 0;
+        for (Map.Entry<Path, List<String>> candidate : candidates.entrySet()) {
+            if (candidate.getValue().stream().noneMatch(referenced::contains) && this.delete(candidate.getKey(), graceStart)) {
+                deleted++;
+            }
+        }
+        this.scannedFiles.addAndGet(batch.size());
+        this.passScannedFiles.addAndGet(batch.size());
+        logger.info("orphan image collector scanned {} files, deleted {}", batch.size(), deleted);
+        return deleted;
+    }
+
+    /**
+     * @return the names whose reference keeps the file, the original names for a variant
+     */
+    private static List<String> owners(String fileName) {
+        Matcher variant = VARIANT.matcher(fileName);
+        if (!variant.matches()) {
+            return List.of(fileName);
+        }
+        List<String> originals = new ArrayList<>();
+        for (String extension : ORIGINAL_EXTENSIONS) {
+            originals.add(variant.group(1) + extension);
+        }
+        return originals;
+    }
+
+    private boolean delete(Path file, long graceStart) {
+        try {
+            if (Files.getLastModifiedTime(file).toMillis() > graceStart) {
+                return false;
+            }
+            long size = Files.size(file);
+            if (!Files.deleteIfExists(file)) {
+                return false;
+            }
+            String name = file.getFileName().toString();
+            if (ImageStore.isContentAddressed(name) && this.imageBlobRepository.existsById(name)) {
+                this.imageBlobRepository.deleteById(name);
+            }
+            this.hotImageCache.invalidate(name);
+            this.deletedFiles.incrementAndGet();
+            this.reclaimedBytes.addAndGet(size);
+            logger.info("orphaned image {} of {} bytes deleted", file, size);
+            return true;
+        } catch (IOException ex) {
+            logger.warn("orphaned image {} could not be deleted", file, ex);
+            return false;
+        }
+    }
+
+    private List<Path> nextBatch() {
+        if (this.pendingDirectories == null) {
+            this.pendingDirectories = this.imageDirectories();
+        }
+        List<Path> batch = new ArrayList<>(this.batchSize);
+        while (batch.size() < this.batchSize) {
+            if (this.cursor == null || !this.cursor.hasNext()) {
+                this.closeWalk();
+                Path directory = this.pendingDirectories.poll();
+                if (directory == null) {
+                    this.finishPass();
+                    break;
+                }
+                this.openWalk(directory);
+                continue;
+            }
+            try {
+                Path path = this.cursor.next();
+                if (this.isCandidate(path)) {
+                    batch.add(path);
+                }
+            } catch (UncheckedIOException ex) {
+                // a directory vanished under the walk, the rest of it is seen on the next pass
+                logger.info("image walk interrupted, {}", ex.getMessage());
+                this.closeWalk();
+            }
+        }
+        return batch;
+    }
+
+    private Deque<Path> imageDirectories() {
+        return Stream.of(this.imageStore.root(), Paths.get(this.productImagePath), Paths.get(this.categoryImagePath), Paths.get(this.userImagePath))
+                .map(Path::normalize)
+                .distinct()
+                .collect(Collectors.toCollection(ArrayDeque::new));
+    }
+
+    /**
+     * @implNote one lazy walk per directory, Files.walk holds a single open directory per level and never the whole tree
+     */
+    private void openWalk(Path directory) {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try {
+            this.walk = Files.walk(directory);
+            this.cursor = this.walk.iterator();
+        } catch (IOException ex) {
+            logger.warn("image directory {} could not be walked", directory, ex);
+        }
+    }
+
+    private boolean isCandidate(Path path) {
+        Path uploads = this.imageStore.root().normalize().resolve(ImageStore.uploadDirectoryName());
+        return !path.normalize().startsWith(uploads)
+                && !path.getFileName().toString().endsWith(".part")
+                && Files.isRegularFile(path);
+    }
+
+    private void finishPass() {
+        this.pendingDirectories = null;
+        this.completedPasses.incrementAndGet();
+        this.passScannedFiles.set(0);
+    }
+
+    private void closeWalk() {
+        if (this.walk != null) {
+            this.walk.close();
+        }
+        this.walk = null;
+        this.cursor = null;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("image.gc.files.scanned", this.scannedFiles, AtomicLong::get)
+                .description("image files checked by the orphan image collector").register(registry);
+        FunctionCounter.builder("image.gc.files.deleted", this.deletedFiles, AtomicLong::get)
+                .description("orphaned image files deleted").register(registry);
+        FunctionCounter.builder("image.gc.bytes.reclaimed", this.reclaimedBytes, AtomicLong::get)
+                .baseUnit("bytes").description("bytes freed by deleting orphaned images").register(registry);
+        FunctionCounter.builder("image.gc.passes", this.completedPasses, AtomicLong::get)
+                .description("completed walks over all image directories").register(registry);
+        Gauge.builder("image.gc.pass.scanned", this.passScannedFiles, AtomicLong::get)
+                .description("files checked so far in the current walk").register(registry);
+    }
+}
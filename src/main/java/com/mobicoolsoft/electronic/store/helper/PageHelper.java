@@ -1,15 +1,13 @@
 package com.mobicoolsoft.electronic.store.helper;
 
 import com.mobicoolsoft.electronic.store.dto.PageResponse;
-import com.mobicoolsoft.electronic.store.dto.UserDto;
-import com.mobicoolsoft.electronic.store.entity.User;
-import com.mobicoolsoft.electronic.store.service.UserServiceI;
-import com.mobicoolsoft.electronic.store.service.impl.UserServiceImpl;
-import org.modelmapper.ModelMapper;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.KeysetScrollPosition;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Window;
 
 import java.util.List;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 public class PageHelper {
@@ -17,14 +15,14 @@ public class PageHelper {
     /**
      * <U> source entity type
      * <V> target dto type
-     * @param dtoType<V> act as a target class of type<V> for mapping
      * @param page<U> object of page containing source entity class of entity type <U>
+     * @param mapper compiled entity to dto mapping function, usually a DtoMapper method reference
      * @return PageResponse<V> object of dtoType <V>
      */
-    public static <U,V>PageResponse<V> getPageResponse(Page<U> page, Class<V> dtoType){
+    public static <U,V>PageResponse<V> getPageResponse(Page<U> page, Function<? super U, ? extends V> mapper){
         List<U> entityList = page.getContent();
-        List<V> dtoList = entityList.stream().map((entity) -> new ModelMapper().map(entity, dtoType)).collect(Collectors.toList());
-        PageResponse<V> pageResponse = new PageResponse();
+        List<V> dtoList = entityList.stream().<V>map(mapper).collect(Collectors.toList());
+        PageResponse<V> pageResponse = new PageResponse<>();
         pageResponse.setContent(dtoList);
         pageResponse.setPageNumber(page.getNumber()+1);
         pageResponse.setPageSize(page.getSize());
@@ -34,4 +32,66 @@ public class PageHelper {
         return pageResponse;
     }
 
+    /**
+     * <U> source entity type
+     * <V> target dto type
+     * @param slice<U> page content fetched without a COUNT query
+     * @param totalElements cached total, null when no count was requested
+     * @param mapper compiled entity to dto mapping function
+     * @return PageResponse<V> whose lastPage always comes from the slice itself
+     */
+    public static <U,V>PageResponse<V> getPageResponse(Slice<U> slice, Long totalElements, Function<? super U, ? extends V> mapper){
+        List<V> dtoList = slice.getContent().stream().<V>map(mapper).collect(Collectors.toList());
+        PageResponse<V> pageResponse = new PageResponse<>();
+        pageResponse.setContent(dtoList);
+        pageResponse.setPageNumber(slice.getNumber()+1);
+        pageResponse.setPageSize(slice.getSize());
+        pageResponse.setLastPage(slice.isLast());
+        if (totalElements != null) {
+            // a stale cached total must not contradict rows that were actually read
+            long offset = (long) slice.getNumber() * slice.getSize();
+            long total;
+            if (slice.hasNext()) {
+                total = Math.max(totalElements, offset + slice.getNumberOfElements() + 1);
+            } else if (slice.hasContent() || offset == 0) {
+                total = offset + slice.getNumberOfElements();
+            } else {
+                total = Math.min(totalElements, offset);
+            }
+            pageResponse.setTotalElements(total);
+            pageResponse.setTotalPages(slice.getSize() == 0 ? 1 : (int) Math.ceil((double) total / slice.getSize()));
+        }
+        return pageResponse;
+    }
+
+    /**
+     * <U> source entity type
+     * <V> target dto type
+     * @param window<U> keyset window fetched from the requested position
+     * @param position<U> requested keyset position, decides which neighbour cursors exist
+     * @param pageSize requested page size
+     * @param mapper compiled entity to dto mapping function
+     * @return PageResponse<V> carrying nextCursor/prevCursor instead of page numbers and totals
+     */
+    public static <U,V>PageResponse<V> getPageResponse(Window<U> window, KeysetScrollPosition position, Integer pageSize, Function<? super U, ? extends V> mapper){
+        List<V> dtoList = window.getContent().stream().<V>map(mapper).collect(Collectors.toList());
+        boolean hasNext = position.scrollsBackward() || window.hasNext();
+        boolean hasPrevious = position.scrollsBackward() ? window.hasNext() : !position.isInitial();
+        PageResponse<V> pageResponse = new PageResponse<>();
+        pageResponse.setContent(dtoList);
+        pageResponse.setPageSize(pageSize);
+        pageResponse.setLastPage(!hasNext);
+        if (!window.isEmpty()) {
+            if (hasNext) {
+                KeysetScrollPosition last = (KeysetScrollPosition) window.positionAt(window.size() - 1);
+                pageResponse.setNextCursor(CursorHelper.toCursor(last.forward()));
+            }
+            if (hasPrevious) {
+                KeysetScrollPosition first = (KeysetScrollPosition) window.positionAt(0);
+                pageResponse.setPrevCursor(CursorHelper.toCursor(first.backward()));
+            }
+        }
+        return pageResponse;
+    }
+
 }
@@ -0,0 +1,88 @@
+package com.mobicoolsoft.electronic.store.helper;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.regex.Pattern;
+
+/**
+ * @author Sandip Kolhekar
+ * @implNote BCrypt with a work factor calibrated at startup: starting from user.password.min-strength the cost is
+ * doubled while one hash stays within user.password.target-millis on this machine, capped at max-strength.
+ * Faster hardware therefore gets a higher cost without a config change. Passwords stored before hashing (plain
+ * text) and hashes of a lower cost still match and report needsRehash, so they are upgraded on the next login.
+ * Every call burns CPU on purpose, callers run it on the credentialExecutor pool
+ */
+@Component
+public class PasswordHasher {
+
+    private static final Logger logger = LoggerFactory.getLogger(PasswordHasher.class);
+
+    private static final Pattern BCRYPT = Pattern.compile("\\$2[aby]?\\$\\d\\d\\$[./0-9A-Za-z]{53}");
+
+    private static final String CALIBRATION_PASSWORD = "calibration-Password@1";
+
+    private final BCryptPasswordEncoder encoder;
+
+    private final int strength;
+
+    public PasswordHasher(@Value("${user.password.min-strength:10}") int minStrength,
+                          @Value("${user.password.max-strength:14}") int maxStrength,
+                          @Value("${user.password.target-millis:100}") long targetMillis) {
+        this.strength = calibrate(minStrength, maxStrength, targetMillis);
+        this.encoder = new BCryptPasswordEncoder(this.strength);
+    }
+
+    private static int calibrate(int minStrength, int maxStrength, long targetMillis) {
+        BCryptPasswordEncoder probe = new BCryptPasswordEncoder(minStrength);
+        // first call warms up the JIT
+        probe.encode(CALIBRATION_PASSWORD);
+        long start = System.nanoTime();
+        probe.encode(CALIBRATION_PASSWORD);
+        double millis = (System.nanoTime() - start) / 1_000_000.0;
+        int strength = minStrength;
+        while (strength < maxStrength && millis * 2 <= targetMillis) {
+            strength++;
+            millis *= 2;
+        }
+        logger.info("password hashing calibrated to BCrypt strength {}, about {} ms per hash", strength, Math.round(millis));
+        return strength;
+    }
+
+    public int strength() {
+        return this.strength;
+    }
+
+    public String encode(String rawPassword) {
+        return this.encoder.encode(rawPassword);
+    }
+
+    /**
+     * @param stored BCrypt hash, or plain text stored before hashing was introduced (compared in constant time)
+     */
+    public boolean matches(String rawPassword, String stored) {
+        if (rawPassword == null || stored == null) {
+            return false;
+        }
+        if (!isHash(stored)) {
+            return MessageDigest.isEqual(rawPassword.getBytes(StandardCharsets.UTF_8), stored.getBytes(StandardCharsets.UTF_8));
+        }
+        return this.encoder.matches(rawPassword, stored);
+    }
+
+    /**
+     * @return true for plain text and for hashes of a lower cost than the calibrated one
+     */
+    public boolean needsRehash(String stored) {
+        return !isHash(stored) || this.encoder.upgradeEncoding(stored);
+    }
+
+    public static boolean isHash(String stored) {
+        return stored != null && BCRYPT.matcher(stored).matches();
+    }
+}
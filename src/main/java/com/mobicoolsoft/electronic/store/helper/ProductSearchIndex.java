@@ -0,0 +1,432 @@
+package com.mobicoolsoft.electronic.store.helper;
+
+import com.mobicoolsoft.electronic.store.repository.ProductRepository;
+import com.mobicoolsoft.electronic.store.repository.ProductText;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * @author Sandip Kolhekar
+ * @implNote in-process inverted index over product title and description ranked with BM25.
+ * Postings are kept in a sorted term dictionary so the last query token also matches as a prefix
+ * (search as you type), every query token must match a product for it to be returned.
+ * Title, price and creation time are kept next to the postings, so a search is paged here in relevance or in
+ * the requested sort and only the ids of one page go to the database.
+ * Updated incrementally by ProductServiceImpl and fully rebuilt from the database on startup.
+ */
+@Component
+public class ProductSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+
+    private static final double K1 = 1.2;
+
+    private static final double B = 0.75;
+
+    /**
+     * @implNote a title occurrence counts as this many description occurrences
+     */
+    private static final int TITLE_WEIGHT = 2;
+
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    private static final String ID = "id";
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private IndexState state = new IndexState();
+
+    private boolean rebuilding;
+
+    /**
+     * @implNote writes arriving while a rebuild reads the table, replayed on the rebuilt state
+     */
+    private final Queue<Change> pendingChanges = new ConcurrentLinkedQueue<>();
+
+    /**
+     * @param ids ids of the requested page in the requested order
+     * @param total number of products matching the query
+     */
+    public record SearchPage(List<String> ids, long total) {
+    }
+
+    /**
+     * @implNote add or replace a product
+     * @param createdAt creation time for createdAt sorted searches, null keeps the indexed one (now for a new product)
+     */
+    public void index(String productId, String title, String description, Double price, Date createdAt) {
+        Map<String, Integer> terms = termFrequencies(title, description);
+        SortKeys keys = new SortKeys(productId, title == null ? null : title.toLowerCase(Locale.ROOT), price,
+                createdAt == null ? null : createdAt.getTime());
+        this.lock.writeLock().lock();
+        try {
+            this.state.put(productId, terms, keys);
+            if (this.rebuilding) {
+                this.pendingChanges.add(new Change(productId, terms, keys));
+            }
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @implNote remove a product, unknown ids are ignored
+     */
+    public void remove(String productId) {
+        this.lock.writeLock().lock();
+        try {
+            this.state.remove(productId);
+            if (this.rebuilding) {
+                this.pendingChanges.add(new Change(productId, null, null));
+            }
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @implNote keeps only the best offset + pageSize matches while walking the scores
+     * @param query free text, the last token is matched as a prefix
+     * @param sort SortRegistry sort, null for best BM25 score first and id as tie-breaker
+     * @return ids of the requested page and the number of all matches
+     */
+    public SearchPage search(String query, Sort sort, long offset, int pageSize) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty() || pageSize < 1) {
+            return new SearchPage(List.of(), 0);
+        }
+        this.lock.readLock().lock();
+        try {
+            Map<String, Double> scores = this.state.match(tokens);
+            List<SortKeys> best = this.best(scores, order(sort, scores), keys -> true, (int) Math.min(offset + pageSize, Integer.MAX_VALUE));
+            List<String> ids = offset >= best.size() ? List.of()
+                    : best.subList((int) offset, best.size()).stream().map(SortKeys::id).toList();
+            return new SearchPage(ids, scores.size());
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @implNote keyset paging of a search, the boundary row of the position is compared with the indexed sort keys
+     * @param sort SortRegistry sort the cursor was created with
+     * @param limit number of ids to return, pageSize + 1 tells whether there is another page
+     * @return ids next to the boundary in scroll direction, always in sort order
+     */
+    public List<String> scroll(String query, Sort sort, KeysetScrollPosition position, int limit) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty() || limit < 1) {
+            return List.of();
+        }
+        Comparator<SortKeys> order = order(sort, null);
+        this.lock.readLock().lock();
+        try {
+            Map<String, Double> scores = this.state.match(tokens);
+            if (position.isInitial()) {
+                return this.best(scores, order, keys -> true, limit).stream().map(SortKeys::id).toList();
+            }
+            SortKeys boundary = boundary(position.getKeys());
+            if (position.scrollsBackward()) {
+                List<SortKeys> before = new ArrayList<>(this.best(scores, order.reversed(), keys -> order.compare(keys, boundary) < 0, limit));
+                before.sort(order);
+                return before.stream().map(SortKeys::id).toList();
+            }
+            return this.best(scores, order, keys -> order.compare(keys, boundary) > 0, limit).stream().map(SortKeys::id).toList();
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @implNote bounded heap whose head is the worst of the best limit candidates
+     */
+    private List<SortKeys> best(Map<String, Double> scores, Comparator<SortKeys> order, Predicate<SortKeys> filter, int limit) {
+        PriorityQueue<SortKeys> best = new PriorityQueue<>(order.reversed());
+        for (String productId : scores.keySet()) {
+            SortKeys keys = this.state.keys.get(productId);
+            if (!filter.test(keys)) {
+                continue;
+            }
+            if (best.size() < limit) {
+                best.add(keys);
+            } else if (order.compare(keys, best.peek()) < 0) {
+                best.poll();
+                best.add(keys);
+            }
+        }
+        List<SortKeys> sorted = new ArrayList<>(best);
+        sorted.sort(order);
+        return sorted;
+    }
+
+    /**
+     * @implNote the order SortRegistry gives the database: sort key with nulls first, id as tie-breaker
+     */
+    private static Comparator<SortKeys> order(Sort sort, Map<String, Double> scores) {
+        if (sort == null) {
+            return Comparator.comparing((SortKeys keys) -> scores.get(keys.id())).reversed().thenComparing(SortKeys::id);
+        }
+        Sort.Order first = sort.iterator().next();
+        Comparator<SortKeys> order = switch (first.getProperty()) {
+            case "price" -> Comparator.comparing(SortKeys::price, Comparator.nullsFirst(Comparator.naturalOrder()));
+            case "createdAt" -> Comparator.comparing(SortKeys::createdAt, Comparator.nullsFirst(Comparator.naturalOrder()));
+            default -> Comparator.comparing(SortKeys::title, Comparator.nullsFirst(Comparator.naturalOrder()));
+        };
+        order = order.thenComparing(SortKeys::id);
+        return first.isAscending() ? order : order.reversed();
+    }
+
+    private static SortKeys boundary(Map<String, Object> keys) {
+        Object title = keys.get("title");
+        Object price = keys.get("price");
+        Object createdAt = keys.get("createdAt");
+        return new SortKeys(String.valueOf(keys.get(ID)),
+                title == null ? null : title.toString().toLowerCase(Locale.ROOT),
+                price instanceof Number number ? number.doubleValue() : null,
+                createdAt instanceof Date date ? date.getTime() : null);
+    }
+
+    /**
+     * @return number of indexed products
+     */
+    public int size() {
+        this.lock.readLock().lock();
+        try {
+            return this.state.documents.size();
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        this.rebuild();
+    }
+
+    /**
+     * @implNote reads id, title and description in batches and tokenizes every batch in parallel
+     * into a fresh state, searches keep using the current state until the swap
+     */
+    public void rebuild() {
+        logger.info("product search index rebuild started");
+        long start = System.currentTimeMillis();
+        this.lock.writeLock().lock();
+        try {
+            this.rebuilding = true;
+            this.pendingChanges.clear();
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+        IndexState rebuilt = new IndexState();
+        try {
+            Pageable pageable = PageRequest.of(0, REBUILD_BATCH_SIZE, Sort.by("id"));
+            Slice<ProductText> batch;
+            do {
+                batch = this.productRepository.findSliceBy(pageable, ProductText.class);
+                List<Change> changes = batch.getContent().parallelStream()
+                        .map(product -> new Change(product.getId(), termFrequencies(product.getTitle(), product.getDescription()),
+                                new SortKeys(product.getId(), product.getTitle() == null ? null : product.getTitle().toLowerCase(Locale.ROOT),
+                                        product.getPrice(), product.getCreatedAt() == null ? null : product.getCreatedAt().getTime())))
+                        .toList();
+                changes.forEach(change -> rebuilt.put(change.productId(), change.terms(), change.keys()));
+                pageable = batch.nextPageable();
+            } while (batch.hasNext());
+        } catch (RuntimeException ex) {
+            logger.error("product search index rebuild failed, keeping the incremental index", ex);
+            this.lock.writeLock().lock();
+            try {
+                this.rebuilding = false;
+                this.pendingChanges.clear();
+            } finally {
+                this.lock.writeLock().unlock();
+            }
+            return;
+        }
+        this.lock.writeLock().lock();
+        try {
+            Change change;
+            while ((change = this.pendingChanges.poll()) != null) {
+                if (change.terms() == null) {
+                    rebuilt.remove(change.productId());
+                } else {
+                    rebuilt.put(change.productId(), change.terms(), change.keys());
+                }
+            }
+            this.state = rebuilt;
+            this.rebuilding = false;
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+        logger.info("product search index rebuilt with {} products in {} ms", rebuilt.documents.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * @return lower cased letter/digit runs of text
+     */
+    public static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        List<String> tokens = new ArrayList<>();
+        for (String token : TOKEN_SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static Map<String, Integer> termFrequencies(String title, String description) {
+        Map<String, Integer> terms = new HashMap<>();
+        tokenize(title).forEach(token -> terms.merge(token, TITLE_WEIGHT, Integer::sum));
+        tokenize(description).forEach(token -> terms.merge(token, 1, Integer::sum));
+        return terms;
+    }
+
+    private record Change(String productId, Map<String, Integer> terms, SortKeys keys) {
+    }
+
+    /**
+     * @param title lower cased title
+     * @param createdAt epoch millis
+     */
+    private record SortKeys(String id, String title, Double price, Long createdAt) {
+    }
+
+    /**
+     * @implNote not thread safe, guarded by the read/write lock of the owning index
+     */
+    private static final class IndexState {
+
+        private final NavigableMap<String, Map<String, Integer>> postings = new TreeMap<>();
+
+        private final Map<String, Map<String, Integer>> documents = new HashMap<>();
+
+        private final Map<String, Integer> lengths = new HashMap<>();
+
+        private final Map<String, SortKeys> keys = new HashMap<>();
+
+        private long totalLength;
+
+        /**
+         * @param keys a null createdAt keeps the indexed value
+         */
+        void put(String productId, Map<String, Integer> terms, SortKeys keys) {
+            SortKeys previous = this.keys.get(productId);
+            this.remove(productId);
+            if (keys.createdAt() == null) {
+                keys = new SortKeys(keys.id(), keys.title(), keys.price(),
+                        previous != null ? previous.createdAt() : System.currentTimeMillis());
+            }
+            this.keys.put(productId, keys);
+            int length = 0;
+            for (Map.Entry<String, Integer> term : terms.entrySet()) {
+                this.postings.computeIfAbsent(term.getKey(), key -> new HashMap<>()).put(productId, term.getValue());
+                length += term.getValue();
+            }
+            this.documents.put(productId, terms);
+            this.lengths.put(productId, length);
+            this.totalLength += length;
+        }
+
+        void remove(String productId) {
+            Map<String, Integer> terms = this.documents.remove(productId);
+            if (terms == null) {
+                return;
+            }
+            for (String term : terms.keySet()) {
+                Map<String, Integer> posting = this.postings.get(term);
+                posting.remove(productId);
+                if (posting.isEmpty()) {
+                    this.postings.remove(term);
+                }
+            }
+            this.totalLength -= this.lengths.remove(productId);
+            this.keys.remove(productId);
+        }
+
+        /**
+         * @return summed BM25 score of every product matching all tokens
+         */
+        Map<String, Double> match(List<String> tokens) {
+            Map<String, Double> scores = null;
+            for (int i = 0; i < tokens.size(); i++) {
+                Map<String, Double> tokenScores = this.score(tokens.get(i), i == tokens.size() - 1);
+                if (scores == null) {
+                    scores = tokenScores;
+                } else {
+                    Map<String, Double> matched = new HashMap<>();
+                    for (Map.Entry<String, Double> entry : scores.entrySet()) {
+                        Double score = tokenScores.get(entry.getKey());
+                        if (score != null) {
+                            matched.put(entry.getKey(), entry.getValue() + score);
+                        }
+                    }
+                    scores = matched;
+                }
+                if (scores.isEmpty()) {
+                    break;
+                }
+            }
+            return scores;
+        }
+
+        /**
+         * @return BM25 score per product for one query token, for a prefix token the best matching term counts
+         */
+        Map<String, Double> score(String token, boolean prefix) {
+            Map<String, Double> scores = new HashMap<>();
+            if (this.documents.isEmpty()) {
+                return scores;
+            }
+            Map<String, Map<String, Integer>> terms = prefix
+                    ? this.postings.subMap(token, true, token + Character.MAX_VALUE, false)
+                    : this.postings.containsKey(token) ? Map.of(token, this.postings.get(token)) : Map.of();
+            terms.values().forEach(posting -> this.accumulate(posting, scores));
+            return scores;
+        }
+
+        private void accumulate(Map<String, Integer> posting, Map<String, Double> scores) {
+            int documentCount = this.documents.size();
+            double averageLength = (double) this.totalLength / documentCount;
+            double idf = Math.log(1 + (documentCount - posting.size() + 0.5) / (posting.size() + 0.5));
+            for (Map.Entry<String, Integer> entry : posting.entrySet()) {
+                double tf = entry.getValue();
+                double norm = K1 * (1 - B + B * this.lengths.get(entry.getKey()) / averageLength);
+                double score = idf * tf * (K1 + 1) / (tf + norm);
+                scores.merge(entry.getKey(), score, Math::max);
+            }
+        }
+    }
+}
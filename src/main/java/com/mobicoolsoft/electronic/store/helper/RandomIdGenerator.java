@@ -0,0 +1,16 @@
+package com.mobicoolsoft.electronic.store.helper;
+
+import java.util.UUID;
+
+/**
+ * @author Sandip Kolhekar
+ * @implNote random (version 4) UUIDs, the former id scheme. New keys land anywhere in the primary key index,
+ * kept for deployments that must not reveal creation times through ids
+ */
+public class RandomIdGenerator implements IdGenerator {
+
+    @Override
+    public String newId() {
+        return UUID.randomUUID().toString();
+    }
+}
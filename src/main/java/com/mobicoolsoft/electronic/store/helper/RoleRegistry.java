@@ -0,0 +1,96 @@
+package com.mobicoolsoft.electronic.store.helper;
+
+import com.mobicoolsoft.electronic.store.config.AppConstants;
+import com.mobicoolsoft.electronic.store.entity.Role;
+import com.mobicoolsoft.electronic.store.repository.RoleRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * @author Sandip Kolhekar
+ * @implNote all roles, read once at startup. Missing built-in roles (ADMIN, STAFF, USER) are inserted first.
+ * Users keep role ids only (User.roleIds), so signup needs no role query and reading a user never joins the
+ * roles table. The Role instances are shared and detached, callers must not change them. Roles added to the
+ * table later are seen after a restart
+ */
+@Component
+public class RoleRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(RoleRegistry.class);
+
+    private final Map<Integer, Role> roles;
+
+    @Autowired
+    public RoleRegistry(RoleRepository roleRepository) {
+        this(load(roleRepository));
+    }
+
+    public RoleRegistry(Collection<Role> roles) {
+        this.roles = roles.stream().collect(Collectors.toUnmodifiableMap(Role::getRoleId, Function.identity()));
+    }
+
+    private static List<Role> load(RoleRepository roleRepository) {
+        List<Role> missing = builtInRoles().stream().filter(role -> !roleRepository.existsById(role.getRoleId())).toList();
+        if (!missing.isEmpty()) {
+            roleRepository.saveAll(missing);
+            logger.info("built-in roles {} inserted", missing.stream().map(Role::getRoleName).toList());
+        }
+        List<Role> roles = roleRepository.findAll();
+        logger.info("{} roles loaded", roles.size());
+        return roles;
+    }
+
+    public static List<Role> builtInRoles() {
+        return List.of(new Role(AppConstants.ROLE_ADMIN, "ADMIN"),
+                new Role(AppConstants.ROLE_STAFF, "STAFF"),
+                new Role(AppConstants.ROLE_USER, "USER"));
+    }
+
+    /**
+     * @throws IllegalStateException for an id the roles table does not hold
+     */
+    public Role get(int roleId) {
+        Role role = this.roles.get(roleId);
+        if (role == null) {
+            throw new IllegalStateException("role " + roleId + " is not defined");
+        }
+        return role;
+    }
+
+    public boolean contains(Integer roleId) {
+        return roleId != null && this.roles.containsKey(roleId);
+    }
+
+    /**
+     * @return roles of the given ids, unknown ids are skipped
+     */
+    public Set<Role> roles(Collection<Integer> roleIds) {
+        if (roleIds == null || roleIds.isEmpty()) {
+            return new LinkedHashSet<>();
+        }
+        return roleIds.stream().map(this.roles::get).filter(Objects::nonNull)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    /**
+     * @return ids of the given roles the registry knows, a client cannot make up new roles
+     */
+    public Set<Integer> roleIds(Collection<Role> roles) {
+        if (roles == null || roles.isEmpty()) {
+            return new LinkedHashSet<>();
+        }
+        return roles.stream().filter(Objects::nonNull).map(Role::getRoleId).filter(this::contains)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+}
@@ -0,0 +1,60 @@
+package com.mobicoolsoft.electronic.store.helper;
+
+import com.mobicoolsoft.electronic.store.exception.IllegalArgumentsException;
+import org.springframework.data.domain.Sort;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * @author Sandip Kolhekar
+ * @implNote allowed sortBy keys of one entity mapped to pre-built Sort objects.
+ * Every Sort ends with id in the same direction, which keeps the order total for keyset cursors and matches
+ * the (sort column, id) / (filter column, sort column, id) indexes declared on the entity tables
+ */
+public final class SortRegistry {
+
+    public static final SortRegistry PRODUCT = new SortRegistry("title", "price", "createdAt");
+
+    public static final SortRegistry CATEGORY = new SortRegistry("title", "createdAt");
+
+    public static final SortRegistry USER = new SortRegistry("name", "createdAt");
+
+    private static final String ID = "id";
+
+    private final Map<String, Sort> ascending = new HashMap<>();
+
+    private final Map<String, Sort> descending = new HashMap<>();
+
+    private final String errorMessage;
+
+    private SortRegistry(String... sortKeys) {
+        for (String sortKey : sortKeys) {
+            this.ascending.put(sortKey.toLowerCase(Locale.ROOT), Sort.by(Sort.Direction.ASC, sortKey, ID));
+            this.descending.put(sortKey.toLowerCase(Locale.ROOT), Sort.by(Sort.Direction.DESC, sortKey, ID));
+        }
+        this.errorMessage = "sortBy should be one of " + String.join(", ", sortKeys) + " and sortDir one of asc, desc";
+    }
+
+    /**
+     * @param sortBy api sort key, case insensitive
+     * @param sortDir asc or desc, case insensitive
+     * @return pre-built Sort with id as tie-breaker
+     */
+    public Sort sort(String sortBy, String sortDir) {
+        Map<String, Sort> sorts;
+        if ("asc".equalsIgnoreCase(sortDir)) {
+            sorts = this.ascending;
+        } else if ("desc".equalsIgnoreCase(sortDir)) {
+            sorts = this.descending;
+        } else {
+            throw new IllegalArgumentsException(this.errorMessage);
+        }
+        Sort sort = sortBy == null ? null : sorts.get(sortBy.toLowerCase(Locale.ROOT));
+        if (sort == null) {
+            throw new IllegalArgumentsException(this.errorMessage);
+        }
+        return sort;
+    }
+}
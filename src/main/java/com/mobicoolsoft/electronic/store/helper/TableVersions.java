@@ -0,0 +1,61 @@
+package com.mobicoolsoft.electronic.store.helper;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author Sandip Kolhekar
+ * @implNote write counter per table versioning its listings without a query. Services bump it next to
+ * countCache.invalidate on every insert, update and delete, after the commit when a transaction is active: a
+ * listing read under the new version always sees the write. The counters live in this instance only, so the
+ * version also carries an instance token and rolls every etag.listing.max-age-seconds, a write made through another
+ * instance shows up within that time, as in CountCache
+ */
+@Component
+public class TableVersions {
+
+    public static final String PRODUCT = "product";
+
+    public static final String CATEGORY = "category";
+
+    public static final String USER = "user";
+
+    private final String instance = UUID.randomUUID().toString();
+
+    private final Map<String, AtomicLong> counters = new ConcurrentHashMap<>();
+
+    @Value("${etag.listing.max-age-seconds:30}")
+    private long maxAgeSeconds = 30;
+
+    /**
+     * @param table e.g. "product"
+     */
+    public void bump(String table) {
+        TransactionHelper.afterCommit(() -> this.counter(table).incrementAndGet());
+    }
+
+    /**
+     * @param tables every table a listing shows, e.g. products with their category
+     * @return ETag only version, a deleted row changes a listing without moving any Last-Modified forward. An ETag
+     * is only compared for the URL it was served with, so the paging and search parameters need not be part of it
+     */
+    public ETagHelper.Version version(String... tables) {
+        StringBuilder tag = new StringBuilder(this.instance);
+        for (String table : tables) {
+            tag.append('/').append(table).append(':').append(this.counter(table).get());
+        }
+        if (this.maxAgeSeconds > 0) {
+            tag.append('@').append(System.currentTimeMillis() / (this.maxAgeSeconds * 1000));
+        }
+        return new ETagHelper.Version(tag.toString(), -1);
+    }
+
+    private AtomicLong counter(String table) {
+        return this.counters.computeIfAbsent(table, key -> new AtomicLong());
+    }
+}
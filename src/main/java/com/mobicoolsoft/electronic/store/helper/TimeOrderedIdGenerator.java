@@ -0,0 +1,59 @@
+package com.mobicoolsoft.electronic.store.helper;
+
+import java.time.Clock;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author Sandip Kolhekar
+ * @implNote version 7 UUIDs (RFC 9562): 48 bit unix milliseconds, a 12 bit counter and 62 random bits.
+ * Ids of one instance strictly increase, so inserts append at the right edge of the clustered primary key instead
+ * of splitting random pages. The counter starts at a random value below 2048 every millisecond, a burst past
+ * 4096 ids or a clock going back borrows the next millisecond rather than repeating or reordering ids.
+ * Ids of several instances interleave by millisecond, which keeps inserts close to the edge as well
+ */
+public class TimeOrderedIdGenerator implements IdGenerator {
+
+    private static final int COUNTER_BITS = 12;
+
+    private static final long VERSION = 0x7000L;
+
+    private static final long VARIANT = 0x8000000000000000L;
+
+    private final Clock clock;
+
+    /**
+     * @implNote milliseconds shifted left by COUNTER_BITS plus the counter of the last id
+     */
+    private final AtomicLong last = new AtomicLong();
+
+    public TimeOrderedIdGenerator() {
+        this(Clock.systemUTC());
+    }
+
+    public TimeOrderedIdGenerator(Clock clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public String newId() {
+        long next = this.next();
+        long mostSignificant = (next >>> COUNTER_BITS) << 16 | VERSION | (next & ((1 << COUNTER_BITS) - 1));
+        long leastSignificant = ThreadLocalRandom.current().nextLong() >>> 2 | VARIANT;
+        return new UUID(mostSignificant, leastSignificant).toString();
+    }
+
+    private long next() {
+        long now = this.clock.millis();
+        while (true) {
+            long previous = this.last.get();
+            long next = now > previous >>> COUNTER_BITS
+                    ? now << COUNTER_BITS | ThreadLocalRandom.current().nextInt(1 << (COUNTER_BITS - 1))
+                    : previous + 1;
+            if (this.last.compareAndSet(previous, next)) {
+                return next;
+            }
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.mobicoolsoft.electronic.store.helper;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * @author Sandip Kolhekar
+ * @implNote in memory state derived from rows (caches, ImageNames, search and name indexes, counters) changes only
+ * after the write is visible: evicted before the commit, a concurrent read reloads the old row and caches it again,
+ * and a rolled back write must not be indexed at all
+ */
+public class TransactionHelper {
+
+    /**
+     * @param action runs after the commit of the current transaction, at once without one. Never registers from
+     * inside another afterCommit action, those registrations are not invoked
+     */
+    public static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -3,10 +3,56 @@ package com.mobicoolsoft.electronic.store.repository;
 import com.mobicoolsoft.electronic.store.entity.Category;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
-public interface CategoryRepository extends JpaRepository<Category, String> {
+public interface CategoryRepository extends JpaRepository<Category, String>, JpaSpecificationExecutor<Category> {
 
     Page<Category> findByTitleContaining(String keyword, Pageable pageable);
+
+    /**
+     * @implNote loads the ids of one NameIndex search page, ordered by the requested sort
+     */
+    Slice<Category> findSliceByIdIn(Collection<String> categoryIds, Pageable pageable);
+
+    /**
+     * @implNote id, title and creation time only, batches of the NameIndex rebuild
+     */
+    @Query("select c.id as id, c.title as name, c.createdAt as createdAt from Category c")
+    Slice<NameText> findNameSliceBy(Pageable pageable);
+
+    /**
+     * @implNote set based reference check of the orphan image collector
+     */
+    @Query("select c.coverImage from Category c where c.coverImage in :images")
+    Set<String> findReferencedImages(@Param("images") Collection<String> images);
+
+    /**
+     * @implNote cover image column only, empty when the category has no image and absent when there is no such category
+     */
+    @Query("select coalesce(c.coverImage, '') from Category c where c.id = :categoryId")
+    Optional<String> findCoverImageById(@Param("categoryId") String categoryId);
+
+    /**
+     * @implNote commits an uploaded cover image without loading the category, the other columns keep any concurrent edit
+     */
+    @Transactional
+    @Modifying
+    @Query("update Category c set c.coverImage = :coverImage, c.updatedAt = current_timestamp where c.id = :categoryId")
+    int updateCoverImage(@Param("categoryId") String categoryId, @Param("coverImage") String coverImage);
+
+    /**
+     * @implNote timestamps only, versions GET /categories/{categoryId} before the row is loaded
+     */
+    @Query("select c.id as id, c.updatedAt as updatedAt, c.createdAt as createdAt from Category c where c.id = :categoryId")
+    Optional<RowStamp> findStampById(@Param("categoryId") String categoryId);
 }
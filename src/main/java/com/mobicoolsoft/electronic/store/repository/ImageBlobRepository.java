@@ -0,0 +1,20 @@
+package com.mobicoolsoft.electronic.store.repository;
+
+import com.mobicoolsoft.electronic.store.entity.ImageBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface ImageBlobRepository extends JpaRepository<ImageBlob, String> {
+
+    /**
+     * @implNote single UPDATE so concurrent reference changes of one blob never lose a count, never below zero
+     * @return updated rows, 0 for names without a blob (images stored before the content addressed store)
+     */
+    @Transactional
+    @Modifying
+    @Query("update ImageBlob b set b.refCount = case when b.refCount + :delta < 0 then 0 else b.refCount + :delta end where b.id = :id")
+    int adjustRefCount(@Param("id") String id, @Param("delta") int delta);
+}
@@ -0,0 +1,17 @@
+package com.mobicoolsoft.electronic.store.repository;
+
+import java.util.Date;
+
+/**
+ * @author Sandip Kolhekar
+ * @implNote closed interface projection of id, display name (user name, category title) and creation time,
+ * used to rebuild NameIndex
+ */
+public interface NameText {
+
+    String getId();
+
+    String getName();
+
+    Date getCreatedAt();
+}
@@ -4,18 +4,109 @@ import com.mobicoolsoft.electronic.store.entity.Category;
 import com.mobicoolsoft.electronic.store.entity.Product;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, String> {
+public interface ProductRepository extends JpaRepository<Product, String>, JpaSpecificationExecutor<Product> {
 
-   Page<Product> findByTitleContaining(String subtitle, Pageable pageable);
+   /**
+    * @implNote entity queries load the category through the Product.WITH_CATEGORY entity graph (one left join),
+    * the derived count queries of Page results stay plain counts without the join
+    */
+   @Override
+   @EntityGraph(Product.WITH_CATEGORY)
+   Optional<Product> findById(String productId);
 
+   @Override
+   @EntityGraph(Product.WITH_CATEGORY)
+   Page<Product> findAll(Pageable pageable);
+
+   @EntityGraph(Product.WITH_CATEGORY)
    Page<Product> findByLiveTrue(Pageable pageable);
 
+   @EntityGraph(Product.WITH_CATEGORY)
    Page<Product> findByCategory(Category category, Pageable pageable);
+
+   /**
+    * @implNote Slice variants read pageSize + 1 rows and never fire the COUNT query of a Page,
+    * totals come from the countBy methods through CountCache
+    */
+   @EntityGraph(Product.WITH_CATEGORY)
+   Slice<Product> findSliceBy(Pageable pageable);
+
+   @EntityGraph(Product.WITH_CATEGORY)
+   Slice<Product> findSliceByLiveTrue(Pageable pageable);
+
+   @EntityGraph(Product.WITH_CATEGORY)
+   Slice<Product> findSliceByCategory(Category category, Pageable pageable);
+
+   /**
+    * @implNote dynamic projection variants of the Slice queries, used with ProductSummary for view=summary listings
+    */
+   <T> Slice<T> findSliceBy(Pageable pageable, Class<T> type);
+
+   <T> Slice<T> findSliceByLiveTrue(Pageable pageable, Class<T> type);
+
+   <T> Slice<T> findSliceByCategory(Category category, Pageable pageable, Class<T> type);
+
+   <T> List<T> findByCategory(Category category, Class<T> type);
+
+   /**
+    * @implNote images of the products a category delete cascades to, released from ImageReferences
+    */
+   @Query("select p.image from Product p where p.category = :category and p.image is not null")
+   List<String> findImagesByCategory(@Param("category") Category category);
+
+   /**
+    * @implNote set based reference check of the orphan image collector
+    */
+   @Query("select p.image from Product p where p.image in :images")
+   Set<String> findReferencedImages(@Param("images") Collection<String> images);
+
+   /**
+    * @implNote image column only, empty when the product has no image and absent when there is no such product
+    */
+   @Query("select coalesce(p.image, '') from Product p where p.id = :productId")
+   Optional<String> findImageById(@Param("productId") String productId);
+
+   /**
+    * @implNote commits an uploaded image without loading the product, the other columns keep any concurrent edit
+    */
+   @Transactional
+   @Modifying
+   @Query("update Product p set p.image = :image, p.updatedAt = current_timestamp where p.id = :productId")
+   int updateImage(@Param("productId") String productId, @Param("image") String image);
+
+   /**
+    * @implNote timestamps of the product and its category only, versions GET /products/{productId} before the row is loaded
+    */
+   @Query("select p.id as id, p.updatedAt as updatedAt, p.createdAt as createdAt, c.id as categoryId, "
+           + "c.updatedAt as categoryUpdatedAt, c.createdAt as categoryCreatedAt from Product p left join p.category c where p.id = :productId")
+   Optional<ProductStamp> findStampById(@Param("productId") String productId);
+
+   long countByLiveTrue();
+
+   long countByCategory(Category category);
+
+   /**
+    * @implNote loads the ids of one ProductSearchIndex page unordered, the caller restores the index order
+    */
+   @EntityGraph(Product.WITH_CATEGORY)
+   List<Product> findAllByIdIn(Collection<String> productIds);
+
+   <T> List<T> findByIdIn(Collection<String> productIds, Class<T> type);
 }
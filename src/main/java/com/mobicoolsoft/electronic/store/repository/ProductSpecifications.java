@@ -0,0 +1,39 @@
+package com.mobicoolsoft.electronic.store.repository;
+
+import com.mobicoolsoft.electronic.store.entity.Category;
+import com.mobicoolsoft.electronic.store.entity.Product;
+import jakarta.persistence.criteria.JoinType;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * @author Sandip Kolhekar
+ * @implNote reusable filters for product listings, equivalent to the derived
+ * findByLiveTrue and findByCategory queries of ProductRepository
+ */
+public class ProductSpecifications {
+
+    public static Specification<Product> all() {
+        return Specification.where(null);
+    }
+
+    /**
+     * @implNote fetch join of the category for entity reads, the Specification counterpart of Product.WITH_CATEGORY.
+     * Skipped for count queries where a fetch join is not allowed
+     */
+    public static Specification<Product> fetchCategory() {
+        return (root, query, cb) -> {
+            if (!Long.class.equals(query.getResultType()) && !long.class.equals(query.getResultType())) {
+                root.fetch("category", JoinType.LEFT);
+            }
+            return null;
+        };
+    }
+
+    public static Specification<Product> liveTrue() {
+        return (root, query, cb) -> cb.isTrue(root.get("live"));
+    }
+
+    public static Specification<Product> inCategory(Category category) {
+        return (root, query, cb) -> cb.equal(root.get("category"), category);
+    }
+}
@@ -0,0 +1,16 @@
+package com.mobicoolsoft.electronic.store.repository;
+
+import java.util.Date;
+
+/**
+ * @author Sandip Kolhekar
+ * @implNote RowStamp of a product together with the one of its category, which the ProductDto embeds
+ */
+public interface ProductStamp extends RowStamp {
+
+    String getCategoryId();
+
+    Date getCategoryUpdatedAt();
+
+    Date getCategoryCreatedAt();
+}
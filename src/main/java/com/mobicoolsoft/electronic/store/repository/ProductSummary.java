@@ -0,0 +1,23 @@
+package com.mobicoolsoft.electronic.store.repository;
+
+/**
+ * @author Sandip Kolhekar
+ * @implNote closed interface projection of Product for list views, Spring Data selects
+ * only these columns so no Product entity, persistence context snapshot or category join is created
+ */
+public interface ProductSummary {
+
+    String getId();
+
+    String getTitle();
+
+    Double getPrice();
+
+    Integer getDiscount();
+
+    String getImage();
+
+    Boolean getLive();
+
+    Boolean getStock();
+}
@@ -0,0 +1,20 @@
+package com.mobicoolsoft.electronic.store.repository;
+
+import java.util.Date;
+
+/**
+ * @author Sandip Kolhekar
+ * @implNote closed interface projection of the searchable Product columns, used to rebuild ProductSearchIndex
+ */
+public interface ProductText {
+
+    String getId();
+
+    String getTitle();
+
+    String getDescription();
+
+    Double getPrice();
+
+    Date getCreatedAt();
+}
@@ -0,0 +1,16 @@
+package com.mobicoolsoft.electronic.store.repository;
+
+import java.util.Date;
+
+/**
+ * @author Sandip Kolhekar
+ * @implNote closed interface projection of the timestamps of one row, versions a single resource without loading it
+ */
+public interface RowStamp {
+
+    String getId();
+
+    Date getUpdatedAt();
+
+    Date getCreatedAt();
+}
@@ -3,19 +3,98 @@ package com.mobicoolsoft.electronic.store.repository;
 import com.mobicoolsoft.electronic.store.entity.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, String> {
+public interface UserRepository extends JpaRepository<User, String>, JpaSpecificationExecutor<User> {
 
-    Optional<User> findByEmail(String email);
+    Optional<User> findByNormalizedEmail(String normalizedEmail);
 
-    Optional<User> findByEmailAndPassword(String email, String password);
+    boolean existsByNormalizedEmail(String normalizedEmail);
+
+    boolean existsByNormalizedEmailAndIdNot(String normalizedEmail, String id);
+
+    /**
+     * @implNote the emails of a bulk import chunk already registered, one IN query over the unique index
+     */
+    @Query("select u.normalizedEmail from User u where u.normalizedEmail in :emails")
+    Set<String> findExistingNormalizedEmails(@Param("emails") Collection<String> emails);
+
+    /**
+     * @implNote keyset page over the unique index, loads the email filter without one long running query
+     */
+    @Query("select u.normalizedEmail from User u where u.normalizedEmail > :after order by u.normalizedEmail")
+    List<String> findNormalizedEmailsAfter(@Param("after") String after, Pageable pageable);
+
+    /**
+     * @implNote users written before email_normalized existed and not yet backfilled by db/users-email-normalized-mysql.sql
+     */
+    long countByNormalizedEmailIsNullAndEmailIsNotNull();
+
+    /**
+     * @implNote lookup through the legacy email column, only while users without a normalized email exist
+     */
+    @Query("select u from User u where u.normalizedEmail is null and lower(trim(u.email)) = :normalizedEmail order by u.updatedAt desc")
+    List<User> findLegacyByEmail(@Param("normalizedEmail") String normalizedEmail);
+
+    /**
+     * @implNote stores a rehashed password without loading and merging the user again
+     */
+    @Transactional
+    @Modifying
+    @Query("update User u set u.password = :password where u.id = :userId")
+    int updatePassword(@Param("userId") String userId, @Param("password") String password);
+
+    /**
+     * @implNote commits an uploaded image without loading the user, the other columns keep any concurrent edit
+     */
+    @Transactional
+    @Modifying
+    @Query("update User u set u.image = :image, u.updatedAt = current_timestamp where u.id = :userId")
+    int updateImage(@Param("userId") String userId, @Param("image") String image);
 
     Page<User> findByNameContaining(String keyword, Pageable pageable);
 
+    /**
+     * @implNote loads the ids of one NameIndex search page, ordered by the requested sort
+     */
+    Slice<User> findSliceByIdIn(Collection<String> userIds, Pageable pageable);
+
+    /**
+     * @implNote id, name and creation time only, batches of the NameIndex rebuild
+     */
+    @Query("select u.id as id, u.name as name, u.createdAt as createdAt from User u")
+    Slice<NameText> findNameSliceBy(Pageable pageable);
+
+    /**
+     * @implNote set based reference check of the orphan image collector
+     */
+    @Query("select u.image from User u where u.image in :images")
+    Set<String> findReferencedImages(@Param("images") Collection<String> images);
+
+    /**
+     * @implNote image column only, empty when the user has no image and absent when there is no such user
+     */
+    @Query("select coalesce(u.image, '') from User u where u.id = :userId")
+    Optional<String> findImageById(@Param("userId") String userId);
+
+    /**
+     * @implNote timestamps only, versions GET /users/{userId} before the row is loaded. Roles are only assigned
+     * when the user is created, so they need no version of their own
+     */
+    @Query("select u.id as id, u.updatedAt as updatedAt, u.createdAt as createdAt from User u where u.id = :userId")
+    Optional<RowStamp> findStampById(@Param("userId") String userId);
+
 }
@@ -2,6 +2,7 @@ package com.mobicoolsoft.electronic.store.service;
 
 import com.mobicoolsoft.electronic.store.dto.CategoryDto;
 import com.mobicoolsoft.electronic.store.dto.PageResponse;
+import com.mobicoolsoft.electronic.store.helper.ETagHelper;
 
 import java.util.List;
 
@@ -17,6 +18,11 @@ public interface CategoryServiceI {
      */
     CategoryDto updateCategory(CategoryDto categoryDto, String categoryId);
 
+    /**
+     * @implNote set the cover image of a category, only the cover image column is written
+     */
+    void updateCategoryImage(String categoryId, String coverImage);
+
     /**
      * @implNote delete category
      */
@@ -32,8 +38,33 @@ public interface CategoryServiceI {
      */
     CategoryDto getCategoryById(String categoryId);
 
+    /**
+     * @implNote cover image file name of a category without loading it, null when it has none
+     */
+    String getCategoryImageName(String categoryId);
+
+    /**
+     * @implNote ETag version of a category from its timestamps alone, 404 for an unknown id
+     */
+    ETagHelper.Version getCategoryVersion(String categoryId);
+
+    /**
+     * @implNote ETag version shared by every category listing, from the row count and latest update of the table
+     */
+    ETagHelper.Version getCategoriesVersion();
+
     /**
      * @implNote search category by keyword
      */
     PageResponse<CategoryDto> searchCategoryByTitleKeyword(String keyword, Integer pageNumber, Integer pageSize, String sortBy, String sortDir);
+
+    /**
+     * @implNote search category by title prefix, every word of the prefix must start a word of the title
+     */
+    PageResponse<CategoryDto> searchCategoryByTitlePrefix(String prefix, Integer pageNumber, Integer pageSize, String sortBy, String sortDir);
+
+    /**
+     * @implNote get All category through keyset cursor
+     */
+    PageResponse<CategoryDto> getAllCategoriesByCursor(String cursor, Integer pageSize, String sortBy, String sortDir);
 }
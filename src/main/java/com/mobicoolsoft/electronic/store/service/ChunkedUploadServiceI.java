@@ -0,0 +1,32 @@
+package com.mobicoolsoft.electronic.store.service;
+
+import com.mobicoolsoft.electronic.store.dto.ChunkedUploadDto;
+import com.mobicoolsoft.electronic.store.dto.ImageUploadJob;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Consumer;
+
+public interface ChunkedUploadServiceI {
+
+    /**
+     * @implNote open an upload session, fileName and totalSize of the request are used
+     */
+    ChunkedUploadDto createUpload(String resource, String resourceId, ChunkedUploadDto chunkedUploadDto) throws IOException;
+
+    /**
+     * @implNote session state with the chunks received so far
+     */
+    ChunkedUploadDto getUpload(String uploadId);
+
+    /**
+     * @implNote write chunk chunkNumber (0 based) at its offset, a chunk may be sent again
+     * @param checksum SHA-256 hex of the chunk content
+     */
+    ChunkedUploadDto writeChunk(String uploadId, int chunkNumber, String checksum, InputStream content) throws IOException;
+
+    /**
+     * @implNote queue the assembled file on the image upload pool, imageUpdate saves the stored name
+     */
+    ImageUploadJob completeUpload(String uploadId, Consumer<String> imageUpdate) throws IOException;
+}
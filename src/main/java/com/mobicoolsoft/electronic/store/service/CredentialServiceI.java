@@ -0,0 +1,36 @@
+package com.mobicoolsoft.electronic.store.service;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public interface CredentialServiceI {
+
+    /**
+     * @param matches the password matched the stored one
+     * @param rehashed new hash to store when the stored one was plain text or of a lower strength, else null
+     */
+    record Verification(boolean matches, String rehashed) {
+
+        public static final Verification FAILED = new Verification(false, null);
+    }
+
+    /**
+     * @implNote hash a password on the credential pool, the future completes on the pool thread
+     */
+    CompletableFuture<String> hash(String rawPassword);
+
+    /**
+     * @implNote hash many passwords, e.g. of a bulk import, split across the threads of the import hash pool
+     * @return hashes in the order of rawPasswords
+     */
+    List<String> hashAll(List<String> rawPasswords);
+
+    /**
+     * @implNote verify a password on the credential pool, refused with 429 while the client backs off from the
+     * account or the pool is full
+     * @param client address of the caller, failed logins are counted per client and account
+     * @param account the normalized email
+     * @param storedPassword null for an unknown account, checked against a dummy hash so it takes as long as a wrong password
+     */
+    CompletableFuture<Verification> verify(String client, String account, String rawPassword, String storedPassword);
+}
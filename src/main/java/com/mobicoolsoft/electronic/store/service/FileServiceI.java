@@ -1,14 +1,24 @@
 package com.mobicoolsoft.electronic.store.service;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Path;
 
 public interface FileServiceI {
 
     String uploadImage(String path, MultipartFile file) throws IOException;
 
-    InputStream serveImage(String path, String fileName) throws FileNotFoundException;
+    String uploadImage(String path, String originalFilename, InputStream inputStream) throws IOException;
+
+    String adoptImage(String originalFilename, Path file) throws IOException;
+
+    String validateImageName(String originalFilename);
+
+    void serveImage(String path, String fileName, Integer width, HttpServletRequest request, HttpServletResponse response) throws IOException;
+
+    void serveVersionedImage(String path, String currentName, String requestedName, Integer width, HttpServletRequest request, HttpServletResponse response) throws IOException;
 }
@@ -0,0 +1,36 @@
+package com.mobicoolsoft.electronic.store.service;
+
+import com.mobicoolsoft.electronic.store.dto.ImageUploadJob;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+public interface ImageUploadServiceI {
+
+    /**
+     * @implNote stores the uploaded content on the upload pool
+     * @return stored image name
+     */
+    @FunctionalInterface
+    interface ImageSource {
+        String store() throws IOException;
+    }
+
+    /**
+     * @implNote queue an image upload, the file is stored and imageUpdate commits the image column on the upload pool
+     * @param resource Product, Category or User, used in the job message
+     * @param imageUpdate receives the stored image name
+     */
+    ImageUploadJob submit(String resource, String resourceId, String path, MultipartFile file, Consumer<String> imageUpdate) throws IOException;
+
+    /**
+     * @implNote queue an image already received by other means, e.g. an assembled chunked upload
+     */
+    ImageUploadJob submit(String resource, String resourceId, ImageSource source, Consumer<String> imageUpdate) throws IOException;
+
+    /**
+     * @implNote current state of a job submitted within image.upload.job-ttl-minutes
+     */
+    ImageUploadJob getJob(String jobId);
+}
@@ -3,6 +3,9 @@ package com.mobicoolsoft.electronic.store.service;
 import com.mobicoolsoft.electronic.store.dto.CategoryDto;
 import com.mobicoolsoft.electronic.store.dto.PageResponse;
 import com.mobicoolsoft.electronic.store.dto.ProductDto;
+import com.mobicoolsoft.electronic.store.dto.ProductSummaryDto;
+import com.mobicoolsoft.electronic.store.helper.CountMode;
+import com.mobicoolsoft.electronic.store.helper.ETagHelper;
 
 import java.util.List;
 
@@ -28,6 +31,11 @@ public interface ProductServiceI {
      */
     ProductDto updateProduct(ProductDto productDto, String productId);
 
+    /**
+     * @implNote set the image of a product, only the image column is written
+     */
+    void updateProductImage(String productId, String image);
+
 
     /**
      * @implNote delete product
@@ -37,7 +45,7 @@ public interface ProductServiceI {
     /**
      * @implNote get All products
      */
-    PageResponse<ProductDto> getAllProducts(Integer pageNumber, Integer pageSize, String sortBy, String sortDir);
+    PageResponse<ProductDto> getAllProducts(Integer pageNumber, Integer pageSize, String sortBy, String sortDir, CountMode countMode);
 
 
     /**
@@ -45,19 +53,75 @@ public interface ProductServiceI {
      */
     ProductDto getProductById(String productId);
 
+    /**
+     * @implNote image file name of a product without loading it, null when it has none
+     */
+    String getProductImageName(String productId);
+
+    /**
+     * @implNote ETag version of a product and its category from their timestamps alone, 404 for an unknown id
+     */
+    ETagHelper.Version getProductVersion(String productId);
+
+    /**
+     * @implNote ETag version shared by every product listing, from the row count and latest update of the product
+     * and category tables
+     */
+    ETagHelper.Version getProductsVersion();
+
     /**
      * @implNote get product by product_id
      */
-    PageResponse<ProductDto> getProductsByCategory(String categoryId, Integer pageNumber, Integer pageSize, String sortBy, String sortDir);
+    PageResponse<ProductDto> getProductsByCategory(String categoryId, Integer pageNumber, Integer pageSize, String sortBy, String sortDir, CountMode countMode);
 
     /**
      * @implNote search products by keyword
      */
-    PageResponse<ProductDto> getByTitleContaining(String subTitle, Integer pageNumber, Integer pageSize, String sortBy, String sortDir);
+    PageResponse<ProductDto> getByTitleContaining(String subTitle, Integer pageNumber, Integer pageSize, String sortBy, String sortDir, CountMode countMode);
 
 
     /**
      * @implNote search products by availability i.e Live
      */
-    PageResponse<ProductDto> getByLiveTrue(Integer pageNumber, Integer pageSize, String sortBy, String sortDir);
+    PageResponse<ProductDto> getByLiveTrue(Integer pageNumber, Integer pageSize, String sortBy, String sortDir, CountMode countMode);
+
+    /**
+     * @implNote get All products as summary view
+     */
+    PageResponse<ProductSummaryDto> getAllProductSummaries(Integer pageNumber, Integer pageSize, String sortBy, String sortDir, CountMode countMode);
+
+    /**
+     * @implNote get products of category as summary view
+     */
+    PageResponse<ProductSummaryDto> getProductSummariesByCategory(String categoryId, Integer pageNumber, Integer pageSize, String sortBy, String sortDir, CountMode countMode);
+
+    /**
+     * @implNote search products by keyword as summary view
+     */
+    PageResponse<ProductSummaryDto> getSummariesByTitleContaining(String subTitle, Integer pageNumber, Integer pageSize, String sortBy, String sortDir, CountMode countMode);
+
+    /**
+     * @implNote search live products as summary view
+     */
+    PageResponse<ProductSummaryDto> getSummariesByLiveTrue(Integer pageNumber, Integer pageSize, String sortBy, String sortDir, CountMode countMode);
+
+    /**
+     * @implNote get All products through keyset cursor
+     */
+    PageResponse<ProductDto> getAllProductsByCursor(String cursor, Integer pageSize, String sortBy, String sortDir);
+
+    /**
+     * @implNote get products of category through keyset cursor
+     */
+    PageResponse<ProductDto> getProductsByCategoryByCursor(String categoryId, String cursor, Integer pageSize, String sortBy, String sortDir);
+
+    /**
+     * @implNote search products by keyword through keyset cursor
+     */
+    PageResponse<ProductDto> getByTitleContainingByCursor(String subTitle, String cursor, Integer pageSize, String sortBy, String sortDir);
+
+    /**
+     * @implNote search live products through keyset cursor
+     */
+    PageResponse<ProductDto> getByLiveTrueByCursor(String cursor, Integer pageSize, String sortBy, String sortDir);
 }
@@ -0,0 +1,14 @@
+package com.mobicoolsoft.electronic.store.service;
+
+import com.mobicoolsoft.electronic.store.dto.SuggestionDto;
+
+import java.util.List;
+
+public interface SearchServiceI {
+
+    /**
+     * @implNote user names and category titles starting with the prefix, at most limit of each kind
+     * @return user matches first, then category matches
+     */
+    List<SuggestionDto> suggest(String prefix, Integer limit);
+}
@@ -0,0 +1,30 @@
+package com.mobicoolsoft.electronic.store.service;
+
+import com.mobicoolsoft.electronic.store.dto.UserImportResult;
+import com.mobicoolsoft.electronic.store.dto.UserImportSummary;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.function.Consumer;
+
+public interface UserImportServiceI {
+
+    enum Format {
+        /**
+         * @implNote one UserDto JSON object per line
+         */
+        NDJSON,
+        /**
+         * @implNote header line naming the UserDto fields (name, email, password, gender, about, image), one user per line
+         */
+        CSV
+    }
+
+    /**
+     * @implNote create users from a streamed body, read and committed chunk by chunk. Every row is validated with
+     * the UserDto constraints, a failed row does not stop the import
+     * @param report receives the results of every chunk once it committed, in row order
+     */
+    UserImportSummary importUsers(InputStream body, Format format, Consumer<List<UserImportResult>> report) throws IOException;
+}
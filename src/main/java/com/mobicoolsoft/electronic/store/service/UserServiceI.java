@@ -2,20 +2,27 @@ package com.mobicoolsoft.electronic.store.service;
 
 import com.mobicoolsoft.electronic.store.dto.UserDto;
 import com.mobicoolsoft.electronic.store.dto.PageResponse;
+import com.mobicoolsoft.electronic.store.helper.ETagHelper;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface UserServiceI {
 
     /**
-     * create new user
+     * create new user, completes once the password is hashed and the user saved
      */
-    public UserDto createUser(UserDto userDto);
+    public CompletableFuture<UserDto> createUser(UserDto userDto);
 
     /**
-     * update individual user
+     * update individual user, completes once the password is hashed and the user saved
      */
-    public UserDto updateUser(UserDto userDto, String userId);
+    public CompletableFuture<UserDto> updateUser(UserDto userDto, String userId);
+
+    /**
+     * set the image of a user, only the image column is written
+     */
+    public void updateUserImage(String userId, String image);
 
     /**
      * delete user by id
@@ -32,18 +39,44 @@ public interface UserServiceI {
      */
     public UserDto getUserById(String userId);
 
+    /**
+     * image file name of a user without loading the user, null when there is none
+     */
+    public String getUserImageName(String userId);
+
+    /**
+     * ETag version of a user from its timestamps alone, 404 for an unknown id
+     */
+    public ETagHelper.Version getUserVersion(String userId);
+
+    /**
+     * ETag version shared by every user listing, from the row count and latest update of the table
+     */
+    public ETagHelper.Version getUsersVersion();
+
     /**
      *  get user by email
      */
     public UserDto getUserByEmail(String email);
 
     /**
-     *  get user by emai and password
+     *  get user by emai and password, the password is verified on the credential pool
+     *  @param client address of the caller, failed logins back off per client
      */
-    public UserDto getUserByEmailAndPassword(String emaill, String password);
+    public CompletableFuture<UserDto> getUserByEmailAndPassword(String emaill, String password, String client);
 
     /**
      *  search user
      */
     public PageResponse<UserDto> byNameContaining(String keyword, Integer pageNumber, Integer pageSize, String sortBy, String sortDir);
+
+    /**
+     *  search user by name prefix, every word of the prefix must start a word of the name
+     */
+    public PageResponse<UserDto> byNamePrefix(String prefix, Integer pageNumber, Integer pageSize, String sortBy, String sortDir);
+
+    /**
+     * get all users through keyset cursor
+     */
+    public PageResponse<UserDto> getAllUsersByCursor(String cursor, Integer pageSize, String sortBy, String sortDir);
 }
@@ -5,21 +5,42 @@ import com.mobicoolsoft.electronic.store.dto.PageResponse;
 import com.mobicoolsoft.electronic.store.entity.Category;
 import com.mobicoolsoft.electronic.store.exception.IllegalArgumentsException;
 import com.mobicoolsoft.electronic.store.exception.ResourceNotFoundException;
+import com.mobicoolsoft.electronic.store.helper.CountCache;
+import com.mobicoolsoft.electronic.store.helper.CursorHelper;
+import com.mobicoolsoft.electronic.store.helper.DtoMapper;
+import com.mobicoolsoft.electronic.store.helper.ETagHelper;
+import com.mobicoolsoft.electronic.store.helper.IdGenerator;
+import com.mobicoolsoft.electronic.store.helper.ImageNames;
+import com.mobicoolsoft.electronic.store.helper.ImageReferences;
+import com.mobicoolsoft.electronic.store.helper.NameIndex;
 import com.mobicoolsoft.electronic.store.helper.PageHelper;
+import com.mobicoolsoft.electronic.store.helper.SortRegistry;
+import com.mobicoolsoft.electronic.store.helper.ProductSearchIndex;
+import com.mobicoolsoft.electronic.store.helper.TableVersions;
+import com.mobicoolsoft.electronic.store.helper.TransactionHelper;
 import com.mobicoolsoft.electronic.store.repository.CategoryRepository;
+import com.mobicoolsoft.electronic.store.repository.ProductRepository;
+import com.mobicoolsoft.electronic.store.repository.ProductText;
+import com.mobicoolsoft.electronic.store.repository.RowStamp;
 import com.mobicoolsoft.electronic.store.service.CategoryServiceI;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.KeysetScrollPosition;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
-import java.util.UUID;
 import java.util.stream.Collectors;
 
 @Service
@@ -29,34 +50,90 @@ public class CategoryServiceImpl implements CategoryServiceI {
     private CategoryRepository categoryRepository;
 
     @Autowired
-    private ModelMapper modelMapper;
+    private DtoMapper dtoMapper;
+
+    @Autowired
+    private CountCache countCache;
+
+    @Autowired
+    private TableVersions tableVersions;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private ImageReferences imageReferences;
+
+    @Autowired
+    private ImageNames imageNames;
+
+    @Autowired
+    private NameIndex nameIndex;
+
+    @Autowired
+    private IdGenerator idGenerator;
 
     /**
      * @implSpec create new category
      */
 
     @Override
+    @Transactional
     public CategoryDto createCategory(CategoryDto categoryDto) {
-        String randomId = UUID.randomUUID().toString();
-        Category category = this.modelMapper.map(categoryDto, Category.class);
+        String randomId = this.idGenerator.newId();
+        Category category = this.dtoMapper.toCategory(categoryDto);
         category.setId(randomId);
         category.setCreatedBy(categoryDto.getCreatedBy());
         Category savedCategory = this.categoryRepository.save(category);
-        return this.modelMapper.map(savedCategory, CategoryDto.class);
+        this.imageReferences.replace(null, savedCategory.getCoverImage());
+        this.tableVersions.bump(TableVersions.CATEGORY);
+        TransactionHelper.afterCommit(() -> this.nameIndex.index(NameIndex.CATEGORY, savedCategory.getId(), savedCategory.getTitle(), savedCategory.getCreatedAt()));
+        return this.dtoMapper.toCategoryDto(savedCategory);
     }
 
     /**
      * @implNote update existing category
      */
     @Override
+    @Transactional
     public CategoryDto updateCategory(CategoryDto categoryDto, String categoryId) {
         Category category = this.categoryRepository.findById(categoryId).orElseThrow(() -> new ResourceNotFoundException("Category", "categoryId", categoryId));
         category.setTitle(categoryDto.getTitle());
         category.setDescription(categoryDto.getDescription());
+        String oldCoverImage = category.getCoverImage();
         category.setCoverImage(categoryDto.getCoverImage());
         category.setUpdatedBy(categoryDto.getUpdatedBy());
         Category savedCategory = this.categoryRepository.save(category);
-        return this.modelMapper.map(savedCategory, CategoryDto.class);
+        this.imageReferences.replace(oldCoverImage, savedCategory.getCoverImage());
+        this.tableVersions.bump(TableVersions.CATEGORY);
+        TransactionHelper.afterCommit(() -> {
+            this.imageNames.put(ImageNames.CATEGORY, categoryId, savedCategory.getCoverImage());
+            this.nameIndex.index(NameIndex.CATEGORY, categoryId, savedCategory.getTitle(), savedCategory.getCreatedAt());
+            this.evictCategory(categoryId);
+        });
+        return this.dtoMapper.toCategoryDto(savedCategory);
+    }
+
+    /**
+     * @implNote a single column update, the image reference moves in its transaction
+     */
+    @Override
+    @Transactional
+    public void updateCategoryImage(String categoryId, String coverImage) {
+        String oldCoverImage = this.categoryRepository.findCoverImageById(categoryId).orElseThrow(() -> new ResourceNotFoundException("Category", "categoryId", categoryId));
+        this.categoryRepository.updateCoverImage(categoryId, coverImage);
+        this.imageReferences.replace(oldCoverImage.isEmpty() ? null : oldCoverImage, coverImage);
+        this.tableVersions.bump(TableVersions.CATEGORY);
+        TransactionHelper.afterCommit(() -> {
+            this.imageNames.put(ImageNames.CATEGORY, categoryId, coverImage);
+            this.evictCategory(categoryId);
+        });
     }
 
     /**
@@ -64,9 +141,28 @@ public class CategoryServiceImpl implements CategoryServiceI {
      */
 
     @Override
+    @Transactional
     public void deleteCategory(String categoryId) {
         Category category = this.categoryRepository.findById(categoryId).orElseThrow(() -> new ResourceNotFoundException("Category", "categoryId", categoryId));
+        List<ProductText> products = this.productRepository.findByCategory(category, ProductText.class);
+        List<String> productImages = this.productRepository.findImagesByCategory(category);
         this.categoryRepository.delete(category);
+        this.imageReferences.replace(category.getCoverImage(), null);
+        this.imageReferences.release(productImages);
+        this.tableVersions.bump(TableVersions.CATEGORY);
+        this.tableVersions.bump(TableVersions.PRODUCT);
+        List<String> productIds = products.stream().map(ProductText::getId).toList();
+        TransactionHelper.afterCommit(() -> {
+            productIds.forEach(this.productSearchIndex::remove);
+            this.imageNames.evict(ImageNames.CATEGORY, categoryId);
+            this.nameIndex.remove(NameIndex.CATEGORY, categoryId);
+            this.imageNames.evictAll(ImageNames.PRODUCT, productIds);
+            // products of the category are removed by cascade
+            this.countCache.invalidate("product:");
+            this.evictCategory(categoryId);
+            Cache productCache = this.cacheManager.getCache(AppConstants.PRODUCT_CACHE);
+            productIds.forEach(productCache::evict);
+        });
     }
 
     /**
@@ -74,11 +170,11 @@ public class CategoryServiceImpl implements CategoryServiceI {
      */
     @Override
     public PageResponse<CategoryDto> getAllCategories(Integer pageNumber, Integer pageSize, String sortBy, String sortDir) {
+        Sort sort = SortRegistry.CATEGORY.sort(sortBy, sortDir);
         try{
-            Sort sort = sortDir.equalsIgnoreCase("asc") ? Sort.by(sortBy).ascending() : Sort.by(sortBy).descending();
             Pageable pageable = PageRequest.of(pageNumber-1, pageSize, sort);
             Page<Category> categoryPage = this.categoryRepository.findAll(pageable);
-            PageResponse<CategoryDto> pageResponse = PageHelper.getPageResponse(categoryPage, CategoryDto.class);
+            PageResponse<CategoryDto> pageResponse = PageHelper.getPageResponse(categoryPage, this.dtoMapper::toCategoryDto);
             return pageResponse;
         }catch (RuntimeException ex){
             throw new IllegalArgumentsException(AppConstants.PAGE_ERROR_MSG);
@@ -90,8 +186,34 @@ public class CategoryServiceImpl implements CategoryServiceI {
      */
     @Override
     public CategoryDto getCategoryById(String categoryId) {
-        Category category = this.categoryRepository.findById(categoryId).orElseThrow(() -> new ResourceNotFoundException("Category", "categoryId", categoryId));
-        return this.modelMapper.map(category, CategoryDto.class);
+        Cache categoryCache = this.cacheManager.getCache(AppConstants.CATEGORY_CACHE);
+        CategoryDto cachedCategory = categoryCache.get(categoryId, CategoryDto.class);
+        if (cachedCategory == null) {
+            Category category = this.categoryRepository.findById(categoryId).orElseThrow(() -> new ResourceNotFoundException("Category", "categoryId", categoryId));
+            cachedCategory = this.dtoMapper.toCategoryDto(category);
+            categoryCache.put(categoryId, cachedCategory);
+        }
+        return this.dtoMapper.copyOf(cachedCategory);
+    }
+
+    /**
+     * @implNote cover image name through ImageNames, a miss reads the single column
+     */
+    @Override
+    public String getCategoryImageName(String categoryId) {
+        return this.imageNames.get(ImageNames.CATEGORY, categoryId, () -> this.categoryRepository.findCoverImageById(categoryId)
+                .orElseThrow(() -> new ResourceNotFoundException("Category", "categoryId", categoryId)));
+    }
+
+    @Override
+    public ETagHelper.Version getCategoryVersion(String categoryId) {
+        RowStamp stamp = this.categoryRepository.findStampById(categoryId).orElseThrow(() -> new ResourceNotFoundException("Category", "categoryId", categoryId));
+        return ETagHelper.version(stamp.getId(), stamp.getUpdatedAt(), stamp.getCreatedAt());
+    }
+
+    @Override
+    public ETagHelper.Version getCategoriesVersion() {
+        return this.tableVersions.version(TableVersions.CATEGORY);
     }
 
     /**
@@ -99,14 +221,59 @@ public class CategoryServiceImpl implements CategoryServiceI {
      */
     @Override
     public PageResponse<CategoryDto> searchCategoryByTitleKeyword(String keyword, Integer pageNumber, Integer pageSize, String sortBy, String sortDir) {
+        Sort sort = SortRegistry.CATEGORY.sort(sortBy, sortDir);
         try{
-            Sort sort = sortDir.equalsIgnoreCase("asc") ? Sort.by(sortBy).ascending() : Sort.by(sortBy).descending();
             Pageable pageable = PageRequest.of(pageNumber-1, pageSize, sort);
             Page<Category> categoryPage = this.categoryRepository.findByTitleContaining(keyword ,pageable);
-            PageResponse<CategoryDto> pageResponse = PageHelper.getPageResponse(categoryPage, CategoryDto.class);
+            PageResponse<CategoryDto> pageResponse = PageHelper.getPageResponse(categoryPage, this.dtoMapper::toCategoryDto);
             return pageResponse;
         }catch (RuntimeException ex){
             throw new IllegalArgumentsException(AppConstants.PAGE_ERROR_MSG);
         }
     }
+
+    /**
+     * @implNote NameIndex pages the matches in the requested sort, only the ids of that page are loaded and the
+     * total is the index match count
+     */
+    @Override
+    public PageResponse<CategoryDto> searchCategoryByTitlePrefix(String prefix, Integer pageNumber, Integer pageSize, String sortBy, String sortDir) {
+        Sort sort = SortRegistry.CATEGORY.sort(sortBy, sortDir);
+        try{
+            Pageable pageable = PageRequest.of(pageNumber-1, pageSize, sort);
+            NameIndex.SearchPage searchPage = this.nameIndex.search(NameIndex.CATEGORY, prefix, pageable);
+            List<Category> categories = searchPage.ids().isEmpty() ? List.of()
+                    : this.categoryRepository.findSliceByIdIn(searchPage.ids(), PageRequest.of(0, searchPage.ids().size(), sort)).getContent();
+            Slice<Category> categorySlice = new SliceImpl<>(categories, pageable, pageable.getOffset() + searchPage.ids().size() < searchPage.total());
+            return PageHelper.getPageResponse(categorySlice, searchPage.total(), this.dtoMapper::toCategoryDto);
+        }catch (RuntimeException ex){
+            throw new IllegalArgumentsException(AppConstants.PAGE_ERROR_MSG);
+        }
+    }
+
+    /**
+     * @implNote get all categories through keyset cursor
+     */
+    @Override
+    public PageResponse<CategoryDto> getAllCategoriesByCursor(String cursor, Integer pageSize, String sortBy, String sortDir) {
+        Sort sort = SortRegistry.CATEGORY.sort(sortBy, sortDir);
+        try{
+            if (pageSize < 1) {
+                throw new IllegalArgumentsException(AppConstants.CURSOR_ERROR_MSG);
+            }
+            KeysetScrollPosition position = CursorHelper.toScrollPosition(cursor, Category.class);
+            Window<Category> categoryWindow = this.categoryRepository.findBy(Specification.where(null), query -> query.sortBy(sort).limit(pageSize).scroll(position));
+            return PageHelper.getPageResponse(categoryWindow, position, pageSize, this.dtoMapper::toCategoryDto);
+        }catch (RuntimeException ex){
+            throw new IllegalArgumentsException(AppConstants.CURSOR_ERROR_MSG);
+        }
+    }
+
+    /**
+     * @implNote cached products only hold the category id and read the CategoryDto from this cache, so evicting
+     * the category entry is enough
+     */
+    private void evictCategory(String categoryId) {
+        this.cacheManager.getCache(AppConstants.CATEGORY_CACHE).evict(categoryId);
+    }
 }
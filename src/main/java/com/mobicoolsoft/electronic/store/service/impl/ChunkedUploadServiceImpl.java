@@ -0,0 +1,312 @@
+package com.mobicoolsoft.electronic.store.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.mobicoolsoft.electronic.store.config.AppConstants;
+import com.mobicoolsoft.electronic.store.dto.ChunkedUploadDto;
+import com.mobicoolsoft.electronic.store.dto.ImageUploadJob;
+import com.mobicoolsoft.electronic.store.exception.BadApiRequestException;
+import com.mobicoolsoft.electronic.store.exception.ResourceNotFoundException;
+import com.mobicoolsoft.electronic.store.helper.ImageStore;
+import com.mobicoolsoft.electronic.store.service.ChunkedUploadServiceI;
+import com.mobicoolsoft.electronic.store.service.FileServiceI;
+import com.mobicoolsoft.electronic.store.service.ImageUploadServiceI;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.BitSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * @author Sandip Kolhekar
+ * @implNote resumable chunked uploads. Each session owns one file in the upload directory of the ImageStore volume,
+ * every chunk is streamed from the request body straight to its offset through a FileChannel, hashed on the way and
+ * checked against its X-Chunk-SHA256 header. Nothing is buffered beyond the channel copy buffer and no multipart
+ * parsing is involved, so the multipart size limit does not apply. Completing hands the file to the image upload
+ * pool which hashes it once more and renames it under its content address. Sessions idle for longer than
+ * image.chunked.session-ttl-minutes are dropped together with their file. Sessions do not survive a restart, so
+ * every image.chunked.sweep-interval-ms the .part files older than the session ttl are deleted, the session files
+ * of the upload directory as well as the temporary files ImageStore.store left in the store root
+ */
+@Service
+public class ChunkedUploadServiceImpl implements ChunkedUploadServiceI {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChunkedUploadServiceImpl.class);
+
+    private static final String UPLOAD_SUFFIX = ".part";
+
+    @Autowired
+    private FileServiceI fileServiceI;
+
+    @Autowired
+    private ImageUploadServiceI imageUploadServiceI;
+
+    @Autowired
+    private ImageStore imageStore;
+
+    @Value("${image.chunked.chunk-size:1048576}")
+    private int chunkSize = 1024 * 1024;
+
+    @Value("${image.chunked.max-size:104857600}")
+    private long maxSize = 100L * 1024 * 1024;
+
+    private final Duration sessionTtl;
+
+    private final Cache<String, UploadSession> sessions;
+
+    public ChunkedUploadServiceImpl(@Value("${image.chunked.session-ttl-minutes:1440}") long sessionTtlMinutes) {
+        this.sessionTtl = Duration.ofMinutes(sessionTtlMinutes);
+        this.sessions = Caffeine.newBuilder()
+                .expireAfterAccess(this.sessionTtl)
+                .removalListener((String uploadId, UploadSession session, RemovalCause cause) -> {
+                    if (session != null && cause.wasEvicted()) {
+                        this.deleteQuietly(session.file);
+                    }
+                })
+                .build();
+    }
+
+    private static final class UploadSession {
+
+        private final String uploadId;
+
+        private final String resource;
+
+        private final String resourceId;
+
+        private final String fileName;
+
+        private final long totalSize;
+
+        private final int chunkSize;
+
+        private final int chunkCount;
+
+        private final Path file;
+
+        private final BitSet received = new BitSet();
+
+        private boolean completed;
+
+        private UploadSession(String uploadId, String resource, String resourceId, String fileName, long totalSize, int chunkSize, Path file) {
+            this.uploadId = uploadId;
+            this.resource = resource;
+            this.resourceId = resourceId;
+            this.fileName = fileName;
+            this.totalSize = totalSize;
+            this.chunkSize = chunkSize;
+            this.chunkCount = (int) ((totalSize + chunkSize - 1) / chunkSize);
+            this.file = file;
+        }
+
+        private long offset(int chunkNumber) {
+            return (long) chunkNumber * this.chunkSize;
+        }
+
+        private long length(int chunkNumber) {
+            return Math.min(this.chunkSize, this.totalSize - this.offset(chunkNumber));
+        }
+    }
+
+    @Override
+    public ChunkedUploadDto createUpload(String resource, String resourceId, ChunkedUploadDto chunkedUploadDto) throws IOException {
+        this.fileServiceI.validateImageName(chunkedUploadDto.getFileName());
+        Long totalSize = chunkedUploadDto.getTotalSize();
+        if (totalSize == null || totalSize <= 0 || totalSize > this.maxSize) {
+            throw new BadApiRequestException(AppConstants.UPLOAD_TOO_LARGE_MSG + this.maxSize + " bytes");
+        }
+        String uploadId = UUID.randomUUID().toString();
+        Path file = Files.createFile(this.imageStore.uploadDirectory().resolve(uploadId + UPLOAD_SUFFIX));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            // sparse file of the final length, transferFrom writes nothing at positions past the end
+            channel.write(ByteBuffer.allocate(1), totalSize - 1);
+        }
+        UploadSession session = new UploadSession(uploadId, resource, resourceId, chunkedUploadDto.getFileName(), totalSize, this.chunkSize, file);
+        this.sessions.put(uploadId, session);
+        logger.info("chunked upload {} of {} bytes in {} chunks opened for {} {}", uploadId, totalSize, session.chunkCount, resource, resourceId);
+        return this.toDto(session);
+    }
+
+    @Override
+    public ChunkedUploadDto getUpload(String uploadId) {
+        return this.toDto(this.session(uploadId));
+    }
+
+    @Override
+    public ChunkedUploadDto writeChunk(String uploadId, int chunkNumber, String checksum, InputStream content) throws IOException {
+        UploadSession session = this.session(uploadId);
+        if (chunkNumber < 0 || chunkNumber >= session.chunkCount) {
+            throw new BadApiRequestException(AppConstants.CHUNK_SIZE_MSG);
+        }
+        synchronized (session) {
+            if (session.completed) {
+                throw new ResourceNotFoundException("ChunkedUpload", "uploadId", uploadId);
+            }
+            // a resent chunk is only counted again once it arrived completely
+            session.received.clear(chunkNumber);
+        }
+        long position = session.offset(chunkNumber);
+        long expected = session.length(chunkNumber);
+        MessageDigest digest = sha256();
+        long written = 0;
+        boolean overlong;
+        try (DigestInputStream digestStream = new DigestInputStream(content, digest);
+             ReadableByteChannel source = Channels.newChannel(digestStream);
+             FileChannel target = FileChannel.open(session.file, StandardOpenOption.WRITE)) {
+            long transferred;
+            while (written < expected && (transferred = target.transferFrom(source, position + written, expected - written)) > 0) {
+                written += transferred;
+            }
+            overlong = digestStream.read() >= 0;
+        }
+        if (written != expected || overlong) {
+            logger.info("chunk {} of upload {} has the wrong size, {} bytes expected", chunkNumber, uploadId, expected);
+            throw new BadApiRequestException(AppConstants.CHUNK_SIZE_MSG);
+        }
+        if (checksum == null || !checksum.equalsIgnoreCase(HexFormat.of().formatHex(digest.digest()))) {
+            logger.info("chunk {} of upload {} does not match its checksum", chunkNumber, uploadId);
+            throw new BadApiRequestException(AppConstants.CHUNK_CHECKSUM_MSG);
+        }
+        synchronized (session) {
+            session.received.set(chunkNumber);
+        }
+        return this.toDto(session);
+    }
+
+    @Override
+    public ImageUploadJob completeUpload(String uploadId, Consumer<String> imageUpdate) throws IOException {
+        UploadSession session = this.session(uploadId);
+        synchronized (session) {
+            if (session.completed) {
+                throw new ResourceNotFoundException("ChunkedUpload", "uploadId", uploadId);
+            }
+            if (session.received.cardinality() < session.chunkCount) {
+                throw new BadApiRequestException(AppConstants.CHUNKS_MISSING_MSG + this.missingChunks(session));
+            }
+            session.completed = true;
+        }
+        try {
+            ImageUploadJob job = this.imageUploadServiceI.submit(session.resource, session.resourceId,
+                    () -> this.fileServiceI.adoptImage(session.fileName, session.file), imageUpdate);
+            this.sessions.invalidate(uploadId);
+            logger.info("chunked upload {} completed as job {}", uploadId, job.getJobId());
+            return job;
+        } catch (RuntimeException | IOException ex) {
+            // e.g. a full upload queue, the client may complete again later
+            synchronized (session) {
+                session.completed = false;
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * @return number of stale .part files deleted
+     * @implNote runs at startup and then every image.chunked.sweep-interval-ms, files of live sessions are kept
+     */
+    @Scheduled(fixedDelayString = "${image.chunked.sweep-interval-ms:3600000}")
+    public int sweepParts() {
+        Instant staleBefore = Instant.now().minus(this.sessionTtl);
+        int deleted = 0;
+        try {
+            deleted += this.sweepParts(this.imageStore.uploadDirectory(), staleBefore);
+            deleted += this.sweepParts(this.imageStore.root(), staleBefore);
+        } catch (IOException ex) {
+            logger.warn("stale chunked uploads could not be swept", ex);
+        }
+        if (deleted > 0) {
+            logger.info("{} stale .part files deleted", deleted);
+        }
+        return deleted;
+    }
+
+    private int sweepParts(Path directory, Instant staleBefore) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return 0;
+        }
+        int deleted = 0;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (!name.endsWith(UPLOAD_SUFFIX) || !Files.isRegularFile(file)
+                        || this.sessions.asMap().containsKey(name.substring(0, name.length() - UPLOAD_SUFFIX.length()))) {
+                    continue;
+                }
+                try {
+                    if (Files.getLastModifiedTime(file).toInstant().isBefore(staleBefore) && Files.deleteIfExists(file)) {
+                        deleted++;
+                    }
+                } catch (IOException ex) {
+                    logger.warn("stale upload {} could not be deleted", file, ex);
+                }
+            }
+        }
+        return deleted;
+    }
+
+    private UploadSession session(String uploadId) {
+        UploadSession session = this.sessions.getIfPresent(uploadId);
+        if (session == null) {
+            throw new ResourceNotFoundException("ChunkedUpload", "uploadId", uploadId);
+        }
+        return session;
+    }
+
+    private String missingChunks(UploadSession session) {
+        return IntStream.range(0, session.chunkCount).filter(chunk -> !session.received.get(chunk)).limit(20)
+                .mapToObj(String::valueOf).collect(Collectors.joining(", "));
+    }
+
+    private ChunkedUploadDto toDto(UploadSession session) {
+        List<Integer> receivedChunks;
+        synchronized (session) {
+            receivedChunks = session.received.stream().boxed().toList();
+        }
+        return ChunkedUploadDto.builder()
+                .uploadId(session.uploadId).resource(session.resource).resourceId(session.resourceId)
+                .fileName(session.fileName).totalSize(session.totalSize)
+                .chunkSize(session.chunkSize).chunkCount(session.chunkCount)
+                .receivedChunks(receivedChunks).build();
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ex) {
+            logger.warn("expired chunked upload {} could not be deleted", file, ex);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.mobicoolsoft.electronic.store.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mobicoolsoft.electronic.store.config.AppConstants;
+import com.mobicoolsoft.electronic.store.exception.TooManyRequestsException;
+import com.mobicoolsoft.electronic.store.helper.PasswordHasher;
+import com.mobicoolsoft.electronic.store.service.CredentialServiceI;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * @author Sandip Kolhekar
+ * @implNote password hashing and verification run on the bounded credentialExecutor, never on a request thread,
+ * so their CPU cost is capped at the pool size however many logins arrive. A full queue is refused with 429.
+ * Failed logins are counted per client and account until user.login.forget-after-seconds after the last failure.
+ * Beyond user.login.max-failures of them that client has to wait a delay doubling with every further failure, up to
+ * user.login.max-backoff-seconds, and is refused with 429 before any hashing. Other clients of the same account are
+ * not affected, so nobody can lock the owner out. An unknown account is checked against a dummy hash, its answer
+ * takes as long as a wrong password. A matching password stored in plain text or with a lower BCrypt strength is
+ * rehashed on the same pool thread and handed back for the caller to store. Bulk imports hash on their own
+ * importHashExecutor and leave this pool to logins
+ */
+@Service
+public class CredentialServiceImpl implements CredentialServiceI {
+
+    private static final Logger logger = LoggerFactory.getLogger(CredentialServiceImpl.class);
+
+    @Autowired
+    private PasswordHasher passwordHasher;
+
+    @Autowired
+    @Qualifier("credentialExecutor")
+    private ThreadPoolTaskExecutor credentialExecutor;
+
+    @Autowired
+    @Qualifier("importHashExecutor")
+    private ThreadPoolTaskExecutor importHashExecutor;
+
+    @Value("${user.credential.retry-after-seconds:1}")
+    private long retryAfterSeconds = 1;
+
+    @Value("${user.login.max-failures:5}")
+    private int maxFailures = 5;
+
+    @Value("${user.login.max-backoff-seconds:300}")
+    private long maxBackoffSeconds = 300;
+
+    private final Cache<String, Failures> failures;
+
+    private volatile String dummyHash;
+
+    /**
+     * @param count failed logins of one client for one account
+     * @param lastFailureMillis time of the latest of them
+     */
+    private record Failures(int count, long lastFailureMillis) {
+    }
+
+    public CredentialServiceImpl(@Value("${user.login.forget-after-seconds:3600}") long forgetAfterSeconds,
+                                 @Value("${user.login.max-tracked-logins:100000}") long maxTrackedLogins) {
+        this.failures = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(forgetAfterSeconds))
+                .maximumSize(maxTrackedLogins)
+                .build();
+    }
+
+    /**
+     * @implNote the dummy hash is made before the first login, which would otherwise pay for it
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void prepareDummyHash() {
+        this.submit(this::dummyHash);
+    }
+
+    @Override
+    public CompletableFuture<String> hash(String rawPassword) {
+        return this.submit(() -> this.passwordHasher.encode(rawPassword));
+    }
+
+    @Override
+    public List<String> hashAll(List<String> rawPasswords) {
+        int slices = Math.min(rawPasswords.size(), this.importHashExecutor.getMaxPoolSize());
+        List<CompletableFuture<List<String>>> hashed = new ArrayList<>(slices);
+        for (int slice = 0; slice < slices; slice++) {
+            List<String> passwords = rawPasswords.subList(slice * rawPasswords.size() / slices, (slice + 1) * rawPasswords.size() / slices);
+            try {
+                hashed.add(CompletableFuture.supplyAsync(() -> passwords.stream().map(this.passwordHasher::encode).toList(), this.importHashExecutor));
+            } catch (TaskRejectedException ex) {
+                logger.info("import hash queue is full, chunk refused");
+                throw new TooManyRequestsException(AppConstants.IMPORT_BUSY_MSG, this.retryAfterSeconds);
+            }
+        }
+        try {
+            return hashed.stream().flatMap(future -> future.join().stream()).toList();
+        } catch (CompletionException ex) {
+            throw ex.getCause() instanceof RuntimeException cause ? cause : ex;
+        }
+    }
+
+    @Override
+    public CompletableFuture<Verification> verify(String client, String account, String rawPassword, String storedPassword) {
+        String key = client + " " + account;
+        this.checkBackoff(key);
+        return this.submit(() -> {
+            boolean known = storedPassword != null;
+            if (!this.passwordHasher.matches(rawPassword, known ? storedPassword : this.dummyHash()) || !known) {
+                Failures failed = this.failures.asMap().merge(key, new Failures(1, System.currentTimeMillis()),
+                        (previous, latest) -> new Failures(previous.count() + 1, latest.lastFailureMillis()));
+                logger.info("password verification failed for {} from {}, {} failures", account, client, failed.count());
+                return Verification.FAILED;
+            }
+            this.failures.invalidate(key);
+            String rehashed = this.passwordHasher.needsRehash(storedPassword) ? this.passwordHasher.encode(rawPassword) : null;
+            return new Verification(true, rehashed);
+        });
+    }
+
+    private void checkBackoff(String key) {
+        Failures failed = this.failures.getIfPresent(key);
+        if (failed == null || failed.count() < this.maxFailures) {
+            return;
+        }
+        long backoffMillis = Math.min(this.maxBackoffSeconds, 1L << Math.min(failed.count() - this.maxFailures, 30)) * 1000;
+        long remainingMillis = failed.lastFailureMillis() + backoffMillis - System.currentTimeMillis();
+        if (remainingMillis <= 0) {
+            return;
+        }
+        logger.info("login {} backs off after {} failures", key, failed.count());
+        throw new TooManyRequestsException(AppConstants.LOGIN_LOCKED_MSG, (remainingMillis + 999) / 1000);
+    }
+
+    /**
+     * @implNote hash of a random password at the calibrated strength, made once on a pool thread
+     */
+    private String dummyHash() {
+        String hash = this.dummyHash;
+        if (hash == null) {
+            hash = this.passwordHasher.encode(UUID.randomUUID().toString());
+            this.dummyHash = hash;
+        }
+        return hash;
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, this.credentialExecutor);
+        } catch (TaskRejectedException ex) {
+            logger.info("credential queue is full, request refused");
+            throw new TooManyRequestsException(AppConstants.LOGIN_BUSY_MSG, this.retryAfterSeconds);
+        }
+    }
+}
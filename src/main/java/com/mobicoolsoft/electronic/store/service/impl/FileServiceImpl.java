@@ -2,16 +2,38 @@ package com.mobicoolsoft.electronic.store.service.impl;
 
 import com.mobicoolsoft.electronic.store.config.AppConstants;
 import com.mobicoolsoft.electronic.store.exception.BadApiRequestException;
+import com.mobicoolsoft.electronic.store.helper.ByteRange;
+import com.mobicoolsoft.electronic.store.helper.HotImageCache;
+import com.mobicoolsoft.electronic.store.helper.ImageReferences;
+import com.mobicoolsoft.electronic.store.helper.ImageStore;
+import com.mobicoolsoft.electronic.store.helper.ImageType;
+import com.mobicoolsoft.electronic.store.helper.ImageVariantGenerator;
 import com.mobicoolsoft.electronic.store.service.FileServiceI;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.util.UUID;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author Sandip Kolhekar
@@ -23,55 +45,295 @@ public class FileServiceImpl implements FileServiceI {
 
     private final Logger logger = LoggerFactory.getLogger(FileServiceImpl.class);
 
+    @Autowired
+    private ImageStore imageStore;
+
+    @Autowired
+    private ImageReferences imageReferences;
+
+    @Autowired
+    private ImageVariantGenerator imageVariantGenerator;
+
+    @Autowired
+    private HotImageCache hotImageCache;
+
+    /**
+     * @implNote request attributes of the Tomcat sendfile contract, the connector sets the first one when it can sendfile
+     */
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    /**
+     * @implNote a versioned URL names the stored file, whose bytes never change, so it may be cached for a year
+     * by browsers and shared caches without revalidation
+     */
+    private static final CacheControl IMMUTABLE = CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable();
+
+    /**
+     * @implNote the unversioned URL changes with every upload, caches keep it but revalidate each time (304 on a match)
+     */
+    private static final CacheControl REVALIDATE = CacheControl.noCache();
+
     /**
-     * @implNote upload image
-     * @param path
+     * @implNote upload image into the content addressed ImageStore, the SHA-256 of the content is computed while it
+     * is streamed to disk. Uploading bytes that are already stored keeps the existing file and returns its name.
+     * The type is sniffed from the magic bytes and decides the stored extension, whatever the client named the file
+     * @param path flat directory of the entity, only used for names stored before the content addressed store
      * @param file
-     * @return uploaded file name
+     * @return stored file name, sha256 hex + extension
      * @throws IOException
      */
     @Override
     public String uploadImage(String path, MultipartFile file) throws IOException {
+        try (InputStream inputStream = file.getInputStream()) {
+            return this.uploadImage(path, file.getOriginalFilename(), inputStream);
+        }
+    }
+
+    /**
+     * @implNote same as uploadImage(path, file) for content that was already spooled, e.g. by a queued upload job
+     * @param originalFilename name chosen by the client, only its extension is kept
+     */
+    @Override
+    public String uploadImage(String path, String originalFilename, InputStream inputStream) throws IOException {
         logger.info("uploadImage service started on path {}", path);
-        String originalFilename = file.getOriginalFilename();
-        if (!originalFilename.isEmpty()) {
-            logger.info("originalFilename set by user is {}", originalFilename);
-            String fileName = UUID.randomUUID().toString();
-            logger.info("random fileName generated {}", fileName);
-            String extension = originalFilename.substring(originalFilename.lastIndexOf("."));
-            if (extension.equalsIgnoreCase(".png") || extension.equalsIgnoreCase(".jpeg") || extension.equalsIgnoreCase(".jpg")) {
-                String fileNameWithExtension = fileName + extension;
-                logger.info("new fileNameWithExtension {}", fileNameWithExtension);
-                String filePath = path + fileNameWithExtension;
-                File folder = new File(path);
-                if (!folder.exists()) {
-                    logger.info("created new directory (if not exists) with path {}", path);
-                    folder.mkdirs();
-                }
-                Files.copy(file.getInputStream(), Paths.get(filePath));
-                logger.info("uploadImage service ended");
-                return fileNameWithExtension;
-            } else {
-                logger.info("BadApiRequestException encounter to the extension (other than .jpg, .jpeg, .png) {}", extension);
-                throw new BadApiRequestException(AppConstants.EXTENSION_MSG);
+        this.validateImageName(originalFilename);
+        BufferedInputStream content = new BufferedInputStream(inputStream);
+        ImageType imageType = ImageType.sniff(content).orElseThrow(() -> this.notAnImage(originalFilename));
+        ImageStore.StoredImage storedImage = this.imageStore.store(content, imageType.extension());
+        this.imageReferences.register(storedImage.name(), storedImage.size());
+        if (storedImage.created()) {
+            this.imageVariantGenerator.generateAsync(storedImage.file());
+        }
+        logger.info("uploadImage service ended with stored name {}", storedImage.name());
+        return storedImage.name();
+    }
+
+    /**
+     * @implNote moves a file assembled on the store volume (chunked upload) under its content address
+     * @param file gone after the call, also when it fails
+     */
+    @Override
+    public String adoptImage(String originalFilename, Path file) throws IOException {
+        ImageType imageType;
+        try {
+            this.validateImageName(originalFilename);
+            try (InputStream header = Files.newInputStream(file)) {
+                imageType = ImageType.sniff(header.readNBytes(ImageType.SIGNATURE_LENGTH)).orElseThrow(() -> this.notAnImage(originalFilename));
             }
-        } else {
+        } catch (BadApiRequestException ex) {
+            Files.deleteIfExists(file);
+            throw ex;
+        }
+        ImageStore.StoredImage storedImage = this.imageStore.adopt(file, imageType.extension());
+        this.imageReferences.register(storedImage.name(), storedImage.size());
+        if (storedImage.created()) {
+            this.imageVariantGenerator.generateAsync(storedImage.file());
+        }
+        logger.info("adoptImage service ended with stored name {}", storedImage.name());
+        return storedImage.name();
+    }
+
+    /**
+     * @implNote only .png, .jpeg and .jpg names are accepted
+     * @return normalized extension of the stored file, .png or .jpg
+     * @throws BadApiRequestException for an empty name or any other extension
+     */
+    @Override
+    public String validateImageName(String originalFilename) {
+        if (originalFilename == null || originalFilename.isEmpty()) {
             logger.info("BadApiRequestException(StringIndexOutOfBoundsException) encounter for empty file with index -1");
             throw new BadApiRequestException(AppConstants.EMPTY_IMAGE_MSG);
         }
+        logger.info("originalFilename set by user is {}", originalFilename);
+        int dot = originalFilename.lastIndexOf(".");
+        String extension = dot < 0 ? "" : originalFilename.substring(dot);
+        if (extension.equalsIgnoreCase(".png")) {
+            return ".png";
+        }
+        if (extension.equalsIgnoreCase(".jpeg") || extension.equalsIgnoreCase(".jpg")) {
+            return ".jpg";
+        }
+        logger.info("BadApiRequestException encounter to the extension (other than .jpg, .jpeg, .png) {}", extension);
+        throw new BadApiRequestException(AppConstants.EXTENSION_MSG);
+    }
+
+    private BadApiRequestException notAnImage(String originalFilename) {
+        logger.info("BadApiRequestException encounter, content of {} is not a PNG or JPEG image", originalFilename);
+        return new BadApiRequestException(AppConstants.IMAGE_CONTENT_MSG);
     }
 
     /**
-     * @implNote get image by id
-     * @param path
-     * @param fileName
-     * @return image
-     * @throws FileNotFoundException
+     * @implNote image of an unversioned URL, sent with Cache-Control: no-cache and answered with 304 while the
+     * client's ETag still matches
      */
     @Override
-    public InputStream serveImage(String path, String fileName) throws FileNotFoundException {
-        String fullPath = path + File.separator + fileName;
-        InputStream inputStream = new FileInputStream(fullPath);
-        return inputStream;
+    public void serveImage(String path, String fileName, Integer width, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        this.serveImage(path, fileName, width, REVALIDATE, request, response);
+    }
+
+    /**
+     * @implNote image of a versioned URL ending in the stored name. The current name is sent as immutable, a stale
+     * name is redirected (relative, so the query string and prefix are kept) to the current version
+     * @param currentName image of the entity now, null or empty when it has none (404, never a redirect)
+     * @param requestedName last path segment of the URL
+     */
+    @Override
+    public void serveVersionedImage(String path, String currentName, String requestedName, Integer width, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (currentName == null || currentName.isEmpty()) {
+            throw new FileNotFoundException(path);
+        }
+        if (!currentName.equals(requestedName)) {
+            logger.info("image version {} is outdated, redirected to {}", requestedName, currentName);
+            response.setHeader(HttpHeaders.CACHE_CONTROL, REVALIDATE.getHeaderValue());
+            String query = request.getQueryString();
+            response.sendRedirect(query == null ? currentName : currentName + "?" + query);
+            return;
+        }
+        this.serveImage(path, currentName, width, IMMUTABLE, request, response);
+    }
+
+    /**
+     * @implNote stream an image with exact Content-Length, single byte range (206/416), If-Range and HEAD support.
+     * Images up to image.cache.max-entry-bytes are sent from the off-heap HotImageCache, a hit touches no file. A miss
+     * answers 304, 416 and HEAD from the file attributes and loads the cache only for a response with a body.
+     * Larger ones are streamed from disk: on Tomcat the body is handed to the connector as a sendfile request so the kernel copies the file to the socket,
+     * elsewhere it goes through FileChannel.transferTo. The file channel is always closed
+     * @param path flat directory of the entity, content addressed names are looked up in the ImageStore
+     * @param fileName
+     * @param width requested display width, the closest pre-rendered variant is sent. Null for the original
+     * The content type comes from the stored name, whose extension was sniffed on upload and is authoritative. A strong ETag and
+     * Last-Modified are always sent, If-None-Match / If-Modified-Since are answered with 304 and no body
+     * @throws FileNotFoundException when the file does not exist, nothing has been written yet
+     */
+    private void serveImage(String path, String fileName, Integer width, CacheControl cacheControl, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (fileName == null || fileName.isEmpty()) {
+            throw new FileNotFoundException(path);
+        }
+        Path file = this.imageStore.locate(path, fileName);
+        List<String> candidates = this.imageVariantGenerator.candidates(fileName, width);
+        for (String candidate : candidates) {
+            if (candidate.equals(fileName)) {
+                if (candidates.size() > 1) {
+                    // the variant may still be rendering, what this URL answers can change
+                    cacheControl = REVALIDATE;
+                }
+                break;
+            }
+            if (this.hotImageCache.contains(candidate) || Files.isRegularFile(file.resolveSibling(candidate))) {
+                fileName = candidate;
+                break;
+            }
+        }
+        file = file.resolveSibling(fileName);
+        HotImageCache.CachedImage cached = this.hotImageCache.get(fileName);
+        long length;
+        long lastModified;
+        if (cached != null) {
+            length = cached.length();
+            lastModified = cached.lastModified();
+        } else {
+            // validators from the file attributes, the content is only read for a response with a body
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            } catch (NoSuchFileException ex) {
+                throw new FileNotFoundException(file.toString());
+            }
+            if (!attributes.isRegularFile()) {
+                throw new FileNotFoundException(file.toString());
+            }
+            length = attributes.size();
+            lastModified = attributes.lastModifiedTime().toMillis();
+        }
+        String entityTag = entityTag(fileName, length, lastModified);
+        response.setContentType(ImageType.of(fileName).map(ImageType::mediaType).orElse(MediaType.IMAGE_JPEG_VALUE));
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+        response.setHeader(HttpHeaders.ETAG, entityTag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        if (new ServletWebRequest(request, response).checkNotModified(entityTag, lastModified)) {
+            return;
+        }
+
+        ByteRange range = this.ifRangeMatches(request, entityTag, lastModified) ? ByteRange.parse(request.getHeader(HttpHeaders.RANGE), length) : null;
+        if (range == ByteRange.UNSATISFIABLE) {
+            logger.info("unsatisfiable range {} for {} of {} bytes", request.getHeader(HttpHeaders.RANGE), fileName, length);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+            response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+            return;
+        }
+        if (range == null) {
+            range = new ByteRange(0, length - 1);
+        } else {
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, range.contentRange(length));
+        }
+        response.setContentLengthLong(range.length());
+        if (HttpMethod.HEAD.matches(request.getMethod()) || range.length() <= 0) {
+            return;
+        }
+        if (cached == null) {
+            cached = this.hotImageCache.load(fileName, file, length, lastModified);
+        }
+        if (cached != null) {
+            cached.writeTo(Channels.newChannel(response.getOutputStream()), range.start(), range.end());
+            return;
+        }
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, range.start());
+            request.setAttribute(SENDFILE_END, range.end() + 1);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+            long position = range.start();
+            long end = range.end() + 1;
+            while (position < end) {
+                long transferred = channel.transferTo(position, end - position, target);
+                if (transferred <= 0) {
+                    throw new EOFException(file + " shrank while it was served");
+                }
+                position += transferred;
+            }
+        }
+    }
+
+    /**
+     * @implNote a content addressed original is named after its SHA-256, the name is its strong validator.
+     * Variants and names stored before the content addressed store add size and modification time, a re-rendered
+     * variant keeps its name
+     */
+    private static String entityTag(String fileName, long length, long lastModified) {
+        if (ImageStore.isContentAddressed(fileName)) {
+            return "\"" + fileName.substring(0, fileName.lastIndexOf('.')) + "\"";
+        }
+        return "\"" + fileName + "-" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+    }
+
+    /**
+     * @implNote a Range is only honoured when If-Range is absent or still names the current ETag or Last-Modified
+     * date, otherwise the changed file is sent whole
+     */
+    private boolean ifRangeMatches(HttpServletRequest request, String entityTag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"")) {
+            // strong comparison, a weak validator never matches
+            return ifRange.equals(entityTag);
+        }
+        try {
+            return request.getDateHeader(HttpHeaders.IF_RANGE) / 1000 == lastModified / 1000;
+        } catch (IllegalArgumentException ex) {
+            return false;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,193 @@
+package com.mobicoolsoft.electronic.store.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mobicoolsoft.electronic.store.config.AppConstants;
+import com.mobicoolsoft.electronic.store.dto.ImageUploadJob;
+import com.mobicoolsoft.electronic.store.exception.ResourceNotFoundException;
+import com.mobicoolsoft.electronic.store.exception.TooManyRequestsException;
+import com.mobicoolsoft.electronic.store.service.FileServiceI;
+import com.mobicoolsoft.electronic.store.service.ImageUploadServiceI;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * @author Sandip Kolhekar
+ * @implNote image uploads answered with 202 Accepted. The request thread only validates the name and spools the
+ * multipart body to the staging directory (a rename when the container already buffered it on disk), storing the
+ * image and the entity update run on the bounded imageUploadExecutor. A full queue is refused with 429 before
+ * anything is staged, though the container has already parsed the multipart body. Jobs are kept in memory for
+ * image.upload.job-ttl-minutes after their last change, so files staged before a restart belong to no job and are
+ * deleted on startup
+ */
+@Service
+public class ImageUploadServiceImpl implements ImageUploadServiceI {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageUploadServiceImpl.class);
+
+    @Autowired
+    private FileServiceI fileServiceI;
+
+    @Autowired
+    @Qualifier("imageUploadExecutor")
+    private ThreadPoolTaskExecutor imageUploadExecutor;
+
+    @Value("${image.upload.staging:images/staging/}")
+    private String stagingPath = "images/staging/";
+
+    @Value("${image.upload.retry-after-seconds:5}")
+    private long retryAfterSeconds = 5;
+
+    private final Cache<String, ImageUploadJob> jobs;
+
+    private final Instant startedAt = Instant.now();
+
+    public ImageUploadServiceImpl(@Value("${image.upload.job-ttl-minutes:60}") long jobTtlMinutes) {
+        this.jobs = Caffeine.newBuilder().expireAfterWrite(Duration.ofMinutes(jobTtlMinutes)).build();
+    }
+
+    /**
+     * @implNote deletes the staged files of a previous run, files staged since this instance started are kept
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void sweepStaging() {
+        Path staging = Paths.get(this.stagingPath);
+        if (!Files.isDirectory(staging)) {
+            return;
+        }
+        int deleted = 0;
+        try (DirectoryStream<Path> staged = Files.newDirectoryStream(staging)) {
+            for (Path file : staged) {
+                if (Files.isRegularFile(file) && Files.getLastModifiedTime(file).toInstant().isBefore(this.startedAt)) {
+                    Files.deleteIfExists(file);
+                    deleted++;
+                }
+            }
+        } catch (IOException ex) {
+            logger.warn("staging directory {} could not be swept", staging, ex);
+        }
+        logger.info("{} stale staged uploads deleted from {}", deleted, staging);
+    }
+
+    @Override
+    public ImageUploadJob submit(String resource, String resourceId, String path, MultipartFile file, Consumer<String> imageUpdate) throws IOException {
+        String originalFilename = file.getOriginalFilename();
+        this.fileServiceI.validateImageName(originalFilename);
+        this.checkCapacity(resource, resourceId);
+        String jobId = UUID.randomUUID().toString();
+        Path staged = Paths.get(this.stagingPath, jobId);
+        Files.createDirectories(staged.getParent());
+        file.transferTo(staged);
+        ImageSource source = () -> {
+            try (InputStream inputStream = Files.newInputStream(staged)) {
+                return this.fileServiceI.uploadImage(path, originalFilename, inputStream);
+            }
+        };
+        return this.enqueue(jobId, resource, resourceId, source, staged, imageUpdate);
+    }
+
+    @Override
+    public ImageUploadJob submit(String resource, String resourceId, ImageSource source, Consumer<String> imageUpdate) throws IOException {
+        this.checkCapacity(resource, resourceId);
+        return this.enqueue(UUID.randomUUID().toString(), resource, resourceId, source, null, imageUpdate);
+    }
+
+    @Override
+    public ImageUploadJob getJob(String jobId) {
+        ImageUploadJob job = this.jobs.getIfPresent(jobId);
+        if (job == null) {
+            throw new ResourceNotFoundException("ImageUploadJob", "jobId", jobId);
+        }
+        return job;
+    }
+
+    private void checkCapacity(String resource, String resourceId) {
+        if (this.imageUploadExecutor.getThreadPoolExecutor().getQueue().remainingCapacity() == 0) {
+            logger.info("image upload queue is full, {} upload for {} refused", resource, resourceId);
+            throw new TooManyRequestsException(AppConstants.UPLOAD_BUSY_MSG, this.retryAfterSeconds);
+        }
+    }
+
+    /**
+     * @param staged spooled upload deleted once the job ends, null when the source owns its file
+     */
+    private ImageUploadJob enqueue(String jobId, String resource, String resourceId, ImageSource source, Path staged,
+                                   Consumer<String> imageUpdate) throws IOException {
+        ImageUploadJob job = ImageUploadJob.builder()
+                .jobId(jobId).resource(resource).resourceId(resourceId)
+                .status(ImageUploadJob.Status.QUEUED).message(resource + AppConstants.UPLOAD_QUEUED_MSG)
+                .submittedAt(new Date()).build();
+        this.jobs.put(jobId, job);
+        try {
+            this.imageUploadExecutor.execute(() -> this.process(jobId, source, staged, imageUpdate));
+        } catch (TaskRejectedException ex) {
+            this.jobs.invalidate(jobId);
+            if (staged != null) {
+                Files.deleteIfExists(staged);
+            }
+            logger.info("image upload queue filled up, {} upload for {} refused", resource, resourceId);
+            throw new TooManyRequestsException(AppConstants.UPLOAD_BUSY_MSG, this.retryAfterSeconds);
+        }
+        logger.info("{} image upload for {} queued as job {}", resource, resourceId, jobId);
+        return job;
+    }
+
+    /**
+     * @implNote the staged file is deleted before the final status is published, a finished job leaves nothing behind
+     */
+    private void process(String jobId, ImageSource source, Path staged, Consumer<String> imageUpdate) {
+        this.update(jobId, job -> job.toBuilder().status(ImageUploadJob.Status.PROCESSING).build());
+        String imageName;
+        try {
+            imageName = source.store();
+            imageUpdate.accept(imageName);
+        } catch (IOException | RuntimeException ex) {
+            logger.error("image upload job {} failed", jobId, ex);
+            this.deleteStaged(staged);
+            this.update(jobId, job -> job.toBuilder().status(ImageUploadJob.Status.FAILED).message(ex.getMessage())
+                    .finishedAt(new Date()).build());
+            return;
+        }
+        this.deleteStaged(staged);
+        this.update(jobId, job -> job.toBuilder().status(ImageUploadJob.Status.DONE).imageName(imageName)
+                .message(job.getResource() + AppConstants.IMAGE_MSG).finishedAt(new Date()).build());
+        logger.info("image upload job {} stored {}", jobId, imageName);
+    }
+
+    private void deleteStaged(Path staged) {
+        if (staged == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(staged);
+        } catch (IOException ex) {
+            logger.warn("staged upload {} could not be deleted", staged, ex);
+        }
+    }
+
+    private void update(String jobId, UnaryOperator<ImageUploadJob> change) {
+        this.jobs.asMap().computeIfPresent(jobId, (id, job) -> change.apply(job));
+    }
+}
@@ -1,29 +1,59 @@
 package com.mobicoolsoft.electronic.store.service.impl;
 
 import com.mobicoolsoft.electronic.store.config.AppConstants;
+import com.mobicoolsoft.electronic.store.dto.CategoryDto;
 import com.mobicoolsoft.electronic.store.dto.PageResponse;
 import com.mobicoolsoft.electronic.store.dto.ProductDto;
+import com.mobicoolsoft.electronic.store.dto.ProductSummaryDto;
 import com.mobicoolsoft.electronic.store.entity.Category;
 import com.mobicoolsoft.electronic.store.entity.Product;
 import com.mobicoolsoft.electronic.store.exception.IllegalArgumentsException;
 import com.mobicoolsoft.electronic.store.exception.ResourceNotFoundException;
+import com.mobicoolsoft.electronic.store.helper.CountCache;
+import com.mobicoolsoft.electronic.store.helper.CountMode;
+import com.mobicoolsoft.electronic.store.helper.CursorHelper;
+import com.mobicoolsoft.electronic.store.helper.DtoMapper;
+import com.mobicoolsoft.electronic.store.helper.ETagHelper;
+import com.mobicoolsoft.electronic.store.helper.IdGenerator;
+import com.mobicoolsoft.electronic.store.helper.ImageNames;
+import com.mobicoolsoft.electronic.store.helper.ImageReferences;
 import com.mobicoolsoft.electronic.store.helper.PageHelper;
+import com.mobicoolsoft.electronic.store.helper.ProductSearchIndex;
+import com.mobicoolsoft.electronic.store.helper.SortRegistry;
+import com.mobicoolsoft.electronic.store.helper.TableVersions;
+import com.mobicoolsoft.electronic.store.helper.TransactionHelper;
 import com.mobicoolsoft.electronic.store.repository.CategoryRepository;
 import com.mobicoolsoft.electronic.store.repository.ProductRepository;
+import com.mobicoolsoft.electronic.store.repository.ProductSpecifications;
+import com.mobicoolsoft.electronic.store.repository.ProductStamp;
+import com.mobicoolsoft.electronic.store.repository.ProductSummary;
+import com.mobicoolsoft.electronic.store.service.CategoryServiceI;
 import com.mobicoolsoft.electronic.store.service.ProductServiceI;
-import org.modelmapper.ModelMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.KeysetScrollPosition;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Date;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -32,6 +62,8 @@ public class ProductServiceImpl implements ProductServiceI {
 
     private  static Logger logger = LoggerFactory.getLogger(ProductServiceImpl.class);
 
+    private static final String COUNT_KEY = "product:";
+
     @Autowired
     private ProductRepository productRepository;
 
@@ -39,33 +71,71 @@ public class ProductServiceImpl implements ProductServiceI {
     private CategoryRepository categoryRepository;
 
     @Autowired
-    private ModelMapper modelMapper;
+    private DtoMapper dtoMapper;
+
+    @Autowired
+    private CountCache countCache;
+
+    @Autowired
+    private TableVersions tableVersions;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private ImageReferences imageReferences;
+
+    @Autowired
+    private ImageNames imageNames;
+
+    @Autowired
+    private IdGenerator idGenerator;
+
+    @Autowired
+    private CategoryServiceI categoryServiceI;
 
     @Override
+    @Transactional
     public ProductDto createProduct(ProductDto productDto) {
         logger.info("createProduct service execution started");
-        String productId = UUID.randomUUID().toString();
-        Product product = this.modelMapper.map(productDto, Product.class);
+        String productId = this.idGenerator.newId();
+        Product product = this.dtoMapper.toProduct(productDto);
         product.setId(productId);
         product.setCreatedAt(new Date());
         product.setCreatedBy(productDto.getCreatedBy());
         Product savedProduct = this.productRepository.save(product);
+        this.imageReferences.replace(null, savedProduct.getImage());
+        this.tableVersions.bump(TableVersions.PRODUCT);
+        TransactionHelper.afterCommit(() -> {
+            this.countCache.invalidate(COUNT_KEY);
+            this.productSearchIndex.index(productId, savedProduct.getTitle(), savedProduct.getDescription(), savedProduct.getPrice(), savedProduct.getCreatedAt());
+        });
         logger.info("createProduct service execution ended");
-        return this.modelMapper.map(savedProduct, ProductDto.class);
+        return this.dtoMapper.toProductDto(savedProduct);
     }
 
     @Override
+    @Transactional
     public ProductDto createProductWithCategory(ProductDto productDto, String categoryId) {
         logger.info("createProductWithCategory service execution started with categoryId : {}",categoryId);
-        String productId = UUID.randomUUID().toString();
+        String productId = this.idGenerator.newId();
         Category category = this.categoryRepository.findById(categoryId).orElseThrow(() -> new ResourceNotFoundException("Category", "categoryId", categoryId));
-        Product product = this.modelMapper.map(productDto, Product.class);
+        Product product = this.dtoMapper.toProduct(productDto);
         product.setId(productId);
         product.setCreatedBy(productDto.getCreatedBy());
         product.setCategory(category);
         Product savedProduct = this.productRepository.save(product);
+        this.imageReferences.replace(null, savedProduct.getImage());
+        this.tableVersions.bump(TableVersions.PRODUCT);
+        TransactionHelper.afterCommit(() -> {
+            this.countCache.invalidate(COUNT_KEY);
+            this.productSearchIndex.index(productId, savedProduct.getTitle(), savedProduct.getDescription(), savedProduct.getPrice(), savedProduct.getCreatedAt());
+        });
         logger.info("createProductWithCategory service execution ended");
-        return this.modelMapper.map(savedProduct, ProductDto.class);
+        return this.dtoMapper.toProductDto(savedProduct);
     }
 
     @Override
@@ -75,16 +145,23 @@ public class ProductServiceImpl implements ProductServiceI {
         Product product = this.productRepository.findById(productId).orElseThrow(() -> new ResourceNotFoundException("Product", "productId", productId));
         product.setCategory(category);
         Product savedProduct = this.productRepository.save(product);
+        this.tableVersions.bump(TableVersions.PRODUCT);
+        TransactionHelper.afterCommit(() -> {
+            this.countCache.invalidate(COUNT_KEY);
+            this.cacheManager.getCache(AppConstants.PRODUCT_CACHE).evict(productId);
+        });
         logger.info("assignCategoryToProduct service execution started");
-        return this.modelMapper.map(savedProduct, ProductDto.class);
+        return this.dtoMapper.toProductDto(savedProduct);
     }
 
     @Override
+    @Transactional
     public ProductDto updateProduct(ProductDto productDto, String productId) {
         logger.info("updateProduct service execution started with productId : {}", productId);
         Product product = this.productRepository.findById(productId).orElseThrow(() -> new ResourceNotFoundException("Product", "productId", productId));
         product.setTitle(productDto.getTitle());
         product.setDescription(productDto.getDescription());
+        String oldImage = product.getImage();
         product.setImage(productDto.getImage());
         product.setPrice(productDto.getPrice());
         product.setDiscount(productDto.getDiscount());
@@ -93,74 +170,331 @@ public class ProductServiceImpl implements ProductServiceI {
         product.setStock(productDto.getStock());
         product.setUpdatedBy(productDto.getUpdatedBy());
         Product savedProduct = this.productRepository.save(product);
+        this.imageReferences.replace(oldImage, savedProduct.getImage());
+        this.tableVersions.bump(TableVersions.PRODUCT);
+        TransactionHelper.afterCommit(() -> {
+            this.imageNames.put(ImageNames.PRODUCT, productId, savedProduct.getImage());
+            this.countCache.invalidate(COUNT_KEY);
+            this.cacheManager.getCache(AppConstants.PRODUCT_CACHE).evict(productId);
+            this.productSearchIndex.index(productId, savedProduct.getTitle(), savedProduct.getDescription(), savedProduct.getPrice(), savedProduct.getCreatedAt());
+        });
         logger.info("updateProduct service execution ended");
-        return this.modelMapper.map(savedProduct, ProductDto.class);
+        return this.dtoMapper.toProductDto(savedProduct);
+    }
+
+    /**
+     * @implNote a single column update, the image reference moves in its transaction
+     */
+    @Override
+    @Transactional
+    public void updateProductImage(String productId, String image) {
+        String oldImage = this.productRepository.findImageById(productId).orElseThrow(() -> new ResourceNotFoundException("Product", "productId", productId));
+        this.productRepository.updateImage(productId, image);
+        this.imageReferences.replace(oldImage.isEmpty() ? null : oldImage, image);
+        this.tableVersions.bump(TableVersions.PRODUCT);
+        TransactionHelper.afterCommit(() -> {
+            this.imageNames.put(ImageNames.PRODUCT, productId, image);
+            this.cacheManager.getCache(AppConstants.PRODUCT_CACHE).evict(productId);
+        });
+        logger.info("image of product {} updated", productId);
     }
 
     @Override
+    @Transactional
     public void deleteProduct(String productId) {
         logger.info("deleteProduct service execution started with productId : {}", productId);
         Product product = this.productRepository.findById(productId).orElseThrow(() -> new ResourceNotFoundException("Product", "productId", productId));
         logger.info("deleteProduct service execution ended");
         this.productRepository.delete(product);
+        this.imageReferences.replace(product.getImage(), null);
+        this.tableVersions.bump(TableVersions.PRODUCT);
+        TransactionHelper.afterCommit(() -> {
+            this.imageNames.evict(ImageNames.PRODUCT, productId);
+            this.countCache.invalidate(COUNT_KEY);
+            this.cacheManager.getCache(AppConstants.PRODUCT_CACHE).evict(productId);
+            this.productSearchIndex.remove(productId);
+        });
     }
 
     @Override
-    public PageResponse<ProductDto> getAllProducts(Integer pageNumber, Integer pageSize, String sortBy, String sortDir) {
+    public PageResponse<ProductDto> getAllProducts(Integer pageNumber, Integer pageSize, String sortBy, String sortDir, CountMode countMode) {
+        Sort sort = SortRegistry.PRODUCT.sort(sortBy, sortDir);
         try {
-            Sort sort = (sortDir.equalsIgnoreCase("asc")) ? (Sort.by(sortBy).ascending()) : (Sort.by(sortBy).descending());
             Pageable pageable = PageRequest.of(pageNumber-1, pageSize, sort);
-            Page<Product> productPage = this.productRepository.findAll(pageable);
-            PageResponse<ProductDto> pageResponse = PageHelper.getPageResponse(productPage, ProductDto.class);
-            return pageResponse;
+            return this.getProductPage(COUNT_KEY + "all", countMode,
+                    () -> this.productRepository.findAll(pageable),
+                    () -> this.productRepository.findSliceBy(pageable),
+                    this.productRepository::count,
+                    this.dtoMapper::toProductDto);
         }catch (RuntimeException ex){
             throw new IllegalArgumentsException(AppConstants.PAGE_ERROR_MSG);
         }
     }
 
+    /**
+     * @implNote cached products keep only the id of their category, the CategoryDto is taken from the category
+     * cache on every read. A category update evicts its own entry and never has to look at cached products
+     */
     @Override
     public ProductDto getProductById(String productId) {
-        Product product = this.productRepository.findById(productId).orElseThrow(() -> new ResourceNotFoundException("Product", "productId", productId));
-        return this.modelMapper.map(product, ProductDto.class);
+        Cache productCache = this.cacheManager.getCache(AppConstants.PRODUCT_CACHE);
+        ProductDto cachedProduct = productCache.get(productId, ProductDto.class);
+        if (cachedProduct == null) {
+            Product product = this.productRepository.findById(productId).orElseThrow(() -> new ResourceNotFoundException("Product", "productId", productId));
+            ProductDto productDto = this.dtoMapper.toProductDto(product);
+            cachedProduct = this.dtoMapper.copyOf(productDto);
+            if (cachedProduct.getCategory() != null) {
+                CategoryDto categoryRef = new CategoryDto();
+                categoryRef.setId(cachedProduct.getCategory().getId());
+                cachedProduct.setCategory(categoryRef);
+            }
+            productCache.put(productId, cachedProduct);
+            return productDto;
+        }
+        ProductDto productDto = this.dtoMapper.copyOf(cachedProduct);
+        if (productDto.getCategory() != null) {
+            productDto.setCategory(this.categoryServiceI.getCategoryById(productDto.getCategory().getId()));
+        }
+        return productDto;
     }
 
     @Override
-    public PageResponse<ProductDto> getProductsByCategory(String categoryId, Integer pageNumber, Integer pageSize, String sortBy, String sortDir) {
+    public String getProductImageName(String productId) {
+        return this.imageNames.get(ImageNames.PRODUCT, productId, () -> this.productRepository.findImageById(productId)
+                .orElseThrow(() -> new ResourceNotFoundException("Product", "productId", productId)));
+    }
+
+    @Override
+    public ETagHelper.Version getProductVersion(String productId) {
+        ProductStamp stamp = this.productRepository.findStampById(productId).orElseThrow(() -> new ResourceNotFoundException("Product", "productId", productId));
+        ETagHelper.Version version = ETagHelper.version(stamp.getId(), stamp.getUpdatedAt(), stamp.getCreatedAt());
+        if (stamp.getCategoryId() == null) {
+            return version;
+        }
+        return ETagHelper.combine(version, ETagHelper.version(stamp.getCategoryId(), stamp.getCategoryUpdatedAt(), stamp.getCategoryCreatedAt()));
+    }
+
+    /**
+     * @implNote listed products embed their category, so a category change has to move the version too
+     */
+    @Override
+    public ETagHelper.Version getProductsVersion() {
+        return this.tableVersions.version(TableVersions.PRODUCT, TableVersions.CATEGORY);
+    }
+
+    @Override
+    public PageResponse<ProductDto> getProductsByCategory(String categoryId, Integer pageNumber, Integer pageSize, String sortBy, String sortDir, CountMode countMode) {
+        Sort sort = SortRegistry.PRODUCT.sort(sortBy, sortDir);
         try {
-            Sort sort = sortDir.equalsIgnoreCase("asc") ? Sort.by(sortBy).ascending() : Sort.by(sortBy).descending();
             Pageable pageable = PageRequest.of(pageNumber-1, pageSize, sort);
             Category category = this.categoryRepository.findById(categoryId).orElseThrow(() -> new ResourceNotFoundException("Category", "categoryId", categoryId));
-            Page<Product> productPage = this.productRepository.findByCategory(category, pageable);
-            PageResponse<ProductDto> pageResponse = PageHelper.getPageResponse(productPage, ProductDto.class);
-            return pageResponse;
+            return this.getProductPage(COUNT_KEY + "category:" + categoryId, countMode,
+                    () -> this.productRepository.findByCategory(category, pageable),
+                    () -> this.productRepository.findSliceByCategory(category, pageable),
+                    () -> this.productRepository.countByCategory(category),
+                    this.dtoMapper::toProductDto);
         }catch (RuntimeException ex){
             throw new IllegalArgumentsException(AppConstants.PAGE_ERROR_MSG);
         }
     }
 
     @Override
-    public PageResponse<ProductDto> getByTitleContaining(String subTitle, Integer pageNumber, Integer pageSize, String sortBy, String sortDir) {
+    public PageResponse<ProductDto> getByTitleContaining(String subTitle, Integer pageNumber, Integer pageSize, String sortBy, String sortDir, CountMode countMode) {
+        Sort sort = AppConstants.SORT_RELEVANCE.equalsIgnoreCase(sortBy) ? null : SortRegistry.PRODUCT.sort(sortBy, sortDir);
+        try {
+            return this.searchProducts(subTitle, pageNumber, pageSize, sort, countMode,
+                    this.productRepository::findAllByIdIn,
+                    Product::getId,
+                    this.dtoMapper::toProductDto);
+        }catch (RuntimeException ex){
+            throw new IllegalArgumentsException(AppConstants.PAGE_ERROR_MSG);
+        }
+    }
+
+    @Override
+    public PageResponse<ProductDto> getByLiveTrue(Integer pageNumber, Integer pageSize, String sortBy, String sortDir, CountMode countMode) {
+        Sort sort = SortRegistry.PRODUCT.sort(sortBy, sortDir);
         try {
-            Sort sort = sortDir.equalsIgnoreCase("asc") ? Sort.by(sortBy).ascending() : Sort.by(sortBy).descending();
             Pageable pageable = PageRequest.of(pageNumber-1, pageSize, sort);
-            Page<Product> productPage = this.productRepository.findByTitleContaining(subTitle, pageable);
-            PageResponse<ProductDto> pageResponse = PageHelper.getPageResponse(productPage, ProductDto.class);
-            return pageResponse;
+            return this.getProductPage(COUNT_KEY + "live", countMode,
+                    () -> this.productRepository.findByLiveTrue(pageable),
+                    () -> this.productRepository.findSliceByLiveTrue(pageable),
+                    this.productRepository::countByLiveTrue,
+                    this.dtoMapper::toProductDto);
         }catch (RuntimeException ex){
             throw new IllegalArgumentsException(AppConstants.PAGE_ERROR_MSG);
         }
     }
 
     @Override
-    public PageResponse<ProductDto> getByLiveTrue(Integer pageNumber, Integer pageSize, String sortBy, String sortDir) {
+    public PageResponse<ProductSummaryDto> getAllProductSummaries(Integer pageNumber, Integer pageSize, String sortBy, String sortDir, CountMode countMode) {
+        Sort sort = SortRegistry.PRODUCT.sort(sortBy, sortDir);
         try {
-            Sort sort = sortDir.equalsIgnoreCase("asc") ? Sort.by(sortBy).ascending() : Sort.by(sortBy).descending();
             Pageable pageable = PageRequest.of(pageNumber-1, pageSize, sort);
-            Page<Product> productPage = this.productRepository.findByLiveTrue(pageable);
-            PageResponse<ProductDto> pageResponse = PageHelper.getPageResponse(productPage, ProductDto.class);
-            return pageResponse;
+            return this.getProductSummaryPage(COUNT_KEY + "all", countMode,
+                    () -> this.productRepository.findSliceBy(pageable, ProductSummary.class),
+                    this.productRepository::count);
         }catch (RuntimeException ex){
             throw new IllegalArgumentsException(AppConstants.PAGE_ERROR_MSG);
         }
     }
+
+    @Override
+    public PageResponse<ProductSummaryDto> getProductSummariesByCategory(String categoryId, Integer pageNumber, Integer pageSize, String sortBy, String sortDir, CountMode countMode) {
+        Category category = this.categoryRepository.findById(categoryId).orElseThrow(() -> new ResourceNotFoundException("Category", "categoryId", categoryId));
+        Sort sort = SortRegistry.PRODUCT.sort(sortBy, sortDir);
+        try {
+            Pageable pageable = PageRequest.of(pageNumber-1, pageSize, sort);
+            return this.getProductSummaryPage(COUNT_KEY + "category:" + categoryId, countMode,
+                    () -> this.productRepository.findSliceByCategory(category, pageable, ProductSummary.class),
+                    () -> this.productRepository.countByCategory(category));
+        }catch (RuntimeException ex){
+            throw new IllegalArgumentsException(AppConstants.PAGE_ERROR_MSG);
+        }
+    }
+
+    @Override
+    public PageResponse<ProductSummaryDto> getSummariesByTitleContaining(String subTitle, Integer pageNumber, Integer pageSize, String sortBy, String sortDir, CountMode countMode) {
+        Sort sort = AppConstants.SORT_RELEVANCE.equalsIgnoreCase(sortBy) ? null : SortRegistry.PRODUCT.sort(sortBy, sortDir);
+        try {
+            return this.searchProducts(subTitle, pageNumber, pageSize, sort, countMode,
+                    productIds -> this.productRepository.findByIdIn(productIds, ProductSummary.class),
+                    ProductSummary::getId,
+                    this.dtoMapper::toProductSummaryDto);
+        }catch (RuntimeException ex){
+            throw new IllegalArgumentsException(AppConstants.PAGE_ERROR_MSG);
+        }
+    }
+
+    @Override
+    public PageResponse<ProductSummaryDto> getSummariesByLiveTrue(Integer pageNumber, Integer pageSize, String sortBy, String sortDir, CountMode countMode) {
+        Sort sort = SortRegistry.PRODUCT.sort(sortBy, sortDir);
+        try {
+            Pageable pageable = PageRequest.of(pageNumber-1, pageSize, sort);
+            return this.getProductSummaryPage(COUNT_KEY + "live", countMode,
+                    () -> this.productRepository.findSliceByLiveTrue(pageable, ProductSummary.class),
+                    this.productRepository::countByLiveTrue);
+        }catch (RuntimeException ex){
+            throw new IllegalArgumentsException(AppConstants.PAGE_ERROR_MSG);
+        }
+    }
+
+    @Override
+    public PageResponse<ProductDto> getAllProductsByCursor(String cursor, Integer pageSize, String sortBy, String sortDir) {
+        return this.getProductsByCursor(ProductSpecifications.all(), cursor, pageSize, sortBy, sortDir);
+    }
+
+    @Override
+    public PageResponse<ProductDto> getProductsByCategoryByCursor(String categoryId, String cursor, Integer pageSize, String sortBy, String sortDir) {
+        Category category = this.categoryRepository.findById(categoryId).orElseThrow(() -> new ResourceNotFoundException("Category", "categoryId", categoryId));
+        return this.getProductsByCursor(ProductSpecifications.inCategory(category), cursor, pageSize, sortBy, sortDir);
+    }
+
+    @Override
+    public PageResponse<ProductDto> getByTitleContainingByCursor(String subTitle, String cursor, Integer pageSize, String sortBy, String sortDir) {
+        Sort sort = SortRegistry.PRODUCT.sort(sortBy, sortDir);
+        try {
+            if (pageSize < 1) {
+                throw new IllegalArgumentsException(AppConstants.CURSOR_ERROR_MSG);
+            }
+            KeysetScrollPosition position = CursorHelper.toScrollPosition(cursor, Product.class);
+            List<String> productIds = this.productSearchIndex.scroll(subTitle, sort, position, pageSize + 1);
+            boolean hasNext = productIds.size() > pageSize;
+            // the extra id lies beyond the page in scroll direction
+            List<String> pageIds = !hasNext ? productIds
+                    : position.scrollsBackward() ? productIds.subList(1, productIds.size()) : productIds.subList(0, pageSize);
+            List<Product> products = this.inOrder(pageIds, this.productRepository::findAllByIdIn, Product::getId);
+            Window<Product> productWindow = Window.from(products, index -> CursorHelper.positionOf(products.get(index), sort), hasNext);
+            return PageHelper.getPageResponse(productWindow, position, pageSize, this.dtoMapper::toProductDto);
+        } catch (RuntimeException ex) {
+            logger.info("IllegalArgumentException encounter for cursor {}", cursor);
+            throw new IllegalArgumentsException(AppConstants.CURSOR_ERROR_MSG);
+        }
+    }
+
+    @Override
+    public PageResponse<ProductDto> getByLiveTrueByCursor(String cursor, Integer pageSize, String sortBy, String sortDir) {
+        return this.getProductsByCursor(ProductSpecifications.liveTrue(), cursor, pageSize, sortBy, sortDir);
+    }
+
+    /**
+     * @implNote ProductSearchIndex pages the matches, in BM25 order for sortBy=relevance (null sort) or in the
+     * requested sort, so only the ids of one page are loaded and the total is the exact match count without a COUNT query
+     */
+    private <T, V> PageResponse<V> searchProducts(String query, Integer pageNumber, Integer pageSize, Sort sort, CountMode countMode,
+                                                  Function<List<String>, List<T>> byIds, Function<T, String> idOf,
+                                                  Function<? super T, ? extends V> mapper) {
+        Pageable pageable = sort == null ? PageRequest.of(pageNumber-1, pageSize) : PageRequest.of(pageNumber-1, pageSize, sort);
+        ProductSearchIndex.SearchPage searchPage = this.productSearchIndex.search(query, sort, pageable.getOffset(), pageSize);
+        List<T> content = this.inOrder(searchPage.ids(), byIds, idOf);
+        Slice<T> productSlice = new SliceImpl<>(content, pageable, pageable.getOffset() + searchPage.ids().size() < searchPage.total());
+        Long totalElements = countMode == CountMode.NONE ? null : searchPage.total();
+        return PageHelper.getPageResponse(productSlice, totalElements, mapper);
+    }
+
+    /**
+     * @implNote loads rows by id unordered and puts them back in the order of the ids, rows deleted meanwhile are skipped
+     */
+    private <T> List<T> inOrder(List<String> productIds, Function<List<String>, List<T>> byIds, Function<T, String> idOf) {
+        if (productIds.isEmpty()) {
+            return List.of();
+        }
+        Map<String, T> loaded = byIds.apply(productIds).stream().collect(Collectors.toMap(idOf, Function.identity()));
+        return productIds.stream().map(loaded::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    /**
+     * @implNote EXACT keeps the Page query (content + COUNT) and refreshes the cached total,
+     * ESTIMATE reads a Slice and takes the total from CountCache, NONE reads a Slice only
+     */
+    private <T, V> PageResponse<V> getProductPage(String countKey, CountMode countMode, Supplier<Page<T>> pageQuery,
+                                                  Supplier<Slice<T>> sliceQuery, LongSupplier countQuery, Function<? super T, ? extends V> mapper) {
+        switch (countMode) {
+            case EXACT -> {
+                Page<T> productPage = pageQuery.get();
+                this.countCache.put(countKey, productPage.getTotalElements());
+                return PageHelper.getPageResponse(productPage, mapper);
+            }
+            case NONE -> {
+                return PageHelper.getPageResponse(sliceQuery.get(), null, mapper);
+            }
+            default -> {
+                Slice<T> productSlice = sliceQuery.get();
+                Long totalElements = this.countCache.get(countKey, countQuery);
+                return PageHelper.getPageResponse(productSlice, totalElements, mapper);
+            }
+        }
+    }
+
+    /**
+     * @implNote summary listings run the projected Slice query followed by a plain COUNT instead of a Page query
+     */
+    private PageResponse<ProductSummaryDto> getProductSummaryPage(String countKey, CountMode countMode,
+                                                                  Supplier<Slice<ProductSummary>> sliceQuery, LongSupplier countQuery) {
+        Supplier<Page<ProductSummary>> pageQuery = () -> {
+            Slice<ProductSummary> summarySlice = sliceQuery.get();
+            return new PageImpl<>(summarySlice.getContent(), summarySlice.getPageable(), countQuery.getAsLong());
+        };
+        return this.getProductPage(countKey, countMode, pageQuery, sliceQuery, countQuery, this.dtoMapper::toProductSummaryDto);
+    }
+
+    /**
+     * @implNote keyset (seek) pagination, the cursor carries the sort key and id of the boundary row
+     * so every page is a range read of pageSize + 1 rows instead of LIMIT/OFFSET over all previous rows
+     */
+    private PageResponse<ProductDto> getProductsByCursor(Specification<Product> specification, String cursor, Integer pageSize, String sortBy, String sortDir) {
+        Sort sort = SortRegistry.PRODUCT.sort(sortBy, sortDir);
+        try {
+            if (pageSize < 1) {
+                throw new IllegalArgumentsException(AppConstants.CURSOR_ERROR_MSG);
+            }
+            KeysetScrollPosition position = CursorHelper.toScrollPosition(cursor, Product.class);
+            Window<Product> productWindow = this.productRepository.findBy(specification.and(ProductSpecifications.fetchCategory()),
+                    query -> query.sortBy(sort).limit(pageSize).scroll(position));
+            return PageHelper.getPageResponse(productWindow, position, pageSize, this.dtoMapper::toProductDto);
+        } catch (RuntimeException ex) {
+            logger.info("IllegalArgumentException encounter for cursor {}", cursor);
+            throw new IllegalArgumentsException(AppConstants.CURSOR_ERROR_MSG);
+        }
+    }
 }
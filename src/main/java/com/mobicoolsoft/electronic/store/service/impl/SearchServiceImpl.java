@@ -0,0 +1,40 @@
+package com.mobicoolsoft.electronic.store.service.impl;
+
+import com.mobicoolsoft.electronic.store.config.AppConstants;
+import com.mobicoolsoft.electronic.store.dto.SuggestionDto;
+import com.mobicoolsoft.electronic.store.exception.BadApiRequestException;
+import com.mobicoolsoft.electronic.store.helper.NameIndex;
+import com.mobicoolsoft.electronic.store.service.SearchServiceI;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author Sandip Kolhekar
+ * @implNote suggestions are answered from NameIndex alone, no query runs per keystroke
+ */
+@Service
+public class SearchServiceImpl implements SearchServiceI {
+
+    @Autowired
+    private NameIndex nameIndex;
+
+    @Value("${search.suggest.max-limit:50}")
+    private int maxLimit = 50;
+
+    @Override
+    public List<SuggestionDto> suggest(String prefix, Integer limit) {
+        if (limit == null || limit < 1 || limit > this.maxLimit) {
+            throw new BadApiRequestException(AppConstants.SUGGEST_LIMIT_MSG + this.maxLimit);
+        }
+        List<SuggestionDto> suggestions = new ArrayList<>();
+        for (String resource : List.of(NameIndex.USER, NameIndex.CATEGORY)) {
+            this.nameIndex.suggest(resource, prefix, limit).forEach(suggestion -> suggestions.add(
+                    new SuggestionDto(resource, suggestion.id(), suggestion.name())));
+        }
+        return suggestions;
+    }
+}
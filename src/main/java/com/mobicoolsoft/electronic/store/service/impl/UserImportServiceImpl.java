@@ -0,0 +1,382 @@
+package com.mobicoolsoft.electronic.store.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mobicoolsoft.electronic.store.config.AppConstants;
+import com.mobicoolsoft.electronic.store.dto.UserDto;
+import com.mobicoolsoft.electronic.store.dto.UserImportResult;
+import com.mobicoolsoft.electronic.store.dto.UserImportSummary;
+import com.mobicoolsoft.electronic.store.entity.User;
+import com.mobicoolsoft.electronic.store.exception.BadApiRequestException;
+import com.mobicoolsoft.electronic.store.exception.TooManyRequestsException;
+import com.mobicoolsoft.electronic.store.helper.CsvHelper;
+import com.mobicoolsoft.electronic.store.helper.EmailFilter;
+import com.mobicoolsoft.electronic.store.helper.IdGenerator;
+import com.mobicoolsoft.electronic.store.helper.ImageReferences;
+import com.mobicoolsoft.electronic.store.helper.NameIndex;
+import com.mobicoolsoft.electronic.store.helper.RoleRegistry;
+import com.mobicoolsoft.electronic.store.helper.TableVersions;
+import com.mobicoolsoft.electronic.store.repository.UserRepository;
+import com.mobicoolsoft.electronic.store.service.CredentialServiceI;
+import com.mobicoolsoft.electronic.store.service.UserImportServiceI;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PersistenceException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * @author Sandip Kolhekar
+ * @implNote bulk user import. The body is read line by line and handled in chunks of user.import.chunk-size rows,
+ * only one chunk is held in memory. Per chunk the rows are validated with the UserDto constraints, the emails are
+ * checked with one IN query (skipped for emails the EmailFilter never saw), the passwords are hashed across the
+ * credential pool and the users are persisted in one transaction, which Hibernate sends as JDBC batches of
+ * hibernate.jdbc.batch_size. When the chunk fails, e.g. an email registered concurrently, its users are saved one by
+ * one so only the offending rows fail. Throughput is bounded by the password work factor, not by the inserts
+ */
+@Service
+public class UserImportServiceImpl implements UserImportServiceI {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserImportServiceImpl.class);
+
+    private static final int MAX_LINE_LENGTH = 16 * 1024;
+
+    private static final List<String> CSV_FIELDS = List.of("name", "email", "password", "gender", "about", "image");
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private RoleRegistry roleRegistry;
+
+    @Autowired
+    private EmailFilter emailFilter;
+
+    @Autowired
+    private ImageReferences imageReferences;
+
+    @Autowired
+    private CredentialServiceI credentialServiceI;
+
+    @Autowired
+    private NameIndex nameIndex;
+
+    @Autowired
+    private TableVersions tableVersions;
+
+    @Autowired
+    private IdGenerator idGenerator;
+
+    @Value("${user.import.chunk-size:500}")
+    private int chunkSize = 500;
+
+    private record Row(long row, UserDto user, String error) {
+    }
+
+    private record Candidate(long row, UserDto user, String normalizedEmail, String userId) {
+    }
+
+    @FunctionalInterface
+    private interface RowParser {
+        Row parse(long row, String line);
+    }
+
+    @Override
+    public UserImportSummary importUsers(InputStream body, Format format, Consumer<List<UserImportResult>> report) throws IOException {
+        logger.info("importUsers service execution started for {}", format);
+        long start = System.nanoTime();
+        LineReader reader = new LineReader(new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8)));
+        RowParser parser = format == Format.CSV ? this.csvParser(reader) : this::parseJson;
+        long rows = 0;
+        long created = 0;
+        List<Row> chunk = new ArrayList<>(this.chunkSize);
+        String line;
+        while ((line = reader.next()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            rows++;
+            chunk.add(reader.truncated() ? new Row(rows, null, AppConstants.IMPORT_LINE_LENGTH_MSG + MAX_LINE_LENGTH) : parser.parse(rows, line));
+            if (chunk.size() == this.chunkSize) {
+                created += this.importChunk(chunk, report);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            created += this.importChunk(chunk, report);
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        logger.info("importUsers service execution ended, {} of {} rows created in {} ms", created, rows, elapsedMillis);
+        return UserImportSummary.builder().rows(rows).created(created).failed(rows - created).elapsedMillis(elapsedMillis).build();
+    }
+
+    /**
+     * @return number of users created from the chunk
+     */
+    private int importChunk(List<Row> rows, Consumer<List<UserImportResult>> report) {
+        List<UserImportResult> results = new ArrayList<>(rows.size());
+        List<Candidate> candidates = new ArrayList<>(rows.size());
+        Set<String> chunkEmails = new HashSet<>();
+        for (Row row : rows) {
+            if (row.error() != null) {
+                results.add(failed(row.row(), null, row.error()));
+                continue;
+            }
+            String violations = this.validate(row.user());
+            if (violations != null) {
+                results.add(failed(row.row(), row.user().getEmail(), violations));
+                continue;
+            }
+            String normalizedEmail = User.normalizeEmail(row.user().getEmail());
+            if (!chunkEmails.add(normalizedEmail)) {
+                results.add(failed(row.row(), row.user().getEmail(), AppConstants.IMPORT_DUPLICATE_MSG));
+                continue;
+            }
+            candidates.add(new Candidate(row.row(), row.user(), normalizedEmail, this.idGenerator.newId()));
+        }
+
+        List<String> maybeRegistered = candidates.stream().map(Candidate::normalizedEmail).filter(this.emailFilter::mightContain).toList();
+        Set<String> registered = maybeRegistered.isEmpty() ? Set.of() : this.userRepository.findExistingNormalizedEmails(maybeRegistered);
+        List<Candidate> accepted = new ArrayList<>(candidates.size());
+        for (Candidate candidate : candidates) {
+            if (registered.contains(candidate.normalizedEmail())) {
+                results.add(failed(candidate.row(), candidate.user().getEmail(), AppConstants.EMAIL_EXISTS_MSG));
+            } else {
+                accepted.add(candidate);
+            }
+        }
+
+        int created = accepted.isEmpty() ? 0 : this.save(accepted, results);
+        results.sort(Comparator.comparingLong(UserImportResult::getRow));
+        report.accept(results);
+        logger.info("import chunk of {} rows committed, {} users created", rows.size(), created);
+        return created;
+    }
+
+    private int save(List<Candidate> candidates, List<UserImportResult> results) {
+        List<String> hashes;
+        try {
+            hashes = this.credentialServiceI.hashAll(candidates.stream().map(candidate -> candidate.user().getPassword().trim()).toList());
+        } catch (TooManyRequestsException ex) {
+            candidates.forEach(candidate -> results.add(failed(candidate.row(), candidate.user().getEmail(), ex.getMessage())));
+            return 0;
+        }
+        candidates.forEach(candidate -> this.emailFilter.put(candidate.normalizedEmail()));
+        List<Candidate> created = new ArrayList<>(candidates.size());
+        if (this.insert(toUsers(candidates, hashes))) {
+            created.addAll(candidates);
+        } else {
+            logger.info("import chunk could not be inserted as a whole, saving its {} users one by one", candidates.size());
+            for (int i = 0; i < candidates.size(); i++) {
+                Candidate candidate = candidates.get(i);
+                if (this.insert(toUsers(List.of(candidate), List.of(hashes.get(i))))) {
+                    created.add(candidate);
+                } else {
+                    results.add(failed(candidate.row(), candidate.user().getEmail(), AppConstants.IMPORT_SAVE_MSG));
+                }
+            }
+        }
+        for (Candidate candidate : created) {
+            this.nameIndex.index(NameIndex.USER, candidate.userId(), candidate.user().getName(), candidate.user().getCreatedAt());
+            results.add(UserImportResult.builder().row(candidate.row()).status(UserImportResult.Status.CREATED)
+                    .userId(candidate.userId()).email(candidate.user().getEmail()).build());
+        }
+        return created.size();
+    }
+
+    /**
+     * @implNote new entities on every call, entities of a rolled back transaction cannot be persisted again
+     */
+    private List<User> toUsers(List<Candidate> candidates, List<String> hashes) {
+        int roleUser = this.roleRegistry.get(AppConstants.ROLE_USER).getRoleId();
+        List<User> users = new ArrayList<>(candidates.size());
+        for (int i = 0; i < candidates.size(); i++) {
+            UserDto userDto = candidates.get(i).user();
+            User user = User.builder()
+                    .name(userDto.getName())
+                    .email(userDto.getEmail().trim())
+                    .password(hashes.get(i))
+                    .gender(userDto.getGender())
+                    .about(userDto.getAbout())
+                    .image(userDto.getImage())
+                    .roleIds(new HashSet<>(Set.of(roleUser)))
+                    .build();
+            user.setId(candidates.get(i).userId());
+            users.add(user);
+        }
+        return users;
+    }
+
+    /**
+     * @implNote persist instead of save, save of an entity with an assigned id merges and selects it first.
+     * Image references are counted in the same transaction, a failed chunk leaves them untouched
+     */
+    private boolean insert(List<User> users) {
+        try {
+            new TransactionTemplate(this.transactionManager).executeWithoutResult(status -> {
+                users.forEach(this.entityManager::persist);
+                this.entityManager.flush();
+                users.forEach(user -> this.imageReferences.replace(null, user.getImage()));
+                this.tableVersions.bump(TableVersions.USER);
+                this.entityManager.clear();
+            });
+            return true;
+        } catch (PersistenceException | DataAccessException ex) {
+            logger.info("import insert of {} users failed, {}", users.size(), ex.getMessage());
+            return false;
+        }
+    }
+
+    private String validate(UserDto userDto) {
+        Set<ConstraintViolation<UserDto>> violations = this.validator.validate(userDto);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+
+    private Row parseJson(long row, String line) {
+        try {
+            return new Row(row, this.objectMapper.readValue(line, UserDto.class), null);
+        } catch (JsonProcessingException ex) {
+            return new Row(row, null, AppConstants.IMPORT_JSON_MSG + ex.getOriginalMessage());
+        }
+    }
+
+    /**
+     * @implNote reads the header line, columns other than the UserDto fields are ignored
+     */
+    private RowParser csvParser(LineReader reader) throws IOException {
+        String header = reader.next();
+        while (header != null && header.isBlank()) {
+            header = reader.next();
+        }
+        if (header == null || reader.truncated()) {
+            throw new BadApiRequestException(AppConstants.IMPORT_HEADER_MSG);
+        }
+        List<String> columns;
+        try {
+            columns = CsvHelper.parseLine(header.startsWith("\uFEFF") ? header.substring(1) : header).stream()
+                    .map(column -> column.trim().toLowerCase(Locale.ROOT)).toList();
+        } catch (IllegalArgumentException ex) {
+            throw new BadApiRequestException(AppConstants.IMPORT_HEADER_MSG);
+        }
+        if (!columns.contains("email")) {
+            throw new BadApiRequestException(AppConstants.IMPORT_HEADER_MSG);
+        }
+        return (row, line) -> {
+            List<String> fields;
+            try {
+                fields = CsvHelper.parseLine(line);
+            } catch (IllegalArgumentException ex) {
+                return new Row(row, null, AppConstants.IMPORT_CSV_MSG + ex.getMessage());
+            }
+            if (fields.size() != columns.size()) {
+                return new Row(row, null, AppConstants.IMPORT_CSV_MSG + columns.size() + " fields expected, " + fields.size() + " found");
+            }
+            Map<String, String> values = new HashMap<>();
+            for (int i = 0; i < columns.size(); i++) {
+                if (CSV_FIELDS.contains(columns.get(i))) {
+                    String value = fields.get(i);
+                    values.put(columns.get(i), value.isEmpty() ? null : value);
+                }
+            }
+            UserDto userDto = UserDto.builder()
+                    .name(values.get("name"))
+                    .email(values.get("email"))
+                    .password(values.get("password"))
+                    .gender(values.get("gender"))
+                    .about(values.get("about"))
+                    .image(values.get("image"))
+                    .build();
+            return new Row(row, userDto, null);
+        };
+    }
+
+    private static UserImportResult failed(long row, String email, String message) {
+        return UserImportResult.builder().row(row).status(UserImportResult.Status.FAILED).email(email).message(message).build();
+    }
+
+    /**
+     * @implNote line reader that never buffers more than MAX_LINE_LENGTH characters of a line, the rest of a longer
+     * line is skipped and the line marked truncated
+     */
+    private static final class LineReader {
+
+        private final BufferedReader reader;
+
+        private final StringBuilder line = new StringBuilder();
+
+        private boolean truncated;
+
+        private LineReader(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        private String next() throws IOException {
+            this.line.setLength(0);
+            this.truncated = false;
+            int c = this.reader.read();
+            if (c == -1) {
+                return null;
+            }
+            while (c != -1 && c != '\n') {
+                if (this.line.length() < MAX_LINE_LENGTH) {
+                    this.line.append((char) c);
+                } else {
+                    this.truncated = true;
+                }
+                c = this.reader.read();
+            }
+            int end = this.line.length();
+            if (end > 0 && this.line.charAt(end - 1) == '\r') {
+                this.line.setLength(end - 1);
+            }
+            return this.line.toString();
+        }
+
+        private boolean truncated() {
+            return this.truncated;
+        }
+    }
+}
@@ -2,29 +2,50 @@ package com.mobicoolsoft.electronic.store.service.impl;
 
 import com.mobicoolsoft.electronic.store.config.AppConstants;
 import com.mobicoolsoft.electronic.store.dto.UserDto;
-import com.mobicoolsoft.electronic.store.entity.Role;
 import com.mobicoolsoft.electronic.store.entity.User;
+import com.mobicoolsoft.electronic.store.exception.BadApiRequestException;
 import com.mobicoolsoft.electronic.store.exception.IllegalArgumentsException;
 import com.mobicoolsoft.electronic.store.exception.ResourceNotFoundException;
 import com.mobicoolsoft.electronic.store.dto.PageResponse;
+import com.mobicoolsoft.electronic.store.helper.CursorHelper;
+import com.mobicoolsoft.electronic.store.helper.DtoMapper;
+import com.mobicoolsoft.electronic.store.helper.ETagHelper;
+import com.mobicoolsoft.electronic.store.helper.EmailFilter;
+import com.mobicoolsoft.electronic.store.helper.IdGenerator;
+import com.mobicoolsoft.electronic.store.helper.ImageNames;
+import com.mobicoolsoft.electronic.store.helper.ImageReferences;
+import com.mobicoolsoft.electronic.store.helper.NameIndex;
 import com.mobicoolsoft.electronic.store.helper.PageHelper;
-import com.mobicoolsoft.electronic.store.repository.RoleRepository;
+import com.mobicoolsoft.electronic.store.helper.RoleRegistry;
+import com.mobicoolsoft.electronic.store.helper.SortRegistry;
+import com.mobicoolsoft.electronic.store.helper.TableVersions;
 import com.mobicoolsoft.electronic.store.repository.UserRepository;
+import com.mobicoolsoft.electronic.store.repository.RowStamp;
+import com.mobicoolsoft.electronic.store.service.CredentialServiceI;
 import com.mobicoolsoft.electronic.store.service.UserServiceI;
-import org.modelmapper.ModelMapper;
+import org.hibernate.Hibernate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.KeysetScrollPosition;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.sql.SQLOutput;
 import java.util.Date;
 import java.util.List;
-import java.util.UUID;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 /**
@@ -40,55 +61,116 @@ public class UserServiceImpl implements UserServiceI {
     private UserRepository userRepository;
 
     @Autowired
-    private RoleRepository roleRepository;
+    private RoleRegistry roleRegistry;
 
     @Autowired
-    private ModelMapper modelMapper;
+    private DtoMapper dtoMapper;
+
+    @Autowired
+    private ImageReferences imageReferences;
+
+    @Autowired
+    private ImageNames imageNames;
+
+    @Autowired
+    private EmailFilter emailFilter;
+
+    @Autowired
+    private CredentialServiceI credentialServiceI;
+
+    @Autowired
+    private NameIndex nameIndex;
+
+    @Autowired
+    private TableVersions tableVersions;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private IdGenerator idGenerator;
 
     /**
-     * @implNote create new user
+     * @implNote create new user. The email is checked on the request thread, the password is hashed on the
+     * credential pool and the user saved when the hash is ready, the request thread does not wait for it
      */
     @Override
-    public UserDto createUser(UserDto userDto) {
+    public CompletableFuture<UserDto> createUser(UserDto userDto) {
 
         /**
-         * @implSpec generate unique id in string format. A class that represents an immutable
-         * universally unique identifier (UUID). A UUID represents a 128-bit value.
+         * @implSpec generate unique id in string format. A UUID represents a 128-bit value,
+         * the configured IdGenerator hands out time-ordered ones by default.
          */
         logger.info("createUser service execution started");
-        String userId = UUID.randomUUID().toString();
+        String userId = this.idGenerator.newId();
         logger.info("userId generated : {}", userId);
         userDto.setUserId(userId);
-//        userDto.setPassword(passwordEncoder.encode(userDto.getPassword().trim()));
-        User user = this.modelMapper.map(userDto, User.class);
-        Role role = this.roleRepository.findById(AppConstants.ROLE_USER).get();
-        user.getRoles().add(role);
-        User savedUser = this.userRepository.save(user);
-        logger.info("user saved successfully");
-        UserDto savedUserDto = this.modelMapper.map(savedUser, UserDto.class);
-        logger.info("createUser service execution ended...");
-        return savedUserDto;
+        User user = this.dtoMapper.toUser(userDto);
+        String normalizedEmail = User.normalizeEmail(user.getEmail());
+        this.checkEmailAvailable(normalizedEmail, null);
+        user.getRoleIds().add(this.roleRegistry.get(AppConstants.ROLE_USER).getRoleId());
+        this.emailFilter.put(normalizedEmail);
+        return this.credentialServiceI.hash(userDto.getPassword().trim()).thenApply(password -> {
+            user.setPassword(password);
+            User savedUser = this.saveUser(user, null);
+            this.nameIndex.index(NameIndex.USER, savedUser.getId(), savedUser.getName(), savedUser.getCreatedAt());
+            logger.info("user saved successfully");
+            UserDto savedUserDto = this.dtoMapper.toUserDto(savedUser);
+            logger.info("createUser service execution ended...");
+            return savedUserDto;
+        });
     }
 
     /**
-     * @implNote update individual user
+     * @implNote update individual user, saved once a new password is hashed on the credential pool. The stored
+     * hash handed back unchanged, e.g. by a client that read the user first, is kept and never hashed again
      */
     @Override
-    public UserDto updateUser(UserDto userDto, String userId) {
+    public CompletableFuture<UserDto> updateUser(UserDto userDto, String userId) {
         logger.info("updateUser service execution started");
         User user = this.userRepository.findById(userId).orElseThrow(() -> new ResourceNotFoundException("User", "UserID", userId));
         logger.info("User find for Id {}", userId);
+        String oldEmail = User.normalizeEmail(user.getEmail());
+        String normalizedEmail = User.normalizeEmail(userDto.getEmail());
+        if (!normalizedEmail.equals(oldEmail)) {
+            this.checkEmailAvailable(normalizedEmail, userId);
+            this.emailFilter.put(normalizedEmail);
+            this.emailFilter.markStale();
+        }
         user.setName(userDto.getName());
         user.setEmail(userDto.getEmail().trim());
-        user.setPassword(userDto.getPassword().trim());
         user.setAbout(userDto.getAbout());
         user.setGender(userDto.getGender());
+        String oldImage = user.getImage();
         user.setImage(userDto.getImage());
-        User savedUser = this.userRepository.save(user);
-        logger.info("User saved successfully");
-        UserDto updatedUserDto = this.modelMapper.map(savedUser, UserDto.class);
-        logger.info("updateUser service execution ended");
-        return updatedUserDto;
+        String rawPassword = userDto.getPassword() == null ? "" : userDto.getPassword().trim();
+        CompletableFuture<String> hashed = rawPassword.isEmpty() || rawPassword.equals(user.getPassword())
+                ? CompletableFuture.completedFuture(user.getPassword()) : this.credentialServiceI.hash(rawPassword);
+        return hashed.thenApply(password -> {
+            user.setPassword(password);
+            User savedUser = this.saveUser(user, oldImage);
+            this.imageNames.put(ImageNames.USER, userId, savedUser.getImage());
+            this.nameIndex.index(NameIndex.USER, userId, savedUser.getName(), savedUser.getCreatedAt());
+            logger.info("User saved successfully");
+            UserDto updatedUserDto = this.dtoMapper.toUserDto(savedUser);
+            logger.info("updateUser service execution ended");
+            return updatedUserDto;
+        });
+    }
+
+    /**
+     * @implNote a single column update, the image reference moves in its transaction
+     */
+    @Override
+    public void updateUserImage(String userId, String image) {
+        new TransactionTemplate(this.transactionManager).executeWithoutResult(status -> {
+            String oldImage = this.userRepository.findImageById(userId).orElseThrow(() -> new ResourceNotFoundException("User", "UserID", userId));
+            this.userRepository.updateImage(userId, image);
+            this.imageReferences.replace(oldImage.isEmpty() ? null : oldImage, image);
+        });
+        this.imageNames.put(ImageNames.USER, userId, image);
+        this.tableVersions.bump(TableVersions.USER);
+        logger.info("image of user {} updated", userId);
     }
 
     /**
@@ -98,7 +180,14 @@ public class UserServiceImpl implements UserServiceI {
     public void deleteUser(String userId) {
         logger.info("deleteUser service execution started");
         User user = this.userRepository.findById(userId).orElseThrow(() -> new ResourceNotFoundException("User", "UserID", userId));
-        this.userRepository.delete(user);
+        new TransactionTemplate(this.transactionManager).executeWithoutResult(status -> {
+            this.userRepository.delete(user);
+            this.imageReferences.replace(user.getImage(), null);
+        });
+        this.imageNames.evict(ImageNames.USER, userId);
+        this.nameIndex.remove(NameIndex.USER, userId);
+        this.emailFilter.markStale();
+        this.tableVersions.bump(TableVersions.USER);
         logger.info("User deleted  with userId : {}", userId);
         logger.info("deleteUser service execution ended");
     }
@@ -109,14 +198,14 @@ public class UserServiceImpl implements UserServiceI {
     @Override
     public PageResponse<UserDto> getAllUsers(Integer pageNumber, Integer pageSize, String sortBy, String sortDir) {
         logger.info("getAllUsers service execution started");
+        Sort sort = SortRegistry.USER.sort(sortBy, sortDir);
         try {
-            Sort sort = sortDir.equalsIgnoreCase("asc") ? Sort.by(sortBy).ascending() : Sort.by(sortBy).descending();
             //@implNote pageNumber default starts from 0
             Pageable pageable = PageRequest.of(pageNumber - 1, pageSize, sort);
             logger.info("get Pageable object with pageNumber {}, pageSize {}", pageNumber, pageSize);
             Page<User> userPage = this.userRepository.findAll(pageable);
             logger.info("get Page object for User");
-            PageResponse<UserDto> pageResponse = PageHelper.getPageResponse(userPage, UserDto.class);
+            PageResponse<UserDto> pageResponse = PageHelper.getPageResponse(userPage, this.dtoMapper::toUserDto);
             logger.info("get PageResponse<UserDto> process successfully");
             logger.info("getAllUsers service execution ended");
             return pageResponse;
@@ -134,35 +223,69 @@ public class UserServiceImpl implements UserServiceI {
         logger.info("getUserById service execution started");
         User user = this.userRepository.findById(userId).orElseThrow(() -> new ResourceNotFoundException("User", "UserID", userId));
         logger.info("User found successfully for userId : {}", userId);
-        UserDto userDto = this.modelMapper.map(user, UserDto.class);
+        UserDto userDto = this.dtoMapper.toUserDto(user);
         logger.info("getUserById service execution ended");
         return userDto;
     }
 
+    /**
+     * @implNote image name through ImageNames, a miss reads the single image column
+     */
+    @Override
+    public String getUserImageName(String userId) {
+        return this.imageNames.get(ImageNames.USER, userId, () -> this.userRepository.findImageById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("User", "UserID", userId)));
+    }
+
+    @Override
+    public ETagHelper.Version getUserVersion(String userId) {
+        RowStamp stamp = this.userRepository.findStampById(userId).orElseThrow(() -> new ResourceNotFoundException("User", "UserID", userId));
+        return ETagHelper.version(stamp.getId(), stamp.getUpdatedAt(), stamp.getCreatedAt());
+    }
+
+    @Override
+    public ETagHelper.Version getUsersVersion() {
+        return this.tableVersions.version(TableVersions.USER);
+    }
+
     /**
      * @implNote get user by email
      */
     @Override
     public UserDto getUserByEmail(String email) {
         logger.info("getUserByEmail service execution started");
-        User user = this.userRepository.findByEmail(email).orElseThrow(() -> new ResourceNotFoundException("User", "Email", email));
+        User user = this.findByEmail(email);
         logger.info("User found successfully for email : {}", email);
-        UserDto userDto = this.modelMapper.map(user, UserDto.class);
+        UserDto userDto = this.dtoMapper.toUserDto(user);
         logger.info("getUserByEmail service execution started");
         return userDto;
     }
 
     /**
-     * @implNote get user by email and password
+     * @implNote get user by email and password. The user is looked up on the request thread, the password is
+     * verified on the credential pool and a rehashed password is stored before the user is mapped. An unknown
+     * email is verified against a dummy hash as well, it is answered after the same time as a wrong password
      */
     @Override
-    public UserDto getUserByEmailAndPassword(String email, String password) {
+    public CompletableFuture<UserDto> getUserByEmailAndPassword(String email, String password, String client) {
         logger.info("getUserByEmailAndPassword service execution started");
-        User user = this.userRepository.findByEmailAndPassword(email, password).orElseThrow(() -> new ResourceNotFoundException("User", "Email", email));
-        logger.info("User found successfully for email : {}", email);
-        UserDto userDto = this.modelMapper.map(user, UserDto.class);
-        logger.info("getUserByEmailAndPassword service execution ended");
-        return userDto;
+        String normalizedEmail = User.normalizeEmail(email);
+        User user = this.lookupByEmail(normalizedEmail).orElse(null);
+        // mapped here, the lazy role ids cannot be loaded from the credential pool thread
+        UserDto userDto = this.dtoMapper.toUserDto(user);
+        return this.credentialServiceI.verify(client, String.valueOf(normalizedEmail), password, user == null ? null : user.getPassword())
+                .thenApply(verification -> {
+                    if (!verification.matches()) {
+                        throw new ResourceNotFoundException("User", "Email", email);
+                    }
+                    if (verification.rehashed() != null) {
+                        this.userRepository.updatePassword(user.getId(), verification.rehashed());
+                        logger.info("password of user {} rehashed", user.getId());
+                    }
+                    logger.info("User found successfully for email : {}", email);
+                    logger.info("getUserByEmailAndPassword service execution ended");
+                    return userDto;
+                });
     }
 
     /**
@@ -171,14 +294,14 @@ public class UserServiceImpl implements UserServiceI {
     @Override
     public PageResponse<UserDto> byNameContaining(String keyword, Integer pageNumber, Integer pageSize, String sortBy, String sortDir) {
         logger.info("getUserByKeyword service execution started");
+        Sort sort = SortRegistry.USER.sort(sortBy, sortDir);
         try {
-            Sort sort = sortDir.equalsIgnoreCase("asc") ? Sort.by(sortBy).ascending() : Sort.by(sortBy).descending();
             //@implNote pageNumber default starts from 0
             Pageable pageable = PageRequest.of(pageNumber - 1, pageSize, sort);
             logger.info("get Pageable object with pageNumber {}, pageSize {}", pageNumber, pageSize);
             Page<User> userPage = this.userRepository.findByNameContaining(keyword, pageable);
             logger.info("get Page object for User");
-            PageResponse<UserDto> pageResponse = PageHelper.getPageResponse(userPage, UserDto.class);
+            PageResponse<UserDto> pageResponse = PageHelper.getPageResponse(userPage, this.dtoMapper::toUserDto);
             logger.info("get PageResponse<UserDto> process successfully");
             logger.info("getUserByKeyword service execution ended");
             return pageResponse;
@@ -188,6 +311,51 @@ public class UserServiceImpl implements UserServiceI {
         }
     }
 
+    /**
+     * @implNote NameIndex pages the matches in the requested sort, only the ids of that page are loaded and the
+     * total is the index match count, neither a LIKE scan nor a COUNT query runs
+     */
+    @Override
+    public PageResponse<UserDto> byNamePrefix(String prefix, Integer pageNumber, Integer pageSize, String sortBy, String sortDir) {
+        logger.info("byNamePrefix service execution started");
+        Sort sort = SortRegistry.USER.sort(sortBy, sortDir);
+        try {
+            Pageable pageable = PageRequest.of(pageNumber - 1, pageSize, sort);
+            NameIndex.SearchPage searchPage = this.nameIndex.search(NameIndex.USER, prefix, pageable);
+            List<User> users = searchPage.ids().isEmpty() ? List.of()
+                    : this.userRepository.findSliceByIdIn(searchPage.ids(), PageRequest.of(0, searchPage.ids().size(), sort)).getContent();
+            Slice<User> userSlice = new SliceImpl<>(users, pageable, pageable.getOffset() + searchPage.ids().size() < searchPage.total());
+            PageResponse<UserDto> pageResponse = PageHelper.getPageResponse(userSlice, searchPage.total(), this.dtoMapper::toUserDto);
+            logger.info("byNamePrefix service execution ended with {} matches", searchPage.total());
+            return pageResponse;
+        } catch (RuntimeException ex) {
+            logger.info("IllegalArgumentException encounter");
+            throw new IllegalArgumentsException(AppConstants.PAGE_ERROR_MSG);
+        }
+    }
+
+    /**
+     * @implNote get all users through keyset cursor
+     */
+    @Override
+    public PageResponse<UserDto> getAllUsersByCursor(String cursor, Integer pageSize, String sortBy, String sortDir) {
+        logger.info("getAllUsersByCursor service execution started");
+        Sort sort = SortRegistry.USER.sort(sortBy, sortDir);
+        try {
+            if (pageSize < 1) {
+                throw new IllegalArgumentsException(AppConstants.CURSOR_ERROR_MSG);
+            }
+            KeysetScrollPosition position = CursorHelper.toScrollPosition(cursor, User.class);
+            Window<User> userWindow = this.userRepository.findBy(Specification.where(null), query -> query.sortBy(sort).limit(pageSize).scroll(position));
+            PageResponse<UserDto> pageResponse = PageHelper.getPageResponse(userWindow, position, pageSize, this.dtoMapper::toUserDto);
+            logger.info("getAllUsersByCursor service execution ended");
+            return pageResponse;
+        } catch (RuntimeException ex) {
+            logger.info("IllegalArgumentException encounter");
+            throw new IllegalArgumentsException(AppConstants.CURSOR_ERROR_MSG);
+        }
+    }
+
     /**
      * @implNote builder design pattern to build User and UseDto objects
      */
@@ -216,4 +384,63 @@ public class UserServiceImpl implements UserServiceI {
 //                .build();
 //        return userDto;
 //    }
+
+    /**
+     * @implNote the EmailFilter answers most new emails without a query, a possible match is checked on the unique index
+     * @param userId user keeping the email, null on create
+     */
+    private void checkEmailAvailable(String normalizedEmail, String userId) {
+        if (!this.emailFilter.mightContain(normalizedEmail)) {
+            return;
+        }
+        boolean taken = userId == null ? this.userRepository.existsByNormalizedEmail(normalizedEmail)
+                : this.userRepository.existsByNormalizedEmailAndIdNot(normalizedEmail, userId);
+        if (!taken && this.emailFilter.hasLegacyEmails()) {
+            taken = this.userRepository.findLegacyByEmail(normalizedEmail).stream().anyMatch(user -> !user.getId().equals(userId));
+        }
+        if (taken) {
+            logger.info("BadApiRequestException encounter, email {} is already registered", normalizedEmail);
+            throw new BadApiRequestException(AppConstants.EMAIL_EXISTS_MSG);
+        }
+    }
+
+    /**
+     * @implNote the image reference moves from oldImage in the transaction of the save, so the counts change only
+     * with a successful write. Flushed inside, a concurrent signup with the same email that passed the check above
+     * fails here and not at commit. The role ids are loaded inside too, the caller maps the user after the commit
+     */
+    private User saveUser(User user, String oldImage) {
+        try {
+            return new TransactionTemplate(this.transactionManager).execute(status -> {
+                User savedUser = this.userRepository.save(user);
+                this.userRepository.flush();
+                this.imageReferences.replace(oldImage, savedUser.getImage());
+                Hibernate.initialize(savedUser.getRoleIds());
+                this.tableVersions.bump(TableVersions.USER);
+                return savedUser;
+            });
+        } catch (DataIntegrityViolationException ex) {
+            logger.info("BadApiRequestException encounter, email {} was registered concurrently", user.getEmail());
+            throw new BadApiRequestException(AppConstants.EMAIL_EXISTS_MSG);
+        }
+    }
+
+    private User findByEmail(String email) {
+        return this.lookupByEmail(User.normalizeEmail(email)).orElseThrow(() -> new ResourceNotFoundException("User", "Email", email));
+    }
+
+    /**
+     * @implNote an email the EmailFilter has never seen is not found without a query. Users not yet backfilled by
+     * db/users-email-normalized-mysql.sql are found through the legacy email column
+     */
+    private Optional<User> lookupByEmail(String normalizedEmail) {
+        if (normalizedEmail == null || !this.emailFilter.mightContain(normalizedEmail)) {
+            return Optional.empty();
+        }
+        Optional<User> user = this.userRepository.findByNormalizedEmail(normalizedEmail);
+        if (user.isEmpty() && this.emailFilter.hasLegacyEmails()) {
+            return this.userRepository.findLegacyByEmail(normalizedEmail).stream().findFirst();
+        }
+        return user;
+    }
 }
@@ -15,7 +15,10 @@ public class ImageNameValidator implements ConstraintValidator<ImageNameValid, S
 
        logger.info("Message from isValid : {}", value);
 
-        //logic
+        //logic, no image at all is valid as for the built-in constraints
+        if (value == null) {
+            return true;
+        }
         if(value.isBlank()){
             return  false;
         }else{
@@ -0,0 +1,25 @@
+-- One time migration of entity ids from varchar(255) UUID strings to BINARY(16), MySQL 8.
+-- Run once with the application stopped, before deploying the BinaryIdJavaType mapping:
+-- spring.jpa.hibernate.ddl-auto=update adds missing columns but never changes the type of existing ones.
+-- Every id must be a canonical UUID string, UUID_TO_BIN fails on anything else.
+-- Byte order is kept as is (no swap flag), so binary order equals string order.
+
+SET foreign_key_checks = 0;
+
+ALTER TABLE categories MODIFY id VARBINARY(36) NOT NULL;
+UPDATE categories SET id = UUID_TO_BIN(id);
+ALTER TABLE categories MODIFY id BINARY(16) NOT NULL;
+
+ALTER TABLE products MODIFY id VARBINARY(36) NOT NULL, MODIFY fk_category_id VARBINARY(36);
+UPDATE products SET id = UUID_TO_BIN(id), fk_category_id = UUID_TO_BIN(fk_category_id);
+ALTER TABLE products MODIFY id BINARY(16) NOT NULL, MODIFY fk_category_id BINARY(16);
+
+ALTER TABLE users MODIFY id VARBINARY(36) NOT NULL;
+UPDATE users SET id = UUID_TO_BIN(id);
+ALTER TABLE users MODIFY id BINARY(16) NOT NULL;
+
+ALTER TABLE user_roles MODIFY `user` VARBINARY(36) NOT NULL;
+UPDATE user_roles SET `user` = UUID_TO_BIN(`user`);
+ALTER TABLE user_roles MODIFY `user` BINARY(16) NOT NULL;
+
+SET foreign_key_checks = 1;
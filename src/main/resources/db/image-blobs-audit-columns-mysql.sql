@@ -0,0 +1,5 @@
+-- Optional cleanup, MySQL 8. image_blobs are keyed by their own sha256 name and no longer extend BaseEntityAudit,
+-- created_by and updated_by stay NULL on new rows. Independent of binary-ids-mysql.sql, the columns are nullable
+-- and harmless if kept.
+
+ALTER TABLE image_blobs DROP COLUMN created_by, DROP COLUMN updated_by;
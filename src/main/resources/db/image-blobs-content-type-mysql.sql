@@ -0,0 +1,4 @@
+-- Optional cleanup, MySQL 8. image_blobs.content_type is no longer mapped, the sniffed extension of the stored
+-- name decides the served Content-Type. The column is nullable and harmless if kept.
+
+ALTER TABLE image_blobs DROP COLUMN content_type;
@@ -0,0 +1,24 @@
+-- One time backfill of users.email_normalized for rows written before the column existed, MySQL 8.
+-- Safe to run while the application is up and to run again. Emails that differ only in case or surrounding
+-- blanks share one normalized value, which the unique index uk_users_email_normalized allows once: per group the
+-- row already holding it wins, else the most recently updated row. The other rows keep NULL, they are still
+-- found through the legacy email column (EmailFilter falls back to it while such rows exist) and are listed at the
+-- end to be merged or renamed by hand.
+
+UPDATE users u
+JOIN (
+    SELECT id,
+           ROW_NUMBER() OVER (PARTITION BY LOWER(TRIM(user_email))
+                              ORDER BY email_normalized IS NULL, updated_at DESC, created_at DESC, id) AS rank_in_group
+    FROM users
+    WHERE user_email IS NOT NULL
+) ranked ON ranked.id = u.id
+SET u.email_normalized = LOWER(TRIM(u.user_email))
+WHERE ranked.rank_in_group = 1
+  AND u.email_normalized IS NULL;
+
+-- duplicates left without a normalized email
+SELECT BIN_TO_UUID(id) AS id, user_email, LOWER(TRIM(user_email)) AS normalized
+FROM users
+WHERE email_normalized IS NULL AND user_email IS NOT NULL
+ORDER BY normalized, updated_at DESC;
@@ -9,10 +9,13 @@ import com.mobicoolsoft.electronic.store.dto.UserDto;
 import com.mobicoolsoft.electronic.store.entity.Category;
 import com.mobicoolsoft.electronic.store.entity.Product;
 import com.mobicoolsoft.electronic.store.entity.User;
+import com.mobicoolsoft.electronic.store.helper.CountMode;
+import com.mobicoolsoft.electronic.store.helper.ETagHelper;
 import com.mobicoolsoft.electronic.store.repository.CategoryRepository;
 import com.mobicoolsoft.electronic.store.repository.ProductRepository;
 import com.mobicoolsoft.electronic.store.service.impl.CategoryServiceImpl;
 import com.mobicoolsoft.electronic.store.service.impl.ProductServiceImpl;
+import org.hamcrest.Matchers;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -26,20 +29,26 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -192,9 +201,9 @@ class CategoryControllerTest {
         String sortDir = "asc";
         PageResponse pageResponse = new PageResponse(productDtos, pageNumber, pageSize, totalElements, totalSize, lastPage);
 
-        Mockito.when(productService.getProductsByCategory("categoryIdTest", pageNumber, pageSize, sortBy, sortDir)).thenReturn(pageResponse);
+        Mockito.when(productService.getProductsByCategory("categoryIdTest", pageNumber, pageSize, sortBy, sortDir, CountMode.ESTIMATE)).thenReturn(pageResponse);
 
-        ResponseEntity<PageResponse<ProductDto>> response = this.categoryController.getProductsWithCategory(category.getId(), pageNumber, pageSize, sortBy, sortDir);
+        ResponseEntity<PageResponse<ProductDto>> response = this.categoryController.getProductsWithCategory(category.getId(), pageNumber, pageSize, sortBy, sortDir, "estimate", new ServletWebRequest(new MockHttpServletRequest()));
 
         int actualStatus = response.getStatusCode().value();
         int expectedStatus = 200;
@@ -245,7 +254,7 @@ class CategoryControllerTest {
 
         Mockito.when(categoryService.getAllCategories(pageNumber, pageSize, sortBy, sortDir)).thenReturn(pageResponse);
 
-        ResponseEntity<PageResponse<CategoryDto>> response = categoryController.getAllCategories(pageNumber, pageSize, sortBy, sortDir);
+        ResponseEntity<PageResponse<CategoryDto>> response = categoryController.getAllCategories(pageNumber, pageSize, sortBy, sortDir, new ServletWebRequest(new MockHttpServletRequest()));
 
         int expectedSize = 3;
         int actualSize = response.getBody().getContent().size();
@@ -269,6 +278,56 @@ class CategoryControllerTest {
                 .andDo(print());
     }
 
+    @Test
+    void getCategoryByIdNotModifiedTest() throws Exception {
+        category.setId("dadassd");
+        CategoryDto categoryDto = modelMapper.map(category, CategoryDto.class);
+        Mockito.when(categoryService.getCategoryById(Mockito.anyString())).thenReturn(categoryDto);
+        Mockito.when(categoryService.getCategoryVersion("dadassd")).thenReturn(ETagHelper.version("dadassd", new Date(1700000000000L), null));
+
+        String eTag = this.mockMvc.perform(MockMvcRequestBuilders.get("/api/categories/dadassd"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        Assertions.assertNotNull(eTag);
+
+        this.mockMvc.perform(MockMvcRequestBuilders.get("/api/categories/dadassd").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        this.mockMvc.perform(MockMvcRequestBuilders.get("/api/categories/dadassd").header(HttpHeaders.IF_MODIFIED_SINCE, "Tue, 14 Nov 2023 22:13:20 GMT"))
+                .andExpect(status().isNotModified());
+        // the version alone answers both, the category is only loaded for the first response
+        Mockito.verify(categoryService, Mockito.times(1)).getCategoryById("dadassd");
+
+        Mockito.when(categoryService.getCategoryVersion("dadassd")).thenReturn(ETagHelper.version("dadassd", new Date(1700000060000L), null));
+        this.mockMvc.perform(MockMvcRequestBuilders.get("/api/categories/dadassd").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, Matchers.not(eTag)));
+    }
+
+    @Test
+    void getAllCategoriesNotModifiedTest() throws Exception {
+        category.setId("dadassd");
+        CategoryDto categoryDto = modelMapper.map(category, CategoryDto.class);
+        PageResponse<CategoryDto> pageResponse = new PageResponse<>(List.of(categoryDto), 1, 10, 1L, 1, true);
+        Mockito.when(categoryService.getAllCategories(1, 10, "title", "asc")).thenReturn(pageResponse);
+        Mockito.when(categoryService.getCategoriesVersion()).thenReturn(new ETagHelper.Version("category:1", -1));
+
+        String eTag = this.mockMvc.perform(MockMvcRequestBuilders.get("/api/categories/"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.LAST_MODIFIED))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        this.mockMvc.perform(MockMvcRequestBuilders.get("/api/categories/").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+        Mockito.verify(categoryService, Mockito.times(1)).getAllCategories(1, 10, "title", "asc");
+
+        // a delete moves no Last-Modified, the write counter still moves the version
+        Mockito.when(categoryService.getCategoriesVersion()).thenReturn(new ETagHelper.Version("category:2", -1));
+        this.mockMvc.perform(MockMvcRequestBuilders.get("/api/categories/").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk());
+    }
+
     @Test
     void searchCategoryByKeywordTest() {
         Category category1 = Category.builder()
@@ -296,7 +355,7 @@ class CategoryControllerTest {
         PageResponse pageResponse = new PageResponse(categoryDtos, pageNumber, pageSize, totalElements, totalSize, lastPage);
         Mockito.when(categoryService.searchCategoryByTitleKeyword("Aapparrels", pageNumber, pageSize, sortBy, sortDir)).thenReturn(pageResponse);
 
-        ResponseEntity<PageResponse<CategoryDto>> response = categoryController.searchCategoryByKeyword("Aapparrels", pageNumber, pageSize, sortBy, sortDir);
+        ResponseEntity<PageResponse<CategoryDto>> response = categoryController.searchCategoryByKeyword("Aapparrels", pageNumber, pageSize, sortBy, sortDir, new ServletWebRequest(new MockHttpServletRequest()));
         int expectedSize = 3;
         int actualSize = response.getBody().getContent().size();
 
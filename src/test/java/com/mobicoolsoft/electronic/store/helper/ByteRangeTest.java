@@ -0,0 +1,29 @@
+package com.mobicoolsoft.electronic.store.helper;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class ByteRangeTest {
+
+    @Test
+    void parseRangeTest() {
+        Assertions.assertEquals(new ByteRange(0, 99), ByteRange.parse("bytes=0-99", 1000));
+        Assertions.assertEquals(new ByteRange(900, 999), ByteRange.parse("bytes=900-", 1000));
+        Assertions.assertEquals(new ByteRange(900, 999), ByteRange.parse("bytes=900-5000", 1000));
+        Assertions.assertEquals(new ByteRange(800, 999), ByteRange.parse("bytes=-200", 1000));
+        Assertions.assertEquals(new ByteRange(0, 999), ByteRange.parse("bytes=-5000", 1000));
+        Assertions.assertEquals("bytes 0-99/1000", ByteRange.parse("bytes=0-99", 1000).contentRange(1000));
+        Assertions.assertEquals(100, ByteRange.parse("bytes=0-99", 1000).length());
+    }
+
+    @Test
+    void parseWholeFileAndUnsatisfiableTest() {
+        Assertions.assertNull(ByteRange.parse(null, 1000));
+        Assertions.assertNull(ByteRange.parse("items=0-10", 1000));
+        Assertions.assertNull(ByteRange.parse("bytes=0-10,20-30", 1000));
+        Assertions.assertNull(ByteRange.parse("bytes=abc-", 1000));
+        Assertions.assertNull(ByteRange.parse("bytes=50-10", 1000));
+        Assertions.assertSame(ByteRange.UNSATISFIABLE, ByteRange.parse("bytes=1000-", 1000));
+        Assertions.assertSame(ByteRange.UNSATISFIABLE, ByteRange.parse("bytes=-0", 1000));
+    }
+}
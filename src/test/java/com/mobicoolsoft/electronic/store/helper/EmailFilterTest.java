@@ -0,0 +1,78 @@
+package com.mobicoolsoft.electronic.store.helper;
+
+import com.mobicoolsoft.electronic.store.entity.BinaryIdJavaType;
+import com.mobicoolsoft.electronic.store.entity.User;
+import com.mobicoolsoft.electronic.store.repository.UserRepository;
+import com.mobicoolsoft.electronic.store.repository.TestIds;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.stream.IntStream;
+
+@DataJpaTest
+@ActiveProfiles("h2")
+@Import(EmailFilter.class)
+class EmailFilterTest {
+
+    @Autowired
+    private EmailFilter emailFilter;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void rebuildTest() {
+        ReflectionTestUtils.setField(emailFilter, "expectedUsers", 1_000L);
+        IntStream.range(0, 250).forEach(i -> userRepository.save(user(TestIds.id(i), " User" + i + "@Gmail.com")));
+        entityManager.flush();
+        // a row written before email_normalized existed
+        entityManager.createNativeQuery("update users set email_normalized = null where id = :id")
+                .setParameter("id", BinaryIdJavaType.toBytes(TestIds.id(7))).executeUpdate();
+        entityManager.clear();
+
+        Assertions.assertTrue(emailFilter.mightContain("nobody@gmail.com"));
+        emailFilter.rebuild();
+        entityManager.clear();
+
+        // left for the migration script, found through the email column meanwhile
+        Assertions.assertNull(userRepository.findById(TestIds.id(7)).orElseThrow().getNormalizedEmail());
+        Assertions.assertTrue(emailFilter.hasLegacyEmails());
+        Assertions.assertTrue(emailFilter.mightContain("nobody@gmail.com"));
+        Assertions.assertEquals(TestIds.id(7), userRepository.findLegacyByEmail("user7@gmail.com").get(0).getId());
+
+        entityManager.createNativeQuery("update users set email_normalized = 'user7@gmail.com' where id = :id")
+                .setParameter("id", BinaryIdJavaType.toBytes(TestIds.id(7))).executeUpdate();
+        emailFilter.rebuild();
+
+        Assertions.assertFalse(emailFilter.hasLegacyEmails());
+        IntStream.range(0, 250).forEach(i -> Assertions.assertTrue(emailFilter.mightContain("user" + i + "@gmail.com")));
+        long misses = IntStream.range(0, 1_000).filter(i -> emailFilter.mightContain("other" + i + "@gmail.com")).count();
+        Assertions.assertTrue(misses < 50, misses + " false positives");
+
+        emailFilter.put("late@gmail.com");
+        Assertions.assertTrue(emailFilter.mightContain("late@gmail.com"));
+    }
+
+    @Test
+    void uniqueNormalizedEmailTest() {
+        userRepository.saveAndFlush(user(TestIds.id(1), "sandip@gmail.com"));
+        Assertions.assertTrue(userRepository.findByNormalizedEmail("sandip@gmail.com").isPresent());
+        Assertions.assertThrows(DataIntegrityViolationException.class, () -> userRepository.saveAndFlush(user(TestIds.id(2), "Sandip@Gmail.com ")));
+    }
+
+    private static User user(String id, String email) {
+        User user = User.builder().name("user").email(email).password("secret").build();
+        user.setId(id);
+        return user;
+    }
+}
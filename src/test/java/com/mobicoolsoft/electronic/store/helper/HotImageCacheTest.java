@@ -0,0 +1,54 @@
+package com.mobicoolsoft.electronic.store.helper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+class HotImageCacheTest {
+
+    @TempDir
+    Path imageDir;
+
+    @Test
+    void loadOffHeapAndInvalidateVariantsTest() throws IOException {
+        HotImageCache cache = new HotImageCache(1 << 20, 1 << 16);
+        Path original = Files.write(imageDir.resolve("abc.png"), new byte[4_000]);
+        Path variant = Files.write(imageDir.resolve("abc_w64.jpg"), new byte[500]);
+        Path other = Files.write(imageDir.resolve("xyz.png"), new byte[100]);
+
+        HotImageCache.CachedImage image = cache.load("abc.png", original, 4_000, 1L);
+        cache.load("abc_w64.jpg", variant, 500, 1L);
+        cache.load("xyz.png", other, 100, 1L);
+
+        Assertions.assertTrue(image.content().isDirect());
+        Assertions.assertTrue(image.content().isReadOnly());
+        Assertions.assertNull(cache.load("big.png", original, 1 << 17, 1L));
+
+        cache.invalidate("abc.png");
+        Assertions.assertFalse(cache.contains("abc.png"));
+        Assertions.assertFalse(cache.contains("abc_w64.jpg"));
+        Assertions.assertTrue(cache.contains("xyz.png"));
+    }
+
+    @Test
+    void hitRateMetricsTest() throws IOException {
+        HotImageCache cache = new HotImageCache(1 << 20, 1 << 16);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        cache.bindTo(registry);
+        Path original = Files.write(imageDir.resolve("abc.png"), new byte[4_000]);
+
+        Assertions.assertNull(cache.get("abc.png"));
+        cache.load("abc.png", original, 4_000, 1L);
+        Assertions.assertNotNull(cache.get("abc.png"));
+        Assertions.assertNotNull(cache.get("abc.png"));
+
+        Assertions.assertEquals(2, registry.get("cache.gets").tag("cache", "hotImages").tag("result", "hit").functionCounter().count());
+        Assertions.assertEquals(1, registry.get("cache.gets").tag("cache", "hotImages").tag("result", "miss").functionCounter().count());
+        Assertions.assertEquals(4_000, registry.get("cache.size.bytes").tag("cache", "hotImages").gauge().value());
+    }
+}
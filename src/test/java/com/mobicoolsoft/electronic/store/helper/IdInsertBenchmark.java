@@ -0,0 +1,66 @@
+package com.mobicoolsoft.electronic.store.helper;
+
+import com.mobicoolsoft.electronic.store.entity.BinaryIdJavaType;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.function.Function;
+
+/**
+ * @implNote insert benchmark for primary key layouts: varchar(36) random UUIDs (the previous mapping),
+ * binary(16) random UUIDs and binary(16) time-ordered UUIDs, 200_000 rows each in JDBC batches of 1000.
+ * Runs against an in-memory H2 by default, pass a JDBC url, user and password to measure MySQL
+ * (the tables are created and dropped). Not picked up by surefire, run the main method from the IDE or with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=...IdInsertBenchmark [-Dexec.args="url user password"]}
+ */
+public class IdInsertBenchmark {
+
+    private static final int ROWS = 200_000;
+
+    private static final int BATCH_SIZE = 1000;
+
+    public static void main(String[] args) throws SQLException {
+        String url = args.length > 0 ? args[0] : "jdbc:h2:mem:ids;MODE=MySQL";
+        String user = args.length > 1 ? args[1] : "sa";
+        String password = args.length > 2 ? args[2] : "";
+        try (Connection connection = DriverManager.getConnection(url, user, password)) {
+            connection.setAutoCommit(false);
+            RandomIdGenerator random = new RandomIdGenerator();
+            TimeOrderedIdGenerator timeOrdered = new TimeOrderedIdGenerator();
+            System.out.printf("%-24s %12s %15s%n", "layout", "ms", "rows/s");
+            run(connection, "varchar36_random", "varchar(36)", random, id -> id);
+            run(connection, "binary16_random", "binary(16)", random, BinaryIdJavaType::toBytes);
+            run(connection, "binary16_time_ordered", "binary(16)", timeOrdered, BinaryIdJavaType::toBytes);
+        }
+    }
+
+    private static void run(Connection connection, String table, String idType, IdGenerator idGenerator,
+                            Function<String, Object> toColumn) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("drop table if exists " + table);
+            statement.execute("create table " + table + " (id " + idType + " not null primary key, title varchar(255))");
+        }
+        connection.commit();
+        long start = System.nanoTime();
+        try (PreparedStatement insert = connection.prepareStatement("insert into " + table + " (id, title) values (?, ?)")) {
+            for (int i = 1; i <= ROWS; i++) {
+                insert.setObject(1, toColumn.apply(idGenerator.newId()));
+                insert.setString(2, "title " + i);
+                insert.addBatch();
+                if (i % BATCH_SIZE == 0) {
+                    insert.executeBatch();
+                    connection.commit();
+                }
+            }
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        System.out.printf("%-24s %12d %15.0f%n", table, elapsedMillis, ROWS * 1000.0 / Math.max(1, elapsedMillis));
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("drop table " + table);
+        }
+        connection.commit();
+    }
+}
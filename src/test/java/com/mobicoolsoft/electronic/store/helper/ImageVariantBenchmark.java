@@ -0,0 +1,125 @@
+package com.mobicoolsoft.electronic.store.helper;
+
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * @implNote benchmark of the upload time variant pipeline: bytes sent for a 100px grid tile with and without
+ * ?w=, and variant sets (64/256/768) rendered per second on one core and on all cores.
+ * Not picked up by surefire, run the main method from the IDE or with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=...ImageVariantBenchmark}
+ */
+public class ImageVariantBenchmark {
+
+    private static final int ORIGINAL_WIDTH = 2400;
+
+    private static final int ORIGINAL_HEIGHT = 1600;
+
+    private static final int ROUNDS = 20;
+
+    public static void main(String[] args) throws Exception {
+        Path dir = Files.createTempDirectory("image-variants");
+        ImageVariantGenerator generator = new ImageVariantGenerator();
+        ReflectionTestUtils.setField(generator, "widths", new int[]{64, 256, 768});
+        ReflectionTestUtils.setField(generator, "quality", 0.8f);
+        ReflectionTestUtils.setField(generator, "imageVariantExecutor", new SyncTaskExecutor());
+
+        Path original = dir.resolve("original.jpg");
+        writeOriginal(original);
+        generator.generate(original);
+        System.out.printf("%-28s %12s%n", "file", "bytes");
+        System.out.printf("%-28s %12d%n", "original " + ORIGINAL_WIDTH + "px", Files.size(original));
+        for (int width : new int[]{64, 256, 768}) {
+            String variant = ImageVariantGenerator.variantName("original.jpg", width);
+            System.out.printf("%-28s %12d%n", variant, Files.size(dir.resolve(variant)));
+        }
+        String tile = generator.resolve(dir.toString(), "original.jpg", 100);
+        System.out.printf("100px tile: %d bytes without ?w=, %d bytes with ?w=100 (%s)%n%n",
+                Files.size(original), Files.size(dir.resolve(tile)), tile);
+
+        // warm up the scaler and the JPEG encoder
+        for (int i = 0; i < 3; i++) {
+            generator.generate(original);
+        }
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.printf("%-8s %16s %20s%n", "threads", "variant sets/s", "variant sets/s/core");
+        for (int threads : cores > 1 ? new int[]{1, cores} : new int[]{1}) {
+            double perSecond = run(generator, dir, original, threads);
+            System.out.printf("%-8d %16.1f %20.1f%n", threads, perSecond, perSecond / threads);
+        }
+    }
+
+    private static double run(ImageVariantGenerator generator, Path dir, Path original, int threads) throws Exception {
+        List<Path> copies = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Path copy = dir.resolve("copy" + i + ".jpg");
+            Files.copy(original, copy, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+            copies.add(copy);
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            long start = System.nanoTime();
+            List<Future<?>> futures = new ArrayList<>();
+            for (Path copy : copies) {
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < ROUNDS; i++) {
+                        generator.generate(copy);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            return threads * ROUNDS / seconds;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * @implNote gradient plus noise so the encoder sees photo like entropy, stored the way a camera would at high quality
+     */
+    private static void writeOriginal(Path target) throws IOException {
+        Random random = new Random(42);
+        BufferedImage image = new BufferedImage(ORIGINAL_WIDTH, ORIGINAL_HEIGHT, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < ORIGINAL_WIDTH; x++) {
+            for (int y = 0; y < ORIGINAL_HEIGHT; y++) {
+                int noise = random.nextInt(24);
+                int r = Math.min(255, x * 200 / ORIGINAL_WIDTH + noise);
+                int g = Math.min(255, y * 200 / ORIGINAL_HEIGHT + noise);
+                int b = Math.min(255, 128 + noise);
+                image.setRGB(x, y, r << 16 | g << 8 | b);
+            }
+        }
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (OutputStream file = Files.newOutputStream(target);
+             ImageOutputStream output = ImageIO.createImageOutputStream(file)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(0.95f);
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.mobicoolsoft.electronic.store.helper;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+class ImageVariantGeneratorTest {
+
+    private final ImageVariantGenerator imageVariantGenerator = new ImageVariantGenerator();
+
+    @TempDir
+    Path imageDir;
+
+    @BeforeEach
+    public void init() {
+        ReflectionTestUtils.setField(imageVariantGenerator, "widths", new int[]{768, 64, 256});
+        ReflectionTestUtils.setField(imageVariantGenerator, "quality", 0.8f);
+        ReflectionTestUtils.setField(imageVariantGenerator, "imageVariantExecutor", new SyncTaskExecutor());
+    }
+
+    @Test
+    void generateVariantsTest() throws IOException {
+        Path original = image("product.png", 1000, 500);
+
+        imageVariantGenerator.generateAsync(original);
+
+        for (int width : new int[]{64, 256, 768}) {
+            BufferedImage variant = ImageIO.read(imageDir.resolve("product_w" + width + ".jpg").toFile());
+            Assertions.assertEquals(width, variant.getWidth());
+            Assertions.assertEquals(width / 2, variant.getHeight());
+        }
+        Assertions.assertTrue(Files.size(imageDir.resolve("product_w256.jpg")) < Files.size(original));
+    }
+
+    @Test
+    void generateNoUpscaleTest() throws IOException {
+        Path original = image("small.png", 200, 100);
+
+        List<Path> variants = imageVariantGenerator.generate(original);
+
+        Assertions.assertEquals(List.of(imageDir.resolve("small_w64.jpg")), variants);
+        Assertions.assertEquals(List.of(), imageVariantGenerator.generate(Files.writeString(imageDir.resolve("text.png"), "not an image")));
+    }
+
+    @Test
+    void generateSkipsImagesAbovePixelLimitTest() throws IOException {
+        ReflectionTestUtils.setField(imageVariantGenerator, "maxPixels", 400_000L);
+
+        Assertions.assertEquals(List.of(), imageVariantGenerator.generate(image("large.png", 1000, 500)));
+        Assertions.assertFalse(Files.exists(imageDir.resolve("large_w64.jpg")));
+        Assertions.assertEquals(3, imageVariantGenerator.generate(image("product.png", 800, 500)).size());
+    }
+
+    @Test
+    void resolveVariantTest() throws IOException {
+        imageVariantGenerator.generate(image("product.png", 1000, 500));
+        imageVariantGenerator.generate(image("small.png", 200, 100));
+        String path = imageDir.toString();
+
+        Assertions.assertEquals("product.png", imageVariantGenerator.resolve(path, "product.png", null));
+        Assertions.assertEquals("product_w64.jpg", imageVariantGenerator.resolve(path, "product.png", 40));
+        Assertions.assertEquals("product_w256.jpg", imageVariantGenerator.resolve(path, "product.png", 100));
+        Assertions.assertEquals("product_w768.jpg", imageVariantGenerator.resolve(path, "product.png", 768));
+        Assertions.assertEquals("product.png", imageVariantGenerator.resolve(path, "product.png", 900));
+        // no 256 variant for an image narrower than 256
+        Assertions.assertEquals("small.png", imageVariantGenerator.resolve(path, "small.png", 100));
+    }
+
+    private Path image(String fileName, int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                image.setRGB(x, y, 0xFF000000 | (x * 255 / width) << 16 | (y * 255 / height) << 8 | ((x ^ y) & 0xFF));
+            }
+        }
+        Path file = imageDir.resolve(fileName);
+        ImageIO.write(image, "png", file.toFile());
+        return file;
+    }
+}
@@ -0,0 +1,108 @@
+package com.mobicoolsoft.electronic.store.helper;
+
+import com.mobicoolsoft.electronic.store.repository.CategoryRepository;
+import com.mobicoolsoft.electronic.store.repository.NameText;
+import com.mobicoolsoft.electronic.store.repository.UserRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+
+import java.util.Date;
+import java.util.List;
+
+@SpringBootTest(classes = NameIndexTest.class)
+class NameIndexTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private CategoryRepository categoryRepository;
+
+    @InjectMocks
+    private NameIndex nameIndex;
+
+    @BeforeEach
+    public void beforeSetUp() {
+        nameIndex.index(NameIndex.USER, "u1", "Sandip Kolhekar", null);
+        nameIndex.index(NameIndex.USER, "u2", "Sameer Khan", null);
+        nameIndex.index(NameIndex.USER, "u3", "Ramesh Sam", null);
+        nameIndex.index(NameIndex.CATEGORY, "c1", "Samsung Phones", null);
+    }
+
+    @Test
+    void suggestMatchesWordPrefixesTest() {
+        Assertions.assertEquals(List.of(new NameIndex.Suggestion("u3", "Ramesh Sam"), new NameIndex.Suggestion("u2", "Sameer Khan")),
+                nameIndex.suggest(NameIndex.USER, "SAM", 10));
+        Assertions.assertEquals(List.of("u1"), ids(NameIndex.USER, "kol"));
+        // a word in the middle of a name does not match
+        Assertions.assertTrue(ids(NameIndex.USER, "andip").isEmpty());
+        Assertions.assertEquals(List.of("c1"), ids(NameIndex.CATEGORY, "sam"));
+    }
+
+    @Test
+    void suggestMatchesEveryWordAndLimitTest() {
+        Assertions.assertEquals(List.of("u2"), ids(NameIndex.USER, "kh sa"));
+        Assertions.assertTrue(ids(NameIndex.USER, "kh ram").isEmpty());
+        Assertions.assertEquals(1, nameIndex.suggest(NameIndex.USER, "sa", 1).size());
+        Assertions.assertEquals(3, nameIndex.suggest(NameIndex.USER, "s", 10).size());
+        Assertions.assertTrue(nameIndex.suggest(NameIndex.USER, " - ", 10).isEmpty());
+    }
+
+    @Test
+    void searchPagesInRequestedOrderTest() {
+        nameIndex.index(NameIndex.USER, "u4", "Samir Patil", new Date(1000));
+        nameIndex.index(NameIndex.USER, "u5", "Sam Patil", new Date(3000));
+        nameIndex.index(NameIndex.USER, "u2", "Sameer Khan", new Date(2000));
+
+        NameIndex.SearchPage byName = nameIndex.search(NameIndex.USER, "sam", PageRequest.of(1, 2, SortRegistry.USER.sort("name", "asc")));
+        Assertions.assertEquals(List.of("u2", "u4"), byName.ids());
+        Assertions.assertEquals(4, byName.total());
+        NameIndex.SearchPage newest = nameIndex.search(NameIndex.USER, "patil", PageRequest.of(0, 1, SortRegistry.USER.sort("createdAt", "desc")));
+        Assertions.assertEquals(List.of("u5"), newest.ids());
+        Assertions.assertEquals(2, newest.total());
+        Assertions.assertEquals(List.of("u4"), nameIndex.search(NameIndex.USER, "patil", PageRequest.of(1, 1, SortRegistry.USER.sort("createdAt", "desc"))).ids());
+        Assertions.assertTrue(nameIndex.search(NameIndex.USER, "sam", PageRequest.of(5, 2, SortRegistry.USER.sort("name", "asc"))).ids().isEmpty());
+    }
+
+    @Test
+    void updateAndRemoveTest() {
+        nameIndex.index(NameIndex.USER, "u2", "Suresh Patil", null);
+        nameIndex.remove(NameIndex.USER, "u3");
+        nameIndex.remove(NameIndex.USER, "unknown");
+
+        Assertions.assertTrue(ids(NameIndex.USER, "sam").isEmpty());
+        Assertions.assertEquals(List.of("u2"), ids(NameIndex.USER, "pat"));
+        Assertions.assertEquals(2, nameIndex.size(NameIndex.USER));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ids("product", "sam"));
+    }
+
+    @Test
+    void rebuildTest() {
+        NameText user = Mockito.mock(NameText.class);
+        Mockito.when(user.getId()).thenReturn("u9");
+        Mockito.when(user.getName()).thenReturn("Suresh Patil");
+        Mockito.when(user.getCreatedAt()).thenReturn(new Date(1000));
+        Mockito.when(userRepository.findNameSliceBy(Mockito.any()))
+                .thenReturn(new SliceImpl<>(List.of(user), PageRequest.of(0, 1000), false));
+        Mockito.when(categoryRepository.findNameSliceBy(Mockito.any()))
+                .thenReturn(new SliceImpl<>(List.of(), PageRequest.of(0, 1000), false));
+
+        nameIndex.rebuild();
+
+        Assertions.assertEquals(1, nameIndex.size(NameIndex.USER));
+        Assertions.assertEquals(List.of("u9"), ids(NameIndex.USER, "sur"));
+        Assertions.assertEquals(0, nameIndex.size(NameIndex.CATEGORY));
+    }
+
+    private List<String> ids(String resource, String prefix) {
+        return nameIndex.search(resource, prefix, PageRequest.of(0, 10, Sort.by("name"))).ids();
+    }
+}
@@ -0,0 +1,122 @@
+package com.mobicoolsoft.electronic.store.helper;
+
+import com.mobicoolsoft.electronic.store.entity.Category;
+import com.mobicoolsoft.electronic.store.entity.ImageBlob;
+import com.mobicoolsoft.electronic.store.entity.Product;
+import com.mobicoolsoft.electronic.store.repository.CategoryRepository;
+import com.mobicoolsoft.electronic.store.repository.ImageBlobRepository;
+import com.mobicoolsoft.electronic.store.repository.ProductRepository;
+import com.mobicoolsoft.electronic.store.repository.TestIds;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+
+@DataJpaTest
+@ActiveProfiles("h2")
+@Import({OrphanImageCollector.class, ImageStore.class, HotImageCache.class})
+class OrphanImageCollectorTest {
+
+    private static final String REFERENCED = "a".repeat(64) + ".png";
+
+    private static final String ORPHAN = "b".repeat(64) + ".png";
+
+    private static final String RECENT = "c".repeat(64) + ".jpg";
+
+    @Autowired
+    private OrphanImageCollector orphanImageCollector;
+
+    @Autowired
+    private ImageStore imageStore;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ImageBlobRepository imageBlobRepository;
+
+    @TempDir
+    Path directory;
+
+    Path storeRoot;
+
+    Path productDir;
+
+    @BeforeEach
+    public void beforeSetUp() throws IOException {
+        storeRoot = directory.resolve("store");
+        productDir = Files.createDirectories(directory.resolve("products"));
+        ReflectionTestUtils.setField(imageStore, "root", storeRoot.toString());
+        ReflectionTestUtils.setField(orphanImageCollector, "productImagePath", productDir.toString());
+        ReflectionTestUtils.setField(orphanImageCollector, "categoryImagePath", directory.resolve("categories").toString());
+        ReflectionTestUtils.setField(orphanImageCollector, "userImagePath", directory.resolve("users").toString());
+        ReflectionTestUtils.setField(orphanImageCollector, "batchSize", 2);
+
+        Category category = Category.builder().title("mobiles").description("smart phones").coverImage("legacy-cover.png").build();
+        category.setId(TestIds.id(1001));
+        categoryRepository.save(category);
+        Product product = Product.builder().title("redmi").price(1000.0).image(REFERENCED).category(category).build();
+        product.setId(TestIds.id(1));
+        productRepository.save(product);
+        ImageBlob blob = ImageBlob.builder().size(5L).refCount(0).build();
+        blob.setId(ORPHAN);
+        imageBlobRepository.save(blob);
+    }
+
+    @Test
+    public void collectOrphansTest() throws IOException {
+        Path referenced = this.write(imageStore.locate(REFERENCED), true);
+        Path variant = this.write(imageStore.locate(ImageVariantGenerator.variantName(REFERENCED, 64)), true);
+        Path orphan = this.write(imageStore.locate(ORPHAN), true);
+        Path orphanVariant = this.write(imageStore.locate(ImageVariantGenerator.variantName(ORPHAN, 64)), true);
+        Path recent = this.write(imageStore.locate(RECENT), false);
+        Path upload = this.write(imageStore.uploadDirectory().resolve("chunked.part"), true);
+        Path legacyOrphan = this.write(productDir.resolve("legacy-product.png"), true);
+        Path legacyCover = this.write(directory.resolve("categories").resolve("legacy-cover.png"), true);
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        orphanImageCollector.bindTo(registry);
+        int deleted = 0;
+        while (registry.get("image.gc.passes").functionCounter().count() == 0) {
+            deleted += orphanImageCollector.collectBatch();
+        }
+
+        Assertions.assertEquals(3, deleted);
+        Assertions.assertFalse(Files.exists(orphan));
+        Assertions.assertFalse(Files.exists(orphanVariant));
+        Assertions.assertFalse(Files.exists(legacyOrphan));
+        Assertions.assertTrue(Files.exists(referenced));
+        Assertions.assertTrue(Files.exists(variant));
+        Assertions.assertTrue(Files.exists(recent));
+        Assertions.assertTrue(Files.exists(upload));
+        Assertions.assertTrue(Files.exists(legacyCover));
+        Assertions.assertFalse(imageBlobRepository.existsById(ORPHAN));
+        Assertions.assertEquals(7, registry.get("image.gc.files.scanned").functionCounter().count());
+        Assertions.assertEquals(3, registry.get("image.gc.files.deleted").functionCounter().count());
+        Assertions.assertEquals(15, registry.get("image.gc.bytes.reclaimed").functionCounter().count());
+    }
+
+    private Path write(Path file, boolean old) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, "image");
+        if (old) {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() - Duration.ofHours(2).toMillis()));
+        }
+        return file;
+    }
+}
@@ -0,0 +1,115 @@
+package com.mobicoolsoft.electronic.store.helper;
+
+import com.mobicoolsoft.electronic.store.repository.ProductRepository;
+import com.mobicoolsoft.electronic.store.repository.ProductText;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@SpringBootTest(classes = ProductSearchIndexTest.class)
+class ProductSearchIndexTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @InjectMocks
+    private ProductSearchIndex productSearchIndex;
+
+    @BeforeEach
+    public void beforeSetUp() {
+        productSearchIndex.index("p1", "Samsung Galaxy S23", "android smart phone with amoled display", 70000.0, new Date(3000));
+        productSearchIndex.index("p2", "Redmi Note 12", "budget android phone", 15000.0, new Date(1000));
+        productSearchIndex.index("p3", "Sony Bravia TV", "4k smart tv with android", 50000.0, new Date(2000));
+    }
+
+    @Test
+    void tokenizeTest() {
+        Assertions.assertEquals(List.of("sony", "4k", "tv", "hdr10"), ProductSearchIndex.tokenize("Sony 4K-TV (HDR10)"));
+        Assertions.assertTrue(ProductSearchIndex.tokenize("  ").isEmpty());
+    }
+
+    @Test
+    void searchRanksTitleMatchesFirstTest() {
+        productSearchIndex.index("p4", "Android Tablet", "large screen", null, null);
+
+        Assertions.assertEquals("p4", ids("android").get(0));
+        Assertions.assertEquals(4, ids("android").size());
+        // equal term frequency, the shorter description wins
+        Assertions.assertEquals(List.of("p3", "p1"), ids("smart"));
+    }
+
+    @Test
+    void searchMatchesAllTokensAndLastTokenAsPrefixTest() {
+        Assertions.assertEquals(List.of("p2"), ids("android bud"));
+        Assertions.assertEquals(List.of("p1"), ids("phone gal"));
+        Assertions.assertTrue(ids("gal phone").isEmpty());
+        Assertions.assertTrue(ids("!!").isEmpty());
+    }
+
+    @Test
+    void searchPagesInRequestedOrderTest() {
+        ProductSearchIndex.SearchPage byPrice = productSearchIndex.search("android", SortRegistry.PRODUCT.sort("price", "desc"), 1, 1);
+        Assertions.assertEquals(List.of("p3"), byPrice.ids());
+        Assertions.assertEquals(3, byPrice.total());
+        Assertions.assertEquals(List.of("p2", "p3"), productSearchIndex.search("android", SortRegistry.PRODUCT.sort("createdAt", "asc"), 0, 2).ids());
+        Assertions.assertEquals(List.of("p2", "p1", "p3"), productSearchIndex.search("android", SortRegistry.PRODUCT.sort("title", "asc"), 0, 5).ids());
+        Assertions.assertTrue(productSearchIndex.search("android", null, 5, 5).ids().isEmpty());
+    }
+
+    @Test
+    void scrollFromBoundaryTest() {
+        Sort sort = SortRegistry.PRODUCT.sort("price", "asc");
+        Assertions.assertEquals(List.of("p2", "p3"), productSearchIndex.scroll("android", sort, ScrollPosition.keyset(), 2));
+        Map<String, Object> p3 = new LinkedHashMap<>();
+        p3.put("price", 50000.0);
+        p3.put("id", "p3");
+        Assertions.assertEquals(List.of("p1"), productSearchIndex.scroll("android", sort, ScrollPosition.forward(p3), 2));
+        Assertions.assertEquals(List.of("p2"), productSearchIndex.scroll("android", sort, ScrollPosition.backward(p3), 2));
+    }
+
+    @Test
+    void updateAndRemoveTest() {
+        productSearchIndex.index("p2", "Redmi Note 13", "budget phone", null, null);
+        productSearchIndex.remove("p1");
+
+        Assertions.assertEquals(List.of("p3"), ids("android"));
+        Assertions.assertEquals(List.of("p2"), ids("13"));
+        Assertions.assertTrue(ids("12").isEmpty());
+        Assertions.assertEquals(2, productSearchIndex.size());
+    }
+
+    @Test
+    void rebuildTest() {
+        ProductText text = Mockito.mock(ProductText.class);
+        Mockito.when(text.getId()).thenReturn("p9");
+        Mockito.when(text.getTitle()).thenReturn("Apple iPhone 15");
+        Mockito.when(text.getDescription()).thenReturn("ios phone");
+        Mockito.when(text.getPrice()).thenReturn(80000.0);
+        Mockito.when(productRepository.findSliceBy((Pageable) Mockito.any(), Mockito.eq(ProductText.class)))
+                .thenReturn(new SliceImpl<>(List.of(text), PageRequest.of(0, 1000), false));
+
+        productSearchIndex.rebuild();
+
+        Assertions.assertEquals(1, productSearchIndex.size());
+        Assertions.assertEquals(List.of("p9"), ids("iphone"));
+        Assertions.assertTrue(ids("samsung").isEmpty());
+    }
+
+    private List<String> ids(String query) {
+        return productSearchIndex.search(query, null, 0, 10).ids();
+    }
+}
@@ -0,0 +1,55 @@
+package com.mobicoolsoft.electronic.store.helper;
+
+import com.mobicoolsoft.electronic.store.entity.Role;
+import com.mobicoolsoft.electronic.store.entity.User;
+import com.mobicoolsoft.electronic.store.repository.RoleRepository;
+import com.mobicoolsoft.electronic.store.repository.UserRepository;
+import com.mobicoolsoft.electronic.store.repository.TestIds;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@DataJpaTest
+@ActiveProfiles("h2")
+@Import(RoleRegistry.class)
+class RoleRegistryTest {
+
+    @Autowired
+    private RoleRegistry roleRegistry;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void builtInRolesTest() {
+        Assertions.assertEquals(3, roleRepository.count());
+        Assertions.assertEquals("USER", roleRegistry.get(503).getRoleName());
+        Assertions.assertThrows(IllegalStateException.class, () -> roleRegistry.get(504));
+        Assertions.assertEquals(Set.of(501), roleRegistry.roleIds(Set.of(new Role(501, "ADMIN"), new Role(999, "ROOT"))));
+    }
+
+    @Test
+    void userRoleIdsTest() {
+        User user = User.builder().name("sandip").email("sandip@gmail.com").roleIds(Set.of(501, 503)).build();
+        user.setId(TestIds.id(1));
+        userRepository.saveAndFlush(user);
+        entityManager.clear();
+
+        User loaded = userRepository.findById(TestIds.id(1)).orElseThrow();
+        Set<String> roleNames = roleRegistry.roles(loaded.getRoleIds()).stream().map(Role::getRoleName).collect(Collectors.toSet());
+        Assertions.assertEquals(Set.of("ADMIN", "USER"), roleNames);
+    }
+}
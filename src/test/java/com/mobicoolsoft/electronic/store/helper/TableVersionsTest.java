@@ -0,0 +1,46 @@
+package com.mobicoolsoft.electronic.store.helper;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+class TableVersionsTest {
+
+    private final TableVersions tableVersions = new TableVersions();
+
+    @BeforeEach
+    void setUp() {
+        // no rolling, versions compared within one test must not cross a time bucket
+        ReflectionTestUtils.setField(this.tableVersions, "maxAgeSeconds", 0L);
+    }
+
+    @Test
+    void bumpTest() {
+        ETagHelper.Version products = this.tableVersions.version(TableVersions.PRODUCT, TableVersions.CATEGORY);
+        Assertions.assertEquals(-1, products.lastModified());
+        Assertions.assertEquals(products.etag(), this.tableVersions.version(TableVersions.PRODUCT, TableVersions.CATEGORY).etag());
+
+        this.tableVersions.bump(TableVersions.USER);
+        Assertions.assertEquals(products.etag(), this.tableVersions.version(TableVersions.PRODUCT, TableVersions.CATEGORY).etag());
+        this.tableVersions.bump(TableVersions.CATEGORY);
+        Assertions.assertNotEquals(products.etag(), this.tableVersions.version(TableVersions.PRODUCT, TableVersions.CATEGORY).etag());
+    }
+
+    @Test
+    void bumpAfterCommitTest() {
+        ETagHelper.Version users = this.tableVersions.version(TableVersions.USER);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            this.tableVersions.bump(TableVersions.USER);
+            // uncommitted rows are not versioned yet
+            Assertions.assertEquals(users.etag(), this.tableVersions.version(TableVersions.USER).etag());
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        Assertions.assertNotEquals(users.etag(), this.tableVersions.version(TableVersions.USER).etag());
+    }
+}
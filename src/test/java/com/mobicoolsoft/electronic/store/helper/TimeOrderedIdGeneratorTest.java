@@ -0,0 +1,84 @@
+package com.mobicoolsoft.electronic.store.helper;
+
+import com.mobicoolsoft.electronic.store.entity.BinaryIdJavaType;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+class TimeOrderedIdGeneratorTest {
+
+    private static final Instant NOW = Instant.parse("2026-10-18T10:00:00Z");
+
+    @Test
+    void newIdIsVersion7WithTimestampTest() {
+        UUID id = UUID.fromString(new TimeOrderedIdGenerator(Clock.fixed(NOW, ZoneOffset.UTC)).newId());
+
+        Assertions.assertEquals(7, id.version());
+        Assertions.assertEquals(2, id.variant());
+        Assertions.assertEquals(NOW.toEpochMilli(), id.getMostSignificantBits() >>> 16);
+    }
+
+    @Test
+    void idsStrictlyIncreaseWithinOneMillisecondTest() {
+        // a fixed clock puts every id into the same millisecond, more ids than the 12 bit counter holds
+        TimeOrderedIdGenerator idGenerator = new TimeOrderedIdGenerator(Clock.fixed(NOW, ZoneOffset.UTC));
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            ids.add(idGenerator.newId());
+        }
+
+        for (int i = 1; i < ids.size(); i++) {
+            Assertions.assertTrue(ids.get(i - 1).compareTo(ids.get(i)) < 0, ids.get(i - 1) + " >= " + ids.get(i));
+        }
+        Assertions.assertEquals(7, UUID.fromString(ids.get(ids.size() - 1)).version());
+    }
+
+    @Test
+    void idsIncreaseWhenClockGoesBackTest() {
+        String sameMillisecond = new TimeOrderedIdGenerator(Clock.fixed(NOW, ZoneOffset.UTC)).newId();
+        TimeOrderedIdGenerator idGenerator = new TimeOrderedIdGenerator(new Clock() {
+            private Instant instant = NOW;
+
+            @Override
+            public Instant instant() {
+                Instant current = this.instant;
+                this.instant = this.instant.minusSeconds(1);
+                return current;
+            }
+
+            @Override
+            public ZoneOffset getZone() {
+                return ZoneOffset.UTC;
+            }
+
+            @Override
+            public Clock withZone(ZoneId zone) {
+                return this;
+            }
+        });
+
+        String first = idGenerator.newId();
+        String second = idGenerator.newId();
+
+        Assertions.assertTrue(first.compareTo(second) < 0);
+        Assertions.assertEquals(sameMillisecond.substring(0, 13), second.substring(0, 13));
+    }
+
+    @Test
+    void binaryFormRoundTripTest() {
+        String id = new TimeOrderedIdGenerator().newId();
+
+        Assertions.assertEquals(id, BinaryIdJavaType.toId(BinaryIdJavaType.toBytes(id)));
+        Assertions.assertEquals(id, BinaryIdJavaType.toId(BinaryIdJavaType.toBytes(id.toUpperCase())));
+        Assertions.assertNull(BinaryIdJavaType.toBytes("user-1"));
+        Assertions.assertNull(BinaryIdJavaType.toBytes(id.replace('-', 'x')));
+        Assertions.assertNull(BinaryIdJavaType.toBytes(id.substring(0, 35) + "g"));
+    }
+}
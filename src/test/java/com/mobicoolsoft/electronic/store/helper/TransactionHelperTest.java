@@ -0,0 +1,46 @@
+package com.mobicoolsoft.electronic.store.helper;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+class TransactionHelperTest {
+
+    @Test
+    void afterCommitWithoutTransactionTest() {
+        AtomicInteger runs = new AtomicInteger();
+        TransactionHelper.afterCommit(runs::incrementAndGet);
+        Assertions.assertEquals(1, runs.get());
+    }
+
+    @Test
+    void afterCommitTest() {
+        AtomicInteger runs = new AtomicInteger();
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            TransactionHelper.afterCommit(runs::incrementAndGet);
+            Assertions.assertEquals(0, runs.get());
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        Assertions.assertEquals(1, runs.get());
+    }
+
+    @Test
+    void rollbackTest() {
+        AtomicInteger runs = new AtomicInteger();
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            TransactionHelper.afterCommit(runs::incrementAndGet);
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        Assertions.assertEquals(0, runs.get());
+    }
+}
@@ -0,0 +1,50 @@
+package com.mobicoolsoft.electronic.store.repository;
+
+import com.mobicoolsoft.electronic.store.entity.ImageBlob;
+import com.mobicoolsoft.electronic.store.helper.HotImageCache;
+import com.mobicoolsoft.electronic.store.helper.ImageReferences;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+@DataJpaTest
+@ActiveProfiles("h2")
+@Import({ImageReferences.class, HotImageCache.class})
+class ImageBlobRepositoryTest {
+
+    private static final String NAME = "a".repeat(64) + ".png";
+
+    @Autowired
+    private ImageBlobRepository imageBlobRepository;
+
+    @Autowired
+    private ImageReferences imageReferences;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void refCountTest() {
+        imageReferences.register(NAME, 10_000);
+        imageReferences.register(NAME, 10_000);
+        imageReferences.replace(null, NAME);
+        imageReferences.replace(null, NAME);
+        imageReferences.replace("legacy-uuid.png", NAME);
+        imageReferences.replace(NAME, null);
+        entityManager.clear();
+        Assertions.assertEquals(2, imageBlobRepository.findById(NAME).map(ImageBlob::getRefCount).orElseThrow());
+
+        imageReferences.release(List.of(NAME, NAME, NAME));
+        entityManager.clear();
+        ImageBlob blob = imageBlobRepository.findById(NAME).orElseThrow();
+        Assertions.assertEquals(0, blob.getRefCount());
+        Assertions.assertEquals(10_000L, blob.getSize());
+        Assertions.assertEquals(1, imageBlobRepository.count());
+    }
+}
@@ -0,0 +1,130 @@
+package com.mobicoolsoft.electronic.store.repository;
+
+import com.mobicoolsoft.electronic.store.dto.PageResponse;
+import com.mobicoolsoft.electronic.store.dto.ProductDto;
+import com.mobicoolsoft.electronic.store.entity.Category;
+import com.mobicoolsoft.electronic.store.entity.Product;
+import com.mobicoolsoft.electronic.store.helper.CountCache;
+import com.mobicoolsoft.electronic.store.helper.CountMode;
+import com.mobicoolsoft.electronic.store.helper.DtoMapper;
+import com.mobicoolsoft.electronic.store.helper.HotImageCache;
+import com.mobicoolsoft.electronic.store.helper.ImageNames;
+import com.mobicoolsoft.electronic.store.helper.ImageReferences;
+import com.mobicoolsoft.electronic.store.helper.NameIndex;
+import com.mobicoolsoft.electronic.store.helper.ProductSearchIndex;
+import com.mobicoolsoft.electronic.store.helper.RoleRegistry;
+import com.mobicoolsoft.electronic.store.helper.TableVersions;
+import com.mobicoolsoft.electronic.store.helper.TimeOrderedIdGenerator;
+import com.mobicoolsoft.electronic.store.service.ProductServiceI;
+import com.mobicoolsoft.electronic.store.service.impl.CategoryServiceImpl;
+import com.mobicoolsoft.electronic.store.service.impl.ProductServiceImpl;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * @implNote fixed statement count per product listing, independent of how many categories a page touches
+ */
+@DataJpaTest
+@ActiveProfiles("h2")
+@Import({ProductServiceImpl.class, CategoryServiceImpl.class, NameIndex.class, DtoMapper.class, RoleRegistry.class, CountCache.class, ProductSearchIndex.class, ImageReferences.class, ImageNames.class, HotImageCache.class, TableVersions.class, ProductQueryCountTest.CacheConfig.class, TimeOrderedIdGenerator.class})
+class ProductQueryCountTest {
+
+    @TestConfiguration
+    static class CacheConfig {
+        @Bean
+        public CacheManager cacheManager() {
+            return new CaffeineCacheManager();
+        }
+    }
+
+    @Autowired
+    private ProductServiceI productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private QueryCounter queryCounter;
+
+    @BeforeEach
+    public void beforeSetUp() {
+        List<Category> categories = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Category category = Category.builder().title("category " + i).description("category description " + i).build();
+            category.setId(TestIds.id(1000 + i));
+            categories.add(this.categoryRepository.save(category));
+        }
+        for (int i = 0; i < 12; i++) {
+            Product product = Product.builder()
+                    .title("phone " + i)
+                    .description("smart phone number " + i)
+                    .price(100.0 * i)
+                    .live(true)
+                    .category(categories.get(i % categories.size()))
+                    .build();
+            product.setId(TestIds.id(i));
+            this.productRepository.save(product);
+            this.productSearchIndex.index(product.getId(), product.getTitle(), product.getDescription(), product.getPrice(), product.getCreatedAt());
+        }
+        this.queryCounter = new QueryCounter(this.entityManager);
+    }
+
+    @Test
+    public void listingQueryCountTest() {
+        // Page listings : select with category join + count
+        queryCounter.assertQueries("GET /products count=exact", 2, () -> productService.getAllProducts(1, 5, "title", "asc", CountMode.EXACT));
+        queryCounter.assertQueries("GET /products/live count=exact", 2, () -> productService.getByLiveTrue(1, 5, "title", "asc", CountMode.EXACT));
+        // category lookup + select + count
+        queryCounter.assertQueries("GET /categories/{id}/products count=exact", 3, () -> productService.getProductsByCategory(TestIds.id(1001), 1, 2, "title", "asc", CountMode.EXACT));
+        // Slice listings : select only, the cached count was filled by the exact calls above
+        queryCounter.assertQueries("GET /products", 1, () -> productService.getAllProducts(2, 5, "price", "desc", CountMode.ESTIMATE));
+        queryCounter.assertQueries("GET /products/live count=none", 1, () -> productService.getByLiveTrue(1, 5, "title", "asc", CountMode.NONE));
+        queryCounter.assertQueries("GET /products view=summary count=none", 1, () -> productService.getAllProductSummaries(1, 5, "title", "asc", CountMode.NONE));
+        // listing ETags come from the write counters, a 304 costs no query
+        queryCounter.assertQueries("GET /products If-None-Match", 0, () -> productService.getProductsVersion());
+    }
+
+    @Test
+    public void searchAndLookupQueryCountTest() {
+        queryCounter.assertQueries("GET /products/search/{query}", 1, () -> productService.getByTitleContaining("smart phone", 1, 5, "relevance", "asc", CountMode.ESTIMATE));
+        queryCounter.assertQueries("GET /products/search/{query} sortBy=title", 1, () -> productService.getByTitleContaining("phone", 2, 5, "title", "asc", CountMode.ESTIMATE));
+        queryCounter.assertQueries("GET /products cursor", 1, () -> productService.getAllProductsByCursor("", 5, "title", "asc"));
+        // the search index pages by the cursor, one select of the page ids per page
+        AtomicReference<PageResponse<ProductDto>> page = new AtomicReference<>();
+        queryCounter.assertQueries("GET /products/search/{query} cursor", 1, () -> page.set(productService.getByTitleContainingByCursor("phone", "", 5, "price", "desc")));
+        PageResponse<ProductDto> next = productService.getByTitleContainingByCursor("phone", page.get().getNextCursor(), 5, "price", "desc");
+        Assertions.assertEquals(1100.0, page.get().getContent().get(0).getPrice());
+        Assertions.assertEquals(600.0, next.getContent().get(0).getPrice());
+        Assertions.assertEquals(page.get().getContent().stream().map(ProductDto::getId).toList(),
+                productService.getByTitleContainingByCursor("phone", next.getPrevCursor(), 5, "price", "desc").getContent().stream().map(ProductDto::getId).toList());
+        queryCounter.assertQueries("GET /products/{id}", 1, () -> productService.getProductById(TestIds.id(3)));
+        // the cached product only holds the category id, its CategoryDto is read once into the category cache
+        queryCounter.assertQueries("GET /products/{id} cached", 1, () -> productService.getProductById(TestIds.id(3)));
+        queryCounter.assertQueries("GET /products/{id} cached with category", 0, () -> productService.getProductById(TestIds.id(3)));
+        // image column only, no product or category row is loaded
+        queryCounter.assertQueries("GET /products/images/{id}", 1, () -> productService.getProductImageName(TestIds.id(4)));
+        queryCounter.assertQueries("GET /products/images/{id} cached", 0, () -> productService.getProductImageName(TestIds.id(4)));
+    }
+}
@@ -0,0 +1,172 @@
+package com.mobicoolsoft.electronic.store.repository;
+
+import com.mobicoolsoft.electronic.store.dto.PageResponse;
+import com.mobicoolsoft.electronic.store.entity.Category;
+import com.mobicoolsoft.electronic.store.entity.Product;
+import com.mobicoolsoft.electronic.store.helper.CursorHelper;
+import com.mobicoolsoft.electronic.store.helper.PageHelper;
+import com.mobicoolsoft.electronic.store.helper.TimeOrderedIdGenerator;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+@DataJpaTest
+@ActiveProfiles("h2")
+class ProductRepositoryTest {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    Category category;
+
+    @BeforeEach
+    public void beforeSetUp() {
+        category = Category.builder().title("mobiles").description("smart phones").build();
+        category.setId(TestIds.id(1001));
+        this.categoryRepository.save(category);
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            Product product = Product.builder()
+                    .title(i % 5 == 0 ? "samsung " + i : "redmi " + i)
+                    // duplicated prices so the id tie-breaker decides the order inside a group
+                    .price(1000.0 * (i / 3))
+                    .live(i % 2 == 0)
+                    .category(category)
+                    .build();
+            product.setId(TestIds.id(i));
+            products.add(product);
+        }
+        this.productRepository.saveAll(products);
+    }
+
+    @Test
+    public void stampTest() {
+        this.entityManager.flush();
+        ProductStamp stamp = this.productRepository.findStampById(TestIds.id(3)).orElseThrow();
+        Assertions.assertEquals(TestIds.id(3), stamp.getId());
+        Assertions.assertNotNull(stamp.getUpdatedAt());
+        Assertions.assertEquals(category.getId(), stamp.getCategoryId());
+        Assertions.assertNotNull(stamp.getCategoryUpdatedAt());
+        Assertions.assertTrue(this.productRepository.findStampById(TestIds.id(99)).isEmpty());
+    }
+
+    @Test
+    public void scrollForwardTest() {
+        List<String> expected = this.productRepository.findAll(Sort.by(Sort.Direction.DESC, "price", "id"))
+                .stream().map(Product::getId).toList();
+        List<String> actual = new ArrayList<>();
+        String cursor = null;
+        PageResponse<String> pageResponse;
+        do {
+            pageResponse = this.scroll(ProductSpecifications.all(), cursor, 7, "price", Sort.Direction.DESC);
+            actual.addAll(pageResponse.getContent());
+            cursor = pageResponse.getNextCursor();
+        } while (!pageResponse.getLastPage());
+        Assertions.assertEquals(expected, actual);
+        Assertions.assertNull(pageResponse.getNextCursor());
+        Assertions.assertNotNull(pageResponse.getPrevCursor());
+    }
+
+    @Test
+    public void scrollBackwardTest() {
+        PageResponse<String> first = this.scroll(ProductSpecifications.all(), null, 5, "title", Sort.Direction.ASC);
+        PageResponse<String> second = this.scroll(ProductSpecifications.all(), first.getNextCursor(), 5, "title", Sort.Direction.ASC);
+        PageResponse<String> back = this.scroll(ProductSpecifications.all(), second.getPrevCursor(), 5, "title", Sort.Direction.ASC);
+        Assertions.assertNull(first.getPrevCursor());
+        Assertions.assertEquals(first.getContent(), back.getContent());
+        Assertions.assertNull(back.getPrevCursor());
+        Assertions.assertFalse(back.getLastPage());
+    }
+
+    @Test
+    public void scrollWithFilterTest() {
+        PageResponse<String> live = this.scroll(ProductSpecifications.liveTrue(), null, 20, "title", Sort.Direction.ASC);
+        PageResponse<String> byCategory = this.scroll(ProductSpecifications.inCategory(category), null, 20, "title", Sort.Direction.ASC);
+        Assertions.assertEquals(13, live.getContent().size());
+        Assertions.assertEquals(20, byCategory.getContent().size());
+        Assertions.assertNotNull(byCategory.getNextCursor());
+    }
+
+    @Test
+    public void sliceAndCountTest() {
+        Slice<Product> slice = this.productRepository.findSliceByLiveTrue(PageRequest.of(1, 5, Sort.by("title")));
+        Assertions.assertEquals(5, slice.getNumberOfElements());
+        Assertions.assertTrue(slice.hasNext());
+        Assertions.assertEquals(13, this.productRepository.countByLiveTrue());
+        Assertions.assertEquals(3, this.productRepository.findAllByIdIn(List.of(TestIds.id(1), TestIds.id(2), TestIds.id(3))).size());
+        Assertions.assertEquals(2, this.productRepository.findByIdIn(List.of(TestIds.id(1), TestIds.id(2)), ProductText.class).size());
+        Assertions.assertEquals(25, this.productRepository.countByCategory(category));
+        Assertions.assertFalse(this.productRepository.findSliceBy(PageRequest.of(2, 10)).hasNext());
+    }
+
+    @Test
+    public void summaryProjectionTest() {
+        this.entityManager.flush();
+        this.entityManager.clear();
+        Statistics statistics = this.entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        Slice<ProductSummary> slice = this.productRepository.findSliceByCategory(category, PageRequest.of(0, 10, Sort.by("title")), ProductSummary.class);
+
+        Assertions.assertEquals(10, slice.getNumberOfElements());
+        Assertions.assertEquals("redmi 1", slice.getContent().get(0).getTitle());
+        Assertions.assertNotNull(slice.getContent().get(0).getPrice());
+        Assertions.assertEquals(0, statistics.getEntityLoadCount());
+        Assertions.assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void binaryIdTest() {
+        this.entityManager.flush();
+        this.entityManager.clear();
+        TimeOrderedIdGenerator idGenerator = new TimeOrderedIdGenerator();
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Product product = Product.builder().title("oneplus " + i).price(100.0).category(category).build();
+            product.setId(idGenerator.newId());
+            ids.add(this.productRepository.save(product).getId());
+        }
+        this.entityManager.flush();
+        this.entityManager.clear();
+
+        Assertions.assertTrue(this.productRepository.findById(ids.get(0).toUpperCase()).isPresent());
+        Assertions.assertEquals("mobiles", this.productRepository.findById(ids.get(0)).orElseThrow().getCategory().getTitle());
+        Assertions.assertTrue(this.productRepository.findById("not-an-id").isEmpty());
+        Product malformed = Product.builder().title("oneplus").price(100.0).category(category).build();
+        malformed.setId("not-an-id");
+        Assertions.assertThrows(InvalidDataAccessApiUsageException.class, () -> this.productRepository.saveAndFlush(malformed));
+        // the database orders the binary ids like their strings, time-ordered ids in creation order
+        Assertions.assertEquals(ids, this.productRepository.findAll(Sort.by("id")).stream()
+                .map(Product::getId).filter(ids::contains).toList());
+    }
+
+    private PageResponse<String> scroll(Specification<Product> specification, String cursor, int pageSize, String sortBy, Sort.Direction direction) {
+        Sort sort = Sort.by(direction, sortBy, "id");
+        KeysetScrollPosition position = CursorHelper.toScrollPosition(cursor, Product.class);
+        Window<Product> window = this.productRepository.findBy(specification, query -> query.sortBy(sort).limit(pageSize).scroll(position));
+        return PageHelper.getPageResponse(window, position, pageSize, (Function<Product, String>) Product::getId);
+    }
+}
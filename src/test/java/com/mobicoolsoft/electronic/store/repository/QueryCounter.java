@@ -0,0 +1,33 @@
+package com.mobicoolsoft.electronic.store.repository;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Assertions;
+
+/**
+ * @implNote counts the JDBC statements Hibernate prepares while a call runs,
+ * needs hibernate.generate_statistics=true (application-h2.properties)
+ */
+public class QueryCounter {
+
+    private final EntityManager entityManager;
+
+    private final Statistics statistics;
+
+    public QueryCounter(EntityManager entityManager) {
+        this.entityManager = entityManager;
+        this.statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+    }
+
+    /**
+     * @implNote flushes pending writes and detaches everything so the call starts from an empty persistence context
+     */
+    public void assertQueries(String endpoint, long expected, Runnable call) {
+        this.entityManager.flush();
+        this.entityManager.clear();
+        this.statistics.clear();
+        call.run();
+        Assertions.assertEquals(expected, this.statistics.getPrepareStatementCount(), endpoint + " statements");
+    }
+}
@@ -0,0 +1,15 @@
+package com.mobicoolsoft.electronic.store.repository;
+
+/**
+ * @implNote readable fixed ids for persisted test entities. Entity ids are stored as BINARY(16) and have to be
+ * canonical UUIDs, id(3) is 00000000-0000-7000-8000-000000000003 and ids sort by their number
+ */
+public final class TestIds {
+
+    private TestIds() {
+    }
+
+    public static String id(int number) {
+        return String.format("00000000-0000-7000-8000-%012d", number);
+    }
+}
@@ -0,0 +1,94 @@
+package com.mobicoolsoft.electronic.store.repository;
+
+import com.mobicoolsoft.electronic.store.config.AppConstants;
+import com.mobicoolsoft.electronic.store.dto.PageResponse;
+import com.mobicoolsoft.electronic.store.dto.UserDto;
+import com.mobicoolsoft.electronic.store.entity.User;
+import com.mobicoolsoft.electronic.store.helper.DtoMapper;
+import com.mobicoolsoft.electronic.store.helper.EmailFilter;
+import com.mobicoolsoft.electronic.store.helper.HotImageCache;
+import com.mobicoolsoft.electronic.store.helper.ImageNames;
+import com.mobicoolsoft.electronic.store.helper.ImageReferences;
+import com.mobicoolsoft.electronic.store.helper.NameIndex;
+import com.mobicoolsoft.electronic.store.helper.RoleRegistry;
+import com.mobicoolsoft.electronic.store.helper.TableVersions;
+import com.mobicoolsoft.electronic.store.helper.TimeOrderedIdGenerator;
+import com.mobicoolsoft.electronic.store.service.CredentialServiceI;
+import com.mobicoolsoft.electronic.store.service.UserServiceI;
+import com.mobicoolsoft.electronic.store.service.impl.UserServiceImpl;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * @implNote fixed statement count per user listing, the role ids of a whole page come with one batched query
+ */
+@DataJpaTest
+@ActiveProfiles("h2")
+@Import({UserServiceImpl.class, DtoMapper.class, RoleRegistry.class, ImageReferences.class, ImageNames.class, HotImageCache.class, EmailFilter.class, NameIndex.class, TableVersions.class, TimeOrderedIdGenerator.class})
+class UserQueryCountTest {
+
+    @MockBean
+    private CredentialServiceI credentialServiceI;
+
+    @Autowired
+    private UserServiceI userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private NameIndex nameIndex;
+
+    private QueryCounter queryCounter;
+
+    @BeforeEach
+    public void beforeSetUp() {
+        for (int i = 0; i < 12; i++) {
+            User user = User.builder()
+                    .name("user " + i)
+                    .email("user" + i + "@gmail.com")
+                    .roleIds(i % 3 == 0 ? Set.of(AppConstants.ROLE_ADMIN, AppConstants.ROLE_USER) : Set.of(AppConstants.ROLE_USER))
+                    .build();
+            user.setId(TestIds.id(i));
+            this.userRepository.save(user);
+        }
+        this.entityManager.flush();
+        this.nameIndex.rebuild();
+        this.queryCounter = new QueryCounter(this.entityManager);
+    }
+
+    @Test
+    public void listingQueryCountTest() {
+        AtomicReference<PageResponse<UserDto>> page = new AtomicReference<>();
+        // select + count + role ids of the page
+        queryCounter.assertQueries("GET /users", 3, () -> page.set(userService.getAllUsers(1, 10, "name", "asc")));
+        Assertions.assertEquals(10, page.get().getContent().size());
+        Assertions.assertEquals(2, page.get().getContent().get(0).getRoles().size());
+        queryCounter.assertQueries("GET /users/search/{keyword}", 3, () -> userService.byNameContaining("user", 1, 5, "name", "asc"));
+        // ids from the name index, select by id + role ids, the total needs no count
+        queryCounter.assertQueries("GET /users/search/{keyword}?match=prefix", 2, () -> page.set(userService.byNamePrefix("us", 1, 5, "name", "asc")));
+        Assertions.assertEquals(12, page.get().getTotalElements());
+        Assertions.assertEquals("user 0", page.get().getContent().get(0).getName());
+        // select + role ids, a cursor page has no count
+        queryCounter.assertQueries("GET /users cursor", 2, () -> userService.getAllUsersByCursor("", 10, "name", "asc"));
+    }
+
+    @Test
+    public void lookupQueryCountTest() {
+        queryCounter.assertQueries("GET /users/{id}", 2, () -> userService.getUserById(TestIds.id(3)));
+        queryCounter.assertQueries("GET /users/email/{email}", 2, () -> userService.getUserByEmail("user3@gmail.com"));
+    }
+}
@@ -1,10 +1,22 @@
 package com.mobicoolsoft.electronic.store.service.impl;
 
+import com.mobicoolsoft.electronic.store.config.AppConstants;
 import com.mobicoolsoft.electronic.store.dto.CategoryDto;
 import com.mobicoolsoft.electronic.store.dto.PageResponse;
+import com.mobicoolsoft.electronic.store.dto.ProductDto;
 import com.mobicoolsoft.electronic.store.entity.Category;
 import com.mobicoolsoft.electronic.store.entity.Product;
 import com.mobicoolsoft.electronic.store.repository.CategoryRepository;
+import com.mobicoolsoft.electronic.store.repository.ProductRepository;
+import com.mobicoolsoft.electronic.store.helper.CountCache;
+import com.mobicoolsoft.electronic.store.helper.DtoMapper;
+import com.mobicoolsoft.electronic.store.helper.IdGenerator;
+import com.mobicoolsoft.electronic.store.helper.ImageNames;
+import com.mobicoolsoft.electronic.store.helper.ImageReferences;
+import com.mobicoolsoft.electronic.store.helper.NameIndex;
+import com.mobicoolsoft.electronic.store.helper.ProductSearchIndex;
+import com.mobicoolsoft.electronic.store.helper.TimeOrderedIdGenerator;
+import com.mobicoolsoft.electronic.store.helper.TableVersions;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -14,6 +26,8 @@ import org.mockito.Mockito;
 import org.mockito.Spy;
 import org.modelmapper.ModelMapper;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.data.domain.*;
 
 import java.util.Arrays;
@@ -29,12 +43,42 @@ class CategoryServiceImplTest {
     @Mock
     private CategoryRepository categoryRepository;
 
+    @Mock
+    private ImageReferences imageReferences;
+
+    @Spy
+    private ImageNames imageNames = new ImageNames(100);
+
+    @Spy
+    private IdGenerator idGenerator = new TimeOrderedIdGenerator();
+
     @InjectMocks
     private CategoryServiceImpl categoryService;
 
     @Spy
     private ModelMapper modelMapper;
 
+    @Spy
+    private DtoMapper dtoMapper;
+
+    @Spy
+    private CountCache countCache;
+
+    @Spy
+    private TableVersions tableVersions;
+
+    @Spy
+    private CacheManager cacheManager = new CaffeineCacheManager();
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Spy
+    private ProductSearchIndex productSearchIndex;
+
+    @Spy
+    private NameIndex nameIndex;
+
     Category category;
 
     Product product;
@@ -83,13 +127,27 @@ class CategoryServiceImplTest {
         Assertions.assertEquals(category.getTitle(), categoryDto.getTitle());
     }
 
+    @Test
+    void updateCategoryImageTest() {
+        Mockito.when(categoryRepository.findCoverImageById("abcd")).thenReturn(Optional.of(""));
+
+        categoryService.updateCategoryImage("abcd", "cover.png");
+
+        Mockito.verify(categoryRepository).updateCoverImage("abcd", "cover.png");
+        Mockito.verify(categoryRepository, Mockito.never()).save(Mockito.any());
+        Mockito.verify(imageReferences).replace(null, "cover.png");
+        Assertions.assertEquals("cover.png", categoryService.getCategoryImageName("abcd"));
+    }
+
     @Test
     void deleteCategoryTest() {
         Mockito.when(categoryRepository.findById("catIdTest")).thenReturn(Optional.of(category));
+        Mockito.when(productRepository.findImagesByCategory(category)).thenReturn(List.of("default.png"));
         String categoryId = "catIdTest";
         this.categoryService.deleteCategory(categoryId);
 
         Mockito.verify(categoryRepository, Mockito.times(1)).delete(category);
+        Mockito.verify(imageReferences, Mockito.times(1)).release(List.of("default.png"));
     }
 
     @Test
@@ -127,6 +185,29 @@ class CategoryServiceImplTest {
         Assertions.assertEquals(category.getTitle(), categoryDto.getTitle());
     }
 
+    @Test
+    void updateCategoryEvictsOnlyCategoryTest() {
+        category.setId("catIdTest");
+        Mockito.when(categoryRepository.findById("catIdTest")).thenReturn(Optional.of(category));
+        Mockito.when(categoryRepository.save(Mockito.any())).thenReturn(category);
+        ProductDto productDto = new ProductDto();
+        productDto.setId("productIdTest");
+        CategoryDto categoryRef = new CategoryDto();
+        categoryRef.setId("catIdTest");
+        productDto.setCategory(categoryRef);
+        cacheManager.getCache(AppConstants.PRODUCT_CACHE).put("productIdTest", productDto);
+
+        this.categoryService.getCategoryById("catIdTest");
+        this.categoryService.getCategoryById("catIdTest");
+        Mockito.verify(categoryRepository, Mockito.times(1)).findById("catIdTest");
+
+        this.categoryService.updateCategory(dtoMapper.toCategoryDto(category), "catIdTest");
+
+        Assertions.assertNull(cacheManager.getCache(AppConstants.CATEGORY_CACHE).get("catIdTest"));
+        // cached products only reference the category by id, the next read composes the updated CategoryDto
+        Assertions.assertNotNull(cacheManager.getCache(AppConstants.PRODUCT_CACHE).get("productIdTest"));
+    }
+
     @Test
     void searchCategoryByTitleKeywordTest() {
 
@@ -153,4 +234,17 @@ class CategoryServiceImplTest {
         Assertions.assertEquals(3, response.getContent().size());
 
     }
-}
\ No newline at end of file
+
+    @Test
+    void createAndDeleteCategoryUpdatesNameIndexTest() {
+        category.setId("catIdTest");
+        Mockito.when(categoryRepository.save(Mockito.any())).thenReturn(category);
+        Mockito.when(categoryRepository.findById("catIdTest")).thenReturn(Optional.of(category));
+
+        this.categoryService.createCategory(modelMapper.map(category, CategoryDto.class));
+        Assertions.assertEquals(List.of("catIdTest"), nameIndex.search(NameIndex.CATEGORY, "beau", PageRequest.of(0, 10)).ids());
+
+        this.categoryService.deleteCategory("catIdTest");
+        Assertions.assertTrue(nameIndex.search(NameIndex.CATEGORY, "beau", PageRequest.of(0, 10)).ids().isEmpty());
+    }
+}
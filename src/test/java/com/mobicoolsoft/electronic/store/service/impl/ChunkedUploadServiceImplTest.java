@@ -0,0 +1,133 @@
+package com.mobicoolsoft.electronic.store.service.impl;
+
+import com.mobicoolsoft.electronic.store.dto.ChunkedUploadDto;
+import com.mobicoolsoft.electronic.store.dto.ImageUploadJob;
+import com.mobicoolsoft.electronic.store.exception.BadApiRequestException;
+import com.mobicoolsoft.electronic.store.exception.ResourceNotFoundException;
+import com.mobicoolsoft.electronic.store.helper.ImageStore;
+import com.mobicoolsoft.electronic.store.service.FileServiceI;
+import com.mobicoolsoft.electronic.store.service.ImageUploadServiceI;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+class ChunkedUploadServiceImplTest {
+
+    private final ChunkedUploadServiceImpl chunkedUploadService = new ChunkedUploadServiceImpl(60);
+
+    private final FileServiceI fileService = Mockito.mock(FileServiceI.class);
+
+    private final ImageUploadServiceI imageUploadService = Mockito.mock(ImageUploadServiceI.class);
+
+    private final ImageStore imageStore = new ImageStore();
+
+    @TempDir
+    Path storeDir;
+
+    byte[] image;
+
+    @BeforeEach
+    public void init() {
+        image = new byte[2_500];
+        for (int i = 0; i < image.length; i++) {
+            image[i] = (byte) (i * 7);
+        }
+        ReflectionTestUtils.setField(imageStore, "root", storeDir.toString());
+        ReflectionTestUtils.setField(chunkedUploadService, "fileServiceI", fileService);
+        ReflectionTestUtils.setField(chunkedUploadService, "imageUploadServiceI", imageUploadService);
+        ReflectionTestUtils.setField(chunkedUploadService, "imageStore", imageStore);
+        ReflectionTestUtils.setField(chunkedUploadService, "chunkSize", 1_000);
+    }
+
+    @Test
+    void chunkedUploadTest() throws Exception {
+        ChunkedUploadDto upload = chunkedUploadService.createUpload("Product", "p1", ChunkedUploadDto.builder().fileName("big.png").totalSize(2_500L).build());
+        Assertions.assertEquals(3, upload.getChunkCount());
+
+        // out of order, the first attempt of chunk 1 is cut off by a disconnect
+        chunkedUploadService.writeChunk(upload.getUploadId(), 2, checksum(2_000, 2_500), chunk(2_000, 2_500));
+        Assertions.assertThrows(BadApiRequestException.class, () ->
+                chunkedUploadService.writeChunk(upload.getUploadId(), 1, checksum(1_000, 2_000), chunk(1_000, 1_400)));
+        chunkedUploadService.writeChunk(upload.getUploadId(), 0, checksum(0, 1_000), chunk(0, 1_000));
+        Assertions.assertEquals(List.of(0, 2), chunkedUploadService.getUpload(upload.getUploadId()).getReceivedChunks());
+        Assertions.assertThrows(BadApiRequestException.class, () -> chunkedUploadService.completeUpload(upload.getUploadId(), image -> { }));
+
+        chunkedUploadService.writeChunk(upload.getUploadId(), 1, checksum(1_000, 2_000), chunk(1_000, 2_000));
+
+        AtomicReference<byte[]> assembled = new AtomicReference<>();
+        Mockito.when(fileService.adoptImage(Mockito.eq("big.png"), Mockito.any(Path.class))).thenAnswer(invocation -> {
+            assembled.set(Files.readAllBytes(invocation.getArgument(1)));
+            return "stored.png";
+        });
+        Mockito.when(imageUploadService.submit(Mockito.eq("Product"), Mockito.eq("p1"), Mockito.any(ImageUploadServiceI.ImageSource.class), Mockito.any()))
+                .thenAnswer(invocation -> {
+                    ImageUploadServiceI.ImageSource source = invocation.getArgument(2);
+                    return ImageUploadJob.builder().jobId("job1").imageName(source.store()).build();
+                });
+
+        ImageUploadJob job = chunkedUploadService.completeUpload(upload.getUploadId(), image -> { });
+
+        Assertions.assertEquals("stored.png", job.getImageName());
+        Assertions.assertArrayEquals(image, assembled.get());
+        Assertions.assertThrows(ResourceNotFoundException.class, () -> chunkedUploadService.getUpload(upload.getUploadId()));
+    }
+
+    @Test
+    void sweepPartsTest() throws IOException {
+        ChunkedUploadDto live = chunkedUploadService.createUpload("Product", "p1", ChunkedUploadDto.builder().fileName("big.png").totalSize(2_500L).build());
+        Path liveFile = imageStore.uploadDirectory().resolve(live.getUploadId() + ".part");
+        Path orphaned = Files.createFile(imageStore.uploadDirectory().resolve("restarted.part"));
+        Path fresh = Files.createFile(imageStore.uploadDirectory().resolve("fresh.part"));
+        Path temporary = Files.createFile(storeDir.resolve("upload-123.part"));
+        Path stored = Files.createFile(storeDir.resolve("kept.png"));
+        FileTime old = FileTime.from(Instant.now().minus(Duration.ofMinutes(61)));
+        for (Path file : List.of(liveFile, orphaned, temporary, stored)) {
+            Files.setLastModifiedTime(file, old);
+        }
+
+        Assertions.assertEquals(2, chunkedUploadService.sweepParts());
+
+        Assertions.assertFalse(Files.exists(orphaned));
+        Assertions.assertFalse(Files.exists(temporary));
+        Assertions.assertTrue(Files.exists(liveFile));
+        Assertions.assertTrue(Files.exists(fresh));
+        Assertions.assertTrue(Files.exists(stored));
+    }
+
+    @Test
+    void chunkChecksumMismatchTest() throws IOException {
+        ChunkedUploadDto upload = chunkedUploadService.createUpload("Product", "p1", ChunkedUploadDto.builder().fileName("big.png").totalSize(2_500L).build());
+
+        Assertions.assertThrows(BadApiRequestException.class, () ->
+                chunkedUploadService.writeChunk(upload.getUploadId(), 0, checksum(1_000, 2_000), chunk(0, 1_000)));
+        Assertions.assertThrows(BadApiRequestException.class, () ->
+                chunkedUploadService.writeChunk(upload.getUploadId(), 3, checksum(0, 1_000), chunk(0, 1_000)));
+        Assertions.assertThrows(BadApiRequestException.class, () ->
+                chunkedUploadService.createUpload("Product", "p1", ChunkedUploadDto.builder().fileName("huge.png").totalSize(1L << 40).build()));
+        Assertions.assertEquals(List.of(), chunkedUploadService.getUpload(upload.getUploadId()).getReceivedChunks());
+    }
+
+    private ByteArrayInputStream chunk(int from, int to) {
+        return new ByteArrayInputStream(Arrays.copyOfRange(image, from, to));
+    }
+
+    private String checksum(int from, int to) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(Arrays.copyOfRange(image, from, to)));
+    }
+}
@@ -0,0 +1,154 @@
+package com.mobicoolsoft.electronic.store.service.impl;
+
+import com.mobicoolsoft.electronic.store.exception.TooManyRequestsException;
+import com.mobicoolsoft.electronic.store.helper.PasswordHasher;
+import com.mobicoolsoft.electronic.store.service.CredentialServiceI;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+class CredentialServiceImplTest {
+
+    private final CredentialServiceImpl credentialService = new CredentialServiceImpl(3600, 1000);
+
+    private final PasswordHasher passwordHasher = new PasswordHasher(4, 4, 1);
+
+    private final ThreadPoolTaskExecutor credentialExecutor = new ThreadPoolTaskExecutor();
+
+    private final ThreadPoolTaskExecutor importHashExecutor = new ThreadPoolTaskExecutor();
+
+    @BeforeEach
+    public void init() {
+        credentialExecutor.setCorePoolSize(1);
+        credentialExecutor.setMaxPoolSize(1);
+        credentialExecutor.setQueueCapacity(1);
+        credentialExecutor.initialize();
+        importHashExecutor.setCorePoolSize(2);
+        importHashExecutor.setMaxPoolSize(2);
+        importHashExecutor.initialize();
+        ReflectionTestUtils.setField(credentialService, "passwordHasher", passwordHasher);
+        ReflectionTestUtils.setField(credentialService, "credentialExecutor", credentialExecutor);
+        ReflectionTestUtils.setField(credentialService, "importHashExecutor", importHashExecutor);
+        ReflectionTestUtils.setField(credentialService, "maxFailures", 3);
+    }
+
+    @AfterEach
+    public void shutdown() {
+        credentialExecutor.shutdown();
+        importHashExecutor.shutdown();
+    }
+
+    @Test
+    void hashAndVerifyTest() {
+        String hash = credentialService.hash("Sandip@123").join();
+
+        Assertions.assertTrue(PasswordHasher.isHash(hash));
+        CredentialServiceI.Verification verification = credentialService.verify("10.0.0.1", "sandip@gmail.com", "Sandip@123", hash).join();
+        Assertions.assertTrue(verification.matches());
+        Assertions.assertNull(verification.rehashed());
+        Assertions.assertFalse(credentialService.verify("10.0.0.1", "sandip@gmail.com", "Wrong@123", hash).join().matches());
+    }
+
+    @Test
+    void hashAllKeepsOrderTest() {
+        List<String> hashes = credentialService.hashAll(List.of("Sandip@123", "Ramesh@123", "Suresh@123"));
+
+        Assertions.assertEquals(3, hashes.size());
+        Assertions.assertTrue(passwordHasher.matches("Sandip@123", hashes.get(0)));
+        Assertions.assertTrue(passwordHasher.matches("Ramesh@123", hashes.get(1)));
+        Assertions.assertTrue(passwordHasher.matches("Suresh@123", hashes.get(2)));
+        Assertions.assertTrue(credentialService.hashAll(List.of()).isEmpty());
+    }
+
+    @Test
+    void hashAllLeavesCredentialPoolToLoginsTest() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        credentialExecutor.execute(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        started.await();
+        try {
+            // the login pool is busy, an import still hashes on its own pool
+            List<String> hashes = credentialService.hashAll(List.of("Sandip@123", "Ramesh@123", "Suresh@123"));
+            Assertions.assertEquals(3, hashes.size());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void verifyRehashesPlainTextTest() {
+        CredentialServiceI.Verification verification = credentialService.verify("10.0.0.1", "sandip@gmail.com", "Sandip@123", "Sandip@123").join();
+
+        Assertions.assertTrue(verification.matches());
+        Assertions.assertTrue(passwordHasher.matches("Sandip@123", verification.rehashed()));
+        Assertions.assertFalse(passwordHasher.needsRehash(verification.rehashed()));
+        Assertions.assertFalse(credentialService.verify("10.0.0.1", "sandip@gmail.com", "sandip@123", "Sandip@123").join().matches());
+    }
+
+    @Test
+    void verifyBacksOffClientAfterFailuresTest() throws InterruptedException {
+        String hash = credentialService.hash("Sandip@123").join();
+        for (int i = 0; i < 3; i++) {
+            Assertions.assertFalse(credentialService.verify("10.0.0.1", "sandip@gmail.com", "Wrong@123", hash).join().matches());
+        }
+
+        TooManyRequestsException ex = Assertions.assertThrows(TooManyRequestsException.class,
+                () -> credentialService.verify("10.0.0.1", "sandip@gmail.com", "Sandip@123", hash));
+        Assertions.assertEquals(1, ex.getRetryAfterSeconds());
+        // the owner logs in from elsewhere while the failing client waits
+        Assertions.assertTrue(credentialService.verify("10.0.0.2", "sandip@gmail.com", "Sandip@123", hash).join().matches());
+        Assertions.assertTrue(credentialService.verify("10.0.0.1", "other@gmail.com", "Sandip@123", hash).join().matches());
+
+        Thread.sleep(1_100);
+        Assertions.assertFalse(credentialService.verify("10.0.0.1", "sandip@gmail.com", "Wrong@123", hash).join().matches());
+        ex = Assertions.assertThrows(TooManyRequestsException.class,
+                () -> credentialService.verify("10.0.0.1", "sandip@gmail.com", "Sandip@123", hash));
+        Assertions.assertEquals(2, ex.getRetryAfterSeconds());
+    }
+
+    @Test
+    void verifyUnknownAccountTest() {
+        for (int i = 0; i < 3; i++) {
+            Assertions.assertFalse(credentialService.verify("10.0.0.1", "nobody@gmail.com", "Sandip@123", null).join().matches());
+        }
+
+        Assertions.assertThrows(TooManyRequestsException.class,
+                () -> credentialService.verify("10.0.0.1", "nobody@gmail.com", "Sandip@123", null));
+    }
+
+    @Test
+    void verifyRefusedWhenPoolIsFullTest() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        credentialExecutor.execute(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        started.await();
+        credentialExecutor.execute(() -> {
+        });
+        try {
+            Assertions.assertThrows(TooManyRequestsException.class,
+                    () -> credentialService.verify("10.0.0.1", "sandip@gmail.com", "Sandip@123", "Sandip@123"));
+        } finally {
+            release.countDown();
+        }
+    }
+}
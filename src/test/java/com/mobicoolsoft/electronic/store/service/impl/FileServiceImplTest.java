@@ -0,0 +1,283 @@
+package com.mobicoolsoft.electronic.store.service.impl;
+
+import com.mobicoolsoft.electronic.store.exception.BadApiRequestException;
+import com.mobicoolsoft.electronic.store.helper.HotImageCache;
+import com.mobicoolsoft.electronic.store.helper.ImageReferences;
+import com.mobicoolsoft.electronic.store.helper.ImageStore;
+import com.mobicoolsoft.electronic.store.helper.ImageVariantGenerator;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.mockito.Mockito;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+class FileServiceImplTest {
+
+    private final FileServiceImpl fileService = new FileServiceImpl();
+
+    private final ImageStore imageStore = new ImageStore();
+
+    private final ImageReferences imageReferences = Mockito.mock(ImageReferences.class);
+
+    private final ImageVariantGenerator imageVariantGenerator = Mockito.mock(ImageVariantGenerator.class);
+
+    private final HotImageCache hotImageCache = new HotImageCache(1 << 20, 64 << 10);
+
+    @TempDir
+    Path imageDir;
+
+    @TempDir
+    Path storeDir;
+
+    byte[] image;
+
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+    @BeforeEach
+    public void init() throws IOException {
+        image = new byte[10_000];
+        for (int i = 0; i < image.length; i++) {
+            image[i] = (byte) i;
+        }
+        System.arraycopy(PNG_SIGNATURE, 0, image, 0, PNG_SIGNATURE.length);
+        Files.write(imageDir.resolve("product.png"), image);
+        ReflectionTestUtils.setField(imageStore, "root", storeDir.toString());
+        ReflectionTestUtils.setField(fileService, "imageStore", imageStore);
+        ReflectionTestUtils.setField(fileService, "imageReferences", imageReferences);
+        ReflectionTestUtils.setField(fileService, "imageVariantGenerator", imageVariantGenerator);
+        ReflectionTestUtils.setField(fileService, "hotImageCache", hotImageCache);
+    }
+
+    @Test
+    void uploadImageDeduplicatesTest() throws IOException {
+        String first = fileService.uploadImage(imageDir.toString(), new MockMultipartFile("productImage", "a.PNG", "image/png", image));
+        String second = fileService.uploadImage(imageDir.toString(), new MockMultipartFile("productImage", "b.png", "image/png", image));
+
+        Assertions.assertEquals(first, second);
+        Assertions.assertTrue(ImageStore.isContentAddressed(first));
+        Assertions.assertTrue(first.endsWith(".png"));
+        Path stored = storeDir.resolve(first.substring(0, 2)).resolve(first.substring(2, 4)).resolve(first);
+        Assertions.assertArrayEquals(image, Files.readAllBytes(stored));
+        try (var files = Files.walk(storeDir)) {
+            Assertions.assertEquals(1, files.filter(Files::isRegularFile).count());
+        }
+        Mockito.verify(imageReferences, Mockito.times(2)).register(first, image.length);
+        Mockito.verify(imageVariantGenerator, Mockito.times(1)).generateAsync(stored);
+    }
+
+    @Test
+    void adoptImageTest() throws IOException {
+        String uploaded = fileService.uploadImage(imageDir.toString(), new MockMultipartFile("productImage", "a.png", "image/png", image));
+        Path assembled = Files.write(imageStore.uploadDirectory().resolve("upload1.part"), image);
+
+        String adopted = fileService.adoptImage("big.PNG", assembled);
+
+        Assertions.assertEquals(uploaded, adopted);
+        Assertions.assertFalse(Files.exists(assembled));
+        Assertions.assertArrayEquals(image, Files.readAllBytes(imageStore.locate(adopted)));
+    }
+
+    @Test
+    void uploadImageSniffsContentTest() throws IOException {
+        String name = fileService.uploadImage(imageDir.toString(), new MockMultipartFile("productImage", "renamed.jpg", "image/jpeg", image));
+        Assertions.assertTrue(name.endsWith(".png"));
+
+        byte[] text = "<svg onload=alert(1)>".getBytes();
+        Assertions.assertThrows(BadApiRequestException.class, () ->
+                fileService.uploadImage(imageDir.toString(), new MockMultipartFile("productImage", "fake.png", "image/png", text)));
+        Path assembled = Files.write(imageStore.uploadDirectory().resolve("upload2.part"), text);
+        Assertions.assertThrows(BadApiRequestException.class, () -> fileService.adoptImage("fake.png", assembled));
+        Assertions.assertFalse(Files.exists(assembled));
+    }
+
+    @Test
+    void serveStoredImageTest() throws IOException {
+        image[0] = (byte) 0xFF;
+        image[1] = (byte) 0xD8;
+        image[2] = (byte) 0xFF;
+        String name = fileService.uploadImage(imageDir.toString(), new MockMultipartFile("userImage", "u.jpeg", "image/jpeg", image));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        fileService.serveImage(imageDir.toString(), name, null, new MockHttpServletRequest("GET", "/api/users/image/u1"), response);
+
+        Assertions.assertTrue(name.endsWith(".jpg"));
+        Assertions.assertEquals("image/jpeg", response.getContentType());
+        Assertions.assertArrayEquals(image, response.getContentAsByteArray());
+    }
+
+    @Test
+    void serveImageTest() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/products/images/p1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        fileService.serveImage(imageDir.toString(), "product.png", null, request, response);
+
+        Assertions.assertEquals(200, response.getStatus());
+        Assertions.assertEquals("image/png", response.getContentType());
+        Assertions.assertEquals(10_000, response.getContentLengthLong());
+        Assertions.assertEquals("bytes", response.getHeader(HttpHeaders.ACCEPT_RANGES));
+        Assertions.assertArrayEquals(image, response.getContentAsByteArray());
+    }
+
+    @Test
+    void serveImageRangeTest() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/products/images/p1");
+        request.addHeader(HttpHeaders.RANGE, "bytes=100-199");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        fileService.serveImage(imageDir.toString(), "product.png", null, request, response);
+
+        Assertions.assertEquals(206, response.getStatus());
+        Assertions.assertEquals("bytes 100-199/10000", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        Assertions.assertEquals(100, response.getContentLengthLong());
+        Assertions.assertArrayEquals(Arrays.copyOfRange(image, 100, 200), response.getContentAsByteArray());
+    }
+
+    @Test
+    void serveImageUnsatisfiableRangeTest() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/products/images/p1");
+        request.addHeader(HttpHeaders.RANGE, "bytes=20000-");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        fileService.serveImage(imageDir.toString(), "product.png", null, request, response);
+
+        Assertions.assertEquals(416, response.getStatus());
+        Assertions.assertEquals("bytes */10000", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        Assertions.assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void serveImageHeadAndStaleIfRangeTest() throws IOException {
+        MockHttpServletRequest head = new MockHttpServletRequest("HEAD", "/api/products/images/p1");
+        MockHttpServletResponse headResponse = new MockHttpServletResponse();
+        fileService.serveImage(imageDir.toString(), "product.png", null, head, headResponse);
+        Assertions.assertEquals(10_000, headResponse.getContentLengthLong());
+        Assertions.assertEquals(0, headResponse.getContentAsByteArray().length);
+        // answered from the file attributes, nothing is read into the cache
+        Assertions.assertFalse(hotImageCache.contains("product.png"));
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/products/images/p1");
+        request.addHeader(HttpHeaders.RANGE, "bytes=0-9");
+        request.addHeader(HttpHeaders.IF_RANGE, "Tue, 14 Nov 2000 22:13:20 GMT");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        fileService.serveImage(imageDir.toString(), "product.png", null, request, response);
+        Assertions.assertEquals(200, response.getStatus());
+        Assertions.assertEquals(10_000, response.getContentAsByteArray().length);
+        Assertions.assertTrue(hotImageCache.contains("product.png"));
+    }
+
+    @Test
+    void serveImageSendfileTest() throws IOException {
+        // larger than the hot image cache accepts
+        ReflectionTestUtils.setField(fileService, "hotImageCache", new HotImageCache(1 << 20, 1_000));
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/products/images/p1");
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        request.addHeader(HttpHeaders.RANGE, "bytes=-10");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        fileService.serveImage(imageDir.toString(), "product.png", null, request, response);
+
+        Assertions.assertEquals(9_990L, request.getAttribute("org.apache.tomcat.sendfile.start"));
+        Assertions.assertEquals(10_000L, request.getAttribute("org.apache.tomcat.sendfile.end"));
+        Assertions.assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void serveCachedImageTest() throws IOException {
+        fileService.serveImage(imageDir.toString(), "product.png", null, new MockHttpServletRequest("GET", "/api/products/images/p1"), new MockHttpServletResponse());
+        Files.delete(imageDir.resolve("product.png"));
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/products/images/p1");
+        request.addHeader(HttpHeaders.RANGE, "bytes=9000-");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        fileService.serveImage(imageDir.toString(), "product.png", null, request, response);
+
+        Assertions.assertEquals(206, response.getStatus());
+        Assertions.assertEquals("bytes 9000-9999/10000", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        Assertions.assertArrayEquals(Arrays.copyOfRange(image, 9000, 10_000), response.getContentAsByteArray());
+
+        hotImageCache.invalidate("product.png");
+        Assertions.assertThrows(FileNotFoundException.class, () ->
+                fileService.serveImage(imageDir.toString(), "product.png", null, new MockHttpServletRequest(), new MockHttpServletResponse()));
+    }
+
+    @Test
+    void serveImageNotModifiedTest() throws IOException {
+        String name = fileService.uploadImage(imageDir.toString(), new MockMultipartFile("productImage", "p.png", "image/png", image));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        fileService.serveImage(imageDir.toString(), name, null, new MockHttpServletRequest("GET", "/api/products/images/p1"), response);
+        String entityTag = response.getHeader(HttpHeaders.ETAG);
+        Assertions.assertEquals("\"" + name.substring(0, 64) + "\"", entityTag);
+        Assertions.assertEquals("no-cache", response.getHeader(HttpHeaders.CACHE_CONTROL));
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/products/images/p1");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, entityTag);
+        MockHttpServletResponse notModified = new MockHttpServletResponse();
+        fileService.serveImage(imageDir.toString(), name, null, request, notModified);
+        Assertions.assertEquals(304, notModified.getStatus());
+        Assertions.assertEquals(entityTag, notModified.getHeader(HttpHeaders.ETAG));
+        Assertions.assertEquals(0, notModified.getContentAsByteArray().length);
+
+        MockHttpServletRequest rangeRequest = new MockHttpServletRequest("GET", "/api/products/images/p1");
+        rangeRequest.addHeader(HttpHeaders.RANGE, "bytes=0-9");
+        rangeRequest.addHeader(HttpHeaders.IF_RANGE, entityTag);
+        MockHttpServletResponse partial = new MockHttpServletResponse();
+        fileService.serveImage(imageDir.toString(), name, null, rangeRequest, partial);
+        Assertions.assertEquals(206, partial.getStatus());
+    }
+
+    @Test
+    void serveImageNotModifiedLeavesCacheColdTest() throws IOException {
+        MockHttpServletRequest head = new MockHttpServletRequest("HEAD", "/api/products/images/p1");
+        MockHttpServletResponse headResponse = new MockHttpServletResponse();
+        fileService.serveImage(imageDir.toString(), "product.png", null, head, headResponse);
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/products/images/p1");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, headResponse.getHeader(HttpHeaders.ETAG));
+        MockHttpServletResponse notModified = new MockHttpServletResponse();
+        fileService.serveImage(imageDir.toString(), "product.png", null, request, notModified);
+
+        Assertions.assertEquals(304, notModified.getStatus());
+        Assertions.assertFalse(hotImageCache.contains("product.png"));
+    }
+
+    @Test
+    void serveVersionedImageTest() throws IOException {
+        String name = fileService.uploadImage(imageDir.toString(), new MockMultipartFile("productImage", "p.png", "image/png", image));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        fileService.serveVersionedImage(imageDir.toString(), name, name, null, new MockHttpServletRequest("GET", "/api/products/images/p1/" + name), response);
+        Assertions.assertEquals(200, response.getStatus());
+        Assertions.assertEquals("max-age=31536000, public, immutable", response.getHeader(HttpHeaders.CACHE_CONTROL));
+        Assertions.assertArrayEquals(image, response.getContentAsByteArray());
+
+        MockHttpServletRequest stale = new MockHttpServletRequest("GET", "/api/products/images/p1/old.png");
+        stale.setQueryString("w=256");
+        MockHttpServletResponse redirect = new MockHttpServletResponse();
+        fileService.serveVersionedImage(imageDir.toString(), name, "old.png", 256, stale, redirect);
+        Assertions.assertEquals(302, redirect.getStatus());
+        Assertions.assertEquals(name + "?w=256", redirect.getRedirectedUrl());
+        Assertions.assertEquals("no-cache", redirect.getHeader(HttpHeaders.CACHE_CONTROL));
+
+        MockHttpServletResponse noImage = new MockHttpServletResponse();
+        Assertions.assertThrows(FileNotFoundException.class, () ->
+                fileService.serveVersionedImage(imageDir.toString(), "", "old.png", null, stale, noImage));
+        Assertions.assertNull(noImage.getRedirectedUrl());
+    }
+
+    @Test
+    void serveMissingImageTest() {
+        Assertions.assertThrows(FileNotFoundException.class, () ->
+                fileService.serveImage(imageDir.toString(), "missing.png", null, new MockHttpServletRequest(), new MockHttpServletResponse()));
+    }
+}
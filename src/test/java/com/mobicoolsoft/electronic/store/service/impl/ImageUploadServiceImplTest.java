@@ -0,0 +1,150 @@
+package com.mobicoolsoft.electronic.store.service.impl;
+
+import com.mobicoolsoft.electronic.store.dto.ImageUploadJob;
+import com.mobicoolsoft.electronic.store.exception.BadApiRequestException;
+import com.mobicoolsoft.electronic.store.exception.ResourceNotFoundException;
+import com.mobicoolsoft.electronic.store.exception.TooManyRequestsException;
+import com.mobicoolsoft.electronic.store.service.FileServiceI;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+class ImageUploadServiceImplTest {
+
+    private final ImageUploadServiceImpl imageUploadService = new ImageUploadServiceImpl(60);
+
+    private final FileServiceI fileService = Mockito.mock(FileServiceI.class);
+
+    private final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+    @TempDir
+    Path stagingDir;
+
+    @BeforeEach
+    public void init() {
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(1);
+        executor.initialize();
+        ReflectionTestUtils.setField(imageUploadService, "fileServiceI", fileService);
+        ReflectionTestUtils.setField(imageUploadService, "imageUploadExecutor", executor);
+        ReflectionTestUtils.setField(imageUploadService, "stagingPath", stagingDir.toString());
+    }
+
+    @AfterEach
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void submitTest() throws Exception {
+        Mockito.when(fileService.uploadImage(Mockito.eq("images/products/"), Mockito.eq("p.png"), Mockito.any(InputStream.class)))
+                .thenAnswer(invocation -> {
+                    InputStream inputStream = invocation.getArgument(2);
+                    Assertions.assertArrayEquals("png-bytes".getBytes(), inputStream.readAllBytes());
+                    return "stored.png";
+                });
+        AtomicReference<String> savedImage = new AtomicReference<>();
+        CountDownLatch saved = new CountDownLatch(1);
+
+        ImageUploadJob job = imageUploadService.submit("Product", "p1", "images/products/",
+                new MockMultipartFile("productImage", "p.png", "image/png", "png-bytes".getBytes()), image -> {
+                    savedImage.set(image);
+                    saved.countDown();
+                });
+
+        Assertions.assertEquals(ImageUploadJob.Status.QUEUED, job.getStatus());
+        Assertions.assertTrue(saved.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals("stored.png", savedImage.get());
+        ImageUploadJob done = awaitFinished(job.getJobId());
+        Assertions.assertEquals(ImageUploadJob.Status.DONE, done.getStatus());
+        Assertions.assertEquals("stored.png", done.getImageName());
+        try (var staged = Files.list(stagingDir)) {
+            Assertions.assertEquals(0, staged.count());
+        }
+    }
+
+    @Test
+    void submitFailedUpdateTest() throws Exception {
+        Mockito.when(fileService.uploadImage(Mockito.anyString(), Mockito.anyString(), Mockito.any(InputStream.class))).thenReturn("stored.png");
+
+        ImageUploadJob job = imageUploadService.submit("User", "u1", "images/users/",
+                new MockMultipartFile("userImage", "u.jpg", "image/jpeg", new byte[10]), image -> {
+                    throw new ResourceNotFoundException("User", "UserID", "u1");
+                });
+
+        ImageUploadJob failed = awaitFinished(job.getJobId());
+        Assertions.assertEquals(ImageUploadJob.Status.FAILED, failed.getStatus());
+        Assertions.assertNull(failed.getImageName());
+    }
+
+    @Test
+    void submitSaturatedTest() throws Exception {
+        Mockito.when(fileService.validateImageName("p.png")).thenReturn(".png");
+        Mockito.doThrow(new BadApiRequestException()).when(fileService).validateImageName("p.gif");
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        executor.execute(() -> { });
+
+        try {
+            Assertions.assertThrows(BadApiRequestException.class, () -> imageUploadService.submit("Product", "p1", "images/products/",
+                    new MockMultipartFile("productImage", "p.gif", "image/gif", new byte[10]), image -> { }));
+            TooManyRequestsException exception = Assertions.assertThrows(TooManyRequestsException.class, () ->
+                    imageUploadService.submit("Product", "p1", "images/products/",
+                            new MockMultipartFile("productImage", "p.png", "image/png", new byte[10]), image -> { }));
+            Assertions.assertEquals(5, exception.getRetryAfterSeconds());
+            try (var staged = Files.list(stagingDir)) {
+                Assertions.assertEquals(0, staged.count());
+            }
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void sweepStagingTest() throws IOException {
+        Path stale = Files.writeString(stagingDir.resolve("stale-job"), "png-bytes");
+        Files.setLastModifiedTime(stale, FileTime.from(Instant.now().minus(Duration.ofHours(1))));
+        Path current = Files.writeString(stagingDir.resolve("current-job"), "png-bytes");
+        Files.setLastModifiedTime(current, FileTime.from(Instant.now().plusSeconds(60)));
+
+        imageUploadService.sweepStaging();
+
+        Assertions.assertFalse(Files.exists(stale));
+        Assertions.assertTrue(Files.exists(current));
+    }
+
+    private ImageUploadJob awaitFinished(String jobId) throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            ImageUploadJob job = imageUploadService.getJob(jobId);
+            if (job.getFinishedAt() != null) {
+                return job;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("job " + jobId + " did not finish");
+    }
+}
@@ -1,11 +1,26 @@
 package com.mobicoolsoft.electronic.store.service.impl;
 
+import com.mobicoolsoft.electronic.store.dto.CategoryDto;
 import com.mobicoolsoft.electronic.store.dto.PageResponse;
 import com.mobicoolsoft.electronic.store.dto.ProductDto;
+import com.mobicoolsoft.electronic.store.dto.ProductSummaryDto;
 import com.mobicoolsoft.electronic.store.entity.Category;
 import com.mobicoolsoft.electronic.store.entity.Product;
+import com.mobicoolsoft.electronic.store.exception.IllegalArgumentsException;
 import com.mobicoolsoft.electronic.store.repository.CategoryRepository;
 import com.mobicoolsoft.electronic.store.repository.ProductRepository;
+import com.mobicoolsoft.electronic.store.repository.ProductSummary;
+import com.mobicoolsoft.electronic.store.exception.ResourceNotFoundException;
+import com.mobicoolsoft.electronic.store.helper.CountCache;
+import com.mobicoolsoft.electronic.store.helper.CountMode;
+import com.mobicoolsoft.electronic.store.helper.DtoMapper;
+import com.mobicoolsoft.electronic.store.helper.IdGenerator;
+import com.mobicoolsoft.electronic.store.helper.ImageNames;
+import com.mobicoolsoft.electronic.store.helper.ImageReferences;
+import com.mobicoolsoft.electronic.store.helper.ProductSearchIndex;
+import com.mobicoolsoft.electronic.store.helper.TimeOrderedIdGenerator;
+import com.mobicoolsoft.electronic.store.helper.TableVersions;
+import com.mobicoolsoft.electronic.store.service.CategoryServiceI;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Disabled;
@@ -16,9 +31,14 @@ import org.mockito.Mockito;
 import org.mockito.Spy;
 import org.modelmapper.ModelMapper;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 
 import java.lang.reflect.Array;
 import java.util.Arrays;
@@ -37,12 +57,39 @@ class ProductServiceImplTest {
     @Mock
     private CategoryRepository categoryRepository;
 
+    @Mock
+    private ImageReferences imageReferences;
+
+    @Spy
+    private ImageNames imageNames = new ImageNames(100);
+
+    @Spy
+    private IdGenerator idGenerator = new TimeOrderedIdGenerator();
+
     @InjectMocks
     private ProductServiceImpl productService;
 
     @Spy
     private ModelMapper modelMapper;
 
+    @Spy
+    private DtoMapper dtoMapper;
+
+    @Spy
+    private CountCache countCache;
+
+    @Spy
+    private TableVersions tableVersions;
+
+    @Spy
+    private CacheManager cacheManager = new CaffeineCacheManager();
+
+    @Spy
+    private ProductSearchIndex productSearchIndex;
+
+    @Mock
+    private CategoryServiceI categoryServiceI;
+
     Product product;
 
     Category category;
@@ -131,6 +178,18 @@ class ProductServiceImplTest {
 
     }
 
+    @Test
+    void updateProductImageTest() {
+        Mockito.when(productRepository.findImageById("abcd")).thenReturn(Optional.of("old.png"));
+
+        productService.updateProductImage("abcd", "new.png");
+
+        Mockito.verify(productRepository).updateImage("abcd", "new.png");
+        Mockito.verify(productRepository, Mockito.never()).save(Mockito.any());
+        Mockito.verify(imageReferences).replace("old.png", "new.png");
+        Assertions.assertEquals("new.png", productService.getProductImageName("abcd"));
+    }
+
     @Test
     void deleteProductTest() {
         Mockito.when(productRepository.findById("abcd")).thenReturn(Optional.of(product));
@@ -170,7 +229,7 @@ class ProductServiceImplTest {
         Page<Product> page = new PageImpl(products);
         Mockito.when(productRepository.findAll((Pageable) Mockito.any())).thenReturn(page);
 
-        PageResponse<ProductDto> allProducts = productService.getAllProducts(1, 1, "title", "Asc");
+        PageResponse<ProductDto> allProducts = productService.getAllProducts(1, 1, "title", "Asc", CountMode.EXACT);
 
         Assertions.assertEquals(3, allProducts.getContent().size());
     }
@@ -185,6 +244,62 @@ class ProductServiceImplTest {
         Assertions.assertEquals(product.getTitle(), productDto.getTitle());
     }
 
+    @Test
+    void getProductByIdCachedTest() {
+        Mockito.when(productRepository.findById("abcd")).thenReturn(Optional.of(product));
+        Mockito.when(productRepository.save(Mockito.any())).thenReturn(product);
+
+        ProductDto first = productService.getProductById("abcd");
+        first.setImage("changed.png");
+        ProductDto second = productService.getProductById("abcd");
+        Mockito.verify(productRepository, Mockito.times(1)).findById("abcd");
+        Assertions.assertEquals(product.getImage(), second.getImage());
+
+        productService.updateProduct(second, "abcd");
+        productService.getProductById("abcd");
+        // one lookup inside updateProduct and one reload after the eviction
+        Mockito.verify(productRepository, Mockito.times(3)).findById("abcd");
+    }
+
+    @Test
+    void getProductByIdComposesCurrentCategoryTest() {
+        category = Category.builder().title("Beauty Products").description("ayurvedic beauty products").build();
+        category.setId("wxyz");
+        product.setCategory(category);
+        Mockito.when(productRepository.findById("abcd")).thenReturn(Optional.of(product));
+        CategoryDto renamed = dtoMapper.toCategoryDto(category);
+        renamed.setTitle("Ayurvedic Products");
+        Mockito.when(categoryServiceI.getCategoryById("wxyz")).thenReturn(renamed);
+
+        Assertions.assertEquals("Beauty Products", productService.getProductById("abcd").getCategory().getTitle());
+        ProductDto cached = productService.getProductById("abcd");
+
+        Assertions.assertEquals("Ayurvedic Products", cached.getCategory().getTitle());
+        Assertions.assertEquals(product.getTitle(), cached.getTitle());
+        Mockito.verify(productRepository, Mockito.times(1)).findById("abcd");
+    }
+
+    @Test
+    void getProductImageNameTest() {
+        Mockito.when(productRepository.findImageById("abcd")).thenReturn(Optional.of(product.getImage()));
+        Mockito.when(productRepository.findById("abcd")).thenReturn(Optional.of(product));
+        Mockito.when(productRepository.save(Mockito.any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Assertions.assertEquals(product.getImage(), productService.getProductImageName("abcd"));
+        Assertions.assertEquals(product.getImage(), productService.getProductImageName("abcd"));
+        Mockito.verify(productRepository, Mockito.times(1)).findImageById("abcd");
+        Mockito.verify(productRepository, Mockito.never()).findById("abcd");
+
+        ProductDto productDto = productService.getProductById("abcd");
+        productDto.setImage("uploaded.png");
+        productService.updateProduct(productDto, "abcd");
+        Assertions.assertEquals("uploaded.png", productService.getProductImageName("abcd"));
+        Mockito.verify(productRepository, Mockito.times(1)).findImageById("abcd");
+
+        Mockito.when(productRepository.findImageById("none")).thenReturn(Optional.empty());
+        Assertions.assertThrows(ResourceNotFoundException.class, () -> productService.getProductImageName("none"));
+    }
+
     @Test
     void getProductsByCategoryTest() {
         Product product1 = Product.builder()
@@ -222,7 +337,7 @@ class ProductServiceImplTest {
         Mockito.when(productRepository.findByCategory((Category) Mockito.any(), (Pageable) Mockito.any())).thenReturn(page);
 
         String categoryId = "abcd";
-        PageResponse<ProductDto> response = productService.getProductsByCategory(categoryId, 1, 5, "title", "asc");
+        PageResponse<ProductDto> response = productService.getProductsByCategory(categoryId, 1, 5, "title", "asc", CountMode.EXACT);
 
         System.out.println(response.getContent().size());
         System.out.println(response.getTotalElements());
@@ -256,13 +371,39 @@ class ProductServiceImplTest {
                 .image("default.png")
                 .build();
 
+        product.setId("productIdTest");
+        product1.setId("productIdTest1");
+        product2.setId("productIdTest2");
         List<Product> products = Arrays.asList(product, product1, product2);
-        Page<Product> page = new PageImpl(products);
-        Mockito.when(productRepository.findByTitleContaining(Mockito.anyString(), (Pageable) Mockito.any())).thenReturn(page);
+        products.forEach(p -> productSearchIndex.index(p.getId(), p.getTitle(), p.getDescription(), p.getPrice(), null));
+        Mockito.when(productRepository.findAllByIdIn(Mockito.anyCollection())).thenReturn(List.of(product));
 
-        PageResponse<ProductDto> response = productService.getByTitleContaining("godrej", 1, 1, "title", "asc");
+        PageResponse<ProductDto> response = productService.getByTitleContaining("godrej", 1, 1, "title", "asc", CountMode.EXACT);
 
-        Assertions.assertEquals(3, response.getContent().size());
+        Assertions.assertEquals(1, response.getContent().size());
+        Assertions.assertEquals(2, response.getTotalElements());
+        Assertions.assertFalse(response.getLastPage());
+        // equal titles, the id decides and only the id of the first page is loaded
+        Mockito.verify(productRepository).findAllByIdIn(List.of("productIdTest"));
+    }
+
+    @Test
+    void getByTitleContainingRelevanceTest() {
+        Product product1 = Product.builder().title("godrej lotion").description("godrej").build();
+        product.setId("productIdTest");
+        product1.setId("productIdTest1");
+        productSearchIndex.index(product.getId(), product.getTitle(), product.getDescription(), product.getPrice(), null);
+        productSearchIndex.index(product1.getId(), product1.getTitle(), product1.getDescription(), product1.getPrice(), null);
+        Mockito.when(productRepository.findAllByIdIn(Mockito.anyCollection())).thenReturn(List.of(product, product1));
+
+        PageResponse<ProductDto> response = productService.getByTitleContaining("godrej lot", 1, 5, "relevance", "asc", CountMode.ESTIMATE);
+        PageResponse<ProductDto> ranked = productService.getByTitleContaining("godrej", 1, 5, "relevance", "asc", CountMode.ESTIMATE);
+
+        Assertions.assertEquals(1, response.getTotalElements());
+        Assertions.assertEquals("productIdTest1", response.getContent().get(0).getId());
+        Assertions.assertEquals(2, ranked.getTotalElements());
+        Assertions.assertEquals("productIdTest1", ranked.getContent().get(0).getId());
+        Assertions.assertEquals("productIdTest", ranked.getContent().get(1).getId());
     }
 
     @Test
@@ -294,8 +435,87 @@ class ProductServiceImplTest {
 
         Mockito.when(productRepository.findByLiveTrue((Pageable) Mockito.any())).thenReturn(page);
 
-        PageResponse<ProductDto> response = productService.getByLiveTrue(1, 1, "rirle", "ace");
+        PageResponse<ProductDto> response = productService.getByLiveTrue(1, 1, "title", "desc", CountMode.EXACT);
 
         Assertions.assertEquals(3, response.getContent().size());
     }
-}
\ No newline at end of file
+
+    @Test
+    void getByLiveTrueUnknownSortTest() {
+        IllegalArgumentsException exception = Assertions.assertThrows(IllegalArgumentsException.class,
+                () -> productService.getByLiveTrue(1, 2, "product_desc", "asc", CountMode.EXACT));
+
+        Assertions.assertTrue(exception.getMessage().startsWith("sortBy should be one of"));
+        Mockito.verifyNoInteractions(productRepository);
+    }
+
+    @Test
+    void getAllProductsSortTieBreakerTest() {
+        Mockito.when(productRepository.findSliceBy((Pageable) Mockito.any())).thenReturn(new SliceImpl<>(List.of(product)));
+
+        productService.getAllProducts(1, 2, "PRICE", "desc", CountMode.NONE);
+
+        Mockito.verify(productRepository).findSliceBy(PageRequest.of(0, 2, Sort.by(Sort.Direction.DESC, "price", "id")));
+    }
+
+    @Test
+    void getByLiveTrueEstimateTest() {
+        List<Product> products = Arrays.asList(product, product);
+        Mockito.when(productRepository.findSliceByLiveTrue((Pageable) Mockito.any())).thenReturn(new SliceImpl<>(products, PageRequest.of(0, 2), true));
+        Mockito.when(productRepository.countByLiveTrue()).thenReturn(7L);
+
+        PageResponse<ProductDto> response = productService.getByLiveTrue(1, 2, "title", "asc", CountMode.ESTIMATE);
+        productService.getByLiveTrue(1, 2, "title", "asc", CountMode.ESTIMATE);
+
+        Assertions.assertEquals(2, response.getContent().size());
+        Assertions.assertEquals(7, response.getTotalElements());
+        Assertions.assertEquals(4, response.getTotalPages());
+        Assertions.assertFalse(response.getLastPage());
+        Mockito.verify(productRepository, Mockito.times(1)).countByLiveTrue();
+        Mockito.verify(productRepository, Mockito.never()).findByLiveTrue((Pageable) Mockito.any());
+    }
+
+    @Test
+    void getByLiveTrueEstimateInvalidatedTest() {
+        Mockito.when(productRepository.findSliceByLiveTrue((Pageable) Mockito.any())).thenReturn(new SliceImpl<>(List.of(product), PageRequest.of(0, 2), false));
+        Mockito.when(productRepository.countByLiveTrue()).thenReturn(1L);
+        Mockito.when(productRepository.save(Mockito.any())).thenReturn(product);
+
+        productService.getByLiveTrue(1, 2, "title", "asc", CountMode.ESTIMATE);
+        productService.createProduct(dtoMapper.toProductDto(product));
+        productService.getByLiveTrue(1, 2, "title", "asc", CountMode.ESTIMATE);
+
+        Mockito.verify(productRepository, Mockito.times(2)).countByLiveTrue();
+    }
+
+    @Test
+    void getAllProductsWithoutCountTest() {
+        Mockito.when(productRepository.findSliceBy((Pageable) Mockito.any())).thenReturn(new SliceImpl<>(List.of(product), PageRequest.of(0, 1), false));
+
+        PageResponse<ProductDto> response = productService.getAllProducts(1, 1, "title", "asc", CountMode.NONE);
+
+        Assertions.assertEquals(1, response.getContent().size());
+        Assertions.assertNull(response.getTotalElements());
+        Assertions.assertNull(response.getTotalPages());
+        Assertions.assertTrue(response.getLastPage());
+        Mockito.verify(productRepository, Mockito.never()).count();
+    }
+
+    @Test
+    void getSummariesByLiveTrueTest() {
+        ProductSummary summary = Mockito.mock(ProductSummary.class);
+        Mockito.when(summary.getTitle()).thenReturn("godrej");
+        Mockito.when(summary.getPrice()).thenReturn(19000.00);
+        Mockito.when(productRepository.findSliceByLiveTrue((Pageable) Mockito.any(), Mockito.eq(ProductSummary.class)))
+                .thenReturn(new SliceImpl<>(List.of(summary), PageRequest.of(0, 5), false));
+        Mockito.when(productRepository.countByLiveTrue()).thenReturn(1L);
+
+        PageResponse<ProductSummaryDto> response = productService.getSummariesByLiveTrue(1, 5, "title", "asc", CountMode.EXACT);
+
+        Assertions.assertEquals(1, response.getContent().size());
+        Assertions.assertEquals("godrej", response.getContent().get(0).getTitle());
+        Assertions.assertEquals(1, response.getTotalElements());
+        Assertions.assertTrue(response.getLastPage());
+        Mockito.verify(productRepository, Mockito.never()).findByLiveTrue((Pageable) Mockito.any());
+    }
+}
@@ -0,0 +1,166 @@
+package com.mobicoolsoft.electronic.store.service.impl;
+
+import com.mobicoolsoft.electronic.store.config.AppConstants;
+import com.mobicoolsoft.electronic.store.dto.UserImportResult;
+import com.mobicoolsoft.electronic.store.dto.UserImportSummary;
+import com.mobicoolsoft.electronic.store.entity.User;
+import com.mobicoolsoft.electronic.store.exception.BadApiRequestException;
+import com.mobicoolsoft.electronic.store.helper.EmailFilter;
+import com.mobicoolsoft.electronic.store.helper.HotImageCache;
+import com.mobicoolsoft.electronic.store.helper.ImageReferences;
+import com.mobicoolsoft.electronic.store.helper.NameIndex;
+import com.mobicoolsoft.electronic.store.helper.RoleRegistry;
+import com.mobicoolsoft.electronic.store.helper.TableVersions;
+import com.mobicoolsoft.electronic.store.helper.TimeOrderedIdGenerator;
+import com.mobicoolsoft.electronic.store.repository.UserRepository;
+import com.mobicoolsoft.electronic.store.service.CredentialServiceI;
+import com.mobicoolsoft.electronic.store.service.UserImportServiceI;
+import com.mobicoolsoft.electronic.store.repository.TestIds;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * @implNote runs without the test transaction, every import chunk commits its own
+ */
+@DataJpaTest
+@ActiveProfiles("h2")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({UserImportServiceImpl.class, RoleRegistry.class, EmailFilter.class, ImageReferences.class, HotImageCache.class, NameIndex.class, TableVersions.class, TimeOrderedIdGenerator.class})
+@ImportAutoConfiguration({ValidationAutoConfiguration.class, JacksonAutoConfiguration.class})
+class UserImportServiceImplTest {
+
+    @Autowired
+    private UserImportServiceImpl userImportService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @MockBean
+    private CredentialServiceI credentialServiceI;
+
+    @SpyBean
+    private EmailFilter emailFilter;
+
+    @Autowired
+    private NameIndex nameIndex;
+
+    private final List<List<UserImportResult>> chunks = new ArrayList<>();
+
+    @BeforeEach
+    public void init() {
+        ReflectionTestUtils.setField(userImportService, "chunkSize", 3);
+        Mockito.when(credentialServiceI.hashAll(Mockito.anyList()))
+                .thenAnswer(invocation -> invocation.<List<String>>getArgument(0).stream().map(password -> "hash-" + password).toList());
+        User existing = User.builder().name("existing").email("existing@gmail.com").roleIds(Set.of(AppConstants.ROLE_USER)).build();
+        existing.setId(TestIds.id(0));
+        userRepository.save(existing);
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void importNdjsonTest() throws IOException {
+        String body = String.join("\n",
+                json("sandip", "sandip@gmail.com"),
+                json("bad email", "not-an-email"),
+                "{\"name\": \"broken\"",
+                "",
+                json("existing", "existing@gmail.com"),
+                json("again", "sandip@gmail.com"),
+                json("ramesh", "ramesh@gmail.com"),
+                json("suresh", "suresh@gmail.com"));
+
+        UserImportSummary summary = importUsers(body, UserImportServiceI.Format.NDJSON);
+
+        Assertions.assertEquals(7, summary.getRows());
+        Assertions.assertEquals(3, summary.getCreated());
+        Assertions.assertEquals(4, summary.getFailed());
+        Assertions.assertEquals(3, chunks.size());
+        List<UserImportResult> results = chunks.stream().flatMap(List::stream).toList();
+        Assertions.assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L), results.stream().map(UserImportResult::getRow).toList());
+        Assertions.assertEquals(UserImportResult.Status.CREATED, results.get(0).getStatus());
+        Assertions.assertTrue(results.get(1).getMessage().startsWith("email: "));
+        Assertions.assertTrue(results.get(2).getMessage().startsWith(AppConstants.IMPORT_JSON_MSG));
+        Assertions.assertEquals(AppConstants.EMAIL_EXISTS_MSG, results.get(3).getMessage());
+        // sandip@gmail.com was committed with the first chunk
+        Assertions.assertEquals(AppConstants.EMAIL_EXISTS_MSG, results.get(4).getMessage());
+
+        User created = userRepository.findById(results.get(0).getUserId()).orElseThrow();
+        Assertions.assertEquals("hash-Sandip@123", created.getPassword());
+        Assertions.assertEquals("sandip@gmail.com", created.getNormalizedEmail());
+        Assertions.assertEquals(4, userRepository.count());
+        Assertions.assertEquals(List.of(created.getId()), nameIndex.search(NameIndex.USER, "sand", PageRequest.of(0, 10)).ids());
+    }
+
+    @Test
+    void importCsvTest() throws IOException {
+        String body = "﻿Name,Email,Password,About,Extra\r\n"
+                + "sandip,sandip@gmail.com,Sandip@123,\"designer, \"\"senior\"\"\",x\r\n"
+                + "ramesh,ramesh@gmail.com,Sandip@123\r\n"
+                + "suresh,suresh@gmail.com,\"Sandip@123,x,y\r\n";
+
+        UserImportSummary summary = importUsers(body, UserImportServiceI.Format.CSV);
+
+        Assertions.assertEquals(3, summary.getRows());
+        Assertions.assertEquals(1, summary.getCreated());
+        List<UserImportResult> results = chunks.get(0);
+        Assertions.assertEquals("designer, \"senior\"", userRepository.findById(results.get(0).getUserId()).orElseThrow().getAbout());
+        Assertions.assertTrue(results.get(1).getMessage().startsWith(AppConstants.IMPORT_CSV_MSG));
+        Assertions.assertTrue(results.get(2).getMessage().startsWith(AppConstants.IMPORT_CSV_MSG));
+
+        Assertions.assertThrows(BadApiRequestException.class, () -> importUsers("name,password\n", UserImportServiceI.Format.CSV));
+    }
+
+    @Test
+    void importChunkFallbackTest() throws IOException {
+        // an email the filter has not seen yet skips the existence query, the unique index rejects it on insert
+        Mockito.doReturn(false).when(emailFilter).mightContain(Mockito.anyString());
+        String body = String.join("\n",
+                json("sandip", "sandip@gmail.com"),
+                json("existing", "existing@gmail.com"),
+                json("ramesh", "ramesh@gmail.com"));
+
+        UserImportSummary summary = importUsers(body, UserImportServiceI.Format.NDJSON);
+
+        Assertions.assertEquals(2, summary.getCreated());
+        List<UserImportResult> results = chunks.get(0);
+        Assertions.assertEquals(UserImportResult.Status.CREATED, results.get(0).getStatus());
+        Assertions.assertEquals(AppConstants.IMPORT_SAVE_MSG, results.get(1).getMessage());
+        Assertions.assertEquals(UserImportResult.Status.CREATED, results.get(2).getStatus());
+        Assertions.assertEquals(3, userRepository.count());
+    }
+
+    private UserImportSummary importUsers(String body, UserImportServiceI.Format format) throws IOException {
+        return userImportService.importUsers(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), format, chunks::add);
+    }
+
+    private static String json(String name, String email) {
+        return "{\"name\": \"" + name + "\", \"email\": \"" + email + "\", \"password\": \"Sandip@123\", \"gender\": \"male\"}";
+    }
+}
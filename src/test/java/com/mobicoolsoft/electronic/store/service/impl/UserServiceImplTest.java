@@ -4,14 +4,26 @@ import com.mobicoolsoft.electronic.store.dto.PageResponse;
 import com.mobicoolsoft.electronic.store.dto.UserDto;
 import com.mobicoolsoft.electronic.store.entity.Role;
 import com.mobicoolsoft.electronic.store.entity.User;
+import com.mobicoolsoft.electronic.store.exception.BadApiRequestException;
 import com.mobicoolsoft.electronic.store.exception.ResourceNotFoundException;
-import com.mobicoolsoft.electronic.store.repository.RoleRepository;
 import com.mobicoolsoft.electronic.store.repository.UserRepository;
+import com.mobicoolsoft.electronic.store.service.CredentialServiceI;
 import com.mobicoolsoft.electronic.store.service.UserServiceI;
+import com.mobicoolsoft.electronic.store.helper.DtoMapper;
+import com.mobicoolsoft.electronic.store.helper.EmailFilter;
+import com.mobicoolsoft.electronic.store.helper.IdGenerator;
+import com.mobicoolsoft.electronic.store.helper.ImageNames;
+import com.mobicoolsoft.electronic.store.helper.ImageReferences;
+import com.mobicoolsoft.electronic.store.helper.NameIndex;
+import com.mobicoolsoft.electronic.store.helper.PasswordHasher;
+import com.mobicoolsoft.electronic.store.helper.RoleRegistry;
+import com.mobicoolsoft.electronic.store.helper.TimeOrderedIdGenerator;
+import com.mobicoolsoft.electronic.store.helper.TableVersions;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
@@ -19,12 +31,21 @@ import org.mockito.Spy;
 import org.modelmapper.ModelMapper;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
 
 @SpringBootTest(classes = UserServiceImplTest.class)
 class UserServiceImplTest {
@@ -32,8 +53,32 @@ class UserServiceImplTest {
     @Mock
     private UserRepository userRepository;
 
+    @Spy
+    private RoleRegistry roleRegistry = new RoleRegistry(RoleRegistry.builtInRoles());
+
+    @Mock
+    private ImageReferences imageReferences;
+
+    @Spy
+    private ImageNames imageNames = new ImageNames(100);
+
+    @Spy
+    private EmailFilter emailFilter;
+
+    @Mock
+    private CredentialServiceI credentialServiceI;
+
     @Mock
-    private RoleRepository roleRepository;
+    private PlatformTransactionManager transactionManager;
+
+    @Spy
+    private NameIndex nameIndex;
+
+    @Spy
+    private TableVersions tableVersions;
+
+    @Spy
+    private IdGenerator idGenerator = new TimeOrderedIdGenerator();
 
     @InjectMocks
     private UserServiceImpl userServiceImpl;
@@ -41,6 +86,9 @@ class UserServiceImplTest {
     @Spy
     private ModelMapper modelMapper;
 
+    @Spy
+    private DtoMapper dtoMapper;
+
     @Mock
     PageResponse<UserDto> pageResponse;
 
@@ -51,7 +99,9 @@ class UserServiceImplTest {
     @BeforeEach
     public void setUpBeforeEach() {
 
-        role = Role.builder().roleId(101).roleName("ADMIN").build();
+        role = roleRegistry.get(501);
+        ReflectionTestUtils.setField(dtoMapper, "roleRegistry", roleRegistry);
+        Mockito.when(credentialServiceI.hash(Mockito.anyString())).thenReturn(CompletableFuture.completedFuture("$2a$10$hashed"));
 
         user = User.builder()
                 .name("sandip")
@@ -60,7 +110,7 @@ class UserServiceImplTest {
                 .about("System designer")
                 .gender("male")
                 .image("default.png")
-                .roles(Set.of(role))
+                .roleIds(Set.of(role.getRoleId()))
                 .build();
     }
 
@@ -68,11 +118,26 @@ class UserServiceImplTest {
     public void createUserTest() {
 
         Mockito.when(userRepository.save(Mockito.any())).thenReturn(user);
-        Mockito.when(roleRepository.findById(Mockito.anyInt())).thenReturn(Optional.of(role));
 
-        UserDto userDto = userServiceImpl.createUser(modelMapper.map(user, UserDto.class));
+        UserDto userDto = userServiceImpl.createUser(modelMapper.map(user, UserDto.class)).join();
         Assertions.assertNotNull(userDto);
         Assertions.assertEquals(user.getName(), userDto.getName(), "expected user name does not match with actual user name!");
+        Assertions.assertEquals(Set.of("ADMIN"), userDto.getRoles().stream().map(Role::getRoleName).collect(Collectors.toSet()));
+
+        ArgumentCaptor<User> saved = ArgumentCaptor.forClass(User.class);
+        Mockito.verify(userRepository).save(saved.capture());
+        Assertions.assertTrue(saved.getValue().getRoleIds().contains(503));
+        Assertions.assertEquals("$2a$10$hashed", saved.getValue().getPassword());
+    }
+
+    @Test
+    public void createUserDuplicateEmailTest() {
+        Mockito.when(userRepository.existsByNormalizedEmail("sandip@gmail.com")).thenReturn(true);
+
+        UserDto userDto = modelMapper.map(user, UserDto.class);
+        userDto.setEmail("SANDIP@gmail.com");
+        Assertions.assertThrows(BadApiRequestException.class, () -> userServiceImpl.createUser(userDto));
+        Mockito.verify(userRepository, Mockito.never()).save(Mockito.any());
     }
 
     @Test
@@ -82,7 +147,7 @@ class UserServiceImplTest {
         Mockito.when(userRepository.save(Mockito.any())).thenReturn(user);
 
         user.setId("abcd");
-        UserDto userDto = userServiceImpl.updateUser(modelMapper.map(user, UserDto.class), user.getId());
+        UserDto userDto = userServiceImpl.updateUser(modelMapper.map(user, UserDto.class), user.getId()).join();
 
         System.out.println(userDto.getName());
 
@@ -91,6 +156,19 @@ class UserServiceImplTest {
 
     }
 
+    @Test
+    void updateUserFailedSaveKeepsImageReferencesTest() {
+        user.setId("abcd");
+        Mockito.when(userRepository.findById("abcd")).thenReturn(Optional.of(user));
+        Mockito.when(userRepository.save(Mockito.any())).thenThrow(new DataIntegrityViolationException("duplicate email"));
+        UserDto userDto = modelMapper.map(user, UserDto.class);
+        userDto.setImage("new.png");
+
+        CompletionException ex = Assertions.assertThrows(CompletionException.class, () -> userServiceImpl.updateUser(userDto, "abcd").join());
+        Assertions.assertInstanceOf(BadApiRequestException.class, ex.getCause());
+        Mockito.verify(imageReferences, Mockito.never()).replace(Mockito.any(), Mockito.any());
+    }
+
     @Test
     void deleteUserTest() {
         String userId = "userIdTest";
@@ -99,6 +177,7 @@ class UserServiceImplTest {
         userServiceImpl.deleteUser(userId);
 
         Mockito.verify(userRepository, Mockito.times(1)).delete(user);
+        Mockito.verify(imageReferences, Mockito.times(1)).replace(user.getImage(), null);
 
 //       Assertions.assertThrows(ResourceNotFoundException.class, () -> list.remove(1));
     }
@@ -112,7 +191,7 @@ class UserServiceImplTest {
                 .about("web developer")
                 .gender("male")
                 .image("default.png")
-                .roles(Set.of(role))
+                .roleIds(Set.of(role.getRoleId()))
                 .build();
         User user2 = User.builder()
                 .name("mark zuckerbuck")
@@ -121,7 +200,7 @@ class UserServiceImplTest {
                 .about("Businessman")
                 .gender("male")
                 .image("default.png")
-                .roles(Set.of(role))
+                .roleIds(Set.of(role.getRoleId()))
                 .build();
 
         List<User> userList = Arrays.asList(user, user1, user2);
@@ -150,9 +229,21 @@ class UserServiceImplTest {
     @Test
     void getUserByEmailTest() {
 
-        Mockito.when(userRepository.findByEmail(user.getEmail())).thenReturn(Optional.of(user));
+        Mockito.when(userRepository.findByNormalizedEmail(user.getEmail())).thenReturn(Optional.of(user));
+
+        UserDto userDto = userServiceImpl.getUserByEmail(" Sandip@Gmail.com ");
+
+        Assertions.assertEquals(user.getEmail(), userDto.getEmail());
+    }
+
+    @Test
+    void getUserByLegacyEmailTest() {
+
+        ReflectionTestUtils.setField(emailFilter, "legacyEmails", true);
+        Mockito.when(userRepository.findByNormalizedEmail("sandip@gmail.com")).thenReturn(Optional.empty());
+        Mockito.when(userRepository.findLegacyByEmail("sandip@gmail.com")).thenReturn(List.of(user));
 
-        UserDto userDto = userServiceImpl.getUserByEmail(user.getEmail());
+        UserDto userDto = userServiceImpl.getUserByEmail(" Sandip@Gmail.com ");
 
         Assertions.assertEquals(user.getEmail(), userDto.getEmail());
     }
@@ -160,13 +251,79 @@ class UserServiceImplTest {
     @Test
     void getUserByEmailAndPasswordTest() {
 
-        Mockito.when(userRepository.findByEmailAndPassword(user.getEmail(), user.getPassword())).thenReturn(Optional.of(user));
+        user.setId("abcd");
+        user.setNormalizedEmail("sandip@gmail.com");
+        Mockito.when(userRepository.findByNormalizedEmail(user.getEmail())).thenReturn(Optional.of(user));
+        Mockito.when(credentialServiceI.verify("127.0.0.1", "sandip@gmail.com", "Sandip@123", "Sandip@123"))
+                .thenReturn(CompletableFuture.completedFuture(new CredentialServiceI.Verification(true, "$2a$10$rehashed")));
 
-        String email = "sandip@gmail.com";
+        String email = "Sandip@gmail.com";
         String password = "Sandip@123";
-        UserDto userDto = userServiceImpl.getUserByEmailAndPassword(email, password);
+        UserDto userDto = userServiceImpl.getUserByEmailAndPassword(email, password, "127.0.0.1").join();
 
         Assertions.assertEquals(user.getName(), userDto.getName());
+        Mockito.verify(userRepository).updatePassword("abcd", "$2a$10$rehashed");
+    }
+
+    @Test
+    void uploadImageThenLoginTest() {
+        PasswordHasher passwordHasher = new PasswordHasher(4, 4, 1);
+        ThreadPoolTaskExecutor credentialExecutor = new ThreadPoolTaskExecutor();
+        credentialExecutor.initialize();
+        CredentialServiceImpl credentialService = new CredentialServiceImpl(3600, 1000);
+        ReflectionTestUtils.setField(credentialService, "passwordHasher", passwordHasher);
+        ReflectionTestUtils.setField(credentialService, "credentialExecutor", credentialExecutor);
+        ReflectionTestUtils.setField(userServiceImpl, "credentialServiceI", credentialService);
+        try {
+            user.setId("abcd");
+            user.setNormalizedEmail("sandip@gmail.com");
+            user.setPassword(passwordHasher.encode("Sandip@123"));
+            String storedHash = user.getPassword();
+            Mockito.when(userRepository.findImageById("abcd")).thenReturn(Optional.of("default.png"));
+            Mockito.when(userRepository.findById("abcd")).thenReturn(Optional.of(user));
+            Mockito.when(userRepository.findByNormalizedEmail("sandip@gmail.com")).thenReturn(Optional.of(user));
+            Mockito.when(userRepository.save(Mockito.any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+            userServiceImpl.updateUserImage("abcd", "avatar.png");
+
+            Mockito.verify(userRepository).updateImage("abcd", "avatar.png");
+            Mockito.verify(imageReferences).replace("default.png", "avatar.png");
+            Mockito.verify(userRepository, Mockito.never()).save(Mockito.any());
+            Mockito.verify(userRepository, Mockito.never()).updatePassword(Mockito.anyString(), Mockito.anyString());
+
+            // a client saving back the user it read hands in the stored hash, which is kept as it is
+            userServiceImpl.updateUser(userServiceImpl.getUserById("abcd"), "abcd").join();
+            Assertions.assertEquals(storedHash, user.getPassword());
+
+            UserDto userDto = userServiceImpl.getUserByEmailAndPassword("sandip@gmail.com", "Sandip@123", "127.0.0.1").join();
+            Assertions.assertEquals(user.getName(), userDto.getName());
+        } finally {
+            credentialExecutor.shutdown();
+        }
+    }
+
+    @Test
+    void getUserByEmailAndWrongPasswordTest() {
+        user.setNormalizedEmail("sandip@gmail.com");
+        Mockito.when(userRepository.findByNormalizedEmail(user.getEmail())).thenReturn(Optional.of(user));
+        Mockito.when(credentialServiceI.verify("127.0.0.1", "sandip@gmail.com", "Wrong@123", "Sandip@123"))
+                .thenReturn(CompletableFuture.completedFuture(CredentialServiceI.Verification.FAILED));
+
+        CompletionException ex = Assertions.assertThrows(CompletionException.class,
+                () -> userServiceImpl.getUserByEmailAndPassword("sandip@gmail.com", "Wrong@123", "127.0.0.1").join());
+        Assertions.assertInstanceOf(ResourceNotFoundException.class, ex.getCause());
+        Mockito.verify(userRepository, Mockito.never()).updatePassword(Mockito.anyString(), Mockito.anyString());
+    }
+
+    @Test
+    void getUserByUnknownEmailVerifiesDummyHashTest() {
+        Mockito.when(credentialServiceI.verify("127.0.0.1", "nobody@gmail.com", "Sandip@123", null))
+                .thenReturn(CompletableFuture.completedFuture(CredentialServiceI.Verification.FAILED));
+
+        CompletionException ex = Assertions.assertThrows(CompletionException.class,
+                () -> userServiceImpl.getUserByEmailAndPassword("nobody@gmail.com", "Sandip@123", "127.0.0.1").join());
+        Assertions.assertInstanceOf(ResourceNotFoundException.class, ex.getCause());
+        Mockito.verify(credentialServiceI).verify("127.0.0.1", "nobody@gmail.com", "Sandip@123", null);
     }
 
     @Test
@@ -178,7 +335,7 @@ class UserServiceImplTest {
                 .about("web developer")
                 .gender("male")
                 .image("default.png")
-                .roles(Set.of(role))
+                .roleIds(Set.of(role.getRoleId()))
                 .build();
         User user2 = User.builder()
                 .name("mark kolhekar")
@@ -187,7 +344,7 @@ class UserServiceImplTest {
                 .about("Businessman")
                 .gender("male")
                 .image("default.png")
-                .roles(Set.of(role))
+                .roleIds(Set.of(role.getRoleId()))
                 .build();
 
         List<User> userList = Arrays.asList(user, user1, user2);
@@ -199,4 +356,25 @@ class UserServiceImplTest {
         Assertions.assertEquals(3, users.getContent().size());
     }
 
+    @Test
+    void byNamePrefixTest() {
+        nameIndex.index(NameIndex.USER, "u1", "jack kolhekar", null);
+        nameIndex.index(NameIndex.USER, "u2", "mark kolhekar", null);
+        nameIndex.index(NameIndex.USER, "u3", "sandip", null);
+        Mockito.when(userRepository.findSliceByIdIn(Mockito.anyCollection(), Mockito.any()))
+                .thenReturn(new SliceImpl<>(List.of(user), PageRequest.of(0, 1), false));
+
+        PageResponse<UserDto> users = userServiceImpl.byNamePrefix("Kolh", 1, 1, "name", "asc");
+
+        Assertions.assertEquals(1, users.getContent().size());
+        Assertions.assertEquals(2, users.getTotalElements());
+        Assertions.assertFalse(users.getLastPage());
+        // only the ids of the requested page reach the repository
+        ArgumentCaptor<Collection<String>> userIds = ArgumentCaptor.forClass(Collection.class);
+        Mockito.verify(userRepository).findSliceByIdIn(userIds.capture(), Mockito.any());
+        Assertions.assertEquals(List.of("u1"), List.copyOf(userIds.getValue()));
+        Assertions.assertEquals(0, userServiceImpl.byNamePrefix("zed", 1, 1, "name", "asc").getContent().size());
+        Mockito.verifyNoMoreInteractions(userRepository);
+    }
+
 }
\ No newline at end of file